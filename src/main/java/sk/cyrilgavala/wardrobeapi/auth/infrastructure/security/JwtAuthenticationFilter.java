@@ -19,6 +19,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 import sk.cyrilgavala.wardrobeapi.auth.domain.model.User;
 import sk.cyrilgavala.wardrobeapi.auth.domain.repository.UserRepository;
+import sk.cyrilgavala.wardrobeapi.shared.infrastructure.config.SecurityConfiguration;
 
 @Slf4j
 @Component
@@ -75,6 +76,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  /**
+   * Skips signed image URLs, which need no user, so that serving them never verifies a token or
+   * looks up a user even when a client sends its Authorization header along.
+   */
+  @Override
+  protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+    return request.getRequestURI().startsWith(request.getContextPath()
+        + SecurityConfiguration.SIGNED_IMAGE_PATH + "/");
+  }
+
   private String extractJwtFromRequest(HttpServletRequest request) {
     String bearerToken = request.getHeader(AUTHORIZATION_HEADER);
 
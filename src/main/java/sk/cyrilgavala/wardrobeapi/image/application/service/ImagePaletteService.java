@@ -0,0 +1,20 @@
+package sk.cyrilgavala.wardrobeapi.image.application.service;
+
+import java.util.List;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageNotFoundException;
+
+/**
+ * Finds the dominant colors of stored images.
+ */
+public interface ImagePaletteService {
+
+  /**
+   * Extracts the dominant colors of an image.
+   *
+   * @param imageId the image ID
+   * @return hex colors such as {@code #1f3a93}, the most dominant first; empty if the image
+   *     cannot be decoded
+   * @throws ImageNotFoundException if the image does not exist
+   */
+  List<String> extractPalette(String imageId);
+}
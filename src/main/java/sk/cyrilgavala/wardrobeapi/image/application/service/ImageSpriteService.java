@@ -0,0 +1,20 @@
+package sk.cyrilgavala.wardrobeapi.image.application.service;
+
+import java.util.Map;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageSprite;
+
+/**
+ * Draws the thumbnails of several images onto one contact sheet.
+ */
+public interface ImageSpriteService {
+
+  /**
+   * Returns the contact sheet of the given images, rendering it unless it is cached already.
+   * Tiles are laid out row by row in the order of the map; tile keys sharing an image share its
+   * tile. Images that are missing or cannot be decoded get no tile.
+   *
+   * @param imageIds the image ID of each tile key, in the order of the tiles
+   * @return the sheet, keyed by {@link ImageSprite#keyOf(Map)}
+   */
+  ImageSprite getSprite(Map<String, String> imageIds);
+}
@@ -1,16 +1,195 @@
 package sk.cyrilgavala.wardrobeapi.image.application.service;
 
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
 import org.springframework.web.multipart.MultipartFile;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageNotFoundException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageUploadException;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
 
 public interface ImageStorageService {
 
+  /**
+   * Stores an image, or adds a reference to an already stored image with identical content.
+   * Every returned ID represents one reference and has to be released with
+   * {@link #deleteImage(String)} or {@link #deleteImages(Collection)} exactly once. JPEG and PNG
+   * images are stored without their metadata and re-encoded when that makes them smaller; identical
+   * content is recognized by the upload, not by what was stored. Identical images uploaded at the
+   * same time are deduplicated on a best-effort basis and may, rarely, both be kept.
+   *
+   * @param file the uploaded image
+   * @return the ID of the stored image
+   */
   String storeImage(MultipartFile file);
 
-  byte[] getImage(String imageId);
+  /**
+   * Stores an image while it is being received, e.g. the part of a request body that is still
+   * arriving, under the rules applied by {@link #storeImage(MultipartFile)}. An image rejected
+   * halfway leaves nothing behind. Unless images are re-encoded, which needs all of the content,
+   * it is written as it is read and duplicates are only recognized after it was written in full.
+   *
+   * @param fileName    the original file name, may be {@code null}
+   * @param contentType the declared MIME type of the image
+   * @param content     the image content, read to its end
+   * @return the ID of the stored image
+   * @throws InvalidImageException if the image is too large, of an unsupported type or its
+   *                               content does not match the type
+   */
+  String storeImage(String fileName, String contentType, InputStream content);
 
+  /**
+   * Looks up an image with a single metadata read. The content of the returned descriptor knows
+   * its length and opens a new stream on every {@code getInputStream()} call; it is not loaded up
+   * front.
+   *
+   * @param imageId the image ID
+   * @return the image descriptor
+   * @throws ImageNotFoundException if the image does not exist
+   */
+  default StoredImage getImage(String imageId) {
+    return getImage(imageId, ImageVariant.ORIGINAL);
+  }
+
+  /**
+   * Looks up a rendition of an image. Downscaled variants are generated on first request and kept
+   * next to the original; when the original cannot be decoded or is already small enough, the
+   * original itself is returned.
+   *
+   * @param imageId the ID of the original image
+   * @param variant the requested rendition
+   * @return the descriptor of the variant
+   * @throws ImageNotFoundException if the original image does not exist
+   */
+  StoredImage getImage(String imageId, ImageVariant variant);
+
+  /**
+   * Looks up a rendition of several images at once, for pages showing many of them. Stores keeping
+   * metadata in a database resolve them with a few bulk reads instead of one or two per image;
+   * missing variants are generated as by {@link #getImage(String, ImageVariant)}.
+   *
+   * @param imageIds the IDs of the original images
+   * @param variant  the requested rendition
+   * @return the descriptors by original image ID, without the images that do not exist
+   */
+  default Map<String, StoredImage> getImages(Collection<String> imageIds, ImageVariant variant) {
+    Map<String, StoredImage> images = new HashMap<>();
+    for (String imageId : imageIds) {
+      try {
+        images.putIfAbsent(imageId, getImage(imageId, variant));
+      } catch (ImageNotFoundException e) {
+        // Left out, like the images of a bulk read that found nothing
+      }
+    }
+    return images;
+  }
+
+  /**
+   * Looks up the perceptual hashes of images, for finding near duplicates: 64-bit difference
+   * hashes that differ in only a few bits for images that look alike. Hashes are kept with the
+   * image; images stored before hashing existed, or streamed without being held in memory, are
+   * hashed from their thumbnail on first lookup.
+   *
+   * @param imageIds the IDs of the original images
+   * @return the hashes by image ID, without the images that do not exist or cannot be decoded
+   */
+  Map<String, Long> getPerceptualHashes(Collection<String> imageIds);
+
+  /**
+   * Looks up the content type of an original image.
+   *
+   * @param imageId the ID of the original image
+   * @return the MIME type of the image
+   * @deprecated the descriptor returned by {@link #getImage(String)} carries the content type with
+   *     the same metadata read; this method is no longer called and will be removed
+   */
+  @Deprecated
   String getContentType(String imageId);
 
+  /**
+   * Releases one reference to an image. Once the last reference is released, the image is deleted
+   * together with all of its generated variants.
+   *
+   * @param imageId the image ID
+   */
   void deleteImage(String imageId);
 
+  /**
+   * Releases one reference per given ID with bulk operations, for background cleanup. Images
+   * left without references are deleted along with their variants. Invalid IDs are skipped.
+   *
+   * @param imageIds the IDs of the images to release, repeated once per reference
+   * @return the number of stored files deleted, variants included
+   */
+  long deleteImages(Collection<String> imageIds);
+
   boolean imageExists(String imageId);
+
+  /**
+   * Streams the IDs of original images that were neither stored nor referenced again since the
+   * cutoff, in ascending order, for finding images that no item refers to. The stream holds a
+   * database cursor and has to be closed.
+   *
+   * @param cutoff the exclusive upper bound of the last time an image was stored or referenced
+   * @return the image IDs in ascending order
+   */
+  Stream<String> streamImageIdsUnusedSince(Instant cutoff);
+
+  /**
+   * Deletes images together with their variants regardless of their reference counts, for
+   * removing images that no item refers to. Images stored or referenced again since the cutoff
+   * are skipped, so that an image picked up by a concurrent upload survives.
+   *
+   * @param imageIds the IDs of the orphaned images
+   * @param cutoff   the cutoff the images were found with
+   * @return the number of stored files deleted, variants included
+   */
+  long deleteOrphanedImages(Collection<String> imageIds, Instant cutoff);
+
+  /**
+   * Checks the announced type and size of an upload against the rules applied by
+   * {@link #storeImage(MultipartFile)}, before any chunk of it arrived.
+   *
+   * @param upload the upload to start
+   * @throws InvalidImageException if the image is empty, too large or of an unsupported type
+   */
+  void validateUpload(ImageUpload upload);
+
+  /**
+   * Stages one chunk of an upload where the store keeps its content, so that completing the
+   * upload needs no further copy. Writing a chunk again replaces it. Staged chunks not completed
+   * by {@link ImageUpload#expiresAt()} are discarded by the store.
+   *
+   * @param upload the upload the chunk belongs to
+   * @param index  the zero-based chunk number
+   * @param data   the chunk, exactly {@link ImageUpload#chunkLength(int)} bytes long
+   * @throws InvalidImageException       if the first chunk does not start with a header of the
+   *                                     announced type
+   * @throws InvalidImageUploadException if the upload was completed in the meantime
+   */
+  void writeUploadChunk(ImageUpload upload, int index, byte[] data);
+
+  /**
+   * Turns the staged chunks of an upload into an image with one reference and the ID of the
+   * upload, without reading them again. The image counts as referenced until the upload expires,
+   * so that it is not swept as orphaned before an item claimed it. Repeating the call for a
+   * completed upload returns the same image.
+   *
+   * @param upload the upload with all of its chunks staged
+   * @return the ID of the stored image
+   */
+  String completeUpload(ImageUpload upload);
+
+  /**
+   * Discards the staged chunks of an upload that was not completed.
+   *
+   * @param upload the abandoned upload
+   */
+  void discardUpload(ImageUpload upload);
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package sk.cyrilgavala.wardrobeapi.image.application.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageUploadNotFoundException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageUploadException;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.domain.repository.ImageUploadRepository;
+
+/**
+ * Resumable image uploads: a client starts an upload, sends its chunks in any order and retries
+ * failed ones, then completes it and attaches the resulting image to an item.
+ *
+ * <p>Chunks go straight to the image store. The upload keeps track of the chunks received and
+ * owns the reference of the completed image until {@link #claim(String, String)} hands it over.
+ * Uploads that are neither completed nor claimed within {@code app.image.uploads.ttl-hours} are
+ * removed by TTL indexes; a completed image left behind is swept as orphaned afterwards.
+ */
+@Slf4j
+@Service
+public class ImageUploadService {
+
+  private final ImageUploadRepository imageUploadRepository;
+  private final ImageStorageService imageStorageService;
+  private final int chunkSize;
+  private final Duration timeToLive;
+
+  public ImageUploadService(
+      ImageUploadRepository imageUploadRepository,
+      ImageStorageService imageStorageService,
+      @Value("${app.image.uploads.chunk-size-bytes:1048576}") int chunkSize,
+      @Value("${app.image.uploads.ttl-hours:24}") long ttlHours) {
+    this.imageUploadRepository = imageUploadRepository;
+    this.imageStorageService = imageStorageService;
+    this.chunkSize = chunkSize;
+    this.timeToLive = Duration.ofHours(ttlHours);
+  }
+
+  /**
+   * Starts an upload of an image with the announced type and size.
+   *
+   * @param userId      the uploading user
+   * @param contentType the MIME type of the image
+   * @param length      the size of the image in bytes
+   * @param fileName    the original file name, may be {@code null}
+   * @return the new upload, telling the chunk size to use
+   */
+  public ImageUpload start(String userId, String contentType, long length, String fileName) {
+    ImageUpload upload = ImageUpload.start(userId, contentType, length, fileName, chunkSize,
+        timeToLive);
+    imageStorageService.validateUpload(upload);
+
+    ImageUpload saved = imageUploadRepository.save(upload);
+    log.debug("Started upload {} of {} bytes in {} chunks", saved.id(), length,
+        saved.chunkCount());
+    return saved;
+  }
+
+  public ImageUpload get(String userId, String uploadId) {
+    return imageUploadRepository.findById(uploadId)
+        .filter(upload -> upload.userId().equals(userId))
+        .orElseThrow(() -> ImageUploadNotFoundException.withId(uploadId));
+  }
+
+  /**
+   * Stores one chunk of an upload. Sending a chunk again replaces it, so a chunk whose response
+   * got lost can simply be retried.
+   *
+   * @param userId   the uploading user
+   * @param uploadId the upload ID
+   * @param index    the zero-based chunk number
+   * @param content  the chunk, read up to one byte beyond its expected length
+   * @return the upload including the chunk
+   */
+  public ImageUpload writeChunk(String userId, String uploadId, int index, InputStream content) {
+    ImageUpload upload = get(userId, uploadId);
+    if (upload.isCompleted()) {
+      throw InvalidImageUploadException.alreadyCompleted(uploadId);
+    }
+    if (!upload.hasChunk(index)) {
+      throw InvalidImageUploadException.chunkOutOfRange(index, upload.chunkCount());
+    }
+
+    int expectedLength = upload.chunkLength(index);
+    byte[] data = readChunk(content, expectedLength);
+    if (data.length != expectedLength) {
+      throw InvalidImageUploadException.chunkLengthMismatch(index, expectedLength);
+    }
+
+    imageStorageService.writeUploadChunk(upload, index, data);
+    return imageUploadRepository.markChunkReceived(uploadId, index)
+        .orElseThrow(() -> InvalidImageUploadException.alreadyCompleted(uploadId));
+  }
+
+  /**
+   * Assembles the image of an upload once all chunks arrived. Completing an upload again returns
+   * it unchanged.
+   *
+   * @param userId   the uploading user
+   * @param uploadId the upload ID
+   * @return the completed upload with its image ID
+   */
+  public ImageUpload complete(String userId, String uploadId) {
+    ImageUpload upload = get(userId, uploadId);
+    if (upload.isCompleted()) {
+      return upload;
+    }
+    List<Integer> missingChunks = upload.missingChunks();
+    if (!missingChunks.isEmpty()) {
+      throw InvalidImageUploadException.incomplete(missingChunks);
+    }
+
+    String imageId = imageStorageService.completeUpload(upload);
+    log.debug("Completed upload {} as image {}", uploadId, imageId);
+    return imageUploadRepository.markCompleted(uploadId, imageId)
+        .orElseThrow(() -> ImageUploadNotFoundException.withId(uploadId));
+  }
+
+  /**
+   * Cancels an upload, discarding its chunks or releasing its completed image.
+   *
+   * @param userId   the uploading user
+   * @param uploadId the upload ID
+   */
+  public void abort(String userId, String uploadId) {
+    get(userId, uploadId);
+    imageUploadRepository.remove(uploadId).ifPresent(upload -> {
+      if (upload.isCompleted()) {
+        imageStorageService.deleteImage(upload.imageId());
+      } else {
+        imageStorageService.discardUpload(upload);
+      }
+      log.debug("Aborted upload {}", uploadId);
+    });
+  }
+
+  /**
+   * Takes over the reference to the image of a completed upload, which ends the upload. The caller
+   * has to release the image with {@link ImageStorageService#deleteImage(String)} if it cannot
+   * use it after all.
+   *
+   * @param userId  the user attaching the image
+   * @param imageId the image ID returned by {@link #complete(String, String)}
+   * @throws InvalidImageUploadException if the image is not a completed upload of the user or was
+   *                                     claimed before
+   */
+  public void claim(String userId, String imageId) {
+    imageUploadRepository.claimCompleted(userId, imageId)
+        .orElseThrow(() -> InvalidImageUploadException.notAttachable(imageId));
+    log.debug("Claimed uploaded image {}", imageId);
+  }
+
+  private static byte[] readChunk(InputStream content, int expectedLength) {
+    try {
+      // One byte more than expected reveals an oversized chunk without reading all of it
+      return content.readNBytes(expectedLength + 1);
+    } catch (IOException e) {
+      log.error("Failed to read image chunk: {}", e.getMessage(), e);
+      throw new RuntimeException("Failed to read image chunk", e);
+    }
+  }
+}
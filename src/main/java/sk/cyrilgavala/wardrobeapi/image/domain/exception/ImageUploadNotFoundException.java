@@ -0,0 +1,12 @@
+package sk.cyrilgavala.wardrobeapi.image.domain.exception;
+
+public class ImageUploadNotFoundException extends RuntimeException {
+
+  public ImageUploadNotFoundException(String message) {
+    super(message);
+  }
+
+  public static ImageUploadNotFoundException withId(String id) {
+    return new ImageUploadNotFoundException("Image upload not found with id: " + id);
+  }
+}
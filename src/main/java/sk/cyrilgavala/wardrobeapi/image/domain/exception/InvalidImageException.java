@@ -15,4 +15,25 @@ public class InvalidImageException extends RuntimeException {
     return new InvalidImageException(
         "Image size " + size + " bytes exceeds maximum allowed size of " + maxSize + " bytes.");
   }
-}
\ No newline at end of file
+
+  public static InvalidImageException exceedsMaxSize(long maxSize) {
+    return new InvalidImageException(
+        "Image exceeds maximum allowed size of " + maxSize + " bytes.");
+  }
+
+  public static InvalidImageException unrecognizedContent() {
+    return new InvalidImageException(
+        "Image content is not a valid JPEG, PNG, or WebP image.");
+  }
+
+  public static InvalidImageException contentMismatch(String contentType, String detectedType) {
+    return new InvalidImageException(
+        "Image content is " + detectedType + " but was uploaded as " + contentType + ".");
+  }
+
+  public static InvalidImageException tooManyPixels(int width, int height, long maxPixels) {
+    return new InvalidImageException(
+        "Image dimensions " + width + "x" + height + " exceed maximum allowed " + maxPixels
+            + " pixels.");
+  }
+}
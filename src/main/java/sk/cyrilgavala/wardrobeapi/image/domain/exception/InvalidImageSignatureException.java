@@ -0,0 +1,8 @@
+package sk.cyrilgavala.wardrobeapi.image.domain.exception;
+
+public class InvalidImageSignatureException extends RuntimeException {
+
+  public InvalidImageSignatureException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,35 @@
+package sk.cyrilgavala.wardrobeapi.image.domain.exception;
+
+import java.util.List;
+
+public class InvalidImageUploadException extends RuntimeException {
+
+  public InvalidImageUploadException(String message) {
+    super(message);
+  }
+
+  public static InvalidImageUploadException alreadyCompleted(String id) {
+    return new InvalidImageUploadException("Image upload " + id + " is already completed.");
+  }
+
+  public static InvalidImageUploadException chunkOutOfRange(int index, int chunkCount) {
+    return new InvalidImageUploadException(
+        "Chunk " + index + " is out of range, the upload consists of chunks 0 to "
+            + (chunkCount - 1) + ".");
+  }
+
+  public static InvalidImageUploadException chunkLengthMismatch(int index, int expectedLength) {
+    return new InvalidImageUploadException(
+        "Chunk " + index + " must be exactly " + expectedLength + " bytes long.");
+  }
+
+  public static InvalidImageUploadException incomplete(List<Integer> missingChunks) {
+    return new InvalidImageUploadException(
+        "Image upload is incomplete, missing chunks: " + missingChunks + ".");
+  }
+
+  public static InvalidImageUploadException notAttachable(String imageId) {
+    return new InvalidImageUploadException(
+        "Image " + imageId + " is not a completed upload of the current user.");
+  }
+}
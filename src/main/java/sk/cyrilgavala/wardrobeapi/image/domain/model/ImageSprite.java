@@ -0,0 +1,63 @@
+package sk.cyrilgavala.wardrobeapi.image.domain.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * A contact sheet: the thumbnails of several images drawn onto one JPEG in a grid of square
+ * tiles, so that a page of them costs a single image request.
+ *
+ * @param key      identifies the sheet, see {@link #keyOf(Map)}
+ * @param content  the encoded JPEG, empty if no image could be drawn
+ * @param width    the width of the sheet in pixels
+ * @param height   the height of the sheet in pixels
+ * @param tileSize the side of a tile in pixels
+ * @param tiles    the area each tile key's image covers on the sheet, in the order of the keys;
+ *                 keys whose image could not be drawn are missing
+ */
+public record ImageSprite(
+    String key,
+    byte[] content,
+    int width,
+    int height,
+    int tileSize,
+    Map<String, Tile> tiles
+) {
+
+  /**
+   * Area of an image on the sheet. Images keep their aspect ratio and are centered in their tile.
+   *
+   * @param x      the left edge in pixels
+   * @param y      the top edge in pixels
+   * @param width  the width in pixels
+   * @param height the height in pixels
+   */
+  public record Tile(int x, int y, int width, int height) {
+
+  }
+
+  public boolean isEmpty() {
+    return tiles.isEmpty();
+  }
+
+  /**
+   * Derives the key of the sheet for the given tiles. Images never change under their ID, so
+   * equal keys always describe the same sheet.
+   *
+   * @param imageIds the image ID of each tile key, in the order of the tiles
+   * @return the hex-encoded SHA-256 of the tile keys and image IDs
+   */
+  public static String keyOf(Map<String, String> imageIds) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      imageIds.forEach((tileKey, imageId) ->
+          digest.update((tileKey + "=" + imageId + "\n").getBytes(StandardCharsets.UTF_8)));
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+}
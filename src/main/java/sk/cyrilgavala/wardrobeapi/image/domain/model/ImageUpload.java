@@ -0,0 +1,103 @@
+package sk.cyrilgavala.wardrobeapi.image.domain.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import lombok.Builder;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Resumable upload of a single image, sent as numbered chunks of {@link #chunkSize()} bytes in
+ * any order. The ID of the upload becomes the ID of the image once it is completed; the image
+ * then holds one reference owned by the upload until an item claims it.
+ *
+ * <p>Uploads are removed by a TTL index at {@link #expiresAt()}, whether completed or not.
+ */
+@Document(collection = "image_uploads")
+@Builder(toBuilder = true)
+public record ImageUpload(
+    @Id
+    String id,
+    @Field("user_id")
+    String userId,
+    @Field("content_type")
+    String contentType,
+    @Field("file_name")
+    String fileName,
+    @Field("length")
+    long length,
+    @Field("chunk_size")
+    int chunkSize,
+    @Field("received_chunks")
+    Set<Integer> receivedChunks,
+    @Indexed(name = "image_id_idx", sparse = true)
+    @Field("image_id")
+    String imageId,
+    @Field("created_at")
+    Instant createdAt,
+    @Indexed(name = "expires_at_ttl_idx", expireAfter = "0s")
+    @Field("expires_at")
+    Instant expiresAt
+) {
+
+  public static ImageUpload start(
+      String userId,
+      String contentType,
+      long length,
+      String fileName,
+      int chunkSize,
+      Duration timeToLive) {
+    Instant now = Instant.now();
+    return ImageUpload.builder()
+        .id(new ObjectId().toHexString())
+        .userId(userId)
+        .contentType(contentType)
+        .fileName(fileName)
+        .length(length)
+        .chunkSize(chunkSize)
+        .receivedChunks(Set.of())
+        .createdAt(now)
+        .expiresAt(now.plus(timeToLive))
+        .build();
+  }
+
+  public int chunkCount() {
+    return (int) ((length + chunkSize - 1) / chunkSize);
+  }
+
+  /**
+   * Returns the exact length of a chunk: the chunk size for all chunks but the last one, which
+   * holds the remainder.
+   *
+   * @param index the zero-based chunk number
+   * @return the length of the chunk in bytes
+   */
+  public int chunkLength(int index) {
+    if (index < chunkCount() - 1) {
+      return chunkSize;
+    }
+    return (int) (length - (long) chunkSize * (chunkCount() - 1));
+  }
+
+  public boolean hasChunk(int index) {
+    return index >= 0 && index < chunkCount();
+  }
+
+  public List<Integer> missingChunks() {
+    Set<Integer> received = receivedChunks != null ? receivedChunks : Set.of();
+    return IntStream.range(0, chunkCount())
+        .filter(index -> !received.contains(index))
+        .boxed()
+        .toList();
+  }
+
+  public boolean isCompleted() {
+    return imageId != null;
+  }
+}
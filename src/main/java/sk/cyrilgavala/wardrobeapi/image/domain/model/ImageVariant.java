@@ -0,0 +1,61 @@
+package sk.cyrilgavala.wardrobeapi.image.domain.model;
+
+import java.util.Locale;
+
+/**
+ * Renditions in which an image can be served. Everything but {@link #ORIGINAL} is a downscaled
+ * copy whose longer side does not exceed {@link #maxDimension()} pixels.
+ */
+public enum ImageVariant {
+
+  ORIGINAL(0),
+  THUMB(200),
+  MEDIUM(800);
+
+  private final int maxDimension;
+
+  ImageVariant(int maxDimension) {
+    this.maxDimension = maxDimension;
+  }
+
+  public int maxDimension() {
+    return maxDimension;
+  }
+
+  /**
+   * Name under which the variant is stored and requested, e.g. {@code thumb}.
+   */
+  public String key() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Entity tag of this rendition of an image. Stored images never change, so the tag only has to
+   * tell renditions apart.
+   *
+   * @param imageId the ID of the original image
+   * @return the unquoted entity tag
+   */
+  public String eTag(String imageId) {
+    return this == ORIGINAL ? imageId : imageId + "-" + key();
+  }
+
+  /**
+   * Parses a variant from a request parameter.
+   *
+   * @param value the parameter value, case-insensitive; {@code null} means {@link #ORIGINAL}
+   * @return the variant
+   * @throws IllegalArgumentException if the value does not name a variant
+   */
+  public static ImageVariant fromParameter(String value) {
+    if (value == null || value.isBlank()) {
+      return ORIGINAL;
+    }
+    for (ImageVariant variant : values()) {
+      if (variant.key().equalsIgnoreCase(value.trim())) {
+        return variant;
+      }
+    }
+    throw new IllegalArgumentException("Unknown image variant: " + value);
+  }
+}
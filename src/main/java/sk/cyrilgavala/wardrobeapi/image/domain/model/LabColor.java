@@ -0,0 +1,104 @@
+package sk.cyrilgavala.wardrobeapi.image.domain.model;
+
+/**
+ * A color in the CIE L*a*b* space under the D65 white point. Unlike RGB, the Euclidean distance
+ * between two L*a*b* colors roughly follows how different they look (CIE76 delta E), so a
+ * distance of about 2 is barely noticeable and one above 25 is a different color.
+ *
+ * @param l the lightness, from 0 to 100
+ * @param a the position between green (negative) and red (positive)
+ * @param b the position between blue (negative) and yellow (positive)
+ */
+public record LabColor(double l, double a, double b) {
+
+  private static final double WHITE_X = 0.95047;
+  private static final double WHITE_Y = 1.0;
+  private static final double WHITE_Z = 1.08883;
+  private static final double EPSILON = 6.0 / 29;
+
+  /**
+   * Converts an sRGB color, ignoring its alpha channel.
+   *
+   * @param rgb the color packed as {@code 0xRRGGBB}
+   * @return the color in L*a*b*
+   */
+  public static LabColor fromRgb(int rgb) {
+    double red = linear((rgb >> 16) & 0xFF);
+    double green = linear((rgb >> 8) & 0xFF);
+    double blue = linear(rgb & 0xFF);
+
+    double x = (0.4124564 * red + 0.3575761 * green + 0.1804375 * blue) / WHITE_X;
+    double y = (0.2126729 * red + 0.7151522 * green + 0.0721750 * blue) / WHITE_Y;
+    double z = (0.0193339 * red + 0.1191920 * green + 0.9503041 * blue) / WHITE_Z;
+
+    double fy = f(y);
+    return new LabColor(116 * fy - 16, 500 * (f(x) - fy), 200 * (fy - f(z)));
+  }
+
+  /**
+   * Parses a hex color such as {@code #1f3a93}; the leading {@code #} is optional.
+   *
+   * @param hex the color
+   * @return the color in L*a*b*
+   * @throws IllegalArgumentException if the value is not a six-digit hex color
+   */
+  public static LabColor fromHex(String hex) {
+    String digits = hex != null && hex.startsWith("#") ? hex.substring(1) : hex;
+    if (digits == null || !digits.matches("[0-9a-fA-F]{6}")) {
+      throw new IllegalArgumentException("Invalid color, expected e.g. #1f3a93: " + hex);
+    }
+    return fromRgb(Integer.parseInt(digits, 16));
+  }
+
+  /**
+   * Converts the color back to sRGB, clipping it to the sRGB gamut.
+   *
+   * @return the color packed as {@code 0xRRGGBB}
+   */
+  public int toRgb() {
+    double fy = (l + 16) / 116;
+    double x = WHITE_X * fInverse(fy + a / 500);
+    double y = WHITE_Y * fInverse(fy);
+    double z = WHITE_Z * fInverse(fy - b / 200);
+
+    int red = gamma(3.2404542 * x - 1.5371385 * y - 0.4985314 * z);
+    int green = gamma(-0.9692660 * x + 1.8760108 * y + 0.0415560 * z);
+    int blue = gamma(0.0556434 * x - 0.2040259 * y + 1.0572252 * z);
+    return red << 16 | green << 8 | blue;
+  }
+
+  /**
+   * Formats the color as lowercase hex, e.g. {@code #1f3a93}.
+   */
+  public String toHex() {
+    return String.format("#%06x", toRgb());
+  }
+
+  /**
+   * Returns the CIE76 delta E between two colors.
+   */
+  public double distance(LabColor other) {
+    double dl = l - other.l;
+    double da = a - other.a;
+    double db = b - other.b;
+    return Math.sqrt(dl * dl + da * da + db * db);
+  }
+
+  private static double linear(int channel) {
+    double value = channel / 255.0;
+    return value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4);
+  }
+
+  private static int gamma(double linear) {
+    double value = linear <= 0.0031308 ? 12.92 * linear : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+    return (int) Math.round(Math.clamp(value, 0.0, 1.0) * 255);
+  }
+
+  private static double f(double t) {
+    return t > EPSILON * EPSILON * EPSILON ? Math.cbrt(t) : t / (3 * EPSILON * EPSILON) + 4.0 / 29;
+  }
+
+  private static double fInverse(double t) {
+    return t > EPSILON ? t * t * t : 3 * EPSILON * EPSILON * (t - 4.0 / 29);
+  }
+}
@@ -0,0 +1,43 @@
+package sk.cyrilgavala.wardrobeapi.image.domain.model;
+
+import java.time.Instant;
+import org.springframework.core.io.Resource;
+
+/**
+ * Descriptor of a stored image together with a lazily opened stream of its content. Everything
+ * except the content itself comes from a single metadata lookup.
+ *
+ * @param id          the image ID
+ * @param contentType the MIME type of the image
+ * @param length      the size of the image in bytes
+ * @param uploadDate  when the image was stored
+ * @param sha256      hex-encoded SHA-256 of the content, {@code null} for images stored before
+ *                    hashes were recorded
+ * @param content     the image content, streamed on demand
+ * @param substitute  whether this is the original served in place of a variant that could not
+ *                    be generated right now; it must not be cached as that variant
+ */
+public record StoredImage(
+    String id,
+    String contentType,
+    long length,
+    Instant uploadDate,
+    String sha256,
+    Resource content,
+    boolean substitute
+) {
+
+  public StoredImage(String id, String contentType, long length, Instant uploadDate, String sha256,
+      Resource content) {
+    this(id, contentType, length, uploadDate, sha256, content, false);
+  }
+
+  /**
+   * Marks this image as served in place of a variant that is generated by a later request.
+   *
+   * @return a copy of the image flagged as substitute
+   */
+  public StoredImage asSubstitute() {
+    return new StoredImage(id, contentType, length, uploadDate, sha256, content, true);
+  }
+}
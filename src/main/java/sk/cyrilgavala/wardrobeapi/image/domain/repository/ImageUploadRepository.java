@@ -0,0 +1,63 @@
+package sk.cyrilgavala.wardrobeapi.image.domain.repository;
+
+import java.util.Optional;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+
+/**
+ * Repository interface for {@link ImageUpload}s. Expired uploads are never returned, even before
+ * the TTL index removed them.
+ */
+public interface ImageUploadRepository {
+
+  /**
+   * Persists a new upload.
+   *
+   * @param upload the upload to save
+   * @return the saved upload
+   */
+  ImageUpload save(ImageUpload upload);
+
+  /**
+   * Finds an upload that has not expired yet.
+   *
+   * @param id the upload ID
+   * @return an Optional containing the upload if found, empty otherwise
+   */
+  Optional<ImageUpload> findById(String id);
+
+  /**
+   * Atomically records the arrival of a chunk of an upload that is not completed yet.
+   *
+   * @param id    the upload ID
+   * @param index the zero-based chunk number
+   * @return the updated upload, empty if it expired or was completed in the meantime
+   */
+  Optional<ImageUpload> markChunkReceived(String id, int index);
+
+  /**
+   * Records the image assembled from an upload.
+   *
+   * @param id      the upload ID
+   * @param imageId the ID of the stored image
+   * @return the updated upload, empty if it expired in the meantime
+   */
+  Optional<ImageUpload> markCompleted(String id, String imageId);
+
+  /**
+   * Atomically removes an upload, so that exactly one caller takes over the reference to its
+   * image.
+   *
+   * @param id the upload ID
+   * @return the removed upload, empty if it was removed before
+   */
+  Optional<ImageUpload> remove(String id);
+
+  /**
+   * Atomically removes the completed, not expired upload of a user that produced the given image.
+   *
+   * @param userId  the user's unique identifier
+   * @param imageId the image ID
+   * @return the removed upload, empty if there is none
+   */
+  Optional<ImageUpload> claimCompleted(String userId, String imageId);
+}
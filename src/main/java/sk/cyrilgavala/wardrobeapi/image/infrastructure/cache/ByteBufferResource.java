@@ -0,0 +1,134 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.cache;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * {@link org.springframework.core.io.Resource} over cached image bytes held in a direct
+ * {@link ByteBuffer}. Every stream or channel works on its own view of the buffer, so the content
+ * is read straight from off-heap memory into the caller's transfer buffer and never materialized
+ * on the heap as a whole. A buffer mapped from a file is marked as such, so that it is not cached
+ * again in memory, but the file is not exposed: it holds more than the content.
+ */
+final class ByteBufferResource extends AbstractResource {
+
+  private final ByteBuffer content;
+  private final long lastModified;
+  private final String description;
+  private final boolean mapped;
+
+  ByteBufferResource(ByteBuffer content, long lastModified, String description) {
+    this(content, lastModified, description, false);
+  }
+
+  ByteBufferResource(ByteBuffer content, long lastModified, String description, boolean mapped) {
+    this.content = content.asReadOnlyBuffer();
+    this.lastModified = lastModified;
+    this.description = description;
+    this.mapped = mapped;
+  }
+
+  @Override
+  public boolean exists() {
+    // Still readable through the buffer once a mapped file was deleted
+    return true;
+  }
+
+  /**
+   * Returns whether the buffer is mapped from a file, whose content the operating system caches
+   * already.
+   */
+  boolean isMapped() {
+    return mapped;
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return new ByteBufferInputStream(content.duplicate());
+  }
+
+  @Override
+  public ReadableByteChannel readableChannel() {
+    ByteBuffer view = content.duplicate();
+    return new ReadableByteChannel() {
+      private boolean open = true;
+
+      @Override
+      public int read(ByteBuffer target) {
+        if (!view.hasRemaining()) {
+          return -1;
+        }
+        int count = Math.min(target.remaining(), view.remaining());
+        target.put(view.slice(view.position(), count));
+        view.position(view.position() + count);
+        return count;
+      }
+
+      @Override
+      public boolean isOpen() {
+        return open;
+      }
+
+      @Override
+      public void close() {
+        open = false;
+      }
+    };
+  }
+
+  @Override
+  public long contentLength() {
+    return content.remaining();
+  }
+
+  @Override
+  public long lastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public String getDescription() {
+    return description;
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int count) {
+      if (count == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int read = Math.min(count, buffer.remaining());
+      buffer.get(target, offset, read);
+      return read;
+    }
+
+    @Override
+    public long skip(long count) {
+      int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
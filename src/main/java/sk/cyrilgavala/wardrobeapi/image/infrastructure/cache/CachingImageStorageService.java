@@ -0,0 +1,238 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+
+/**
+ * Read-through cache in front of the image storage.
+ *
+ * <p>Images up to {@code max-entry-bytes} are copied into direct buffers outside of the Java heap
+ * on their first read and served from there afterwards, until they are evicted in least recently
+ * used order to keep all cached content within {@code max-bytes}. Thumbnails and recently added
+ * images make up most reads, so a small budget already saves most chunk reads. Images served from
+ * local files are left to the page cache of the operating system, and originals served in place of
+ * a variant are not cached as that variant. Deleting an image evicts all of its variants.
+ */
+@Slf4j
+@Service
+@Primary
+public class CachingImageStorageService implements ImageStorageService {
+
+  private final ImageStorageService delegate;
+  private final long maxEntryBytes;
+  private final ImageByteCache<CacheKey> cache;
+  private final Counter hits;
+  private final Counter misses;
+
+  public CachingImageStorageService(
+      @Qualifier("imageStore") ImageStorageService delegate,
+      MeterRegistry meterRegistry,
+      @Value("${app.image.cache.max-bytes:67108864}") long maxBytes,
+      @Value("${app.image.cache.max-entry-bytes:2097152}") long maxEntryBytes) {
+    this.delegate = delegate;
+    this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    this.cache = new ImageByteCache<>(maxBytes);
+
+    this.hits = Counter.builder("images.cache.requests")
+        .tag("result", "hit")
+        .description("Image reads served from the cache")
+        .register(meterRegistry);
+    this.misses = Counter.builder("images.cache.requests")
+        .tag("result", "miss")
+        .description("Image reads that went to the storage")
+        .register(meterRegistry);
+    Gauge.builder("images.cache.resident.bytes", cache, ImageByteCache::residentBytes)
+        .description("Off-heap bytes held by cached images")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("images.cache.entries", cache, ImageByteCache::size)
+        .description("Images held in the cache")
+        .register(meterRegistry);
+    Gauge.builder("images.cache.hit.ratio", this, CachingImageStorageService::hitRatio)
+        .description("Share of image reads served from the cache")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public String storeImage(MultipartFile file) {
+    return delegate.storeImage(file);
+  }
+
+  @Override
+  public String storeImage(String fileName, String contentType, InputStream content) {
+    return delegate.storeImage(fileName, contentType, content);
+  }
+
+  @Override
+  public StoredImage getImage(String imageId, ImageVariant variant) {
+    CacheKey key = new CacheKey(imageId, variant);
+    StoredImage cached = cache.get(key);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+
+    misses.increment();
+    StoredImage image = delegate.getImage(imageId, variant);
+    if (image.substitute() || image.length() > maxEntryBytes
+        || isCachedByOperatingSystem(image.content())) {
+      return image;
+    }
+
+    try {
+      StoredImage buffered = buffer(image);
+      cache.put(key, buffered);
+      return buffered;
+    } catch (IOException e) {
+      log.warn("Failed to cache image {}: {}", imageId, e.getMessage());
+      return image;
+    }
+  }
+
+  @Override
+  public Map<String, StoredImage> getImages(Collection<String> imageIds, ImageVariant variant) {
+    Map<String, StoredImage> images = new HashMap<>();
+    List<String> missingIds = new ArrayList<>();
+    for (String imageId : imageIds) {
+      StoredImage cached = cache.get(new CacheKey(imageId, variant));
+      if (cached != null) {
+        hits.increment();
+        images.put(imageId, cached);
+      } else if (!missingIds.contains(imageId)) {
+        missingIds.add(imageId);
+      }
+    }
+    if (missingIds.isEmpty()) {
+      return images;
+    }
+
+    // Bulk reads do not fill the cache, a page asking for metadata only must not pull the
+    // content of all of its images
+    misses.increment(missingIds.size());
+    images.putAll(delegate.getImages(missingIds, variant));
+    return images;
+  }
+
+  @Override
+  public Map<String, Long> getPerceptualHashes(Collection<String> imageIds) {
+    return delegate.getPerceptualHashes(imageIds);
+  }
+
+  @Deprecated
+  @Override
+  public String getContentType(String imageId) {
+    return delegate.getContentType(imageId);
+  }
+
+  @Override
+  public void deleteImage(String imageId) {
+    delegate.deleteImage(imageId);
+    cache.invalidate(key -> key.imageId().equals(imageId));
+  }
+
+  @Override
+  public long deleteImages(Collection<String> imageIds) {
+    long deleted = delegate.deleteImages(imageIds);
+    Set<String> evicted = Set.copyOf(imageIds);
+    cache.invalidate(key -> evicted.contains(key.imageId()));
+    return deleted;
+  }
+
+  @Override
+  public boolean imageExists(String imageId) {
+    return delegate.imageExists(imageId);
+  }
+
+  @Override
+  public Stream<String> streamImageIdsUnusedSince(Instant cutoff) {
+    return delegate.streamImageIdsUnusedSince(cutoff);
+  }
+
+  @Override
+  public long deleteOrphanedImages(Collection<String> imageIds, Instant cutoff) {
+    long deleted = delegate.deleteOrphanedImages(imageIds, cutoff);
+    Set<String> evicted = Set.copyOf(imageIds);
+    cache.invalidate(key -> evicted.contains(key.imageId()));
+    return deleted;
+  }
+
+  @Override
+  public void validateUpload(ImageUpload upload) {
+    delegate.validateUpload(upload);
+  }
+
+  @Override
+  public void writeUploadChunk(ImageUpload upload, int index, byte[] data) {
+    delegate.writeUploadChunk(upload, index, data);
+  }
+
+  @Override
+  public String completeUpload(ImageUpload upload) {
+    return delegate.completeUpload(upload);
+  }
+
+  @Override
+  public void discardUpload(ImageUpload upload) {
+    delegate.discardUpload(upload);
+  }
+
+  private double hitRatio() {
+    double requests = hits.count() + misses.count();
+    return requests == 0 ? 0 : hits.count() / requests;
+  }
+
+  private static StoredImage buffer(StoredImage image) throws IOException {
+    ByteBuffer content = ByteBuffer.allocateDirect(Math.toIntExact(image.length()));
+    try (InputStream input = image.content().getInputStream();
+        ReadableByteChannel channel = Channels.newChannel(input)) {
+      while (content.hasRemaining() && channel.read(content) >= 0) {
+        // Keep reading until the buffer is full or the stream ends
+      }
+    }
+    if (content.hasRemaining()) {
+      throw new IOException("Image content is shorter than its length of " + image.length());
+    }
+
+    return new StoredImage(image.id(), image.contentType(), image.length(), image.uploadDate(),
+        image.sha256(), new ByteBufferResource(content.flip(), image.uploadDate().toEpochMilli(),
+        "Cached image [" + image.id() + "]"));
+  }
+
+  /**
+   * Returns whether content is read from a local file or its mapping, which the page cache of the
+   * operating system holds already.
+   */
+  private static boolean isCachedByOperatingSystem(Resource content) {
+    return content.isFile()
+        || content instanceof ByteBufferResource buffer && buffer.isMapped();
+  }
+
+  private record CacheKey(String imageId, ImageVariant variant) {
+
+  }
+}
@@ -0,0 +1,68 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+
+/**
+ * Least-recently-used cache of images bounded by the total length of their content rather than
+ * by the number of entries. Loading happens outside of the cache; it only keeps the books.
+ *
+ * @param <K> the key type
+ */
+final class ImageByteCache<K> {
+
+  private final long maxBytes;
+  private final LinkedHashMap<K, StoredImage> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long residentBytes;
+
+  ImageByteCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  synchronized StoredImage get(K key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Adds an image, evicting the least recently used ones until the budget is met again. Images
+   * larger than the whole budget are not cached.
+   */
+  synchronized void put(K key, StoredImage image) {
+    if (image.length() > maxBytes) {
+      return;
+    }
+    StoredImage previous = entries.put(key, image);
+    if (previous != null) {
+      residentBytes -= previous.length();
+    }
+    residentBytes += image.length();
+
+    Iterator<StoredImage> eldest = entries.values().iterator();
+    while (residentBytes > maxBytes && eldest.hasNext()) {
+      residentBytes -= eldest.next().length();
+      eldest.remove();
+    }
+  }
+
+  synchronized void invalidate(Predicate<K> matching) {
+    Iterator<Map.Entry<K, StoredImage>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<K, StoredImage> entry = iterator.next();
+      if (matching.test(entry.getKey())) {
+        residentBytes -= entry.getValue().length();
+        iterator.remove();
+      }
+    }
+  }
+
+  synchronized long residentBytes() {
+    return residentBytes;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+}
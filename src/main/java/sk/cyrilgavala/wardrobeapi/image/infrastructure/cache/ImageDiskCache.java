@@ -0,0 +1,492 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+
+/**
+ * Node-local read-through cache of stored images on disk, enabled by
+ * {@code app.image.disk-cache.enabled}.
+ *
+ * <p>Every cached rendition is a file named by its image ID and variant, holding the image
+ * metadata followed by the content, so a hit needs neither a metadata lookup nor a chunk read.
+ * The content region is memory-mapped once and served from the mapping afterwards; it lives in the
+ * page cache of the operating system rather than on the Java heap. An in-memory index keeps the
+ * files within {@code max-bytes} in least recently used order. Every hit and fill is appended to
+ * an access log next to the files, which restores that order on restart, so that the images that
+ * were popular before are the last to be evicted; the log is rewritten once it holds several lines
+ * per cached image.
+ */
+@Slf4j
+@Component
+public class ImageDiskCache {
+
+  private static final int MAGIC = 0x5749_4D43;
+  private static final String FILE_SUFFIX = ".img";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String ACCESS_LOG = "access.log";
+  private static final int LOG_LINES_PER_ENTRY = 4;
+  private static final int MIN_LOG_LINES = 1024;
+  private static final int MAX_HEADER_BYTES = 4096;
+  // Image IDs end up in file names, so only GridFS object IDs are cached
+  private static final Pattern IMAGE_ID = Pattern.compile("[0-9a-f]{24}");
+
+  private final boolean enabled;
+  private final Path directory;
+  private final long maxBytes;
+  private final long maxEntryBytes;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Counter hits;
+  private final Counter misses;
+  private long residentBytes;
+  private Writer accessLog;
+  private long accessLogLines;
+
+  public ImageDiskCache(
+      MeterRegistry meterRegistry,
+      @Value("${app.image.disk-cache.enabled:false}") boolean enabled,
+      @Value("${app.image.disk-cache.directory:./data/image-cache}") Path directory,
+      @Value("${app.image.disk-cache.max-bytes:1073741824}") long maxBytes,
+      @Value("${app.image.disk-cache.max-entry-bytes:20971520}") long maxEntryBytes) {
+    this.enabled = enabled;
+    this.directory = directory.toAbsolutePath().normalize();
+    this.maxBytes = maxBytes;
+    this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+
+    this.hits = Counter.builder("images.disk-cache.requests")
+        .tag("result", "hit")
+        .description("Image reads served from the disk cache")
+        .register(meterRegistry);
+    this.misses = Counter.builder("images.disk-cache.requests")
+        .tag("result", "miss")
+        .description("Image reads that went to GridFS")
+        .register(meterRegistry);
+    Gauge.builder("images.disk-cache.resident.bytes", this, ImageDiskCache::residentBytes)
+        .description("Bytes of image content held in the disk cache")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("images.disk-cache.entries", this, ImageDiskCache::size)
+        .description("Images held in the disk cache")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Indexes the files left by the previous run, least recently used first according to the access
+   * log, and drops what exceeds the budget or cannot be read.
+   */
+  @PostConstruct
+  void initialize() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    Files.createDirectories(directory);
+
+    Map<String, Path> files = new LinkedHashMap<>();
+    try (Stream<Path> listed = Files.list(directory)) {
+      for (Path file : listed.sorted(Comparator.comparing(ImageDiskCache::lastModified)).toList()) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(TEMP_SUFFIX)) {
+          Files.deleteIfExists(file);
+        } else if (name.endsWith(FILE_SUFFIX)) {
+          files.put(name.substring(0, name.length() - FILE_SUFFIX.length()), file);
+        }
+      }
+    }
+
+    // Files missing from the log come first in order of modification, then the logged ones
+    Set<String> order = new LinkedHashSet<>(files.keySet());
+    for (String key : readAccessLog()) {
+      if (order.remove(key)) {
+        order.add(key);
+      }
+    }
+    for (String key : order) {
+      Entry entry = readEntry(files.get(key));
+      if (entry != null) {
+        add(key, entry);
+      } else {
+        Files.deleteIfExists(files.get(key));
+      }
+    }
+
+    synchronized (this) {
+      rewriteAccessLog();
+    }
+    log.info("Image disk cache at {} holds {} images ({} bytes)", directory, size(),
+        residentBytes());
+  }
+
+  @PreDestroy
+  synchronized void close() {
+    if (accessLog == null) {
+      return;
+    }
+    try {
+      accessLog.close();
+    } catch (IOException e) {
+      log.warn("Failed to close image disk cache access log: {}", e.getMessage());
+    }
+    accessLog = null;
+  }
+
+  /**
+   * Returns a cached rendition of an image.
+   *
+   * @param imageId the ID of the original image
+   * @param variant the rendition
+   * @return the image served from its memory-mapped file, or empty if it is not cached
+   */
+  public Optional<StoredImage> get(String imageId, ImageVariant variant) {
+    if (!enabled || !isCacheable(imageId)) {
+      return Optional.empty();
+    }
+
+    String key = key(imageId, variant);
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry != null) {
+        logAccess(key);
+      }
+    }
+    if (entry == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+
+    try {
+      StoredImage image = entry.image();
+      hits.increment();
+      return Optional.of(image);
+    } catch (IOException e) {
+      log.warn("Failed to read cached image {} from disk: {}", key, e.getMessage());
+      remove(List.of(key));
+      misses.increment();
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Writes a rendition of an image to the cache, reading its content to the end.
+   *
+   * @param imageId the ID of the original image
+   * @param variant the rendition
+   * @param image   the rendition as read from the storage
+   * @return the image served from its new memory-mapped file, or empty if it was not cached, in
+   *     which case its content was not read
+   */
+  public Optional<StoredImage> put(String imageId, ImageVariant variant, StoredImage image) {
+    if (!enabled || image.length() > maxEntryBytes || !isCacheable(imageId)) {
+      return Optional.empty();
+    }
+
+    String key = key(imageId, variant);
+    Path file = directory.resolve(key + FILE_SUFFIX);
+    Path temp = null;
+    try {
+      temp = Files.createTempFile(directory, key + "-", TEMP_SUFFIX);
+      long offset = write(temp, image);
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+      Entry entry = new Entry(file, image.id(), image.contentType(), image.uploadDate(),
+          image.sha256(), offset, image.length());
+      add(key, entry);
+      synchronized (this) {
+        logAccess(key);
+      }
+      log.debug("Cached image {} on disk", key);
+      return Optional.of(entry.image());
+    } catch (IOException e) {
+      log.warn("Failed to cache image {} on disk: {}", key, e.getMessage());
+      deleteQuietly(temp);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Removes all cached renditions of the given images.
+   */
+  public void evict(Collection<String> imageIds) {
+    if (!enabled || imageIds.isEmpty()) {
+      return;
+    }
+    Set<String> evicted = Set.copyOf(imageIds);
+    List<String> keys;
+    synchronized (this) {
+      keys = entries.keySet().stream()
+          .filter(key -> evicted.contains(key.substring(0, key.lastIndexOf('-'))))
+          .toList();
+    }
+    remove(keys);
+  }
+
+  synchronized long residentBytes() {
+    return residentBytes;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private static boolean isCacheable(String imageId) {
+    return imageId != null && IMAGE_ID.matcher(imageId).matches();
+  }
+
+  private static String key(String imageId, ImageVariant variant) {
+    return imageId + "-" + variant.key();
+  }
+
+  /**
+   * Adds an entry and evicts the least recently used ones beyond the budget. Files are deleted
+   * outside of the lock; a file that is still being served stays readable through its mapping.
+   */
+  private void add(String key, Entry entry) {
+    List<Path> evicted = new ArrayList<>();
+    synchronized (this) {
+      Entry previous = entries.put(key, entry);
+      if (previous != null) {
+        // Replaced in place by the move of the new file
+        residentBytes -= previous.length;
+      }
+      residentBytes += entry.length;
+
+      Iterator<Entry> eldest = entries.values().iterator();
+      while (residentBytes > maxBytes && eldest.hasNext()) {
+        Entry next = eldest.next();
+        residentBytes -= next.length;
+        evicted.add(next.file);
+        eldest.remove();
+      }
+    }
+    evicted.forEach(ImageDiskCache::deleteQuietly);
+  }
+
+  private void remove(Collection<String> keys) {
+    List<Path> removed = new ArrayList<>();
+    synchronized (this) {
+      for (String key : keys) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+          residentBytes -= entry.length;
+          removed.add(entry.file);
+        }
+      }
+    }
+    removed.forEach(ImageDiskCache::deleteQuietly);
+  }
+
+  /**
+   * Writes the header and the content of an image.
+   *
+   * @return the offset of the content within the file
+   */
+  private static long write(Path file, StoredImage image) throws IOException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    try (DataOutputStream fields = new DataOutputStream(header)) {
+      fields.writeUTF(image.id());
+      fields.writeUTF(image.contentType());
+      fields.writeLong(image.uploadDate().toEpochMilli());
+      fields.writeUTF(image.sha256() != null ? image.sha256() : "");
+      fields.writeLong(image.length());
+    }
+
+    try (OutputStream output = Files.newOutputStream(file, StandardOpenOption.WRITE);
+        DataOutputStream data = new DataOutputStream(output);
+        InputStream content = image.content().getInputStream()) {
+      data.writeInt(MAGIC);
+      data.writeInt(header.size());
+      header.writeTo(data);
+      long copied = content.transferTo(data);
+      if (copied != image.length()) {
+        throw new IOException("Image has " + copied + " bytes instead of " + image.length());
+      }
+    }
+    return Integer.BYTES * 2L + header.size();
+  }
+
+  /**
+   * Reads the header of a cached file.
+   *
+   * @return the entry, or {@code null} if the file is not a complete cached image
+   */
+  private static Entry readEntry(Path file) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer prefix = ByteBuffer.allocate(Integer.BYTES * 2);
+      if (channel.read(prefix, 0) < prefix.capacity() || prefix.getInt(0) != MAGIC) {
+        return null;
+      }
+      int headerLength = prefix.getInt(Integer.BYTES);
+      if (headerLength < 0 || headerLength > MAX_HEADER_BYTES) {
+        return null;
+      }
+      ByteBuffer header = ByteBuffer.allocate(headerLength);
+      channel.read(header, prefix.capacity());
+
+      try (DataInputStream fields = new DataInputStream(
+          new ByteArrayInputStream(header.array(), 0, header.position()))) {
+        String id = fields.readUTF();
+        String contentType = fields.readUTF();
+        Instant uploadDate = Instant.ofEpochMilli(fields.readLong());
+        String sha256 = fields.readUTF();
+        long length = fields.readLong();
+        long offset = (long) prefix.capacity() + header.capacity();
+        if (channel.size() != offset + length) {
+          return null;
+        }
+        return new Entry(file, id, contentType, uploadDate, sha256.isEmpty() ? null : sha256,
+            offset, length);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.debug("Dropping unreadable cached image {}: {}", file, e.getMessage());
+      return null;
+    }
+  }
+
+  private List<String> readAccessLog() {
+    Path file = directory.resolve(ACCESS_LOG);
+    if (!Files.exists(file)) {
+      return List.of();
+    }
+    try (Stream<String> lines = Files.lines(file, StandardCharsets.US_ASCII)) {
+      return lines.toList();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Failed to read image disk cache access log: {}", e.getMessage());
+      return List.of();
+    }
+  }
+
+  /**
+   * Appends an access; the log is buffered, losing its tail in a crash only blurs the order.
+   * Callers hold the lock.
+   */
+  private void logAccess(String key) {
+    if (accessLog == null) {
+      return;
+    }
+    try {
+      accessLog.write(key);
+      accessLog.write('\n');
+      if (++accessLogLines > Math.max(MIN_LOG_LINES, (long) entries.size() * LOG_LINES_PER_ENTRY)) {
+        rewriteAccessLog();
+      }
+    } catch (IOException e) {
+      log.warn("Failed to write image disk cache access log: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Replaces the access log by one line per cached image, in least recently used order. Callers
+   * hold the lock.
+   */
+  private void rewriteAccessLog() {
+    close();
+    Path file = directory.resolve(ACCESS_LOG);
+    Path temp = directory.resolve(ACCESS_LOG + TEMP_SUFFIX);
+    try {
+      Files.write(temp, entries.keySet(), StandardCharsets.US_ASCII);
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      accessLog = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.US_ASCII,
+          StandardOpenOption.APPEND));
+      accessLogLines = entries.size();
+    } catch (IOException e) {
+      log.warn("Failed to rewrite image disk cache access log, access order is not kept: {}",
+          e.getMessage());
+    }
+  }
+
+  private static long lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.debug("Failed to delete cached image file {}: {}", file, e.getMessage());
+    }
+  }
+
+  private static final class Entry {
+
+    private final Path file;
+    private final String id;
+    private final String contentType;
+    private final Instant uploadDate;
+    private final String sha256;
+    private final long offset;
+    private final long length;
+    private volatile MappedByteBuffer content;
+
+    private Entry(Path file, String id, String contentType, Instant uploadDate, String sha256,
+        long offset, long length) {
+      this.file = file;
+      this.id = id;
+      this.contentType = contentType;
+      this.uploadDate = uploadDate;
+      this.sha256 = sha256;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /**
+     * Describes the image, mapping its content on first use. Concurrent first uses may map the
+     * region twice, which is harmless.
+     */
+    private StoredImage image() throws IOException {
+      MappedByteBuffer mapped = content;
+      if (mapped == null) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+        content = mapped;
+      }
+      return new StoredImage(id, contentType, length, uploadDate, sha256,
+          new ByteBufferResource(mapped, uploadDate.toEpochMilli(),
+              "Disk cached image [" + id + "]", true));
+    }
+  }
+}
@@ -0,0 +1,747 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageNotFoundException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageUploadException;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageOptimizer;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImagePerceptualHasher;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageResizer;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageResizer.ResizedImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageValidator;
+
+/**
+ * Stores images as plain files below {@code app.image.filesystem.root}. Selected by
+ * {@code app.image.storage: filesystem}.
+ *
+ * <p>Every image gets a directory {@code <root>/<cc>/<bb>/<id>} holding {@code original.<ext>} and
+ * its generated variants, e.g. {@code thumb.jpg}. The two shard levels are taken from the trailing
+ * counter bytes of the ID, which are spread evenly unlike its leading timestamp. Files are written
+ * to {@code <root>/tmp} first and renamed into place, so readers never see a partial file. Reads
+ * only touch the filesystem and are served as {@link FileSystemResource}s, whose ranges are read
+ * straight from the file channel. Content hashes and reference counts live in the {@code images}
+ * collection, which only writes consult.
+ *
+ * <p>Chunks of resumable uploads are written at their offsets into
+ * {@code <root>/tmp/session-<id>.part}, which is renamed into place once complete. Staging files of
+ * abandoned uploads are deleted when they are older than the upload lifetime.
+ */
+@Slf4j
+@Service
+@Qualifier("imageStore")
+@ConditionalOnProperty(name = "app.image.storage", havingValue = "filesystem")
+public class FileSystemImageStorageService implements ImageStorageService {
+
+  private static final String IMAGES_COLLECTION = "images";
+  private static final String SHA256_FIELD = "sha256";
+  private static final String REF_COUNT_FIELD = "ref_count";
+  private static final String REFERENCED_AT_FIELD = "referenced_at";
+  private static final String STORED_AT_FIELD = "stored_at";
+  private static final String ORIGINAL_SIZE_FIELD = "original_size";
+  private static final String STORED_SIZE_FIELD = "stored_size";
+  private static final String DHASH_FIELD = "dhash";
+  private static final Map<String, String> EXTENSIONS = Map.of(
+      "image/jpeg", "jpg",
+      "image/png", "png",
+      "image/webp", "webp"
+  );
+  private static final Map<String, String> CONTENT_TYPES = EXTENSIONS.entrySet().stream()
+      .collect(Collectors.toUnmodifiableMap(Map.Entry::getValue, Map.Entry::getKey));
+
+  private final MongoTemplate mongoTemplate;
+  private final ImageResizer imageResizer;
+  private final ImageValidator imageValidator;
+  private final ImageOptimizer imageOptimizer;
+  private final ImagePerceptualHasher imagePerceptualHasher;
+  private final Path root;
+  private final Path tempDirectory;
+  private final Duration uploadTimeToLive;
+
+  public FileSystemImageStorageService(
+      MongoTemplate mongoTemplate,
+      ImageResizer imageResizer,
+      ImageValidator imageValidator,
+      ImageOptimizer imageOptimizer,
+      ImagePerceptualHasher imagePerceptualHasher,
+      @Value("${app.image.filesystem.root:./data/images}") Path root,
+      @Value("${app.image.uploads.ttl-hours:24}") long uploadTtlHours) {
+    this.mongoTemplate = mongoTemplate;
+    this.imageResizer = imageResizer;
+    this.imageValidator = imageValidator;
+    this.imageOptimizer = imageOptimizer;
+    this.imagePerceptualHasher = imagePerceptualHasher;
+    this.root = root.toAbsolutePath().normalize();
+    this.tempDirectory = this.root.resolve("tmp");
+    this.uploadTimeToLive = Duration.ofHours(uploadTtlHours);
+  }
+
+  @PostConstruct
+  void initialize() throws IOException {
+    Files.createDirectories(tempDirectory);
+    mongoTemplate.indexOps(IMAGES_COLLECTION).createIndex(new Index()
+        .on(SHA256_FIELD, Sort.Direction.ASC)
+        .named("sha256_idx"));
+  }
+
+  @Override
+  public String storeImage(MultipartFile file) {
+    imageValidator.validate(file);
+
+    try {
+      return store(file.getInputStream(), file.getContentType());
+    } catch (IOException e) {
+      log.error("Failed to store image: {}", e.getMessage(), e);
+      throw new RuntimeException("Failed to store image", e);
+    }
+  }
+
+  @Override
+  public String storeImage(String fileName, String contentType, InputStream content) {
+    // The staging file below the root is the only copy written, there is no spooled upload
+    try {
+      return store(imageValidator.validating(contentType, content), contentType);
+    } catch (IOException e) {
+      log.error("Failed to store image: {}", e.getMessage(), e);
+      throw new RuntimeException("Failed to store image", e);
+    }
+  }
+
+  private String store(InputStream content, String contentType) throws IOException {
+    Path staged = null;
+    try {
+      staged = Files.createTempFile(tempDirectory, "upload-", ".tmp");
+      String sha256 = copyHashing(content, staged);
+      ObjectId existingId = acquireReference(sha256);
+      if (existingId != null) {
+        log.debug("Reusing stored image with ID: {}", existingId);
+        return existingId.toHexString();
+      }
+
+      long originalSize = Files.size(staged);
+      long storedSize = optimize(staged, contentType, originalSize);
+
+      // Reserved without references, so that neither a duplicate upload nor a crash can expose
+      // an ID whose file is not in place yet
+      ObjectId imageId = new ObjectId();
+      Document record = new Document("_id", imageId)
+          .append(SHA256_FIELD, sha256)
+          .append(REF_COUNT_FIELD, 0)
+          .append(STORED_AT_FIELD, new Date())
+          .append(ORIGINAL_SIZE_FIELD, originalSize)
+          .append(STORED_SIZE_FIELD, storedSize);
+      perceptualHash(staged).ifPresent(hash -> record.append(DHASH_FIELD, hash));
+      mongoTemplate.insert(record, IMAGES_COLLECTION);
+      publish(staged, imageId, ImageVariant.ORIGINAL.key(), extensionOf(contentType));
+      mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(imageId)),
+          Update.update(REF_COUNT_FIELD, 1), IMAGES_COLLECTION);
+
+      log.debug("Stored image with ID: {}", imageId);
+      return imageId.toHexString();
+    } finally {
+      deleteQuietly(staged);
+    }
+  }
+
+  /**
+   * Replaces a staged upload with its re-encoding if that is smaller. The hash of the upload is
+   * kept, so the same upload is recognized again.
+   *
+   * @return the size of the staged file afterwards
+   */
+  private long optimize(Path staged, String contentType, long size) throws IOException {
+    if (!imageOptimizer.isEnabled()) {
+      return size;
+    }
+    try (ImageOptimizer.Permit permit = imageOptimizer.acquire()) {
+      Optional<byte[]> optimized = imageOptimizer.optimize(Files.readAllBytes(staged),
+          ImageValidator.normalizeContentType(contentType));
+      if (optimized.isEmpty()) {
+        return size;
+      }
+      Files.write(staged, optimized.get());
+      return optimized.get().length;
+    }
+  }
+
+  @Override
+  public StoredImage getImage(String imageId, ImageVariant variant) {
+    Path directory = imageDirectory(parseId(imageId));
+    if (variant != ImageVariant.ORIGINAL) {
+      Optional<Path> stored = findRendition(directory, variant.key());
+      if (stored.isPresent()) {
+        return describe(imageId, stored.get());
+      }
+    }
+
+    Path original = findRendition(directory, ImageVariant.ORIGINAL.key())
+        .orElseThrow(() -> ImageNotFoundException.withId(imageId));
+    if (variant == ImageVariant.ORIGINAL) {
+      return describe(imageId, original);
+    }
+
+    Optional<ImageResizer.Permit> permit = imageResizer.tryAcquire();
+    if (permit.isEmpty()) {
+      log.debug("Resizing busy, serving original of image {} as {} variant", imageId,
+          variant.key());
+      return describe(imageId, original).asSubstitute();
+    }
+    try (ImageResizer.Permit held = permit.get()) {
+      return describe(imageId, generateVariant(imageId, original, variant));
+    }
+  }
+
+  @Override
+  public Map<String, Long> getPerceptualHashes(Collection<String> imageIds) {
+    List<ObjectId> requestedIds = imageIds.stream()
+        .filter(ObjectId::isValid)
+        .map(ObjectId::new)
+        .distinct()
+        .toList();
+    Map<String, Long> hashes = new HashMap<>();
+    if (requestedIds.isEmpty()) {
+      return hashes;
+    }
+
+    Query query = Query.query(Criteria.where("_id").in(requestedIds));
+    query.fields().include("_id").include(DHASH_FIELD);
+    for (Document record : mongoTemplate.find(query, Document.class, IMAGES_COLLECTION)) {
+      ObjectId imageId = record.getObjectId("_id");
+      Long hash = record.get(DHASH_FIELD, Long.class);
+      if (hash == null) {
+        hash = hashThumbnail(imageId);
+      }
+      if (hash != null) {
+        hashes.put(imageId.toHexString(), hash);
+      }
+    }
+    return hashes;
+  }
+
+  /**
+   * Hashes an image that has no hash yet from its thumbnail, which is small to decode and usually
+   * generated already, and keeps the hash.
+   */
+  private Long hashThumbnail(ObjectId imageId) {
+    OptionalLong hash;
+    try (InputStream content = getImage(imageId.toHexString(), ImageVariant.THUMB).content()
+        .getInputStream()) {
+      hash = imagePerceptualHasher.hash(content);
+    } catch (IOException | RuntimeException e) {
+      // Corrupt content is stored as uploaded, it just has no hash
+      log.debug("Image {} could not be hashed: {}", imageId, e.getMessage());
+      return null;
+    }
+    if (hash.isEmpty()) {
+      return null;
+    }
+    mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(imageId)),
+        Update.update(DHASH_FIELD, hash.getAsLong()), IMAGES_COLLECTION);
+    return hash.getAsLong();
+  }
+
+  private OptionalLong perceptualHash(Path file) {
+    try (InputStream content = Files.newInputStream(file)) {
+      return imagePerceptualHasher.hash(content);
+    } catch (IOException | RuntimeException e) {
+      // Corrupt content is stored as uploaded, it just has no hash
+      log.debug("Image file {} could not be hashed: {}", file, e.getMessage());
+      return OptionalLong.empty();
+    }
+  }
+
+  @Deprecated
+  @Override
+  public String getContentType(String imageId) {
+    return findRendition(imageDirectory(parseId(imageId)), ImageVariant.ORIGINAL.key())
+        .map(FileSystemImageStorageService::contentTypeOf)
+        .orElseThrow(() -> ImageNotFoundException.withId(imageId));
+  }
+
+  @Override
+  public void deleteImage(String imageId) {
+    if (imageId == null || imageId.isBlank()) {
+      return;
+    }
+    if (!ObjectId.isValid(imageId)) {
+      log.warn("Invalid image ID format: {}", imageId);
+      return;
+    }
+
+    ObjectId id = new ObjectId(imageId);
+    Document released = mongoTemplate.findAndModify(
+        Query.query(Criteria.where("_id").is(id)),
+        new Update().inc(REF_COUNT_FIELD, -1),
+        FindAndModifyOptions.options().returnNew(true),
+        Document.class,
+        IMAGES_COLLECTION
+    );
+    if (released == null) {
+      return;
+    }
+
+    Number references = released.get(REF_COUNT_FIELD, Number.class);
+    if (references != null && references.longValue() > 0) {
+      log.debug("Image {} is still referenced {} times", imageId, references);
+      return;
+    }
+    removeImages(List.of(id));
+    log.debug("Deleted image with ID: {}", imageId);
+  }
+
+  @Override
+  public long deleteImages(Collection<String> imageIds) {
+    Map<ObjectId, Long> references = imageIds.stream()
+        .filter(ObjectId::isValid)
+        .map(ObjectId::new)
+        .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    if (references.isEmpty()) {
+      return 0;
+    }
+
+    // One update per distinct number of released references, usually a single one
+    references.entrySet().stream()
+        .collect(Collectors.groupingBy(Map.Entry::getValue,
+            Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+        .forEach((count, ids) -> mongoTemplate.updateMulti(
+            Query.query(Criteria.where("_id").in(ids)),
+            new Update().inc(REF_COUNT_FIELD, -count),
+            IMAGES_COLLECTION));
+
+    Query unreferenced = Query.query(Criteria.where("_id").in(references.keySet())
+        .and(REF_COUNT_FIELD).not().gt(0));
+    return removeImages(findIds(unreferenced));
+  }
+
+  @Override
+  public boolean imageExists(String imageId) {
+    if (imageId == null || !ObjectId.isValid(imageId)) {
+      return false;
+    }
+    return findRendition(imageDirectory(new ObjectId(imageId)), ImageVariant.ORIGINAL.key())
+        .isPresent();
+  }
+
+  @Override
+  public Stream<String> streamImageIdsUnusedSince(Instant cutoff) {
+    Query query = unusedSince(cutoff).with(Sort.by(Sort.Direction.ASC, "_id"));
+    query.fields().include("_id");
+    return mongoTemplate.stream(query, Document.class, IMAGES_COLLECTION)
+        .map(document -> document.getObjectId("_id").toHexString());
+  }
+
+  @Override
+  public long deleteOrphanedImages(Collection<String> imageIds, Instant cutoff) {
+    List<ObjectId> requestedIds = imageIds.stream()
+        .filter(ObjectId::isValid)
+        .map(ObjectId::new)
+        .distinct()
+        .toList();
+    if (requestedIds.isEmpty()) {
+      return 0;
+    }
+
+    List<ObjectId> candidateIds = findIds(
+        unusedSince(cutoff).addCriteria(Criteria.where("_id").in(requestedIds)));
+    if (candidateIds.isEmpty()) {
+      return 0;
+    }
+
+    // Removing with the same conditions is atomic per image, an upload reusing one of the images
+    // in the meantime either refreshed its reference time first or stores a new copy afterwards
+    long removed = mongoTemplate.remove(
+        unusedSince(cutoff).addCriteria(Criteria.where("_id").in(candidateIds)),
+        IMAGES_COLLECTION).getDeletedCount();
+    List<ObjectId> removedIds = candidateIds;
+    if (removed < candidateIds.size()) {
+      Set<ObjectId> survivorIds = Set.copyOf(
+          findIds(Query.query(Criteria.where("_id").in(candidateIds))));
+      removedIds = candidateIds.stream().filter(id -> !survivorIds.contains(id)).toList();
+    }
+
+    long deleted = removedIds.stream().mapToLong(id -> deleteDirectory(imageDirectory(id))).sum();
+    log.debug("Deleted {} orphaned images", removedIds.size());
+    return deleted;
+  }
+
+  /**
+   * Copies an image from another store under its existing ID, for migrations. The file is put in
+   * place before the image is recorded, so an interrupted import is simply repeated. When the image
+   * was last referenced is kept, so the orphan sweep treats it as it would have in the other store,
+   * and so is its perceptual hash, which spares decoding it again on its first lookup.
+   *
+   * @param imageId        the ID to keep
+   * @param contentType    the MIME type of the image
+   * @param storedAt       when the image was originally stored
+   * @param referencedAt   when a reference to the image was last added, or {@code null}
+   * @param references     the number of references to carry over
+   * @param perceptualHash the perceptual hash of the image, or {@code null} if it has none yet
+   * @param content        the image content, closed once copied
+   * @return {@code true} if the image was imported, {@code false} if it had been imported before
+   * @throws IOException if copying the content fails
+   */
+  public boolean importImage(ObjectId imageId, String contentType, Instant storedAt,
+      Instant referencedAt, long references, Long perceptualHash, InputStream content)
+      throws IOException {
+    if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(imageId)), IMAGES_COLLECTION)) {
+      return false;
+    }
+
+    Path staged = Files.createTempFile(tempDirectory, "import-", ".tmp");
+    try {
+      String sha256 = copyHashing(content, staged);
+      Files.setLastModifiedTime(staged, FileTime.from(storedAt));
+      publish(staged, imageId, ImageVariant.ORIGINAL.key(), extensionOf(contentType));
+      Document record = new Document("_id", imageId)
+          .append(SHA256_FIELD, sha256)
+          .append(REF_COUNT_FIELD, references)
+          .append(STORED_AT_FIELD, Date.from(storedAt));
+      if (referencedAt != null) {
+        record.append(REFERENCED_AT_FIELD, Date.from(referencedAt));
+      }
+      if (perceptualHash != null) {
+        record.append(DHASH_FIELD, perceptualHash);
+      }
+      mongoTemplate.insert(record, IMAGES_COLLECTION);
+      return true;
+    } finally {
+      deleteQuietly(staged);
+    }
+  }
+
+  @Override
+  public void validateUpload(ImageUpload upload) {
+    imageValidator.validateDeclaration(upload.contentType(), upload.length());
+  }
+
+  @Override
+  public void writeUploadChunk(ImageUpload upload, int index, byte[] data) {
+    if (index == 0) {
+      imageValidator.validateHeader(upload.contentType(), data);
+    }
+
+    Path staged = uploadFile(upload);
+    try (FileChannel channel = FileChannel.open(staged, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      long position = (long) index * upload.chunkSize();
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+    } catch (IOException e) {
+      log.error("Failed to store chunk {} of upload {}: {}", index, upload.id(), e.getMessage(), e);
+      throw new RuntimeException("Failed to store image chunk", e);
+    }
+  }
+
+  @Override
+  public String completeUpload(ImageUpload upload) {
+    ObjectId imageId = new ObjectId(upload.id());
+    Path staged = uploadFile(upload);
+    try {
+      if (Files.exists(staged)) {
+        Files.setLastModifiedTime(staged, FileTime.from(Instant.now()));
+        publish(staged, imageId, ImageVariant.ORIGINAL.key(), extensionOf(upload.contentType()));
+      } else if (findRendition(imageDirectory(imageId), ImageVariant.ORIGINAL.key()).isEmpty()) {
+        throw InvalidImageUploadException.incomplete(upload.missingChunks());
+      }
+
+      // Recorded after the file is in place, a repeated completion records it if a crash came
+      // in between
+      mongoTemplate.insert(new Document("_id", imageId)
+          .append(REF_COUNT_FIELD, 1)
+          .append(STORED_AT_FIELD, new Date())
+          .append(REFERENCED_AT_FIELD, Date.from(upload.expiresAt())), IMAGES_COLLECTION);
+      log.debug("Stored uploaded image with ID: {}", imageId);
+    } catch (DuplicateKeyException e) {
+      log.debug("Upload {} was completed before", imageId);
+    } catch (IOException e) {
+      log.error("Failed to complete upload {}: {}", imageId, e.getMessage(), e);
+      throw new RuntimeException("Failed to store image", e);
+    }
+    return imageId.toHexString();
+  }
+
+  @Override
+  public void discardUpload(ImageUpload upload) {
+    deleteQuietly(uploadFile(upload));
+  }
+
+  /**
+   * Deletes staging files of uploads that expired without being completed.
+   */
+  @Scheduled(fixedDelayString = "${app.image.uploads.cleanup-interval-ms:3600000}")
+  public void deleteAbandonedUploads() {
+    // Every chunk write touches the file, so an older one belongs to an expired upload
+    Instant cutoff = Instant.now().minus(uploadTimeToLive);
+    long deleted = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(tempDirectory,
+        "session-*.part")) {
+      for (Path file : files) {
+        if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)
+            && Files.deleteIfExists(file)) {
+          deleted++;
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Failed to delete abandoned uploads: {}", e.getMessage());
+    }
+    if (deleted > 0) {
+      log.info("Deleted {} abandoned uploads", deleted);
+    }
+  }
+
+  private StoredImage describe(String imageId, Path file) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      return new StoredImage(
+          imageId,
+          contentTypeOf(file),
+          attributes.size(),
+          attributes.lastModifiedTime().toInstant(),
+          null,
+          new FileSystemResource(file)
+      );
+    } catch (NoSuchFileException e) {
+      throw ImageNotFoundException.withId(imageId);
+    } catch (IOException e) {
+      log.error("Failed to read image {}: {}", imageId, e.getMessage(), e);
+      throw new RuntimeException("Failed to read image", e);
+    }
+  }
+
+  private Path generateVariant(String imageId, Path original, ImageVariant variant) {
+    Optional<ResizedImage> resized;
+    try (InputStream content = Files.newInputStream(original)) {
+      resized = imageResizer.resize(content, variant.maxDimension());
+    } catch (NoSuchFileException e) {
+      throw ImageNotFoundException.withId(imageId);
+    } catch (IOException e) {
+      log.error("Failed to generate {} variant of image {}: {}", variant.key(), imageId,
+          e.getMessage(), e);
+      throw new RuntimeException("Failed to generate image variant", e);
+    }
+
+    Path staged = null;
+    try {
+      staged = tempDirectory.resolve("variant-" + new ObjectId().toHexString() + ".tmp");
+      String extension;
+      if (resized.isEmpty()) {
+        // Not decodable or already small enough, the original doubles as this variant
+        linkOrCopy(original, staged);
+        extension = extensionOf(contentTypeOf(original));
+      } else {
+        Files.write(staged, resized.get().data());
+        extension = extensionOf(resized.get().contentType());
+      }
+      // Concurrent requests for the same variant produce the same file, the last rename wins
+      Path variantFile = publish(staged, parseId(imageId), variant.key(), extension);
+      log.debug("Generated {} variant of image {}", variant.key(), imageId);
+      return variantFile;
+    } catch (NoSuchFileException e) {
+      throw ImageNotFoundException.withId(imageId);
+    } catch (IOException e) {
+      log.error("Failed to store {} variant of image {}: {}", variant.key(), imageId,
+          e.getMessage(), e);
+      throw new RuntimeException("Failed to generate image variant", e);
+    } finally {
+      deleteQuietly(staged);
+    }
+  }
+
+  /**
+   * Renames a staged file into the directory of an image, replacing an older rendition of the same
+   * name atomically.
+   */
+  private Path publish(Path staged, ObjectId imageId, String rendition, String extension)
+      throws IOException {
+    Path directory = imageDirectory(imageId);
+    Files.createDirectories(directory);
+    Path target = directory.resolve(rendition + "." + extension);
+    Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    return target;
+  }
+
+  private static void linkOrCopy(Path original, Path target) throws IOException {
+    try {
+      Files.createLink(target, original);
+    } catch (NoSuchFileException e) {
+      throw e;
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      // Hard links are not available on every mounted filesystem
+      Files.copy(original, target);
+    }
+  }
+
+  private Path uploadFile(ImageUpload upload) {
+    return tempDirectory.resolve("session-" + new ObjectId(upload.id()).toHexString() + ".part");
+  }
+
+  private Optional<Path> findRendition(Path directory, String rendition) {
+    for (String extension : CONTENT_TYPES.keySet()) {
+      Path file = directory.resolve(rendition + "." + extension);
+      if (Files.isRegularFile(file)) {
+        return Optional.of(file);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private Path imageDirectory(ObjectId imageId) {
+    String hex = imageId.toHexString();
+    return root.resolve(hex.substring(22, 24)).resolve(hex.substring(20, 22)).resolve(hex);
+  }
+
+  private static ObjectId parseId(String imageId) {
+    if (imageId == null || !ObjectId.isValid(imageId)) {
+      throw ImageNotFoundException.withId(imageId);
+    }
+    return new ObjectId(imageId);
+  }
+
+  private long removeImages(List<ObjectId> imageIds) {
+    if (imageIds.isEmpty()) {
+      return 0;
+    }
+
+    // The record disappears first, leftover files are unreachable and cleaned up by the next try
+    mongoTemplate.remove(Query.query(Criteria.where("_id").in(imageIds)), IMAGES_COLLECTION);
+    long deleted = imageIds.stream().mapToLong(id -> deleteDirectory(imageDirectory(id))).sum();
+    log.debug("Deleted {} image files", deleted);
+    return deleted;
+  }
+
+  private static long deleteDirectory(Path directory) {
+    long deleted = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        if (Files.deleteIfExists(file)) {
+          deleted++;
+        }
+      }
+      Files.deleteIfExists(directory);
+    } catch (NoSuchFileException e) {
+      // Already deleted
+    } catch (IOException e) {
+      log.warn("Failed to delete image directory {}: {}", directory, e.getMessage());
+    }
+    return deleted;
+  }
+
+  private List<ObjectId> findIds(Query query) {
+    query.fields().include("_id");
+    return mongoTemplate.find(query, Document.class, IMAGES_COLLECTION).stream()
+        .map(document -> document.getObjectId("_id"))
+        .toList();
+  }
+
+  /**
+   * Adds a reference to a stored image with the given content hash. Only images that are still
+   * referenced qualify, so an image whose last reference was just released is never revived.
+   */
+  private ObjectId acquireReference(String sha256) {
+    Document existing = mongoTemplate.findAndModify(
+        Query.query(Criteria.where(SHA256_FIELD).is(sha256).and(REF_COUNT_FIELD).gt(0)),
+        new Update().inc(REF_COUNT_FIELD, 1).set(REFERENCED_AT_FIELD, new Date()),
+        FindAndModifyOptions.options().returnNew(true),
+        Document.class,
+        IMAGES_COLLECTION
+    );
+    return existing != null ? existing.getObjectId("_id") : null;
+  }
+
+  /**
+   * Matches images that were neither stored nor had a reference added since the cutoff.
+   */
+  private static Query unusedSince(Instant cutoff) {
+    Date before = Date.from(cutoff);
+    return Query.query(Criteria.where(STORED_AT_FIELD).lt(before)
+        .and(REFERENCED_AT_FIELD).not().gte(before));
+  }
+
+  private static String copyHashing(InputStream content, Path target) throws IOException {
+    try (DigestInputStream digesting = new DigestInputStream(content,
+        MessageDigest.getInstance("SHA-256"))) {
+      Files.copy(digesting, target, StandardCopyOption.REPLACE_EXISTING);
+      return HexFormat.of().formatHex(digesting.getMessageDigest().digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  private static String extensionOf(String contentType) {
+    String extension = EXTENSIONS.get(ImageValidator.normalizeContentType(contentType));
+    if (extension == null) {
+      throw new IllegalArgumentException("Unsupported image type: " + contentType);
+    }
+    return extension;
+  }
+
+  private static String contentTypeOf(Path file) {
+    String name = file.getFileName().toString();
+    return CONTENT_TYPES.getOrDefault(name.substring(name.lastIndexOf('.') + 1),
+        "application/octet-stream");
+  }
+
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Failed to delete temporary file {}: {}", file, e.getMessage());
+    }
+  }
+}
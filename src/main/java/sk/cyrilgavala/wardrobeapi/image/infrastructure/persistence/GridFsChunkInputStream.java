@@ -0,0 +1,174 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.Binary;
+
+/**
+ * Reads the content of a GridFS file straight from its chunks, using the chunk size and length
+ * already known from the {@code fs.files} document. Unlike the driver's download stream it does
+ * not look the file up again.
+ *
+ * <p>Chunks are fetched lazily in cursor batches of a configured number of chunks, so at most
+ * about one batch is held in memory. Given a read-ahead executor, the next batch is requested on
+ * it as soon as the last chunk of the current batch is handed out; the cursor is only ever used
+ * by one thread at a time, as the reader waits for that request before touching it again.
+ * Skipping before the first read starts the cursor at the chunk containing the target position,
+ * which makes range reads cheap.
+ */
+final class GridFsChunkInputStream extends InputStream {
+
+  private final MongoCollection<Document> chunks;
+  private final BsonValue fileId;
+  private final int chunkSize;
+  private final long length;
+  private final int batchChunks;
+  private final Executor readAheadExecutor;
+
+  private MongoCursor<Document> cursor;
+  private CompletableFuture<Boolean> readAhead;
+  private byte[] chunk;
+  private int chunkOffset;
+  private int nextChunk;
+  private long position;
+
+  GridFsChunkInputStream(MongoCollection<Document> chunks, BsonValue fileId, int chunkSize,
+      long length, int batchChunks, Executor readAheadExecutor) {
+    this.chunks = chunks;
+    this.fileId = fileId;
+    this.chunkSize = chunkSize;
+    this.length = length;
+    this.batchChunks = batchChunks;
+    this.readAheadExecutor = readAheadExecutor;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fillChunk()) {
+      return -1;
+    }
+    position++;
+    return chunk[chunkOffset++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] target, int offset, int count) throws IOException {
+    if (count == 0) {
+      return 0;
+    }
+    if (!fillChunk()) {
+      return -1;
+    }
+    int read = Math.min(count, chunk.length - chunkOffset);
+    System.arraycopy(chunk, chunkOffset, target, offset, read);
+    chunkOffset += read;
+    position += read;
+    return read;
+  }
+
+  @Override
+  public long skip(long count) {
+    long skipped = Math.max(0, Math.min(count, length - position));
+    if (chunk != null && skipped <= chunk.length - chunkOffset) {
+      chunkOffset += (int) skipped;
+    } else {
+      // Reposition the cursor instead of fetching chunks that would be thrown away
+      closeCursor();
+    }
+    position += skipped;
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return chunk == null ? 0 : chunk.length - chunkOffset;
+  }
+
+  @Override
+  public void close() {
+    closeCursor();
+  }
+
+  private boolean fillChunk() throws IOException {
+    if (chunk != null && chunkOffset < chunk.length) {
+      return true;
+    }
+    if (position >= length) {
+      return false;
+    }
+
+    int startOffset = 0;
+    if (cursor == null) {
+      nextChunk = (int) (position / chunkSize);
+      startOffset = (int) (position % chunkSize);
+      cursor = chunks
+          .find(Filters.and(Filters.eq("files_id", fileId), Filters.gte("n", nextChunk)))
+          .sort(Sorts.ascending("n"))
+          .batchSize(batchChunks)
+          .iterator();
+    }
+
+    if (!awaitReadAhead() && !cursor.hasNext()) {
+      throw new IOException("Missing chunk " + nextChunk + " of GridFS file " + fileId);
+    }
+    Document next = cursor.next();
+    if (next.getInteger("n") != nextChunk) {
+      throw new IOException("Missing chunk " + nextChunk + " of GridFS file " + fileId);
+    }
+
+    chunk = next.get("data", Binary.class).getData();
+    chunkOffset = startOffset;
+    nextChunk++;
+    if (readAheadExecutor != null && cursor.available() == 0
+        && (long) nextChunk * chunkSize < length) {
+      // hasNext() fetches the next batch when the current one is used up
+      readAhead = CompletableFuture.supplyAsync(cursor::hasNext, readAheadExecutor);
+    }
+    return true;
+  }
+
+  /**
+   * Waits for the batch requested ahead, if any.
+   *
+   * @return whether a further chunk is available, {@code false} also without a request ahead
+   */
+  private boolean awaitReadAhead() throws IOException {
+    if (readAhead == null) {
+      return false;
+    }
+    CompletableFuture<Boolean> pending = readAhead;
+    readAhead = null;
+    try {
+      return pending.join();
+    } catch (CompletionException | CancellationException e) {
+      throw new IOException("Failed to read ahead chunks of GridFS file " + fileId,
+          e.getCause() != null ? e.getCause() : e);
+    }
+  }
+
+  private void closeCursor() {
+    if (cursor != null) {
+      MongoCursor<Document> closing = cursor;
+      if (readAhead != null) {
+        // Closed once the batch requested ahead arrived, as the cursor is still in use
+        readAhead.whenComplete((hasNext, failure) -> closing.close());
+        readAhead = null;
+      } else {
+        closing.close();
+      }
+      cursor = null;
+    }
+    chunk = null;
+    chunkOffset = 0;
+  }
+}
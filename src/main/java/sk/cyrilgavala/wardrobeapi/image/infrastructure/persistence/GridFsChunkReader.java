@@ -0,0 +1,77 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import jakarta.annotation.PreDestroy;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens {@link GridFsChunkInputStream}s over the chunks of GridFS files with the read settings of
+ * the deployment.
+ *
+ * <p>Chunks are fetched in cursor batches of {@code app.image.gridfs.read-batch-chunks}. With
+ * {@code app.image.gridfs.read-ahead-threads} above zero, the next batch is requested on a pool
+ * of that many threads as soon as the last chunk of the current one is handed out, so the round
+ * trip overlaps with writing that chunk to the client. When every thread is busy the reader
+ * fetches the batch itself, as it does without read-ahead.
+ */
+@Component
+public class GridFsChunkReader {
+
+  private static final String CHUNKS_COLLECTION = "fs.chunks";
+
+  private final MongoTemplate mongoTemplate;
+  private final int batchChunks;
+  private final ExecutorService readAheadExecutor;
+
+  @Autowired
+  public GridFsChunkReader(
+      MongoTemplate mongoTemplate,
+      @Value("${app.image.gridfs.read-batch-chunks:2}") int batchChunks,
+      @Value("${app.image.gridfs.read-ahead-threads:0}") int readAheadThreads) {
+    this(mongoTemplate, batchChunks, readAheadThreads > 0 ? readAheadPool(readAheadThreads) : null);
+  }
+
+  GridFsChunkReader(MongoTemplate mongoTemplate, int batchChunks,
+      ExecutorService readAheadExecutor) {
+    if (batchChunks < 1) {
+      throw new IllegalArgumentException("GridFS read batches must hold at least one chunk");
+    }
+    this.mongoTemplate = mongoTemplate;
+    this.batchChunks = batchChunks;
+    this.readAheadExecutor = readAheadExecutor;
+  }
+
+  /**
+   * Opens a stream over the content of a GridFS file. No chunk is fetched before the first read.
+   *
+   * @param file the file of the {@code fs} bucket
+   * @return the content of the file
+   */
+  InputStream open(GridFSFile file) {
+    return new GridFsChunkInputStream(mongoTemplate.getCollection(CHUNKS_COLLECTION),
+        file.getId(), file.getChunkSize(), file.getLength(), batchChunks, readAheadExecutor);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (readAheadExecutor != null) {
+      readAheadExecutor.shutdownNow();
+    }
+  }
+
+  private static ExecutorService readAheadPool(int threads) {
+    return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new SynchronousQueue<>(),
+        Thread.ofPlatform().name("gridfs-read-ahead-", 0).daemon().factory(),
+        // Also after shutdown, so that no reader waits for a batch that is never fetched
+        (task, executor) -> task.run());
+  }
+}
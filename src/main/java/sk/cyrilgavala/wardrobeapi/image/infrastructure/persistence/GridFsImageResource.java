@@ -0,0 +1,47 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import java.io.InputStream;
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * {@link org.springframework.core.io.Resource} over an image stored in GridFS. Every call to
+ * {@link #getInputStream()} opens a new {@link GridFsChunkInputStream} which fetches the file chunk
+ * by chunk, so the image is never held in memory as a whole and can be read more than once, e.g.
+ * once per requested byte range.
+ */
+final class GridFsImageResource extends AbstractResource {
+
+  private final GridFSFile file;
+  private final GridFsChunkReader chunkReader;
+
+  GridFsImageResource(GridFSFile file, GridFsChunkReader chunkReader) {
+    this.file = file;
+    this.chunkReader = chunkReader;
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return chunkReader.open(file);
+  }
+
+  @Override
+  public long contentLength() {
+    return file.getLength();
+  }
+
+  @Override
+  public long lastModified() {
+    return file.getUploadDate().getTime();
+  }
+
+  @Override
+  public String getFilename() {
+    return file.getFilename();
+  }
+
+  @Override
+  public String getDescription() {
+    return "GridFS image [" + file.getId() + "]";
+  }
+}
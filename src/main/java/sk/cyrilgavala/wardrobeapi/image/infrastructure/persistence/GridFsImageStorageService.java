@@ -1,49 +1,132 @@
 package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
 
 import com.mongodb.client.gridfs.model.GridFSFile;
+import jakarta.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Binary;
 import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.data.mongodb.gridfs.GridFsUpload;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
 import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageNotFoundException;
-import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageUploadException;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.cache.ImageDiskCache;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageOptimizer;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImagePerceptualHasher;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageResizer;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageResizer.ResizedImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageValidator;
 
+/**
+ * Stores images in GridFS next to the rest of the data. Selected by {@code app.image.storage:
+ * gridfs}, the default.
+ *
+ * <p>Chunks of resumable uploads are written as GridFS chunk documents of the final file right
+ * away, marked with an {@code expires_at} date for the TTL index of the chunks collection.
+ * Completing an upload clears the mark and inserts the file document, so the content is never
+ * copied; abandoned chunks expire on their own.
+ *
+ * <p>With {@code app.image.disk-cache.enabled}, renditions read once are kept in a node-local
+ * {@link ImageDiskCache} and served from there without touching MongoDB.
+ */
 @Slf4j
 @Service
+@Qualifier("imageStore")
+@ConditionalOnProperty(name = "app.image.storage", havingValue = "gridfs", matchIfMissing = true)
 @RequiredArgsConstructor
 public class GridFsImageStorageService implements ImageStorageService {
 
-  private static final long MAX_FILE_SIZE = 20 * 1024 * 1024;
-  private static final Set<String> ALLOWED_CONTENT_TYPES = Set.of(
-      "image/jpeg",
-      "image/jpg",
-      "image/png",
-      "image/webp"
-  );
+  private static final String FILES_COLLECTION = "fs.files";
+  private static final String CHUNKS_COLLECTION = "fs.chunks";
+  private static final String SHA256_FIELD = "metadata.sha256";
+  private static final String ORIGINAL_ID_FIELD = "metadata.original_id";
+  private static final String VARIANT_FIELD = "metadata.variant";
+  private static final String VARIANTS_FIELD = "metadata.variants";
+  private static final String REF_COUNT_FIELD = "metadata.ref_count";
+  private static final String REFERENCED_AT_FIELD = "metadata.referenced_at";
+  private static final String DHASH_FIELD = "metadata.dhash";
+  private static final String UPLOAD_DATE_FIELD = "uploadDate";
+  private static final String EXPIRES_AT_FIELD = "expires_at";
 
   private final GridFsTemplate gridFsTemplate;
+  private final MongoTemplate mongoTemplate;
+  private final GridFsChunkReader gridFsChunkReader;
+  private final ImageResizer imageResizer;
+  private final ImageValidator imageValidator;
+  private final ImageOptimizer imageOptimizer;
+  private final ImagePerceptualHasher imagePerceptualHasher;
+  private final ImageDiskCache imageDiskCache;
+
+  @PostConstruct
+  void ensureIndexes() {
+    mongoTemplate.indexOps(FILES_COLLECTION).createIndex(new Index()
+        .on(ORIGINAL_ID_FIELD, Sort.Direction.ASC)
+        .on(VARIANT_FIELD, Sort.Direction.ASC)
+        .named("original_variant_idx")
+        .sparse());
+    mongoTemplate.indexOps(FILES_COLLECTION).createIndex(new Index()
+        .on(SHA256_FIELD, Sort.Direction.ASC)
+        .named("sha256_idx")
+        .sparse());
+    // Normally created by the driver on the first GridFS upload, upload chunks may come first
+    mongoTemplate.indexOps(CHUNKS_COLLECTION).createIndex(new Index()
+        .on("files_id", Sort.Direction.ASC)
+        .on("n", Sort.Direction.ASC)
+        .named("files_id_1_n_1")
+        .unique());
+    mongoTemplate.indexOps(CHUNKS_COLLECTION).createIndex(new Index()
+        .on(EXPIRES_AT_FIELD, Sort.Direction.ASC)
+        .named("expires_at_ttl_idx")
+        .expire(0)
+        .sparse());
+  }
 
   @Override
   public String storeImage(MultipartFile file) {
-    validateImage(file);
-
-    try {
-      ObjectId fileId = gridFsTemplate.store(
-          file.getInputStream(),
-          file.getOriginalFilename(),
-          file.getContentType()
-      );
+    imageValidator.validate(file);
 
-      log.debug("Stored image with ID: {}", fileId);
-      return fileId.toString();
+    // The upload is already buffered locally, hashing it first lets duplicates skip GridFS
+    try (ImageOptimizer.Permit permit = imageOptimizer.acquire();
+        InputStream content = file.getInputStream()) {
+      return storeContent(file.getOriginalFilename(), file.getContentType(),
+          content.readAllBytes());
     } catch (IOException e) {
       log.error("Failed to store image: {}", e.getMessage(), e);
       throw new RuntimeException("Failed to store image", e);
@@ -51,23 +134,240 @@ public class GridFsImageStorageService implements ImageStorageService {
   }
 
   @Override
-  public byte[] getImage(String imageId) {
-    GridFSFile file = findFile(imageId);
+  public String storeImage(String fileName, String contentType, InputStream content) {
+    if (imageOptimizer.isEnabled()) {
+      // Re-encoding decodes the whole image anyway, collecting it first also lets duplicates skip
+      // GridFS; the validator bounds how much is held, the permit how many are held
+      try (ImageOptimizer.Permit permit = imageOptimizer.acquire()) {
+        return storeContent(fileName, contentType,
+            imageValidator.validating(contentType, content).readAllBytes());
+      } catch (IOException e) {
+        log.error("Failed to store image: {}", e.getMessage(), e);
+        throw new RuntimeException("Failed to store image", e);
+      }
+    }
 
+    // The ID is chosen up front, so that the chunks of an image rejected midway can be found
+    ObjectId fileId = new ObjectId();
+    String sha256;
     try {
-      GridFsResource resource = gridFsTemplate.getResource(file);
-      return resource.getInputStream().readAllBytes();
+      DigestInputStream digesting = new DigestInputStream(
+          imageValidator.validating(contentType, content), sha256Digest());
+      gridFsTemplate.store(GridFsUpload.fromStream(digesting)
+          .id(fileId)
+          .filename(fileName)
+          .contentType(contentType)
+          .metadata(new Document("ref_count", 1))
+          .build());
+      sha256 = HexFormat.of().formatHex(digesting.getMessageDigest().digest());
     } catch (IOException e) {
-      log.error("Failed to read image with ID: {}", imageId, e);
-      throw new RuntimeException("Failed to read image", e);
+      log.error("Failed to store image: {}", e.getMessage(), e);
+      throw new RuntimeException("Failed to store image", e);
+    } catch (RuntimeException e) {
+      // The driver only discards written chunks when reading fails, not when the size check does
+      mongoTemplate.remove(Query.query(Criteria.where("files_id").is(fileId)), CHUNKS_COLLECTION);
+      throw e;
     }
+
+    // Hashed on the way in, so a duplicate is only recognized once its copy is written
+    mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(fileId)),
+        Update.update(SHA256_FIELD, sha256), FILES_COLLECTION);
+    ObjectId keptId = settleDuplicate(fileId, sha256);
+
+    log.debug("Stored streamed image with ID: {}", keptId);
+    return keptId.toHexString();
+  }
+
+  /**
+   * Stores an upload held in memory, re-encoded if that makes it smaller. Duplicates are
+   * recognized by the hash of the upload, so the same upload is found again however it was
+   * stored.
+   */
+  private String storeContent(String fileName, String contentType, byte[] original) {
+    String sha256 = HexFormat.of().formatHex(sha256Digest().digest(original));
+    ObjectId existingId = acquireReference(Criteria.where(SHA256_FIELD).is(sha256));
+    if (existingId != null) {
+      log.debug("Reusing stored image with ID: {}", existingId);
+      return existingId.toHexString();
+    }
+
+    byte[] stored = imageOptimizer.optimize(original,
+        ImageValidator.normalizeContentType(contentType)).orElse(original);
+    Document metadata = new Document("sha256", sha256)
+        .append("ref_count", 1)
+        .append("original_size", original.length)
+        .append("stored_size", stored.length);
+    // Held in memory anyway, hashing now spares decoding the image again on its first lookup
+    perceptualHash(fileName, new ByteArrayInputStream(stored))
+        .ifPresent(hash -> metadata.append("dhash", hash));
+    ObjectId fileId = gridFsTemplate.store(
+        new ByteArrayInputStream(stored),
+        fileName,
+        contentType,
+        metadata
+    );
+    // The same upload may have been stored meanwhile by a request that did not see this one
+    ObjectId keptId = settleDuplicate(fileId, sha256);
+
+    log.debug("Stored image with ID: {} ({} of {} bytes)", keptId, stored.length,
+        original.length);
+    return keptId.toHexString();
+  }
+
+  /**
+   * Settles a race of identical uploads stored at the same time. The freshly stored copy, already
+   * findable by its hash, moves its reference to the oldest other copy and releases its own, so
+   * every request ends up on the same copy. A copy that another request reused in the meantime
+   * keeps that reference and stays stored.
+   *
+   * <p>Deduplication of concurrent uploads is best effort: when both copies move their reference
+   * to each other at the same instant, both stay stored, each referenced once.
+   */
+  private ObjectId settleDuplicate(ObjectId fileId, String sha256) {
+    ObjectId existingId = acquireReference(
+        Criteria.where(SHA256_FIELD).is(sha256).and("_id").ne(fileId));
+    if (existingId == null) {
+      return fileId;
+    }
+    deleteImage(fileId.toHexString());
+    log.debug("Reusing stored image with ID: {}", existingId);
+    return existingId;
   }
 
+  @Override
+  public StoredImage getImage(String imageId, ImageVariant variant) {
+    Optional<StoredImage> cached = imageDiskCache.get(imageId, variant);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+
+    StoredImage image = loadImage(imageId, variant);
+    if (image.substitute()) {
+      return image;
+    }
+    return imageDiskCache.put(imageId, variant, image).orElse(image);
+  }
+
+  private StoredImage loadImage(String imageId, ImageVariant variant) {
+    if (variant == ImageVariant.ORIGINAL) {
+      return describe(requireFile(imageId));
+    }
+
+    // Variants that were generated before are served with a single lookup
+    GridFSFile stored = findVariant(imageId, variant);
+    if (stored != null) {
+      return describe(stored);
+    }
+
+    GridFSFile original = requireFile(imageId);
+    return linkedVariant(original, variant)
+        .map(this::describe)
+        .orElseGet(() -> generateVariantOrSubstitute(original, variant));
+  }
+
+  @Override
+  public Map<String, StoredImage> getImages(Collection<String> imageIds, ImageVariant variant) {
+    // Bulk reads take what the disk cache holds but do not fill it, like the memory cache
+    Map<String, StoredImage> images = new HashMap<>();
+    Set<ObjectId> uncachedIds = new LinkedHashSet<>();
+    for (String imageId : imageIds) {
+      if (!ObjectId.isValid(imageId) || images.containsKey(imageId)) {
+        continue;
+      }
+      imageDiskCache.get(imageId, variant).ifPresentOrElse(
+          cached -> images.put(imageId, cached),
+          () -> uncachedIds.add(new ObjectId(imageId)));
+    }
+    if (uncachedIds.isEmpty()) {
+      return images;
+    }
+
+    List<ObjectId> originalIds = List.copyOf(uncachedIds);
+    List<ObjectId> remainingIds = originalIds;
+    if (variant != ImageVariant.ORIGINAL) {
+      // Variants generated before are found with one read for all of them
+      gridFsTemplate.find(Query.query(Criteria.where(ORIGINAL_ID_FIELD).in(originalIds)
+              .and(VARIANT_FIELD).is(variant.key())))
+          .forEach(stored -> images.put(
+              stored.getMetadata().getObjectId("original_id").toHexString(), describe(stored)));
+      remainingIds = originalIds.stream()
+          .filter(id -> !images.containsKey(id.toHexString()))
+          .toList();
+    }
+    if (remainingIds.isEmpty()) {
+      return images;
+    }
+
+    gridFsTemplate.find(Query.query(Criteria.where("_id").in(remainingIds)))
+        .forEach(original -> images.put(original.getObjectId().toHexString(),
+            variant == ImageVariant.ORIGINAL ? describe(original) : linkedVariant(original, variant)
+                .map(this::describe)
+                .orElseGet(() -> generateVariantOrSubstitute(original, variant))));
+    return images;
+  }
+
+  @Override
+  public Map<String, Long> getPerceptualHashes(Collection<String> imageIds) {
+    List<ObjectId> originalIds = imageIds.stream()
+        .filter(ObjectId::isValid)
+        .map(ObjectId::new)
+        .distinct()
+        .toList();
+    Map<String, Long> hashes = new HashMap<>();
+    if (originalIds.isEmpty()) {
+      return hashes;
+    }
+
+    Query query = Query.query(Criteria.where("_id").in(originalIds));
+    query.fields().include("_id").include(DHASH_FIELD);
+    for (Document file : mongoTemplate.find(query, Document.class, FILES_COLLECTION)) {
+      ObjectId fileId = file.getObjectId("_id");
+      Long hash = file.getEmbedded(List.of("metadata", "dhash"), Long.class);
+      if (hash == null) {
+        hash = hashThumbnail(fileId.toHexString());
+      }
+      if (hash != null) {
+        hashes.put(fileId.toHexString(), hash);
+      }
+    }
+    return hashes;
+  }
+
+  /**
+   * Hashes an image that has no hash yet from its thumbnail, which is small to decode and usually
+   * generated already, and keeps the hash.
+   */
+  private Long hashThumbnail(String imageId) {
+    OptionalLong hash;
+    try (InputStream content = getImage(imageId, ImageVariant.THUMB).content().getInputStream()) {
+      hash = perceptualHash(imageId, content);
+    } catch (IOException | ImageNotFoundException e) {
+      log.debug("Image {} could not be hashed: {}", imageId, e.getMessage());
+      return null;
+    }
+    if (hash.isEmpty()) {
+      return null;
+    }
+    mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(new ObjectId(imageId))),
+        Update.update(DHASH_FIELD, hash.getAsLong()), FILES_COLLECTION);
+    return hash.getAsLong();
+  }
+
+  private OptionalLong perceptualHash(String name, InputStream content) {
+    try {
+      return imagePerceptualHasher.hash(content);
+    } catch (IOException | RuntimeException e) {
+      // Corrupt content is stored as uploaded, it just has no hash
+      log.debug("Image {} could not be hashed: {}", name, e.getMessage());
+      return OptionalLong.empty();
+    }
+  }
+
+  @Deprecated
   @Override
   public String getContentType(String imageId) {
     GridFSFile file = findFile(imageId);
-    return file.getMetadata() != null ? file.getMetadata().get("_contentType", String.class)
-        : "application/octet-stream";
+    return contentTypeOf(file.getMetadata());
   }
 
   @Override
@@ -77,13 +377,59 @@ public class GridFsImageStorageService implements ImageStorageService {
     }
 
     try {
-      gridFsTemplate.delete(Query.query(Criteria.where("_id").is(new ObjectId(imageId))));
+      ObjectId fileId = new ObjectId(imageId);
+      Document released = mongoTemplate.findAndModify(
+          Query.query(Criteria.where("_id").is(fileId)),
+          new Update().inc(REF_COUNT_FIELD, -1),
+          FindAndModifyOptions.options().returnNew(true),
+          Document.class,
+          FILES_COLLECTION
+      );
+      if (released == null) {
+        return;
+      }
+
+      Number references = released.getEmbedded(List.of("metadata", "ref_count"), Number.class);
+      if (references != null && references.longValue() > 0) {
+        log.debug("Image {} is still referenced {} times", imageId, references);
+        return;
+      }
+      removeFiles(List.of(fileId));
       log.debug("Deleted image with ID: {}", imageId);
     } catch (IllegalArgumentException e) {
       log.warn("Invalid image ID format: {}", imageId);
     }
   }
 
+  @Override
+  public long deleteImages(Collection<String> imageIds) {
+    Map<ObjectId, Long> references = imageIds.stream()
+        .filter(ObjectId::isValid)
+        .map(ObjectId::new)
+        .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    if (references.isEmpty()) {
+      return 0;
+    }
+
+    // One update per distinct number of released references, usually a single one
+    references.entrySet().stream()
+        .collect(Collectors.groupingBy(Map.Entry::getValue,
+            Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+        .forEach((count, fileIds) -> mongoTemplate.updateMulti(
+            Query.query(Criteria.where("_id").in(fileIds)),
+            new Update().inc(REF_COUNT_FIELD, -count),
+            FILES_COLLECTION));
+
+    Query unreferenced = Query.query(Criteria.where("_id").in(references.keySet())
+        .and(REF_COUNT_FIELD).not().gt(0));
+    unreferenced.fields().include("_id");
+    List<ObjectId> originalIds = mongoTemplate.find(unreferenced, Document.class, FILES_COLLECTION)
+        .stream()
+        .map(document -> document.getObjectId("_id"))
+        .toList();
+    return removeFiles(originalIds);
+  }
+
   @Override
   public boolean imageExists(String imageId) {
     if (imageId == null || imageId.isBlank()) {
@@ -99,6 +445,89 @@ public class GridFsImageStorageService implements ImageStorageService {
     }
   }
 
+  @Override
+  public Stream<String> streamImageIdsUnusedSince(Instant cutoff) {
+    Query query = unusedSince(cutoff).with(Sort.by(Sort.Direction.ASC, "_id"));
+    query.fields().include("_id");
+    return mongoTemplate.stream(query, Document.class, FILES_COLLECTION)
+        .map(document -> document.getObjectId("_id").toHexString());
+  }
+
+  @Override
+  public long deleteOrphanedImages(Collection<String> imageIds, Instant cutoff) {
+    List<ObjectId> requestedIds = imageIds.stream()
+        .filter(ObjectId::isValid)
+        .map(ObjectId::new)
+        .distinct()
+        .toList();
+    if (requestedIds.isEmpty()) {
+      return 0;
+    }
+
+    Query orphaned = unusedSince(cutoff).addCriteria(Criteria.where("_id").in(requestedIds));
+    orphaned.fields().include("_id");
+    List<ObjectId> candidateIds = mongoTemplate.find(orphaned, Document.class, FILES_COLLECTION)
+        .stream()
+        .map(document -> document.getObjectId("_id"))
+        .toList();
+    if (candidateIds.isEmpty()) {
+      return 0;
+    }
+
+    // Removing with the same conditions is atomic per file, an upload reusing one of the images
+    // in the meantime either refreshed its reference time first or stores a new copy afterwards
+    Query stillOrphaned = unusedSince(cutoff).addCriteria(Criteria.where("_id").in(candidateIds));
+    long removed = mongoTemplate.remove(stillOrphaned, FILES_COLLECTION).getDeletedCount();
+    List<ObjectId> removedIds = candidateIds;
+    if (removed < candidateIds.size()) {
+      Query survivors = Query.query(Criteria.where("_id").in(candidateIds));
+      survivors.fields().include("_id");
+      Set<ObjectId> survivorIds = mongoTemplate.find(survivors, Document.class, FILES_COLLECTION)
+          .stream()
+          .map(document -> document.getObjectId("_id"))
+          .collect(Collectors.toSet());
+      removedIds = candidateIds.stream().filter(id -> !survivorIds.contains(id)).toList();
+    }
+
+    log.debug("Deleted {} orphaned images", removed);
+    return removed + removeFiles(removedIds);
+  }
+
+  /**
+   * Matches original images that were neither stored nor had a reference added since the cutoff.
+   */
+  private static Query unusedSince(Instant cutoff) {
+    Date before = Date.from(cutoff);
+    return Query.query(Criteria.where(UPLOAD_DATE_FIELD).lt(before)
+        .and(ORIGINAL_ID_FIELD).exists(false)
+        .and(REFERENCED_AT_FIELD).not().gte(before));
+  }
+
+  private static String contentTypeOf(Document metadata) {
+    return metadata != null ? metadata.get("_contentType", String.class)
+        : "application/octet-stream";
+  }
+
+  private StoredImage describe(GridFSFile file) {
+    Document metadata = file.getMetadata();
+    return new StoredImage(
+        file.getObjectId().toHexString(),
+        contentTypeOf(metadata),
+        file.getLength(),
+        file.getUploadDate().toInstant(),
+        metadata != null ? metadata.getString("sha256") : null,
+        new GridFsImageResource(file, gridFsChunkReader)
+    );
+  }
+
+  private GridFSFile requireFile(String imageId) {
+    GridFSFile file = findFile(imageId);
+    if (file == null) {
+      throw ImageNotFoundException.withId(imageId);
+    }
+    return file;
+  }
+
   private GridFSFile findFile(String imageId) {
     try {
       return gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(new ObjectId(imageId))));
@@ -107,18 +536,203 @@ public class GridFsImageStorageService implements ImageStorageService {
     }
   }
 
-  private void validateImage(MultipartFile file) {
-    if (file == null || file.isEmpty()) {
-      throw new InvalidImageException("Image file is required");
+  private GridFSFile findVariant(String imageId, ImageVariant variant) {
+    if (!ObjectId.isValid(imageId)) {
+      throw ImageNotFoundException.withId(imageId);
+    }
+    return gridFsTemplate.findOne(Query.query(Criteria.where(ORIGINAL_ID_FIELD)
+        .is(new ObjectId(imageId)).and(VARIANT_FIELD).is(variant.key())));
+  }
+
+  /**
+   * Resolves the variant recorded in the original's metadata. A variant pointing at the original
+   * itself means that no smaller rendition could be produced.
+   */
+  private Optional<GridFSFile> linkedVariant(GridFSFile original, ImageVariant variant) {
+    Document metadata = original.getMetadata();
+    Document variants = metadata != null ? metadata.get("variants", Document.class) : null;
+    ObjectId variantId = variants != null ? variants.getObjectId(variant.key()) : null;
+    if (variantId == null) {
+      return Optional.empty();
+    }
+    if (variantId.equals(original.getObjectId())) {
+      return Optional.of(original);
+    }
+    return Optional.ofNullable(
+        gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(variantId))));
+  }
+
+  /**
+   * Generates a variant of an image, or serves the original in its place while all resize permits
+   * are taken.
+   */
+  private StoredImage generateVariantOrSubstitute(GridFSFile original, ImageVariant variant) {
+    Optional<ImageResizer.Permit> permit = imageResizer.tryAcquire();
+    if (permit.isEmpty()) {
+      log.debug("Resizing busy, serving original of image {} as {} variant",
+          original.getObjectId(), variant.key());
+      return describe(original).asSubstitute();
+    }
+    try (ImageResizer.Permit held = permit.get()) {
+      return describe(generateVariant(original, variant));
+    }
+  }
+
+  private GridFSFile generateVariant(GridFSFile original, ImageVariant variant) {
+    Optional<ResizedImage> resized;
+    try (InputStream content = new GridFsImageResource(original, gridFsChunkReader)
+        .getInputStream()) {
+      resized = imageResizer.resize(content, variant.maxDimension());
+    } catch (IOException e) {
+      log.error("Failed to generate {} variant of image {}: {}", variant.key(),
+          original.getObjectId(), e.getMessage(), e);
+      throw new RuntimeException("Failed to generate image variant", e);
+    }
+
+    if (resized.isEmpty()) {
+      // Not decodable or already small enough, the original doubles as this variant
+      linkVariant(original, variant, original.getObjectId());
+      return original;
+    }
+
+    Document metadata = new Document("original_id", original.getObjectId())
+        .append("variant", variant.key());
+    ObjectId variantId = gridFsTemplate.store(
+        new ByteArrayInputStream(resized.get().data()),
+        original.getFilename() + "-" + variant.key(),
+        resized.get().contentType(),
+        metadata
+    );
+
+    if (!linkVariant(original, variant, variantId)) {
+      // A concurrent request generated the same variant first, keep that one
+      gridFsTemplate.delete(Query.query(Criteria.where("_id").is(variantId)));
+      GridFSFile existing = findVariant(original.getObjectId().toHexString(), variant);
+      return existing != null ? existing : original;
+    }
+
+    log.debug("Generated {} variant {} of image {}", variant.key(), variantId,
+        original.getObjectId());
+    return gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(variantId)));
+  }
+
+  private boolean linkVariant(GridFSFile original, ImageVariant variant, ObjectId variantId) {
+    String field = VARIANTS_FIELD + "." + variant.key();
+    return mongoTemplate.updateFirst(
+        Query.query(Criteria.where("_id").is(original.getObjectId()).and(field).exists(false)),
+        Update.update(field, variantId),
+        FILES_COLLECTION
+    ).getModifiedCount() > 0;
+  }
+
+  /**
+   * Adds a reference to the oldest stored image matching the given criteria. Only images that are still
+   * referenced qualify, so an image whose last reference was just released is never revived.
+   */
+  private ObjectId acquireReference(Criteria copies) {
+    // The oldest copy first, so that requests racing on the same upload agree on one
+    Document existing = mongoTemplate.findAndModify(
+        Query.query(copies.and(REF_COUNT_FIELD).gt(0)).with(Sort.by("_id")),
+        new Update().inc(REF_COUNT_FIELD, 1).set(REFERENCED_AT_FIELD, new Date()),
+        FindAndModifyOptions.options().returnNew(true),
+        Document.class,
+        FILES_COLLECTION
+    );
+    return existing != null ? existing.getObjectId("_id") : null;
+  }
+
+  private long removeFiles(List<ObjectId> originalIds) {
+    if (originalIds.isEmpty()) {
+      return 0;
+    }
+
+    Query variantQuery = Query.query(Criteria.where(ORIGINAL_ID_FIELD).in(originalIds));
+    variantQuery.fields().include("_id");
+    List<ObjectId> fileIds = Stream.concat(originalIds.stream(),
+            mongoTemplate.find(variantQuery, Document.class, FILES_COLLECTION).stream()
+                .map(document -> document.getObjectId("_id")))
+        .toList();
+
+    // Same order as GridFS itself: the file disappears first, leftover chunks are unreachable
+    long deleted = mongoTemplate.remove(Query.query(Criteria.where("_id").in(fileIds)),
+        FILES_COLLECTION).getDeletedCount();
+    mongoTemplate.remove(Query.query(Criteria.where("files_id").in(fileIds)), CHUNKS_COLLECTION);
+    imageDiskCache.evict(originalIds.stream().map(ObjectId::toHexString).toList());
+    log.debug("Deleted {} images", deleted);
+    return deleted;
+  }
+
+  private static MessageDigest sha256Digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  @Override
+  public void validateUpload(ImageUpload upload) {
+    imageValidator.validateDeclaration(upload.contentType(), upload.length());
+  }
+
+  @Override
+  public void writeUploadChunk(ImageUpload upload, int index, byte[] data) {
+    if (index == 0) {
+      imageValidator.validateHeader(upload.contentType(), data);
     }
 
-    if (file.getSize() > MAX_FILE_SIZE) {
-      throw InvalidImageException.tooLarge(file.getSize(), MAX_FILE_SIZE);
+    // Only a chunk still waiting for completion is replaced. Once completion unset its expiry, the
+    // upsert tries to insert a second chunk with the same number and fails on the unique index
+    try {
+      mongoTemplate.upsert(
+          chunkQuery(upload).addCriteria(Criteria.where("n").is(index))
+              .addCriteria(Criteria.where(EXPIRES_AT_FIELD).exists(true)),
+          new Update().set("data", new Binary(data))
+              .setOnInsert(EXPIRES_AT_FIELD, Date.from(upload.expiresAt())),
+          CHUNKS_COLLECTION);
+    } catch (DuplicateKeyException e) {
+      throw InvalidImageUploadException.alreadyCompleted(upload.id());
     }
+  }
 
-    String contentType = file.getContentType();
-    if (contentType == null || !ALLOWED_CONTENT_TYPES.contains(contentType.toLowerCase())) {
-      throw InvalidImageException.invalidType(contentType);
+  @Override
+  public String completeUpload(ImageUpload upload) {
+    ObjectId fileId = new ObjectId(upload.id());
+    Query chunks = chunkQuery(upload).addCriteria(Criteria.where("n").lt(upload.chunkCount()));
+    if (mongoTemplate.count(chunks, CHUNKS_COLLECTION) < upload.chunkCount()) {
+      throw InvalidImageUploadException.incomplete(upload.missingChunks());
     }
+
+    // Chunks stop expiring before the file points at them; a crash in between leaves chunks that
+    // a repeated completion picks up again
+    mongoTemplate.updateMulti(chunks, new Update().unset(EXPIRES_AT_FIELD), CHUNKS_COLLECTION);
+    Document metadata = new Document("_contentType", upload.contentType())
+        .append("ref_count", 1)
+        .append("referenced_at", Date.from(upload.expiresAt()));
+    Document file = new Document("_id", fileId)
+        .append("length", upload.length())
+        .append("chunkSize", upload.chunkSize())
+        .append(UPLOAD_DATE_FIELD, new Date())
+        .append("filename", upload.fileName() != null ? upload.fileName() : upload.id())
+        .append("metadata", metadata);
+    try {
+      mongoTemplate.insert(file, FILES_COLLECTION);
+      log.debug("Stored uploaded image with ID: {}", fileId);
+    } catch (DuplicateKeyException e) {
+      log.debug("Upload {} was completed before", fileId);
+    }
+    return fileId.toHexString();
+  }
+
+  @Override
+  public void discardUpload(ImageUpload upload) {
+    // Only chunks still waiting for completion, never those of a stored file
+    mongoTemplate.remove(
+        chunkQuery(upload).addCriteria(Criteria.where(EXPIRES_AT_FIELD).exists(true)),
+        CHUNKS_COLLECTION);
+  }
+
+  private static Query chunkQuery(ImageUpload upload) {
+    return Query.query(Criteria.where("files_id").is(new ObjectId(upload.id())));
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies images from GridFS to the filesystem store on startup, before the web server accepts
+ * the first request. Enabled by {@code app.image.migration.from-gridfs: true} together with
+ * {@code app.image.storage: filesystem}.
+ *
+ * <p>Originals keep their IDs, reference counts, last reference dates and perceptual hashes, so
+ * items need no changes; variants are not copied and are generated again on first request. Images
+ * imported by an earlier run are skipped, which makes an interrupted migration safe to repeat.
+ * GridFS is left untouched, its collections can be dropped once the migration reported no failures.
+ *
+ * <p>The migration runs once all beans are created, which is before the web server starts and
+ * before scheduled jobs are registered, so no image is read or released while reference counts are
+ * copied. Other instances have to be stopped for the same reason. Startup takes as long as the
+ * migration; health checks of the deployment have to allow for that.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.image.migration.from-gridfs", havingValue = "true")
+@RequiredArgsConstructor
+public class GridFsToFileSystemImageMigration implements SmartInitializingSingleton {
+
+  private final GridFsTemplate gridFsTemplate;
+  private final GridFsChunkReader gridFsChunkReader;
+  private final FileSystemImageStorageService fileSystemImageStorageService;
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    log.info("Migrating images from GridFS to the filesystem");
+    long imported = 0;
+    long skipped = 0;
+    long failed = 0;
+
+    Query originals = Query.query(Criteria.where("metadata.original_id").exists(false))
+        .with(Sort.by(Sort.Direction.ASC, "_id"));
+    try (MongoCursor<GridFSFile> files = gridFsTemplate.find(originals).iterator()) {
+      while (files.hasNext()) {
+        GridFSFile file = files.next();
+        try {
+          if (migrate(file)) {
+            imported++;
+          } else {
+            skipped++;
+          }
+        } catch (IOException | RuntimeException e) {
+          failed++;
+          log.error("Failed to migrate image {}: {}", file.getObjectId(), e.getMessage(), e);
+        }
+      }
+    }
+
+    log.info("Migrated images from GridFS: {} imported, {} skipped, {} failed", imported, skipped,
+        failed);
+  }
+
+  private boolean migrate(GridFSFile file) throws IOException {
+    Document metadata = file.getMetadata();
+    Number references = metadata != null ? metadata.get("ref_count", Number.class) : null;
+    if (references != null && references.longValue() <= 0) {
+      // Released and about to be deleted
+      return false;
+    }
+    String contentType = metadata != null ? metadata.getString("_contentType") : null;
+    Date referencedAt = metadata != null ? metadata.getDate("referenced_at") : null;
+    Number perceptualHash = metadata != null ? metadata.get("dhash", Number.class) : null;
+
+    try (InputStream content = new GridFsImageResource(file, gridFsChunkReader)
+        .getInputStream()) {
+      // Images stored before reference counting have exactly one reference
+      return fileSystemImageStorageService.importImage(file.getObjectId(), contentType,
+          file.getUploadDate().toInstant(),
+          referencedAt != null ? referencedAt.toInstant() : null,
+          references != null ? references.longValue() : 1,
+          perceptualHash != null ? perceptualHash.longValue() : null,
+          content);
+    }
+  }
+}
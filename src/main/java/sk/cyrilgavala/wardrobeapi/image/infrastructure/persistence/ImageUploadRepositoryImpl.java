@@ -0,0 +1,78 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import java.time.Instant;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.domain.repository.ImageUploadRepository;
+
+/**
+ * MongoDB implementation of {@link ImageUploadRepository}.
+ *
+ * <p>Every state change is a single {@code findAndModify} or {@code findAndRemove}, so chunks
+ * arriving in parallel never lose each other's bookkeeping and an upload is claimed at most once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImageUploadRepositoryImpl implements ImageUploadRepository {
+
+  private static final String USER_ID = "user_id";
+  private static final String RECEIVED_CHUNKS = "received_chunks";
+  private static final String IMAGE_ID = "image_id";
+  private static final String EXPIRES_AT = "expires_at";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public ImageUpload save(ImageUpload upload) {
+    return mongoTemplate.save(upload);
+  }
+
+  @Override
+  public Optional<ImageUpload> findById(String id) {
+    return Optional.ofNullable(mongoTemplate.findOne(active(id), ImageUpload.class));
+  }
+
+  @Override
+  public Optional<ImageUpload> markChunkReceived(String id, int index) {
+    return Optional.ofNullable(mongoTemplate.findAndModify(
+        active(id).addCriteria(Criteria.where(IMAGE_ID).exists(false)),
+        new Update().addToSet(RECEIVED_CHUNKS, index),
+        FindAndModifyOptions.options().returnNew(true),
+        ImageUpload.class));
+  }
+
+  @Override
+  public Optional<ImageUpload> markCompleted(String id, String imageId) {
+    return Optional.ofNullable(mongoTemplate.findAndModify(
+        active(id),
+        Update.update(IMAGE_ID, imageId),
+        FindAndModifyOptions.options().returnNew(true),
+        ImageUpload.class));
+  }
+
+  @Override
+  public Optional<ImageUpload> remove(String id) {
+    return Optional.ofNullable(mongoTemplate.findAndRemove(
+        Query.query(Criteria.where("_id").is(id)), ImageUpload.class));
+  }
+
+  @Override
+  public Optional<ImageUpload> claimCompleted(String userId, String imageId) {
+    Query query = Query.query(Criteria.where(IMAGE_ID).is(imageId)
+        .and(USER_ID).is(userId)
+        .and(EXPIRES_AT).gt(Instant.now()));
+    return Optional.ofNullable(mongoTemplate.findAndRemove(query, ImageUpload.class));
+  }
+
+  private static Query active(String id) {
+    // The TTL monitor runs only once a minute
+    return Query.query(Criteria.where("_id").is(id).and(EXPIRES_AT).gt(Instant.now()));
+  }
+}
@@ -0,0 +1,263 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import org.springframework.stereotype.Component;
+
+/**
+ * Detects the format and pixel dimensions of JPEG, PNG and WebP images from their headers.
+ *
+ * <p>The format is recognised by its magic bytes rather than a declared content type, and the
+ * dimensions are taken from the PNG {@code IHDR} chunk, the WebP {@code VP8}/{@code VP8L}/
+ * {@code VP8X} chunk or the first JPEG start-of-frame segment. JPEG segments in front of the frame,
+ * such as EXIF data, are skipped rather than read, so a check usually costs a few kilobytes of
+ * input and never decodes pixel data. Only the EXIF orientation of a JPEG is read on request.
+ */
+@Component
+public class ImageHeaderReader {
+
+  private static final int SIGNATURE_LENGTH = 12;
+  private static final int MAX_JPEG_SEGMENTS = 256;
+  private static final int EXIF_MARKER = 0xE1;
+  private static final int ORIENTATION_TAG = 0x0112;
+  private static final int NORMAL_ORIENTATION = 1;
+  private static final byte[] PNG_SIGNATURE = {
+      (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'
+  };
+  private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+
+  /**
+   * Format and dimensions of an image.
+   *
+   * @param contentType the MIME type matching the content
+   * @param width       the width in pixels
+   * @param height      the height in pixels
+   */
+  public record ImageHeader(String contentType, int width, int height) {
+
+    public long pixels() {
+      return (long) width * height;
+    }
+  }
+
+  /**
+   * Reads the header at the start of an image. The stream is consumed partially and not closed.
+   *
+   * @param content the encoded image
+   * @return the header, or empty if the content is not a JPEG, PNG or WebP image or is truncated
+   *     before its dimensions
+   * @throws IOException if reading the content fails
+   */
+  public Optional<ImageHeader> read(InputStream content) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(content, 4096));
+    input.mark(SIGNATURE_LENGTH);
+    byte[] signature = input.readNBytes(SIGNATURE_LENGTH);
+    input.reset();
+
+    try {
+      if (startsWith(signature, PNG_SIGNATURE)) {
+        return readPng(input);
+      }
+      if (startsWith(signature, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF})) {
+        return readJpeg(input);
+      }
+      if (signature.length == SIGNATURE_LENGTH && startsWith(signature, ascii("RIFF"))
+          && Arrays.equals(signature, 8, 12, ascii("WEBP"), 0, 4)) {
+        return readWebp(input);
+      }
+    } catch (EOFException e) {
+      // Truncated before the dimensions
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Reads the EXIF orientation of a JPEG image, which tells how its pixels have to be rotated or
+   * mirrored for display. The stream is consumed partially and not closed.
+   *
+   * @param content the encoded image
+   * @return the orientation from 1 to 8, or 1 if the content is not a JPEG image or has no valid
+   *     orientation in front of its frame
+   * @throws IOException if reading the content fails
+   */
+  public int readOrientation(InputStream content) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(content, 4096));
+    try {
+      if (input.readUnsignedShort() != 0xFFD8) {
+        return NORMAL_ORIENTATION;
+      }
+      for (int segment = 0; segment < MAX_JPEG_SEGMENTS; segment++) {
+        if (input.readUnsignedByte() != 0xFF) {
+          return NORMAL_ORIENTATION;
+        }
+        int marker = input.readUnsignedByte();
+        while (marker == 0xFF) {
+          marker = input.readUnsignedByte();
+        }
+        if (marker == 0xD9 || marker == 0xDA || isStartOfFrame(marker)) {
+          // The EXIF segment precedes the frame
+          return NORMAL_ORIENTATION;
+        }
+        if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+          continue;
+        }
+
+        int length = input.readUnsignedShort();
+        if (length < 2) {
+          return NORMAL_ORIENTATION;
+        }
+        byte[] data = input.readNBytes(length - 2);
+        if (marker == EXIF_MARKER && startsWith(data, EXIF_HEADER)) {
+          return exifOrientation(data);
+        }
+      }
+    } catch (EOFException e) {
+      // Truncated before the frame
+    }
+    return NORMAL_ORIENTATION;
+  }
+
+  /**
+   * Looks up the orientation tag in the first image file directory of a TIFF structure that
+   * follows the EXIF header. Offsets are relative to the start of the TIFF structure.
+   */
+  private static int exifOrientation(byte[] segment) {
+    ByteBuffer tiff = ByteBuffer.wrap(segment, EXIF_HEADER.length,
+        segment.length - EXIF_HEADER.length).slice();
+    if (tiff.remaining() < 8) {
+      return NORMAL_ORIENTATION;
+    }
+    short byteOrder = tiff.getShort(0);
+    if (byteOrder == 0x4949) {
+      tiff.order(ByteOrder.LITTLE_ENDIAN);
+    } else if (byteOrder != 0x4D4D) {
+      return NORMAL_ORIENTATION;
+    }
+
+    long directory = Integer.toUnsignedLong(tiff.getInt(4));
+    if (directory > tiff.limit() - 2) {
+      return NORMAL_ORIENTATION;
+    }
+    int entries = Short.toUnsignedInt(tiff.getShort((int) directory));
+    for (int entry = 0; entry < entries; entry++) {
+      int offset = (int) directory + 2 + entry * 12;
+      if (offset + 12 > tiff.limit()) {
+        break;
+      }
+      if (Short.toUnsignedInt(tiff.getShort(offset)) == ORIENTATION_TAG) {
+        int orientation = Short.toUnsignedInt(tiff.getShort(offset + 8));
+        return orientation >= 1 && orientation <= 8 ? orientation : NORMAL_ORIENTATION;
+      }
+    }
+    return NORMAL_ORIENTATION;
+  }
+
+  private static Optional<ImageHeader> readPng(DataInputStream input) throws IOException {
+    input.skipNBytes(PNG_SIGNATURE.length + 4);
+    if (!Arrays.equals(input.readNBytes(4), ascii("IHDR"))) {
+      return Optional.empty();
+    }
+    return Optional.of(new ImageHeader("image/png", input.readInt(), input.readInt()));
+  }
+
+  private static Optional<ImageHeader> readJpeg(DataInputStream input) throws IOException {
+    input.skipNBytes(2);
+    for (int segment = 0; segment < MAX_JPEG_SEGMENTS; segment++) {
+      if (input.readUnsignedByte() != 0xFF) {
+        return Optional.empty();
+      }
+      int marker = input.readUnsignedByte();
+      while (marker == 0xFF) {
+        // Fill bytes in front of a marker
+        marker = input.readUnsignedByte();
+      }
+
+      if (marker == 0xD9 || marker == 0xDA) {
+        // End of image or start of scan without a frame header
+        return Optional.empty();
+      }
+      if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+        // Standalone markers without a length
+        continue;
+      }
+
+      int length = input.readUnsignedShort();
+      if (length < 2) {
+        return Optional.empty();
+      }
+      if (isStartOfFrame(marker)) {
+        input.skipNBytes(1);
+        int height = input.readUnsignedShort();
+        int width = input.readUnsignedShort();
+        return Optional.of(new ImageHeader("image/jpeg", width, height));
+      }
+      input.skipNBytes(length - 2);
+    }
+    return Optional.empty();
+  }
+
+  private static Optional<ImageHeader> readWebp(DataInputStream input) throws IOException {
+    input.skipNBytes(SIGNATURE_LENGTH);
+    String chunk = new String(input.readNBytes(4), StandardCharsets.US_ASCII);
+    input.skipNBytes(4);
+
+    return switch (chunk) {
+      case "VP8 " -> {
+        // Frame tag followed by the key frame start code
+        input.skipNBytes(3);
+        if (input.readUnsignedByte() != 0x9D || input.readUnsignedByte() != 0x01
+            || input.readUnsignedByte() != 0x2A) {
+          yield Optional.empty();
+        }
+        int width = readLittleEndian(input, 2) & 0x3FFF;
+        int height = readLittleEndian(input, 2) & 0x3FFF;
+        yield Optional.of(new ImageHeader("image/webp", width, height));
+      }
+      case "VP8L" -> {
+        if (input.readUnsignedByte() != 0x2F) {
+          yield Optional.empty();
+        }
+        int bits = readLittleEndian(input, 4);
+        yield Optional.of(new ImageHeader("image/webp", (bits & 0x3FFF) + 1,
+            ((bits >>> 14) & 0x3FFF) + 1));
+      }
+      case "VP8X" -> {
+        input.skipNBytes(4);
+        int width = readLittleEndian(input, 3) + 1;
+        int height = readLittleEndian(input, 3) + 1;
+        yield Optional.of(new ImageHeader("image/webp", width, height));
+      }
+      default -> Optional.empty();
+    };
+  }
+
+  private static boolean isStartOfFrame(int marker) {
+    return marker >= 0xC0 && marker <= 0xCF
+        && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+  }
+
+  private static int readLittleEndian(DataInputStream input, int bytes) throws IOException {
+    int value = 0;
+    for (int i = 0; i < bytes; i++) {
+      value |= input.readUnsignedByte() << (8 * i);
+    }
+    return value;
+  }
+
+  private static boolean startsWith(byte[] data, byte[] prefix) {
+    return data.length >= prefix.length
+        && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
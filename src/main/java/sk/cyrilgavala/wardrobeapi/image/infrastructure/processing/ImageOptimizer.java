@@ -0,0 +1,202 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Re-encodes uploaded JPEG and PNG images with {@code javax.imageio} before they are stored.
+ *
+ * <p>Images are written without any of their metadata, which drops EXIF blocks, embedded
+ * thumbnails and text chunks. A JPEG is turned upright according to its EXIF orientation, since
+ * that information is stripped with the rest, and re-encoded at {@code
+ * app.image.optimization.jpeg-quality}, 0.85 unless set. That re-encoding is lossy: the stored
+ * JPEG is not pixel-identical to the upload, and the original is not kept. A PNG is recompressed
+ * losslessly at the highest deflate level. The result is only used when it is smaller than the
+ * upload; WebP images, which the JDK cannot write, are kept as they are.
+ *
+ * <p>Stores hold a whole upload in memory and decode it to re-encode it, so they do that only
+ * while holding one of {@code app.image.optimization.max-concurrent} permits. Further uploads
+ * wait before their content is read, which bounds both memory and CPU spent on optimization.
+ * Optimization is on unless {@code app.image.optimization.enabled} is set to {@code false}, which
+ * stores uploads byte for byte.
+ */
+@Slf4j
+@Component
+public class ImageOptimizer {
+
+  private final ImageHeaderReader imageHeaderReader;
+  private final boolean enabled;
+  private final float jpegQuality;
+  private final Semaphore permits;
+
+  public ImageOptimizer(
+      ImageHeaderReader imageHeaderReader,
+      @Value("${app.image.optimization.enabled:true}") boolean enabled,
+      @Value("${app.image.optimization.jpeg-quality:0.85}") float jpegQuality,
+      @Value("${app.image.optimization.max-concurrent:2}") int maxConcurrent) {
+    if (jpegQuality <= 0 || jpegQuality > 1) {
+      throw new IllegalArgumentException("JPEG quality must be in (0, 1], got: " + jpegQuality);
+    }
+    if (maxConcurrent < 1) {
+      throw new IllegalArgumentException(
+          "At least one image must be optimized at a time, got: " + maxConcurrent);
+    }
+    this.imageHeaderReader = imageHeaderReader;
+    this.enabled = enabled;
+    this.jpegQuality = jpegQuality;
+    this.permits = new Semaphore(maxConcurrent, true);
+  }
+
+  /**
+   * A permit to hold an upload in memory and optimize it, returned when closed.
+   */
+  public interface Permit extends AutoCloseable {
+
+    @Override
+    void close();
+  }
+
+  /**
+   * Tells whether uploads are re-encoded at all. Stores only need to hold an upload in memory when
+   * they are.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Waits until fewer than {@code app.image.optimization.max-concurrent} uploads are being
+   * optimized. Stores acquire the permit before reading an upload into memory and keep it until
+   * the optimized image is stored. With optimization disabled the permit is granted at once.
+   *
+   * @return the permit, to be closed when done
+   */
+  public Permit acquire() {
+    if (!enabled) {
+      return () -> {
+      };
+    }
+    permits.acquireUninterruptibly();
+    return permits::release;
+  }
+
+  /**
+   * Re-encodes an image without its metadata.
+   *
+   * @param original    the uploaded image
+   * @param contentType the normalized MIME type of the image, which the result keeps
+   * @return the re-encoded image, or empty if optimization is disabled, the format is not
+   *     supported, the content cannot be decoded or the result would not be smaller
+   */
+  public Optional<byte[]> optimize(byte[] original, String contentType) {
+    if (!enabled || !("image/jpeg".equals(contentType) || "image/png".equals(contentType))) {
+      return Optional.empty();
+    }
+
+    byte[] optimized;
+    try {
+      BufferedImage image = ImageIO.read(new ByteArrayInputStream(original));
+      if (image == null) {
+        log.debug("No ImageIO reader available for image, stored as uploaded");
+        return Optional.empty();
+      }
+      if ("image/jpeg".equals(contentType)) {
+        int orientation = imageHeaderReader.readOrientation(new ByteArrayInputStream(original));
+        optimized = encodeJpeg(orient(image, orientation));
+      } else {
+        optimized = encodePng(image);
+      }
+    } catch (IOException | RuntimeException e) {
+      // Only in-memory streams are involved, any failure comes from decoding corrupt content
+      log.debug("Image could not be re-encoded, stored as uploaded: {}", e.getMessage());
+      return Optional.empty();
+    }
+
+    if (optimized.length >= original.length) {
+      log.debug("Re-encoded image is not smaller ({} >= {} bytes), stored as uploaded",
+          optimized.length, original.length);
+      return Optional.empty();
+    }
+    return Optional.of(optimized);
+  }
+
+  /**
+   * Applies an EXIF orientation to the pixels, so that the image displays upright without it.
+   */
+  static BufferedImage orient(BufferedImage image, int orientation) {
+    if (orientation <= 1 || orientation > 8) {
+      return image;
+    }
+
+    int width = image.getWidth();
+    int height = image.getHeight();
+    AffineTransform transform = switch (orientation) {
+      case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);
+      case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);
+      case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);
+      case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+      case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);
+      case 7 -> new AffineTransform(0, -1, -1, 0, height, width);
+      default -> new AffineTransform(0, -1, 1, 0, 0, width);
+    };
+    // Orientations from 5 on swap the sides
+    boolean swapped = orientation >= 5;
+    int type = image.getType() == BufferedImage.TYPE_BYTE_GRAY
+        ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+    BufferedImage target = new BufferedImage(swapped ? height : width, swapped ? width : height,
+        type);
+    Graphics2D graphics = target.createGraphics();
+    try {
+      graphics.drawImage(image, transform, null);
+    } finally {
+      graphics.dispose();
+    }
+    return target;
+  }
+
+  private byte[] encodeJpeg(BufferedImage image) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ImageWriteParam params = writer.getDefaultWriteParam();
+    params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+    params.setCompressionQuality(jpegQuality);
+    // Progressive scans usually compress photos a few percent better than a baseline one
+    params.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+    return write(writer, image, params);
+  }
+
+  private static byte[] encodePng(BufferedImage image) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+    ImageWriteParam params = writer.getDefaultWriteParam();
+    // Quality 0 selects the strongest deflate level, PNG stays lossless either way
+    params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+    params.setCompressionQuality(0.0f);
+    return write(writer, image, params);
+  }
+
+  private static byte[] write(ImageWriter writer, BufferedImage image, ImageWriteParam params)
+      throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+      writer.setOutput(imageOutput);
+      // Without metadata, neither EXIF nor thumbnails nor text chunks are written
+      writer.write(null, new IIOImage(image, null, null), params);
+    } finally {
+      writer.dispose();
+    }
+    return output.toByteArray();
+  }
+}
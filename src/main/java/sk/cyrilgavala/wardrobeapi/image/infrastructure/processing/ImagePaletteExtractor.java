@@ -0,0 +1,194 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import javax.imageio.ImageIO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImagePaletteService;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.LabColor;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+
+/**
+ * Extracts dominant colors with k-means clustering in the L*a*b* color space.
+ *
+ * <p>Only the {@link ImageVariant#THUMB} variant is decoded, and of that at most {@code
+ * app.image.palette.max-samples} pixels on a regular grid are clustered, which bounds the work
+ * per image regardless of the size of the upload. Transparent pixels are skipped. Clustering in
+ * L*a*b* rather than RGB groups colors the way they look alike. Centroids are seeded with
+ * k-means++ from a fixed seed, so an image always yields the same palette. Clusters are ordered
+ * by the share of pixels they hold; those below five percent are noise and dropped.
+ */
+@Slf4j
+@Service
+public class ImagePaletteExtractor implements ImagePaletteService {
+
+  private static final int MAX_ITERATIONS = 20;
+  private static final double CONVERGED_SHIFT = 0.5;
+  private static final double MIN_SHARE = 0.05;
+  private static final long SEED = 42;
+
+  private final ImageStorageService imageStorageService;
+  private final int paletteSize;
+  private final int maxSamples;
+
+  public ImagePaletteExtractor(
+      ImageStorageService imageStorageService,
+      @Value("${app.image.palette.size:5}") int paletteSize,
+      @Value("${app.image.palette.max-samples:4096}") int maxSamples) {
+    this.imageStorageService = imageStorageService;
+    this.paletteSize = paletteSize;
+    this.maxSamples = maxSamples;
+  }
+
+  @Override
+  public List<String> extractPalette(String imageId) {
+    StoredImage thumbnail = imageStorageService.getImage(imageId, ImageVariant.THUMB);
+    BufferedImage image;
+    try (InputStream content = thumbnail.content().getInputStream()) {
+      image = ImageIO.read(content);
+    } catch (IOException e) {
+      log.debug("Image {} could not be decoded, no palette extracted: {}", imageId,
+          e.getMessage());
+      return List.of();
+    }
+    if (image == null) {
+      log.debug("No ImageIO reader available for image {}, no palette extracted", imageId);
+      return List.of();
+    }
+    return palette(sample(image, maxSamples), paletteSize);
+  }
+
+  /**
+   * Converts the opaque pixels on a grid spaced so that at most {@code maxSamples} are taken.
+   */
+  static List<double[]> sample(BufferedImage image, int maxSamples) {
+    long pixels = (long) image.getWidth() * image.getHeight();
+    int step = (int) Math.max(1, Math.ceil(Math.sqrt((double) pixels / maxSamples)));
+    List<double[]> samples = new ArrayList<>();
+    for (int y = step / 2; y < image.getHeight(); y += step) {
+      for (int x = step / 2; x < image.getWidth(); x += step) {
+        int argb = image.getRGB(x, y);
+        if (argb >>> 24 >= 128) {
+          LabColor color = LabColor.fromRgb(argb);
+          samples.add(new double[]{color.l(), color.a(), color.b()});
+        }
+      }
+    }
+    return samples;
+  }
+
+  /**
+   * Clusters samples into at most {@code size} colors.
+   *
+   * @return the hex colors of the clusters, the largest first
+   */
+  static List<String> palette(List<double[]> samples, int size) {
+    if (samples.isEmpty()) {
+      return List.of();
+    }
+    double[][] centroids = seed(samples, Math.min(size, samples.size()));
+    int[] assignment = new int[samples.size()];
+    int[] counts = new int[centroids.length];
+
+    for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+      double[][] sums = new double[centroids.length][3];
+      counts = new int[centroids.length];
+      for (int i = 0; i < samples.size(); i++) {
+        double[] sample = samples.get(i);
+        assignment[i] = nearest(centroids, sample);
+        double[] sum = sums[assignment[i]];
+        sum[0] += sample[0];
+        sum[1] += sample[1];
+        sum[2] += sample[2];
+        counts[assignment[i]]++;
+      }
+
+      double maxShift = 0;
+      for (int c = 0; c < centroids.length; c++) {
+        if (counts[c] == 0) {
+          continue;
+        }
+        double[] mean = {sums[c][0] / counts[c], sums[c][1] / counts[c], sums[c][2] / counts[c]};
+        maxShift = Math.max(maxShift, squaredDistance(centroids[c], mean));
+        centroids[c] = mean;
+      }
+      if (maxShift < CONVERGED_SHIFT * CONVERGED_SHIFT) {
+        break;
+      }
+    }
+
+    int[] sizes = counts;
+    double[][] clusters = centroids;
+    return IntStream.range(0, clusters.length)
+        .filter(c -> sizes[c] >= MIN_SHARE * samples.size())
+        .boxed()
+        .sorted(Comparator.comparingInt((Integer c) -> sizes[c]).reversed())
+        .map(c -> new LabColor(clusters[c][0], clusters[c][1], clusters[c][2]).toHex())
+        .distinct()
+        .toList();
+  }
+
+  /**
+   * Picks initial centroids with k-means++: each next one is drawn with a probability
+   * proportional to its squared distance from the nearest centroid picked so far.
+   */
+  private static double[][] seed(List<double[]> samples, int count) {
+    Random random = new Random(SEED);
+    double[][] centroids = new double[count][];
+    centroids[0] = samples.get(random.nextInt(samples.size())).clone();
+    double[] distances = new double[samples.size()];
+    for (int c = 1; c < count; c++) {
+      double total = 0;
+      for (int i = 0; i < samples.size(); i++) {
+        distances[i] = squaredDistance(samples.get(i), centroids[nearest(centroids, c,
+            samples.get(i))]);
+        total += distances[i];
+      }
+      int picked = samples.size() - 1;
+      double target = random.nextDouble() * total;
+      for (int i = 0; i < samples.size(); i++) {
+        target -= distances[i];
+        if (target < 0) {
+          picked = i;
+          break;
+        }
+      }
+      centroids[c] = samples.get(picked).clone();
+    }
+    return centroids;
+  }
+
+  private static int nearest(double[][] centroids, double[] sample) {
+    return nearest(centroids, centroids.length, sample);
+  }
+
+  private static int nearest(double[][] centroids, int count, double[] sample) {
+    int nearest = 0;
+    double best = Double.MAX_VALUE;
+    for (int c = 0; c < count; c++) {
+      double distance = squaredDistance(centroids[c], sample);
+      if (distance < best) {
+        best = distance;
+        nearest = c;
+      }
+    }
+    return nearest;
+  }
+
+  private static double squaredDistance(double[] first, double[] second) {
+    double dl = first[0] - second[0];
+    double da = first[1] - second[1];
+    double db = first[2] - second[2];
+    return dl * dl + da * da + db * db;
+  }
+}
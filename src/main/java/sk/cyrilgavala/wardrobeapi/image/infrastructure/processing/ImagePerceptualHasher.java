@@ -0,0 +1,82 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.OptionalLong;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Computes 64-bit difference hashes (dHash) of images for finding near duplicates.
+ *
+ * <p>The image is decoded subsampled to roughly 64 pixels on its shorter side, which keeps memory
+ * and time low for large photos, and scaled down to 9 by 8 pixels; each bit tells whether a pixel
+ * is brighter than its right neighbor. Re-encoding, resizing and small changes of exposure or
+ * crop keep most of the gradients, so two photos of the same thing differ in only a few bits,
+ * whereas unrelated images differ in about half of them. The Hamming distance of two hashes, i.e.
+ * the number of differing bits, is their dissimilarity.
+ */
+@Slf4j
+@Component
+public class ImagePerceptualHasher {
+
+  private static final int WIDTH = 9;
+  private static final int HEIGHT = 8;
+  private static final int SAMPLED_SIZE = 64;
+
+  /**
+   * Decodes an image and hashes it.
+   *
+   * @param content the encoded image, read to its end
+   * @return the hash, or empty if no ImageIO reader can decode the content
+   * @throws IOException if the content cannot be read or is corrupt
+   */
+  public OptionalLong hash(InputStream content) throws IOException {
+    try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+      Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input)
+          : Collections.emptyIterator();
+      if (!readers.hasNext()) {
+        log.debug("No ImageIO reader available for image, not hashed");
+        return OptionalLong.empty();
+      }
+
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        // Decoding only every n-th pixel of every n-th row keeps a large photo to a few kilobytes
+        ImageReadParam params = reader.getDefaultReadParam();
+        int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / SAMPLED_SIZE);
+        params.setSourceSubsampling(step, step, 0, 0);
+        return OptionalLong.of(hash(reader.read(0, params)));
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  static long hash(BufferedImage image) {
+    BufferedImage scaled = ImageResizer.downscale(image, WIDTH, HEIGHT, false);
+    long hash = 0;
+    for (int y = 0; y < HEIGHT; y++) {
+      int left = luminance(scaled.getRGB(0, y));
+      for (int x = 1; x < WIDTH; x++) {
+        int right = luminance(scaled.getRGB(x, y));
+        hash = hash << 1 | (left > right ? 1 : 0);
+        left = right;
+      }
+    }
+    return hash;
+  }
+
+  private static int luminance(int rgb) {
+    // ITU-R BT.601 weights scaled by 1000, integer math keeps hashes stable across platforms
+    return 299 * (rgb >> 16 & 0xFF) + 587 * (rgb >> 8 & 0xFF) + 114 * (rgb & 0xFF);
+  }
+}
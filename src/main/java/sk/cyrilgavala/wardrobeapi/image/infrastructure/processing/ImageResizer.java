@@ -0,0 +1,219 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Produces downscaled copies of images with {@code javax.imageio}.
+ *
+ * <p>Images are halved step by step with bilinear interpolation until the next halving would
+ * undershoot the target, followed by one final step to the exact size. This keeps the quality of
+ * a multi-tap filter at the cost of a few cheap bilinear passes. Images with transparency are
+ * written as PNG, all others as JPEG.
+ *
+ * <p>Resizing decodes the whole original, which takes about 160 MB for the 40 megapixels uploads
+ * may have, so stores resize only while holding one of {@code app.image.variants.max-concurrent}
+ * permits. Variants are generated on request threads, which do not wait for a permit but serve
+ * the original instead.
+ */
+@Slf4j
+@Component
+public class ImageResizer {
+
+  private static final float JPEG_QUALITY = 0.85f;
+
+  private final Semaphore permits;
+
+  public ImageResizer(@Value("${app.image.variants.max-concurrent:4}") int maxConcurrent) {
+    if (maxConcurrent < 1) {
+      throw new IllegalArgumentException(
+          "At least one image must be resized at a time, got: " + maxConcurrent);
+    }
+    this.permits = new Semaphore(maxConcurrent);
+  }
+
+  /**
+   * A permit to decode and resize an image, returned when closed.
+   */
+  public interface Permit extends AutoCloseable {
+
+    @Override
+    void close();
+  }
+
+  /**
+   * Takes a permit if fewer than {@code app.image.variants.max-concurrent} images are being
+   * resized. Stores hold it while they generate a variant.
+   *
+   * @return the permit, to be closed when done, or empty if all permits are taken
+   */
+  public Optional<Permit> tryAcquire() {
+    if (!permits.tryAcquire()) {
+      return Optional.empty();
+    }
+    return Optional.of(permits::release);
+  }
+
+  /**
+   * Scaled image data.
+   *
+   * @param data        the encoded image
+   * @param contentType the MIME type of {@code data}
+   */
+  public record ResizedImage(byte[] data, String contentType) {
+
+  }
+
+  /**
+   * Downscales an image so that its longer side does not exceed {@code maxDimension}.
+   *
+   * @param original     the encoded original image
+   * @param maxDimension the maximum width and height in pixels
+   * @return the scaled image, or empty if the format is not supported, the content is corrupt or
+   *     the image is already small enough
+   * @throws IOException if reading the original fails
+   */
+  public Optional<ResizedImage> resize(InputStream original, int maxDimension) throws IOException {
+    SourceStream content = new SourceStream(original);
+    BufferedImage source;
+    try {
+      source = ImageIO.read(content);
+    } catch (IOException | RuntimeException e) {
+      if (content.failure != null) {
+        // The original could not be read, which says nothing about its content
+        throw new IOException("Failed to read image", content.failure);
+      }
+      // Decoders also report corrupt content with runtime exceptions
+      log.debug("Image could not be decoded, variant not generated: {}", e.toString());
+      return Optional.empty();
+    }
+    if (source == null) {
+      log.debug("No ImageIO reader available for image, variant not generated");
+      return Optional.empty();
+    }
+
+    int longerSide = Math.max(source.getWidth(), source.getHeight());
+    if (longerSide <= maxDimension) {
+      return Optional.empty();
+    }
+
+    double scale = (double) maxDimension / longerSide;
+    int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+    int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+    boolean alpha = source.getColorModel().hasAlpha();
+
+    BufferedImage scaled = downscale(source, targetWidth, targetHeight, alpha);
+    return Optional.of(alpha
+        ? new ResizedImage(encodePng(scaled), "image/png")
+        : new ResizedImage(encodeJpeg(scaled), "image/jpeg"));
+  }
+
+  static BufferedImage downscale(BufferedImage source, int targetWidth, int targetHeight,
+      boolean alpha) {
+    BufferedImage current = source;
+    int width = source.getWidth();
+    int height = source.getHeight();
+
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+      current = draw(current, width, height, alpha);
+    } while (width != targetWidth || height != targetHeight);
+
+    return current;
+  }
+
+  private static BufferedImage draw(BufferedImage source, int width, int height, boolean alpha) {
+    BufferedImage target = new BufferedImage(width, height,
+        alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = target.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+          RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return target;
+  }
+
+  /**
+   * Remembers a failure of the original stream, to tell it apart from the decoder failing.
+   */
+  private static final class SourceStream extends FilterInputStream {
+
+    private Exception failure;
+
+    private SourceStream(InputStream original) {
+      super(original);
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return super.read();
+      } catch (IOException | RuntimeException e) {
+        failure = e;
+        throw e;
+      }
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int count) throws IOException {
+      try {
+        return super.read(target, offset, count);
+      } catch (IOException | RuntimeException e) {
+        failure = e;
+        throw e;
+      }
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+      try {
+        return super.skip(count);
+      } catch (IOException | RuntimeException e) {
+        failure = e;
+        throw e;
+      }
+    }
+  }
+
+  private static byte[] encodePng(BufferedImage image) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", output);
+    return output.toByteArray();
+  }
+
+  private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ImageWriteParam params = writer.getDefaultWriteParam();
+    params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+    params.setCompressionQuality(JPEG_QUALITY);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+      writer.setOutput(imageOutput);
+      writer.write(null, new IIOImage(image, null, null), params);
+    } finally {
+      writer.dispose();
+    }
+    return output.toByteArray();
+  }
+}
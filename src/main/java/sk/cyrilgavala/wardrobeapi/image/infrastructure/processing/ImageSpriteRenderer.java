@@ -0,0 +1,219 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import jakarta.annotation.PreDestroy;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageSpriteService;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageSprite;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageSprite.Tile;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+
+/**
+ * Renders contact sheets from the {@link ImageVariant#THUMB} variants of images.
+ *
+ * <p>The thumbnails are fetched with one bulk lookup, then decoded and fitted into their tiles in
+ * parallel on a pool of {@code app.image.sprite.threads} platform threads, one per core by
+ * default, since decoding is bound by CPU rather than I/O. Tiles are square with the side of a
+ * thumbnail and the grid is as close to a square as the number of tiles allows. The last
+ * {@code app.image.sprite.cache-entries} sheets are kept, so a page fetching its tile map and then
+ * its sheet renders only once.
+ */
+@Slf4j
+@Service
+public class ImageSpriteRenderer implements ImageSpriteService {
+
+  private static final float JPEG_QUALITY = 0.85f;
+
+  private final ImageStorageService imageStorageService;
+  private final ExecutorService renderExecutor;
+  private final Map<String, ImageSprite> cache;
+
+  @Autowired
+  public ImageSpriteRenderer(
+      ImageStorageService imageStorageService,
+      @Value("${app.image.sprite.threads:0}") int threads,
+      @Value("${app.image.sprite.cache-entries:32}") int cacheEntries) {
+    this(imageStorageService, Executors.newFixedThreadPool(
+        threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+        Thread.ofPlatform().name("sprite-renderer-", 0).daemon().factory()), cacheEntries);
+  }
+
+  ImageSpriteRenderer(ImageStorageService imageStorageService, ExecutorService renderExecutor,
+      int cacheEntries) {
+    this.imageStorageService = imageStorageService;
+    this.renderExecutor = renderExecutor;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ImageSprite> eldest) {
+        return size() > cacheEntries;
+      }
+    };
+  }
+
+  @Override
+  public ImageSprite getSprite(Map<String, String> imageIds) {
+    String key = ImageSprite.keyOf(imageIds);
+    synchronized (cache) {
+      ImageSprite cached = cache.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    Map<String, StoredImage> thumbnails = imageStorageService.getImages(
+        new LinkedHashSet<>(imageIds.values()), ImageVariant.THUMB);
+    ImageSprite sprite = render(key, imageIds, thumbnails);
+    log.debug("Rendered sprite {} with {} of {} tiles", key, sprite.tiles().size(),
+        imageIds.size());
+    synchronized (cache) {
+      cache.put(key, sprite);
+    }
+    return sprite;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    renderExecutor.shutdownNow();
+  }
+
+  private ImageSprite render(String key, Map<String, String> imageIds,
+      Map<String, StoredImage> thumbnails) {
+    int tileSize = ImageVariant.THUMB.maxDimension();
+
+    // Each distinct image is decoded once, however many tile keys share it
+    Map<String, Future<BufferedImage>> pending = new LinkedHashMap<>();
+    for (String imageId : imageIds.values()) {
+      StoredImage thumbnail = thumbnails.get(imageId);
+      if (thumbnail != null && !pending.containsKey(imageId)) {
+        pending.put(imageId, renderExecutor.submit(() -> fit(thumbnail, tileSize)));
+      }
+    }
+    Map<String, BufferedImage> fitted = new LinkedHashMap<>();
+    for (Map.Entry<String, Future<BufferedImage>> entry : pending.entrySet()) {
+      BufferedImage image = await(entry.getValue());
+      if (image != null) {
+        fitted.put(entry.getKey(), image);
+      }
+    }
+    if (fitted.isEmpty()) {
+      return new ImageSprite(key, new byte[0], 0, 0, tileSize, Map.of());
+    }
+
+    int columns = (int) Math.ceil(Math.sqrt(fitted.size()));
+    int rows = (fitted.size() + columns - 1) / columns;
+    BufferedImage sheet = new BufferedImage(columns * tileSize, rows * tileSize,
+        BufferedImage.TYPE_INT_RGB);
+    Map<String, Tile> tilesByImage = new LinkedHashMap<>();
+    Graphics2D graphics = sheet.createGraphics();
+    try {
+      // Transparent images are blended onto white, as they would be on a page
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, sheet.getWidth(), sheet.getHeight());
+      int index = 0;
+      for (Map.Entry<String, BufferedImage> entry : fitted.entrySet()) {
+        BufferedImage image = entry.getValue();
+        int x = index % columns * tileSize + (tileSize - image.getWidth()) / 2;
+        int y = index / columns * tileSize + (tileSize - image.getHeight()) / 2;
+        graphics.drawImage(image, x, y, null);
+        tilesByImage.put(entry.getKey(), new Tile(x, y, image.getWidth(), image.getHeight()));
+        index++;
+      }
+    } finally {
+      graphics.dispose();
+    }
+
+    Map<String, Tile> tiles = new LinkedHashMap<>();
+    imageIds.forEach((tileKey, imageId) -> {
+      Tile tile = tilesByImage.get(imageId);
+      if (tile != null) {
+        tiles.put(tileKey, tile);
+      }
+    });
+    return new ImageSprite(key, encodeJpeg(sheet), sheet.getWidth(), sheet.getHeight(), tileSize,
+        tiles);
+  }
+
+  /**
+   * Decodes an image and scales it down to fit into a tile, or returns {@code null} if it cannot
+   * be decoded.
+   */
+  private static BufferedImage fit(StoredImage image, int tileSize) {
+    BufferedImage source;
+    try (InputStream content = image.content().getInputStream()) {
+      source = ImageIO.read(content);
+    } catch (IOException e) {
+      log.debug("Image {} could not be decoded, left out of sprite: {}", image.id(),
+          e.getMessage());
+      return null;
+    }
+    if (source == null) {
+      log.debug("No ImageIO reader available for image {}, left out of sprite", image.id());
+      return null;
+    }
+
+    int longerSide = Math.max(source.getWidth(), source.getHeight());
+    if (longerSide <= tileSize) {
+      return source;
+    }
+    double scale = (double) tileSize / longerSide;
+    return ImageResizer.downscale(source,
+        Math.max(1, (int) Math.round(source.getWidth() * scale)),
+        Math.max(1, (int) Math.round(source.getHeight() * scale)),
+        source.getColorModel().hasAlpha());
+  }
+
+  private static BufferedImage await(Future<BufferedImage> image) {
+    try {
+      return image.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while rendering sprite", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException("Failed to render sprite tile", e.getCause());
+    }
+  }
+
+  private static byte[] encodeJpeg(BufferedImage image) {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ImageWriteParam params = writer.getDefaultWriteParam();
+    params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+    params.setCompressionQuality(JPEG_QUALITY);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+      writer.setOutput(imageOutput);
+      writer.write(null, new IIOImage(image, null, null), params);
+    } catch (IOException e) {
+      // Only an in-memory stream is involved
+      throw new IllegalStateException("Failed to encode sprite", e);
+    } finally {
+      writer.dispose();
+    }
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,194 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageException;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageHeaderReader.ImageHeader;
+
+/**
+ * Upload rules shared by all image stores: size, declared type, and a header check proving that
+ * the content is an image of that type with a bounded number of pixels.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageValidator {
+
+  private static final long MAX_FILE_SIZE = 20 * 1024 * 1024;
+  private static final long MAX_PIXELS = 40_000_000;
+  private static final int MAX_HEADER_LENGTH = 1024 * 1024;
+  private static final Map<String, String> ALLOWED_CONTENT_TYPES = Map.of(
+      "image/jpeg", "image/jpeg",
+      "image/jpg", "image/jpeg",
+      "image/png", "image/png",
+      "image/webp", "image/webp"
+  );
+
+  private final ImageHeaderReader imageHeaderReader;
+
+  /**
+   * Normalizes a declared image type, e.g. {@code image/jpg} to {@code image/jpeg}.
+   *
+   * @param contentType the declared type
+   * @return the normalized type, or {@code null} if the type is not supported
+   */
+  public static String normalizeContentType(String contentType) {
+    return contentType != null ? ALLOWED_CONTENT_TYPES.get(contentType.toLowerCase()) : null;
+  }
+
+  /**
+   * Checks an upload without storing it.
+   *
+   * @param file the uploaded image
+   * @throws InvalidImageException if the image is missing, too large, of an unsupported type or
+   *                               its content does not match the type
+   */
+  public void validate(MultipartFile file) {
+    if (file == null || file.isEmpty()) {
+      throw new InvalidImageException("Image file is required");
+    }
+
+    validateDeclaration(file.getContentType(), file.getSize());
+    try (InputStream content = file.getInputStream()) {
+      validateHeader(file.getContentType(), content);
+    } catch (IOException e) {
+      log.error("Failed to read image header: {}", e.getMessage(), e);
+      throw new RuntimeException("Failed to read image", e);
+    }
+  }
+
+  /**
+   * Checks the announced size and type of an image before any of its content arrived.
+   *
+   * @param contentType the declared type
+   * @param size        the announced size in bytes
+   * @throws InvalidImageException if the image is empty, too large or of an unsupported type
+   */
+  public void validateDeclaration(String contentType, long size) {
+    if (size <= 0) {
+      throw new InvalidImageException("Image file is required");
+    }
+
+    if (size > MAX_FILE_SIZE) {
+      throw InvalidImageException.tooLarge(size, MAX_FILE_SIZE);
+    }
+
+    if (normalizeContentType(contentType) == null) {
+      throw InvalidImageException.invalidType(contentType);
+    }
+  }
+
+  /**
+   * Checks the leading bytes of an image against its declared type.
+   *
+   * @param contentType the declared type
+   * @param head        the beginning of the image, at least up to the end of its header
+   * @throws InvalidImageException if the content does not match the type
+   */
+  public void validateHeader(String contentType, byte[] head) {
+    try {
+      validateHeader(contentType, new ByteArrayInputStream(head));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Checks an image while it is being received, for stores that write it without buffering it
+   * first. The header is checked before the returned stream passes on the first byte, and reading
+   * beyond the size limit fails, so an invalid image is rejected before it was written in full.
+   *
+   * @param contentType the declared type
+   * @param content     the image as it arrives
+   * @return the stream to store instead of {@code content}; reading it throws an
+   *     {@link InvalidImageException} once the image turns out to be too large
+   * @throws InvalidImageException if the type is unsupported or the content does not match it
+   * @throws IOException           if reading the header fails
+   */
+  public InputStream validating(String contentType, InputStream content) throws IOException {
+    if (normalizeContentType(contentType) == null) {
+      throw InvalidImageException.invalidType(contentType);
+    }
+
+    BufferedInputStream buffered = new BufferedInputStream(new SizeLimitedInputStream(content));
+    buffered.mark(MAX_HEADER_LENGTH);
+    validateHeader(contentType, buffered);
+    try {
+      buffered.reset();
+    } catch (IOException e) {
+      // The header reader skipped further than the mark holds, which no sane header needs
+      throw InvalidImageException.unrecognizedContent();
+    }
+    return buffered;
+  }
+
+  private void validateHeader(String contentType, InputStream content) throws IOException {
+    // The declared type is only a claim, the header proves it and bounds the decode memory
+    ImageHeader header = imageHeaderReader.read(content)
+        .orElseThrow(InvalidImageException::unrecognizedContent);
+    if (!header.contentType().equals(normalizeContentType(contentType))) {
+      throw InvalidImageException.contentMismatch(contentType, header.contentType());
+    }
+    if (header.width() <= 0 || header.height() <= 0 || header.pixels() > MAX_PIXELS) {
+      throw InvalidImageException.tooManyPixels(header.width(), header.height(), MAX_PIXELS);
+    }
+  }
+
+  /**
+   * Fails the read that goes beyond the maximum image size.
+   */
+  private static final class SizeLimitedInputStream extends FilterInputStream {
+
+    private long count;
+
+    private SizeLimitedInputStream(InputStream content) {
+      super(content);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value = super.read();
+      if (value != -1) {
+        counted(1);
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read > 0) {
+        counted(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long length) throws IOException {
+      long skipped = super.skip(length);
+      counted(skipped);
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    private void counted(long bytes) {
+      count += bytes;
+      if (count > MAX_FILE_SIZE) {
+        throw InvalidImageException.exceedsMaxSize(MAX_FILE_SIZE);
+      }
+    }
+  }
+}
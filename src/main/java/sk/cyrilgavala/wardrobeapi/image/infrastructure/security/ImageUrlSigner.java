@@ -0,0 +1,98 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageSignatureException;
+import sk.cyrilgavala.wardrobeapi.shared.infrastructure.config.SecurityConfiguration;
+
+/**
+ * Signs and verifies short-lived image URLs that can be fetched without authentication.
+ *
+ * <p>A signature is an HMAC-SHA256 over the image ID and the expiry, so verifying a URL needs
+ * neither the user nor the item; whoever was given the URL may fetch any rendition of the image
+ * until it expires. Expiries are rounded up to the end of a window of half the configured
+ * lifetime, which keeps a URL the same across responses within the window, so browsers and
+ * proxies cache by it; a URL is therefore valid for between half and all of the lifetime.
+ */
+@Component
+public class ImageUrlSigner {
+
+  private static final String ALGORITHM = "HmacSHA256";
+  // Separates image URL signatures from other MACs made with the same secret
+  private static final String CONTEXT = "image-url:";
+
+  private final SecretKeySpec key;
+  private final long windowSeconds;
+
+  public ImageUrlSigner(
+      @Value("${app.image.signed-urls.secret:${app.jwt.secret}}") String secret,
+      @Value("${app.image.signed-urls.ttl-minutes:60}") long ttlMinutes) {
+    if (ttlMinutes < 2) {
+      throw new IllegalArgumentException("Signed image URLs must live at least 2 minutes");
+    }
+    this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    this.windowSeconds = Duration.ofMinutes(ttlMinutes).toSeconds() / 2;
+  }
+
+  /**
+   * Returns the signed URL of an image, relative to the API root.
+   *
+   * @param imageId the image ID
+   * @return the path with {@code expires} and {@code signature} parameters; a {@code variant}
+   *     parameter may be appended for a rendition
+   */
+  public String sign(String imageId) {
+    return sign(imageId, Instant.now());
+  }
+
+  String sign(String imageId, Instant now) {
+    long expires = (now.getEpochSecond() / windowSeconds + 2) * windowSeconds;
+    return SecurityConfiguration.SIGNED_IMAGE_PATH + "/" + imageId + "?expires=" + expires
+        + "&signature=" + signature(imageId, expires);
+  }
+
+  /**
+   * Verifies the signature of an image URL.
+   *
+   * @param imageId   the image ID of the URL
+   * @param expires   the expiry of the URL in epoch seconds
+   * @param signature the signature of the URL
+   * @return the time left until the URL expires
+   * @throws InvalidImageSignatureException if the signature does not match or the URL expired
+   */
+  public Duration verify(String imageId, long expires, String signature) {
+    return verify(imageId, expires, signature, Instant.now());
+  }
+
+  Duration verify(String imageId, long expires, String signature, Instant now) {
+    byte[] expected = signature(imageId, expires).getBytes(StandardCharsets.US_ASCII);
+    if (!MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII))) {
+      throw new InvalidImageSignatureException("Invalid image URL signature");
+    }
+    if (expires <= now.getEpochSecond()) {
+      throw new InvalidImageSignatureException("Image URL expired");
+    }
+    return Duration.ofSeconds(expires - now.getEpochSecond());
+  }
+
+  private String signature(String imageId, long expires) {
+    try {
+      // Mac instances are not thread-safe, and creating one is cheap next to serving an image
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      byte[] digest = mac.doFinal(
+          (CONTEXT + imageId + ":" + expires).getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HMAC-SHA256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package sk.cyrilgavala.wardrobeapi.image.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+@Schema(description = "Request to start a resumable image upload")
+public record CreateImageUploadRequest(
+    @Schema(description = "MIME type of the image", example = "image/jpeg")
+    @NotBlank(message = "Content type is required")
+    String contentType,
+
+    @Schema(description = "Size of the image in bytes", example = "4718592")
+    @NotNull(message = "Size is required")
+    @Positive(message = "Size must be positive")
+    Long size,
+
+    @Schema(description = "Original file name of the image", example = "jeans.jpg")
+    @Size(max = 255, message = "File name must not exceed 255 characters")
+    String fileName
+) {
+
+}
@@ -0,0 +1,35 @@
+package sk.cyrilgavala.wardrobeapi.image.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.util.List;
+
+@Schema(description = "State of a resumable image upload")
+public record ImageUploadResponse(
+    @Schema(description = "Upload ID", example = "507f1f77bcf86cd799439011")
+    String uploadId,
+
+    @Schema(description = "MIME type of the image", example = "image/jpeg")
+    String contentType,
+
+    @Schema(description = "Size of the image in bytes", example = "4718592")
+    long size,
+
+    @Schema(description = "Size of every chunk but the last one in bytes", example = "1048576")
+    int chunkSize,
+
+    @Schema(description = "Number of chunks the image is split into", example = "5")
+    int chunkCount,
+
+    @Schema(description = "Zero-based numbers of the chunks still to be sent", example = "[3, 4]")
+    List<Integer> missingChunks,
+
+    @Schema(description = "ID of the stored image once completed, to be attached to an item",
+        example = "507f1f77bcf86cd799439011")
+    String imageId,
+
+    @Schema(description = "When the upload and its chunks are discarded")
+    Instant expiresAt
+) {
+
+}
@@ -0,0 +1,26 @@
+package sk.cyrilgavala.wardrobeapi.image.presentation.mapper;
+
+import org.springframework.stereotype.Component;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.presentation.dto.ImageUploadResponse;
+
+@Component
+public class ImageUploadDtoMapper {
+
+  public ImageUploadResponse toResponse(ImageUpload upload) {
+    if (upload == null) {
+      return null;
+    }
+
+    return new ImageUploadResponse(
+        upload.id(),
+        upload.contentType(),
+        upload.length(),
+        upload.chunkSize(),
+        upload.chunkCount(),
+        upload.missingChunks(),
+        upload.imageId(),
+        upload.expiresAt()
+    );
+  }
+}
@@ -9,7 +9,10 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageNotFoundException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageUploadNotFoundException;
 import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageSignatureException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageUploadException;
 import sk.cyrilgavala.wardrobeapi.shared.presentation.dto.ErrorResponse;
 
 @Slf4j
@@ -48,6 +51,54 @@ public class ImageExceptionHandler {
     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
   }
 
+  @ExceptionHandler(InvalidImageSignatureException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidImageSignatureException(
+      InvalidImageSignatureException ex,
+      WebRequest request) {
+    log.warn("Rejected signed image URL: {}", ex.getMessage());
+
+    ErrorResponse error = ErrorResponse.builder()
+        .timestamp(Instant.now())
+        .status(HttpStatus.FORBIDDEN.value())
+        .error("Access Denied")
+        .message(ex.getMessage())
+        .build();
+
+    return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+  }
+
+  @ExceptionHandler(ImageUploadNotFoundException.class)
+  public ResponseEntity<ErrorResponse> handleImageUploadNotFoundException(
+      ImageUploadNotFoundException ex,
+      WebRequest request) {
+    log.error("Image upload not found: {}", ex.getMessage());
+
+    ErrorResponse error = ErrorResponse.builder()
+        .timestamp(Instant.now())
+        .status(HttpStatus.NOT_FOUND.value())
+        .error("Not Found")
+        .message(ex.getMessage())
+        .build();
+
+    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+  }
+
+  @ExceptionHandler(InvalidImageUploadException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidImageUploadException(
+      InvalidImageUploadException ex,
+      WebRequest request) {
+    log.error("Invalid image upload: {}", ex.getMessage());
+
+    ErrorResponse error = ErrorResponse.builder()
+        .timestamp(Instant.now())
+        .status(HttpStatus.BAD_REQUEST.value())
+        .error("Bad Request")
+        .message(ex.getMessage())
+        .build();
+
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+  }
+
   @ExceptionHandler(MaxUploadSizeExceededException.class)
   public ResponseEntity<ErrorResponse> handleMaxUploadSizeExceededException(
       MaxUploadSizeExceededException ex,
@@ -0,0 +1,164 @@
+package sk.cyrilgavala.wardrobeapi.image.presentation.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import java.io.InputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageUploadService;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.presentation.dto.CreateImageUploadRequest;
+import sk.cyrilgavala.wardrobeapi.image.presentation.dto.ImageUploadResponse;
+import sk.cyrilgavala.wardrobeapi.image.presentation.mapper.ImageUploadDtoMapper;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/images/uploads")
+@RequiredArgsConstructor
+@Tag(name = "Image uploads", description = "Resumable image upload endpoints")
+@SecurityRequirement(name = "bearerAuth")
+public class ImageUploadController {
+
+  private final ImageUploadService imageUploadService;
+  private final ImageUploadDtoMapper imageUploadMapper;
+
+  @PostMapping
+  @Operation(
+      summary = "Start a resumable image upload",
+      description = "Starts an upload of an image with the given type and size. The image is sent "
+          + "in chunks of the returned chunkSize, only the last chunk may be shorter. Uploads "
+          + "that are not completed and attached to an item within 24 hours are discarded. "
+          + "Maximum image size: 20MB. Supported formats: JPEG, PNG, WebP."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "201", description = "Upload started successfully"),
+      @ApiResponse(responseCode = "400", description = "Invalid request data or image validation failed"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
+  })
+  public ResponseEntity<ImageUploadResponse> startUpload(
+      @Valid @RequestBody CreateImageUploadRequest request) {
+    String userId = getCurrentUserId();
+    log.debug("Received start upload request for user: {}", userId);
+
+    ImageUpload upload = imageUploadService.start(userId, request.contentType(), request.size(),
+        request.fileName());
+
+    return ResponseEntity.status(HttpStatus.CREATED).body(imageUploadMapper.toResponse(upload));
+  }
+
+  @GetMapping("/{id}")
+  @Operation(
+      summary = "Get the state of an image upload",
+      description = "Returns the chunks still missing, for resuming an interrupted upload"
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Upload retrieved successfully"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required"),
+      @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+  })
+  public ResponseEntity<ImageUploadResponse> getUpload(
+      @Parameter(description = "Upload ID", required = true)
+      @PathVariable String id) {
+    String userId = getCurrentUserId();
+    log.debug("Received get upload request for id: {} by user: {}", id, userId);
+
+    return ResponseEntity.ok(imageUploadMapper.toResponse(imageUploadService.get(userId, id)));
+  }
+
+  @PutMapping(value = "/{id}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  @Operation(
+      summary = "Send a chunk of an image upload",
+      description = "Stores one chunk of the image as the raw request body. Chunks may be sent in "
+          + "any order and in parallel; sending a chunk again replaces it."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Chunk stored successfully"),
+      @ApiResponse(responseCode = "400", description = "Chunk out of range, of the wrong length, "
+          + "not matching the image type, or upload already completed"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required"),
+      @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+  })
+  public ResponseEntity<ImageUploadResponse> uploadChunk(
+      @Parameter(description = "Upload ID", required = true)
+      @PathVariable String id,
+      @Parameter(description = "Zero-based chunk number", required = true)
+      @PathVariable int index,
+      InputStream content) {
+    String userId = getCurrentUserId();
+    log.debug("Received chunk {} of upload {} by user: {}", index, id, userId);
+
+    ImageUpload upload = imageUploadService.writeChunk(userId, id, index, content);
+
+    return ResponseEntity.ok(imageUploadMapper.toResponse(upload));
+  }
+
+  @PostMapping("/{id}/complete")
+  @Operation(
+      summary = "Complete an image upload",
+      description = "Stores the image once all chunks arrived and returns its imageId, which can "
+          + "be attached to an item instead of an image file. Completing an upload again returns "
+          + "the same image."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Upload completed successfully"),
+      @ApiResponse(responseCode = "400", description = "Chunks are missing"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required"),
+      @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+  })
+  public ResponseEntity<ImageUploadResponse> completeUpload(
+      @Parameter(description = "Upload ID", required = true)
+      @PathVariable String id) {
+    String userId = getCurrentUserId();
+    log.debug("Received complete upload request for id: {} by user: {}", id, userId);
+
+    ImageUpload upload = imageUploadService.complete(userId, id);
+
+    return ResponseEntity.ok(imageUploadMapper.toResponse(upload));
+  }
+
+  @DeleteMapping("/{id}")
+  @Operation(
+      summary = "Cancel an image upload",
+      description = "Discards the chunks of an upload, or the image of a completed upload that was "
+          + "not attached to an item yet"
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "204", description = "Upload cancelled successfully"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required"),
+      @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+  })
+  public ResponseEntity<Void> abortUpload(
+      @Parameter(description = "Upload ID", required = true)
+      @PathVariable String id) {
+    String userId = getCurrentUserId();
+    log.debug("Received cancel upload request for id: {} by user: {}", id, userId);
+
+    imageUploadService.abort(userId, id);
+
+    return ResponseEntity.noContent().build();
+  }
+
+  private String getCurrentUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    assert authentication != null;
+    return authentication.getName();
+  }
+}
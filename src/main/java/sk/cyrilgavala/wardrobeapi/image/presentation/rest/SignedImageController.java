@@ -0,0 +1,93 @@
+package sk.cyrilgavala.wardrobeapi.image.presentation.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.Duration;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.security.ImageUrlSigner;
+import sk.cyrilgavala.wardrobeapi.shared.infrastructure.config.SecurityConfiguration;
+
+@Slf4j
+@RestController
+@RequestMapping(SecurityConfiguration.SIGNED_IMAGE_PATH)
+@RequiredArgsConstructor
+@Tag(name = "Signed images", description = "Image endpoint authorized by signed URLs")
+public class SignedImageController {
+
+  private final ImageUrlSigner imageUrlSigner;
+  private final ImageStorageService imageStorageService;
+
+  @GetMapping("/{imageId}")
+  @Operation(
+      summary = "Get image by signed URL",
+      description = "Serves an image by the signed URL given as imageUrl of an item, without an "
+          + "Authorization header. The signature is checked without looking up the user or the "
+          + "item. Image content never changes for a given ID, so responses are public and "
+          + "cacheable by browsers and proxies until the URL expires; If-None-Match is answered "
+          + "with 304 without reading the image. Supports Range requests."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Image retrieved successfully"),
+      @ApiResponse(responseCode = "206", description = "Requested byte range of the image"),
+      @ApiResponse(responseCode = "304", description = "Cached copy of the image is still valid"),
+      @ApiResponse(responseCode = "400", description = "Missing parameter or unknown variant"),
+      @ApiResponse(responseCode = "403", description = "Invalid signature or expired URL"),
+      @ApiResponse(responseCode = "404", description = "Image not found")
+  })
+  public ResponseEntity<Resource> getSignedImage(
+      @Parameter(description = "Image ID", required = true)
+      @PathVariable String imageId,
+      @Parameter(description = "Expiry of the URL in epoch seconds", required = true)
+      @RequestParam long expires,
+      @Parameter(description = "Signature of the URL", required = true)
+      @RequestParam String signature,
+      @Parameter(description = "Image rendition: original (default), thumb or medium")
+      @RequestParam(required = false) String variant,
+      WebRequest webRequest) {
+    Duration validity = imageUrlSigner.verify(imageId, expires, signature);
+    ImageVariant imageVariant = ImageVariant.fromParameter(variant);
+    log.debug("Received signed image request for image id: {}", imageId);
+
+    // Cached copies must not outlive the URL, although the content itself never changes
+    CacheControl cacheControl = CacheControl.maxAge(validity).cachePublic().immutable();
+    String eTag = imageVariant.eTag(imageId);
+    if (webRequest.checkNotModified(eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(eTag)
+          .cacheControl(cacheControl)
+          .build();
+    }
+
+    StoredImage image = imageStorageService.getImage(imageId, imageVariant);
+    if (image.substitute()) {
+      // The variant is generated by a later request, which must reach the server again
+      return ResponseEntity.ok()
+          .header("Content-Type", image.contentType())
+          .cacheControl(CacheControl.noStore())
+          .body(image.content());
+    }
+
+    return ResponseEntity.ok()
+        .header("Content-Type", image.contentType())
+        .eTag(eTag)
+        .cacheControl(cacheControl)
+        .body(image.content());
+  }
+}
@@ -0,0 +1,11 @@
+package sk.cyrilgavala.wardrobeapi.item.application.command;
+
+import java.util.List;
+
+public record AttachItemPaletteCommand(
+    String itemId,
+    String imageId,
+    List<String> palette
+) {
+
+}
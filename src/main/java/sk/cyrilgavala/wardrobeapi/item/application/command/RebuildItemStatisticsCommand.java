@@ -0,0 +1,7 @@
+package sk.cyrilgavala.wardrobeapi.item.application.command;
+
+public record RebuildItemStatisticsCommand(
+    String userId
+) {
+
+}
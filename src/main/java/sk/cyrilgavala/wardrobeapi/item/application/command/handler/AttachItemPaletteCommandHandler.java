@@ -0,0 +1,54 @@
+package sk.cyrilgavala.wardrobeapi.item.application.command.handler;
+
+import java.util.Objects;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sk.cyrilgavala.wardrobeapi.item.application.command.AttachItemPaletteCommand;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
+
+/**
+ * Command handler recording the dominant colors extracted from an item's image.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AttachItemPaletteCommandHandler {
+
+  private final ItemRepository itemRepository;
+  private final ItemSyncRepository itemSyncRepository;
+  private final ApplicationEventPublisher eventPublisher;
+
+  /**
+   * Attaches the palette unless the item was deleted or got another image in the meantime.
+   *
+   * @param command the command
+   * @return whether the palette was attached
+   */
+  @Transactional
+  public boolean handle(AttachItemPaletteCommand command) {
+    Optional<Item> item = itemRepository.findById(command.itemId());
+    if (item.isEmpty() || !Objects.equals(item.get().imageId(), command.imageId())) {
+      log.debug("Image of item {} changed, discarding its palette", command.itemId());
+      return false;
+    }
+
+    // Written conditionally, the image may change or the item be deleted after it was read
+    Optional<Item> savedItem = itemRepository.attachPalette(command.itemId(), command.imageId(),
+        command.palette(), itemSyncRepository.nextSeq(item.get().userId()));
+    if (savedItem.isEmpty()) {
+      log.debug("Image of item {} changed, discarding its palette", command.itemId());
+      return false;
+    }
+
+    eventPublisher.publishEvent(ItemChangedEvent.updated(savedItem.get()));
+    log.debug("Attached palette {} to item {}", command.palette(), command.itemId());
+    return true;
+  }
+}
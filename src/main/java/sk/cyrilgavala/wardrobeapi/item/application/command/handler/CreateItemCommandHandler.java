@@ -2,12 +2,16 @@ package sk.cyrilgavala.wardrobeapi.item.application.command.handler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import sk.cyrilgavala.wardrobeapi.item.application.command.CreateItemCommand;
 import sk.cyrilgavala.wardrobeapi.item.application.mapper.ItemMapper;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
 import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
 
 /**
  * Command handler for creating new wardrobe items.
@@ -19,14 +23,20 @@ public class CreateItemCommandHandler {
 
   private final ItemRepository itemRepository;
   private final ItemMapper itemMapper;
+  private final ItemStatisticsRepository itemStatisticsRepository;
+  private final ItemSyncRepository itemSyncRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
   @Transactional
   public Item handle(CreateItemCommand command) {
     log.info("Creating new item for user: {}", command.userId());
 
-    Item item = itemMapper.fromCreateCommand(command);
+    Item item = itemMapper.fromCreateCommand(command)
+        .withSeq(itemSyncRepository.nextSeq(command.userId()));
 
     Item savedItem = itemRepository.save(item);
+    itemStatisticsRepository.recordCreated(savedItem);
+    eventPublisher.publishEvent(ItemChangedEvent.created(savedItem));
     log.info("Item created successfully with id: {}", savedItem.id());
 
     return savedItem;
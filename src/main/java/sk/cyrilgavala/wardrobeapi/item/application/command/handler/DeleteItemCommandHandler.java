@@ -1,18 +1,24 @@
 package sk.cyrilgavala.wardrobeapi.item.application.command.handler;
 
+import java.time.Instant;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
-import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
 import sk.cyrilgavala.wardrobeapi.item.application.command.DeleteItemCommand;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
 import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemAccessDeniedException;
 import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemNotFoundException;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemTombstone;
 import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
 
 /**
- * Command handler for deleting wardrobe items.
+ * Command handler for deleting wardrobe items. Items are soft-deleted, see
+ * {@link sk.cyrilgavala.wardrobeapi.item.application.service.ItemPurgeService}.
  */
 @Slf4j
 @Component
@@ -20,7 +26,9 @@ import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
 public class DeleteItemCommandHandler {
 
   private final ItemRepository itemRepository;
-  private final ImageStorageService imageStorageService;
+  private final ItemStatisticsRepository itemStatisticsRepository;
+  private final ItemSyncRepository itemSyncRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
   @Transactional
   public void handle(DeleteItemCommand command) {
@@ -40,13 +48,16 @@ public class DeleteItemCommandHandler {
       throw ItemAccessDeniedException.withId(command.id());
     }
 
-    // Delete associated image if exists
-    if (item.imageId() != null) {
-      imageStorageService.deleteImage(item.imageId());
-      log.info("Deleted associated image: {}", item.imageId());
+    // Item and its image are physically removed later by the background purge
+    if (!itemRepository.markDeleted(command.id(), Instant.now())) {
+      // A concurrent delete already recorded the tombstone and counters
+      log.info("Item already deleted: {}", command.id());
+      return;
     }
-
-    itemRepository.deleteById(command.id());
+    itemSyncRepository.saveTombstone(
+        ItemTombstone.of(item, itemSyncRepository.nextSeq(command.userId())));
+    itemStatisticsRepository.recordDeleted(item);
+    eventPublisher.publishEvent(ItemChangedEvent.deleted(item));
     log.info("Item deleted successfully: {}", command.id());
   }
 }
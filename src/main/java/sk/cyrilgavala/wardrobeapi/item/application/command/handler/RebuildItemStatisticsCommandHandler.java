@@ -0,0 +1,32 @@
+package sk.cyrilgavala.wardrobeapi.item.application.command.handler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sk.cyrilgavala.wardrobeapi.item.application.command.RebuildItemStatisticsCommand;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+
+/**
+ * Command handler for rebuilding the materialized wardrobe statistics of a user from scratch.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RebuildItemStatisticsCommandHandler {
+
+  private final ItemStatisticsRepository itemStatisticsRepository;
+
+  @Transactional
+  public ItemStatistics handle(RebuildItemStatisticsCommand command) {
+    log.info("Rebuilding item statistics for user: {}", command.userId());
+
+    itemStatisticsRepository.invalidate(command.userId());
+    ItemStatistics statistics = itemStatisticsRepository.recompute(command.userId());
+    log.info("Item statistics rebuilt for user: {} ({} items)", command.userId(),
+        statistics.totalItems());
+
+    return statistics;
+  }
+}
@@ -2,14 +2,18 @@ package sk.cyrilgavala.wardrobeapi.item.application.command.handler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import sk.cyrilgavala.wardrobeapi.item.application.command.UpdateItemCommand;
 import sk.cyrilgavala.wardrobeapi.item.application.mapper.ItemMapper;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
 import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemAccessDeniedException;
 import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemNotFoundException;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
 import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
 
 /**
  * Command handler for updating existing wardrobe items.
@@ -21,6 +25,9 @@ public class UpdateItemCommandHandler {
 
   private final ItemRepository itemRepository;
   private final ItemMapper itemMapper;
+  private final ItemStatisticsRepository itemStatisticsRepository;
+  private final ItemSyncRepository itemSyncRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
   @Transactional
   public Item handle(UpdateItemCommand command) {
@@ -41,9 +48,16 @@ public class UpdateItemCommandHandler {
     }
 
     // Update item
-    Item updatedItem = itemMapper.fromUpdateCommand(existingItem, command);
+    Item updatedItem = itemMapper.fromUpdateCommand(existingItem, command)
+        .withSeq(itemSyncRepository.nextSeq(command.userId()));
 
-    Item savedItem = itemRepository.save(updatedItem);
+    if (!itemRepository.update(updatedItem)) {
+      log.warn("Update failed: item deleted concurrently - {}", command.id());
+      throw ItemNotFoundException.withId(command.id());
+    }
+    Item savedItem = updatedItem;
+    itemStatisticsRepository.recordUpdated(existingItem, savedItem);
+    eventPublisher.publishEvent(ItemChangedEvent.updated(savedItem));
     log.info("Item updated successfully: {}", savedItem.id());
 
     return savedItem;
@@ -0,0 +1,7 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query;
+
+public record GetBoxesQuery(
+    String userId
+) {
+
+}
@@ -0,0 +1,8 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query;
+
+public record GetItemChangesQuery(
+    String userId,
+    String since
+) {
+
+}
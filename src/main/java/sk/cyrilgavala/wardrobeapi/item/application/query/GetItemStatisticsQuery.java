@@ -0,0 +1,7 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query;
+
+public record GetItemStatisticsQuery(
+    String userId
+) {
+
+}
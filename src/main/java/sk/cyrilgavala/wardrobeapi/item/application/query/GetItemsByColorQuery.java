@@ -0,0 +1,9 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query;
+
+public record GetItemsByColorQuery(
+    String userId,
+    String color,
+    int limit
+) {
+
+}
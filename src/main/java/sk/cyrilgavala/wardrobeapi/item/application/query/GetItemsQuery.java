@@ -0,0 +1,10 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query;
+
+import java.util.List;
+
+public record GetItemsQuery(
+    List<String> ids,
+    String userId
+) {
+
+}
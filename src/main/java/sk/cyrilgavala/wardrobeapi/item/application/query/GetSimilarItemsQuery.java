@@ -0,0 +1,10 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query;
+
+public record GetSimilarItemsQuery(
+    String id,
+    String userId,
+    int maxDistance,
+    int limit
+) {
+
+}
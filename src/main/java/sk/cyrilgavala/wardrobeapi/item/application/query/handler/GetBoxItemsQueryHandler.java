@@ -0,0 +1,27 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetBoxItemsQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+/**
+ * Query handler for retrieving the wardrobe items stored in a single box.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GetBoxItemsQueryHandler {
+
+  private final ItemRepository itemRepository;
+
+  @Transactional(readOnly = true)
+  public List<Item> handle(GetBoxItemsQuery query) {
+    log.info("Fetching items in box {} for user: {}", query.boxNumber(), query.userId());
+    return itemRepository.findAllByUserIdAndBoxNumber(query.userId(), query.boxNumber());
+  }
+}
@@ -0,0 +1,42 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import java.util.Comparator;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetBoxesQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.BoxSummary;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+
+/**
+ * Query handler for listing the storage boxes of a user. Box counts are read from the box counters
+ * of the materialized {@link ItemStatistics}, which the item command handlers keep consistent once
+ * the first read initialized them from the items of the user. Items moved while that read
+ * aggregates the boxes are counted in the boxes they were moved to.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GetBoxesQueryHandler {
+
+  private final ItemStatisticsRepository itemStatisticsRepository;
+
+  @Transactional(readOnly = true)
+  public List<BoxSummary> handle(GetBoxesQuery query) {
+    log.info("Fetching boxes for user: {}", query.userId());
+
+    ItemStatistics statistics = itemStatisticsRepository.findByUserId(query.userId())
+        .orElseGet(() -> {
+          log.info("Item statistics not initialized yet for user: {}", query.userId());
+          return itemStatisticsRepository.recompute(query.userId());
+        });
+
+    return statistics.boxes().entrySet().stream()
+        .map(entry -> new BoxSummary(Integer.valueOf(entry.getKey()), entry.getValue()))
+        .sorted(Comparator.comparing(BoxSummary::boxNumber))
+        .toList();
+  }
+}
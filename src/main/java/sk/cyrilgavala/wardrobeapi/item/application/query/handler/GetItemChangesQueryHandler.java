@@ -0,0 +1,102 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemChangesQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemChanges;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemTombstone;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.SyncToken;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
+
+/**
+ * Query handler for delta synchronization of a user's wardrobe.
+ *
+ * <p>Without a token, or with a token older than the tombstone retention, the whole wardrobe is
+ * returned and flagged as a full resynchronization. Otherwise only items and tombstones with a
+ * sequence number greater than the token's are returned.
+ *
+ * <p>Handlers allocate a sequence number before they write the change carrying it, so changes
+ * become visible out of order: a change may be returned while one with a lower number is still
+ * being written. The next token therefore moves only over returned changes that either directly
+ * follow the previous position or were made more than {@link #SETTLE_TIME} ago, when every change
+ * numbered before them is written or failed. A change written after this query is returned by the
+ * next one; returned changes the token does not move over yet are returned again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GetItemChangesQueryHandler {
+
+  /**
+   * How long a change may take from allocating its sequence number until it is written.
+   */
+  static final Duration SETTLE_TIME = Duration.ofMinutes(1);
+
+  private final ItemRepository itemRepository;
+  private final ItemSyncRepository itemSyncRepository;
+
+  @Transactional(readOnly = true)
+  public ItemChanges handle(GetItemChangesQuery query) {
+    Instant now = Instant.now();
+    SyncToken since = query.since() == null ? null : SyncToken.decode(query.since());
+
+    if (since == null || since.seq() > itemSyncRepository.currentSeq(query.userId())
+        || since.isExpired(ItemTombstone.RETENTION, now)) {
+      log.info("Full item sync for user: {}", query.userId());
+      List<Item> items = itemRepository.findAllByUserId(query.userId());
+      return new ItemChanges(items, List.of(),
+          new SyncToken(watermark(items, List.of(), 0, now), now), true);
+    }
+
+    List<Item> items = itemRepository.findAllByUserIdChangedAfter(query.userId(), since.seq());
+    List<ItemTombstone> tombstones = itemSyncRepository
+        .findTombstonesAfter(query.userId(), since.seq());
+    List<String> deletedItemIds = tombstones.stream()
+        .map(ItemTombstone::itemId)
+        .toList();
+
+    log.info("Delta item sync for user: {} since seq {} ({} changed, {} deleted)",
+        query.userId(), since.seq(), items.size(), deletedItemIds.size());
+    return new ItemChanges(items, deletedItemIds,
+        new SyncToken(watermark(items, tombstones, since.seq(), now), now), false);
+  }
+
+  /**
+   * Returns the highest sequence number up to which all changes are known to be returned.
+   */
+  private static long watermark(List<Item> items, List<ItemTombstone> tombstones, long since,
+      Instant now) {
+    NavigableMap<Long, Instant> changedAt = new TreeMap<>();
+    for (Item item : items) {
+      if (item.seq() != null) {
+        changedAt.put(item.seq(), item.updatedAt() == null ? Instant.EPOCH : item.updatedAt());
+      }
+    }
+    for (ItemTombstone tombstone : tombstones) {
+      if (tombstone.seq() != null) {
+        changedAt.put(tombstone.seq(), tombstone.deletedAt());
+      }
+    }
+
+    Instant settled = now.minus(SETTLE_TIME);
+    long watermark = since;
+    for (Map.Entry<Long, Instant> change : changedAt.tailMap(since, false).entrySet()) {
+      if (change.getKey() != watermark + 1 && change.getValue().isAfter(settled)) {
+        // A change numbered below this one may still be written
+        break;
+      }
+      watermark = change.getKey();
+    }
+    return watermark;
+  }
+}
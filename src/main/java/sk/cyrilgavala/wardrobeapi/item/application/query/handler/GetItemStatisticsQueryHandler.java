@@ -0,0 +1,32 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemStatisticsQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+
+/**
+ * Query handler for retrieving the wardrobe statistics of a user. Statistics are materialized
+ * lazily: the first request of a user whose counters are not initialized yet, including a user
+ * whose items predate them, triggers a full recompute.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GetItemStatisticsQueryHandler {
+
+  private final ItemStatisticsRepository itemStatisticsRepository;
+
+  @Transactional(readOnly = true)
+  public ItemStatistics handle(GetItemStatisticsQuery query) {
+    log.info("Fetching item statistics for user: {}", query.userId());
+    return itemStatisticsRepository.findByUserId(query.userId())
+        .orElseGet(() -> {
+          log.info("Item statistics not initialized yet for user: {}", query.userId());
+          return itemStatisticsRepository.recompute(query.userId());
+        });
+  }
+}
@@ -0,0 +1,52 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.LabColor;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemsByColorQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.service.ItemColorIndex;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+/**
+ * Query handler for finding the wardrobe items of a user by the colors of their images.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GetItemsByColorQueryHandler {
+
+  private final ItemColorIndex itemColorIndex;
+  private final ItemRepository itemRepository;
+
+  /**
+   * Finds the items whose image palette holds a color close to the requested one.
+   *
+   * @param query the color, the user and the maximum number of items
+   * @return the matching items, the closest first
+   * @throws IllegalArgumentException if the color is not a hex color
+   */
+  @Transactional(readOnly = true)
+  public List<Item> handle(GetItemsByColorQuery query) {
+    log.info("Fetching items near color {} for user: {}", query.color(), query.userId());
+    List<String> ids = itemColorIndex.nearest(query.userId(), LabColor.fromHex(query.color()),
+        query.limit());
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+
+    Map<String, Item> found = itemRepository.findAllByUserIdAndIds(query.userId(), ids).stream()
+        .collect(Collectors.toMap(Item::id, Function.identity()));
+    return ids.stream()
+        .map(found::get)
+        .filter(Objects::nonNull)
+        .toList();
+  }
+}
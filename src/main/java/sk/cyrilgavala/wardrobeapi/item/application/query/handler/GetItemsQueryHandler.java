@@ -0,0 +1,49 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemsQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+/**
+ * Query handler for retrieving several wardrobe items of a user at once. Ownership is checked by
+ * the query itself, so items that are missing or belong to someone else are simply left out.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GetItemsQueryHandler {
+
+  private final ItemRepository itemRepository;
+
+  /**
+   * Fetches the user's items among the requested IDs.
+   *
+   * @param query the item IDs and the user
+   * @return the found items in the order of the requested IDs
+   */
+  @Transactional(readOnly = true)
+  public List<Item> handle(GetItemsQuery query) {
+    log.info("Fetching {} items for user: {}", query.ids().size(), query.userId());
+    if (query.ids().isEmpty()) {
+      return List.of();
+    }
+
+    Map<String, Item> found = itemRepository.findAllByUserIdAndIds(query.userId(), query.ids())
+        .stream()
+        .collect(Collectors.toMap(Item::id, Function.identity()));
+    return query.ids().stream()
+        .distinct()
+        .map(found::get)
+        .filter(Objects::nonNull)
+        .toList();
+  }
+}
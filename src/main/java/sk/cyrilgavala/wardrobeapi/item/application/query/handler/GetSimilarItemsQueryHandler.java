@@ -0,0 +1,71 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetSimilarItemsQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.service.ItemImageHashIndex;
+import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemAccessDeniedException;
+import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemNotFoundException;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+/**
+ * Query handler for finding the items of a user whose image is a near duplicate of an item's
+ * image.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GetSimilarItemsQueryHandler {
+
+  private final ItemRepository itemRepository;
+  private final ItemImageHashIndex itemImageHashIndex;
+
+  /**
+   * Finds the items with an image similar to the one of the given item.
+   *
+   * @param query the item, the user, the maximum hash distance and the maximum number of items
+   * @return the similar items, the closest first
+   * @throws ItemNotFoundException     if the item does not exist
+   * @throws ItemAccessDeniedException if the item belongs to another user
+   */
+  @Transactional(readOnly = true)
+  public List<Item> handle(GetSimilarItemsQuery query) {
+    log.info("Fetching items with images similar to item {} for user: {}", query.id(),
+        query.userId());
+
+    Item item = itemRepository.findById(query.id())
+        .orElseThrow(() -> {
+          log.warn("Similar images failed: item not found - {}", query.id());
+          return ItemNotFoundException.withId(query.id());
+        });
+    if (!item.userId().equals(query.userId())) {
+      log.warn("Similar images failed: access denied to item {} for user {}", query.id(),
+          query.userId());
+      throw ItemAccessDeniedException.withId(query.id());
+    }
+    if (item.imageId() == null) {
+      return List.of();
+    }
+
+    List<String> ids = itemImageHashIndex.similar(query.userId(), item.id(), query.maxDistance(),
+        query.limit());
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+
+    Map<String, Item> found = itemRepository.findAllByUserIdAndIds(query.userId(), ids).stream()
+        .collect(Collectors.toMap(Item::id, Function.identity()));
+    return ids.stream()
+        .map(found::get)
+        .filter(Objects::nonNull)
+        .toList();
+  }
+}
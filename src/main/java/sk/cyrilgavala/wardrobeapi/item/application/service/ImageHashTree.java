@@ -0,0 +1,135 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BK-tree over 64-bit perceptual image hashes under the Hamming distance.
+ *
+ * <p>Every node holds one hash and the items whose image has it; a child hangs off its parent
+ * under its distance to the parent's hash. Since the Hamming distance is a metric, a search for
+ * hashes within {@code d} of a query that is {@code k} away from a node only descends into the
+ * children at {@code k - d} to {@code k + d}, which for the small distances of near duplicates
+ * skips most of the tree. Removing an item only empties its node, which keeps routing searches;
+ * {@link #isMostlyEmpty()} tells when rebuilding would pay off. Not thread-safe.
+ */
+final class ImageHashTree {
+
+  private static final int MIN_EMPTY_NODES_TO_REBUILD = 64;
+
+  private Node root;
+  private int nodes;
+  private int emptyNodes;
+
+  /**
+   * An item found by a search.
+   *
+   * @param itemId   the item ID
+   * @param distance the number of bits its image hash differs in from the searched one
+   */
+  record Match(String itemId, int distance) {
+
+  }
+
+  void add(long hash, String itemId) {
+    if (root == null) {
+      root = new Node(hash);
+      nodes++;
+      root.itemIds.add(itemId);
+      return;
+    }
+
+    Node node = root;
+    while (true) {
+      int distance = distance(node.hash, hash);
+      if (distance == 0) {
+        if (node.itemIds.isEmpty()) {
+          emptyNodes--;
+        }
+        node.itemIds.add(itemId);
+        return;
+      }
+      Node child = node.children.get(distance);
+      if (child == null) {
+        child = new Node(hash);
+        child.itemIds.add(itemId);
+        node.children.put(distance, child);
+        nodes++;
+        return;
+      }
+      node = child;
+    }
+  }
+
+  void remove(long hash, String itemId) {
+    Node node = root;
+    while (node != null) {
+      int distance = distance(node.hash, hash);
+      if (distance == 0) {
+        if (node.itemIds.remove(itemId) && node.itemIds.isEmpty()) {
+          emptyNodes++;
+        }
+        return;
+      }
+      node = node.children.get(distance);
+    }
+  }
+
+  /**
+   * Finds the items whose image hash is at most {@code maxDistance} bits away, closest first.
+   */
+  List<Match> search(long hash, int maxDistance) {
+    List<Match> matches = new ArrayList<>();
+    if (root == null) {
+      return matches;
+    }
+
+    Deque<Node> pending = new ArrayDeque<>();
+    pending.push(root);
+    while (!pending.isEmpty()) {
+      Node node = pending.pop();
+      int distance = distance(node.hash, hash);
+      if (distance <= maxDistance) {
+        for (String itemId : node.itemIds) {
+          matches.add(new Match(itemId, distance));
+        }
+      }
+      for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+        if (Math.abs(child.getKey() - distance) <= maxDistance) {
+          pending.push(child.getValue());
+        }
+      }
+    }
+    matches.sort((first, second) -> Integer.compare(first.distance(), second.distance()));
+    return matches;
+  }
+
+  /**
+   * Tells whether most nodes hold no items anymore, so that a tree built from the remaining
+   * hashes would be notably smaller.
+   */
+  boolean isMostlyEmpty() {
+    return emptyNodes >= MIN_EMPTY_NODES_TO_REBUILD && emptyNodes * 2 > nodes;
+  }
+
+  private static int distance(long first, long second) {
+    return Long.bitCount(first ^ second);
+  }
+
+  private static final class Node {
+
+    private final long hash;
+    private final Set<String> itemIds = new LinkedHashSet<>(2);
+    private final Map<Integer, Node> children = new HashMap<>(4);
+
+    private Node(long hash) {
+      this.hash = hash;
+    }
+  }
+}
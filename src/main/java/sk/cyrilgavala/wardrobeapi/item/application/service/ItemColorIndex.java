@@ -0,0 +1,112 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.LabColor;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+/**
+ * Per-user nearest-neighbor index over the palettes of item images.
+ *
+ * <p>All palette colors of a user's items are held as L*a*b* coordinates in one flat array, so a
+ * search is a linear scan over a few thousand doubles for a large wardrobe, which beats a tree at
+ * this size and is cheap to rebuild. An index is built on the first search of a user with a single
+ * query loading only IDs and palettes, dropped whenever an item of the user changes, and kept for
+ * at most {@code app.items.palette.index-max-users} users in least recently used order.
+ */
+@Slf4j
+@Component
+public class ItemColorIndex {
+
+  private final ItemRepository itemRepository;
+  private final double maxDistance;
+  private final UserIndexCache<UserIndex> indexes;
+
+  public ItemColorIndex(
+      ItemRepository itemRepository,
+      @Value("${app.items.palette.max-distance:25}") double maxDistance,
+      @Value("${app.items.palette.index-max-users:1000}") int maxUsers) {
+    this.itemRepository = itemRepository;
+    this.maxDistance = maxDistance;
+    this.indexes = new UserIndexCache<>(maxUsers);
+  }
+
+  /**
+   * Finds the items of a user with a palette color close to the given one.
+   *
+   * @param userId the user's unique identifier
+   * @param color  the color to look for
+   * @param limit  the maximum number of items to return
+   * @return IDs of items within {@code max-distance} delta E of the color, the closest first
+   */
+  public List<String> nearest(String userId, LabColor color, int limit) {
+    UserIndex index = indexes.get(userId, this::build);
+    double[] best = new double[index.itemIds().length];
+    Arrays.fill(best, Double.MAX_VALUE);
+    double[] coordinates = index.coordinates();
+    for (int i = 0; i < index.owners().length; i++) {
+      double dl = coordinates[3 * i] - color.l();
+      double da = coordinates[3 * i + 1] - color.a();
+      double db = coordinates[3 * i + 2] - color.b();
+      double distance = dl * dl + da * da + db * db;
+      int owner = index.owners()[i];
+      if (distance < best[owner]) {
+        best[owner] = distance;
+      }
+    }
+
+    return IntStream.range(0, best.length)
+        .filter(item -> best[item] <= maxDistance * maxDistance)
+        .boxed()
+        .sorted(Comparator.comparingDouble(item -> best[item]))
+        .limit(limit)
+        .map(item -> index.itemIds()[item])
+        .toList();
+  }
+
+  @EventListener
+  public void onItemChanged(ItemChangedEvent event) {
+    indexes.invalidate(event.userId());
+  }
+
+  private UserIndex build(String userId) {
+    List<Item> items = itemRepository.findPalettesByUserId(userId);
+    List<String> itemIds = new ArrayList<>(items.size());
+    List<LabColor> colors = new ArrayList<>();
+    List<Integer> owners = new ArrayList<>();
+    for (Item item : items) {
+      for (String hex : item.palette()) {
+        colors.add(LabColor.fromHex(hex));
+        owners.add(itemIds.size());
+      }
+      itemIds.add(item.id());
+    }
+
+    double[] coordinates = new double[colors.size() * 3];
+    for (int i = 0; i < colors.size(); i++) {
+      coordinates[3 * i] = colors.get(i).l();
+      coordinates[3 * i + 1] = colors.get(i).a();
+      coordinates[3 * i + 2] = colors.get(i).b();
+    }
+    log.debug("Built color index of user {} with {} colors", userId, colors.size());
+    return new UserIndex(itemIds.toArray(String[]::new),
+        owners.stream().mapToInt(Integer::intValue).toArray(), coordinates);
+  }
+
+  /**
+   * Palette colors of a user's items: color {@code i} has its L*a*b* coordinates at {@code 3i}
+   * to {@code 3i + 2} and belongs to the item at {@code owners[i]}.
+   */
+  private record UserIndex(String[] itemIds, int[] owners, double[] coordinates) {
+
+  }
+}
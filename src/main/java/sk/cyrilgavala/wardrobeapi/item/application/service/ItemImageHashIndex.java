@@ -0,0 +1,151 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.item.application.service.ImageHashTree.Match;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangeType;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+/**
+ * Per-user index of the perceptual hashes of item images for finding near-duplicate photos.
+ *
+ * <p>The hashes of a user's items are held in a {@link ImageHashTree BK-tree}, so a search only
+ * compares a fraction of them. An index is built on the first search of a user from the hashes
+ * kept with the images, with one query for the items and one bulk lookup for the hashes, and kept
+ * for at most {@code app.items.similar-images.index-max-users} users in least recently used order.
+ * Item changes update a loaded index in place instead of dropping it: a removed image leaves the
+ * tree right away, and a new image is hashed on the next search, so that saving an item never
+ * waits for an image to be decoded.
+ */
+@Slf4j
+@Component
+public class ItemImageHashIndex {
+
+  private final ItemRepository itemRepository;
+  private final ImageStorageService imageStorageService;
+  private final UserIndexCache<UserIndex> indexes;
+
+  public ItemImageHashIndex(
+      ItemRepository itemRepository,
+      ImageStorageService imageStorageService,
+      @Value("${app.items.similar-images.index-max-users:1000}") int maxUsers) {
+    this.itemRepository = itemRepository;
+    this.imageStorageService = imageStorageService;
+    this.indexes = new UserIndexCache<>(maxUsers);
+  }
+
+  /**
+   * Finds the other items of a user whose image looks like the image of the given item.
+   *
+   * @param userId      the user's unique identifier
+   * @param itemId      the item to compare with
+   * @param maxDistance the maximum number of differing hash bits
+   * @param limit       the maximum number of items to return
+   * @return IDs of the similar items, the closest first, or an empty list if the item has no
+   *     image that could be hashed
+   */
+  public List<String> similar(String userId, String itemId, int maxDistance, int limit) {
+    UserIndex index = indexes.get(userId, this::build);
+    synchronized (index) {
+      index.resolvePending(imageStorageService);
+      Long hash = index.hashes.get(itemId);
+      if (hash == null) {
+        return List.of();
+      }
+      return index.tree.search(hash, maxDistance).stream()
+          .map(Match::itemId)
+          .filter(id -> !id.equals(itemId))
+          .limit(limit)
+          .toList();
+    }
+  }
+
+  @EventListener
+  public void onItemChanged(ItemChangedEvent event) {
+    indexes.changed(event.userId()).ifPresent(index -> {
+      synchronized (index) {
+        String imageId = event.type() == ItemChangeType.DELETED ? null : event.item().imageId();
+        index.update(event.itemId(), imageId);
+      }
+    });
+  }
+
+  private UserIndex build(String userId) {
+    List<Item> items = itemRepository.findImageIdsByUserId(userId);
+    Map<String, Long> hashes = imageStorageService.getPerceptualHashes(
+        items.stream().map(Item::imageId).toList());
+    UserIndex index = new UserIndex();
+    for (Item item : items) {
+      index.imageIds.put(item.id(), item.imageId());
+      Long hash = hashes.get(item.imageId());
+      if (hash != null) {
+        index.add(item.id(), hash);
+      }
+    }
+    log.debug("Built image hash index of user {} with {} images", userId, index.hashes.size());
+    return index;
+  }
+
+  /**
+   * The hashes of a user's items. Guarded by its own monitor.
+   */
+  private static final class UserIndex {
+
+    private final Map<String, String> imageIds = new HashMap<>();
+    private final Map<String, Long> hashes = new HashMap<>();
+    private final Map<String, String> pending = new HashMap<>();
+    private ImageHashTree tree = new ImageHashTree();
+
+    private void add(String itemId, long hash) {
+      hashes.put(itemId, hash);
+      tree.add(hash, itemId);
+    }
+
+    private void update(String itemId, String imageId) {
+      if (Objects.equals(imageIds.get(itemId), imageId)) {
+        return;
+      }
+
+      Long hash = hashes.remove(itemId);
+      if (hash != null) {
+        tree.remove(hash, itemId);
+      }
+      pending.remove(itemId);
+      if (imageId != null) {
+        imageIds.put(itemId, imageId);
+        pending.put(itemId, imageId);
+      } else {
+        imageIds.remove(itemId);
+      }
+
+      if (tree.isMostlyEmpty()) {
+        tree = new ImageHashTree();
+        hashes.forEach((id, kept) -> tree.add(kept, id));
+      }
+    }
+
+    private void resolvePending(ImageStorageService imageStorageService) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      Map<String, Long> resolved = imageStorageService.getPerceptualHashes(
+          List.copyOf(pending.values()));
+      pending.forEach((itemId, imageId) -> {
+        Long hash = resolved.get(imageId);
+        if (hash != null) {
+          add(itemId, hash);
+        }
+      });
+      pending.clear();
+    }
+  }
+}
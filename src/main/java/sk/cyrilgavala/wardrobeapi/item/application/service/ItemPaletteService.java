@@ -0,0 +1,125 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImagePaletteService;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageNotFoundException;
+import sk.cyrilgavala.wardrobeapi.item.application.command.AttachItemPaletteCommand;
+import sk.cyrilgavala.wardrobeapi.item.application.command.handler.AttachItemPaletteCommandHandler;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+/**
+ * Extracts the dominant colors of item images in the background and records them on the items.
+ *
+ * <p>Items whose current image has no palette yet are picked up in batches of {@code batch-size},
+ * so images stored before palettes existed are backfilled the same way as new ones. The images of
+ * a batch are processed on a dedicated fork-join pool of {@code parallelism} workers, which caps
+ * the CPU taken from request handling; only thumbnails are decoded, which caps memory to a few
+ * hundred kilobytes per worker. Each run processes at most {@code max-batches-per-run} batches and
+ * ends early when a batch could not be fully processed, leaving the rest to the next run.
+ */
+@Slf4j
+@Service
+public class ItemPaletteService {
+
+  private final ItemRepository itemRepository;
+  private final ImagePaletteService imagePaletteService;
+  private final AttachItemPaletteCommandHandler attachItemPaletteCommandHandler;
+  private final int batchSize;
+  private final int maxBatchesPerRun;
+  private final ForkJoinPool pool;
+  private final AtomicLong backlog = new AtomicLong();
+  private final Counter extracted;
+
+  public ItemPaletteService(
+      ItemRepository itemRepository,
+      ImagePaletteService imagePaletteService,
+      AttachItemPaletteCommandHandler attachItemPaletteCommandHandler,
+      MeterRegistry meterRegistry,
+      @Value("${app.items.palette.batch-size:50}") int batchSize,
+      @Value("${app.items.palette.max-batches-per-run:20}") int maxBatchesPerRun,
+      @Value("${app.items.palette.parallelism:2}") int parallelism) {
+    this.itemRepository = itemRepository;
+    this.imagePaletteService = imagePaletteService;
+    this.attachItemPaletteCommandHandler = attachItemPaletteCommandHandler;
+    this.batchSize = batchSize;
+    this.maxBatchesPerRun = maxBatchesPerRun;
+    this.pool = new ForkJoinPool(parallelism);
+
+    Gauge.builder("items.palette.backlog", backlog, AtomicLong::get)
+        .description("Item images awaiting palette extraction")
+        .register(meterRegistry);
+    this.extracted = Counter.builder("items.palette.extracted")
+        .description("Palettes extracted from item images")
+        .register(meterRegistry);
+  }
+
+  @Scheduled(fixedDelayString = "${app.items.palette.interval-ms:60000}")
+  public void extractPalettes() {
+    long attached = 0;
+    for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+      List<Item> items = itemRepository.findWithoutPalette(batchSize);
+      int batchAttached = extractBatch(items);
+      attached += batchAttached;
+      if (items.size() < batchSize || batchAttached < items.size()) {
+        break;
+      }
+    }
+
+    backlog.set(itemRepository.countWithoutPalette());
+    if (attached > 0) {
+      log.info("Extracted palettes of {} item images, {} remaining", attached, backlog.get());
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    pool.shutdownNow();
+  }
+
+  private int extractBatch(List<Item> items) {
+    if (items.isEmpty()) {
+      return 0;
+    }
+
+    // Parallel streams run on the pool that invokes them, keeping the common pool free
+    List<AttachItemPaletteCommand> commands = pool.submit(() -> items.parallelStream()
+        .map(this::extract)
+        .filter(Objects::nonNull)
+        .toList()).join();
+
+    int attached = 0;
+    for (AttachItemPaletteCommand command : commands) {
+      if (attachItemPaletteCommandHandler.handle(command)) {
+        attached++;
+      }
+    }
+    extracted.increment(attached);
+    return attached;
+  }
+
+  private AttachItemPaletteCommand extract(Item item) {
+    try {
+      return new AttachItemPaletteCommand(item.id(), item.imageId(),
+          imagePaletteService.extractPalette(item.imageId()));
+    } catch (ImageNotFoundException e) {
+      log.warn("Image {} of item {} not found, recording empty palette", item.imageId(),
+          item.id());
+      return new AttachItemPaletteCommand(item.id(), item.imageId(), List.of());
+    } catch (RuntimeException e) {
+      log.warn("Failed to extract palette of item {}: {}", item.id(), e.getMessage());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+/**
+ * Physically removes soft-deleted items together with their images in the background.
+ *
+ * <p>Each run purges at most {@code max-batches-per-run} batches of {@code batch-size} items,
+ * which bounds the write load put on the database. Images of a batch are deleted before its items,
+ * so an interrupted run is simply repeated by the next one.
+ */
+@Slf4j
+@Service
+public class ItemPurgeService {
+
+  private final ItemRepository itemRepository;
+  private final ImageStorageService imageStorageService;
+  private final int batchSize;
+  private final int maxBatchesPerRun;
+  private final AtomicLong backlog = new AtomicLong();
+  private final Counter purgedItems;
+  private final Counter purgedImages;
+  private final Timer batchTimer;
+
+  public ItemPurgeService(
+      ItemRepository itemRepository,
+      ImageStorageService imageStorageService,
+      MeterRegistry meterRegistry,
+      @Value("${app.items.purge.batch-size:500}") int batchSize,
+      @Value("${app.items.purge.max-batches-per-run:20}") int maxBatchesPerRun) {
+    this.itemRepository = itemRepository;
+    this.imageStorageService = imageStorageService;
+    this.batchSize = batchSize;
+    this.maxBatchesPerRun = maxBatchesPerRun;
+
+    Gauge.builder("items.purge.backlog", backlog, AtomicLong::get)
+        .description("Soft-deleted items awaiting the purge")
+        .register(meterRegistry);
+    this.purgedItems = Counter.builder("items.purge.items")
+        .description("Items physically removed by the purge")
+        .register(meterRegistry);
+    this.purgedImages = Counter.builder("items.purge.images")
+        .description("Images physically removed by the purge")
+        .register(meterRegistry);
+    this.batchTimer = Timer.builder("items.purge.batch")
+        .description("Duration of a single purge batch")
+        .register(meterRegistry);
+  }
+
+  @Scheduled(fixedDelayString = "${app.items.purge.interval-ms:60000}")
+  public void purge() {
+    Instant cutoff = Instant.now();
+    long purged = 0;
+
+    for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+      int batchPurged = batchTimer.record(() -> purgeBatch(cutoff));
+      purged += batchPurged;
+      if (batchPurged < batchSize) {
+        break;
+      }
+    }
+
+    backlog.set(itemRepository.countDeleted());
+    if (purged > 0) {
+      log.info("Purged {} deleted items, {} remaining", purged, backlog.get());
+    }
+  }
+
+  private int purgeBatch(Instant cutoff) {
+    List<Item> items = itemRepository.findDeletedBefore(cutoff, batchSize);
+    if (items.isEmpty()) {
+      return 0;
+    }
+
+    List<String> imageIds = items.stream()
+        .map(Item::imageId)
+        .filter(Objects::nonNull)
+        .toList();
+    if (!imageIds.isEmpty()) {
+      purgedImages.increment(imageStorageService.deleteImages(imageIds));
+    }
+
+    itemRepository.deleteAllById(items.stream().map(Item::id).toList());
+    purgedItems.increment(items.size());
+    return items.size();
+  }
+}
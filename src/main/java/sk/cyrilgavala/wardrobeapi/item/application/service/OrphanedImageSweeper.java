@@ -0,0 +1,151 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+/**
+ * Deletes stored images that no item refers to in the background, such as images left behind by
+ * failed item creates or interrupted image replacements.
+ *
+ * <p>Image IDs and the image IDs referenced by items are both streamed in ascending order and
+ * merge-joined, so a run needs constant memory however many images there are. Only images that
+ * were neither stored nor referenced within the last {@code grace-period-minutes} qualify, which
+ * protects uploads whose item is still being saved. Orphans are deleted in batches of
+ * {@code batch-size}, paced to at most {@code max-deletes-per-second}. In {@code dry-run} mode
+ * orphans are only logged and counted.
+ */
+@Slf4j
+@Service
+public class OrphanedImageSweeper {
+
+  private final ItemRepository itemRepository;
+  private final ImageStorageService imageStorageService;
+  private final Duration gracePeriod;
+  private final int batchSize;
+  private final int maxDeletesPerSecond;
+  private final boolean dryRun;
+  private final Counter foundImages;
+  private final Counter deletedImages;
+  private final Timer sweepTimer;
+
+  public OrphanedImageSweeper(
+      ItemRepository itemRepository,
+      ImageStorageService imageStorageService,
+      MeterRegistry meterRegistry,
+      @Value("${app.items.orphaned-images.grace-period-minutes:60}") long gracePeriodMinutes,
+      @Value("${app.items.orphaned-images.batch-size:100}") int batchSize,
+      @Value("${app.items.orphaned-images.max-deletes-per-second:50}") int maxDeletesPerSecond,
+      @Value("${app.items.orphaned-images.dry-run:false}") boolean dryRun) {
+    this.itemRepository = itemRepository;
+    this.imageStorageService = imageStorageService;
+    this.gracePeriod = Duration.ofMinutes(gracePeriodMinutes);
+    this.batchSize = batchSize;
+    this.maxDeletesPerSecond = maxDeletesPerSecond;
+    this.dryRun = dryRun;
+
+    this.foundImages = Counter.builder("items.orphaned.images.found")
+        .description("Stored images found without any item referring to them")
+        .register(meterRegistry);
+    this.deletedImages = Counter.builder("items.orphaned.images.deleted")
+        .description("Stored files removed by the orphaned image sweep, variants included")
+        .register(meterRegistry);
+    this.sweepTimer = Timer.builder("items.orphaned.images.sweep")
+        .description("Duration of a single orphaned image sweep")
+        .register(meterRegistry);
+  }
+
+  @Scheduled(
+      initialDelayString = "${app.items.orphaned-images.interval-ms:3600000}",
+      fixedDelayString = "${app.items.orphaned-images.interval-ms:3600000}")
+  public void sweep() {
+    sweepTimer.record(() -> sweep(Instant.now().minus(gracePeriod)));
+  }
+
+  void sweep(Instant cutoff) {
+    long found = 0;
+    long deleted = 0;
+    long startedAt = System.nanoTime();
+    List<String> batch = new ArrayList<>(batchSize);
+
+    try (Stream<String> imageIds = imageStorageService.streamImageIdsUnusedSince(cutoff);
+        Stream<String> referencedIds = itemRepository.streamImageIds()) {
+      Iterator<String> references = referencedIds.iterator();
+      String reference = next(references);
+
+      for (Iterator<String> images = imageIds.iterator(); images.hasNext(); ) {
+        String imageId = images.next();
+        while (reference != null && reference.compareTo(imageId) < 0) {
+          reference = next(references);
+        }
+        if (imageId.equals(reference)) {
+          continue;
+        }
+
+        found++;
+        batch.add(imageId);
+        if (batch.size() == batchSize) {
+          deleted += deleteBatch(batch, cutoff);
+          pace(found, startedAt);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        deleted += deleteBatch(batch, cutoff);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warn("Orphaned image sweep interrupted after {} images", found);
+    }
+
+    if (found > 0 && dryRun) {
+      log.info("Found {} orphaned images, none deleted in dry-run mode", found);
+    } else if (found > 0) {
+      log.info("Deleted {} orphaned images, {} files including variants", found, deleted);
+    }
+  }
+
+  private long deleteBatch(List<String> imageIds, Instant cutoff) {
+    foundImages.increment(imageIds.size());
+    if (dryRun) {
+      log.info("Would delete orphaned images {}", imageIds);
+      return 0;
+    }
+
+    long deleted = imageStorageService.deleteOrphanedImages(imageIds, cutoff);
+    deletedImages.increment(deleted);
+    return deleted;
+  }
+
+  /**
+   * Sleeps until the deleted images fit within the configured rate since the sweep started.
+   */
+  private void pace(long processed, long startedAt) throws InterruptedException {
+    if (dryRun || maxDeletesPerSecond <= 0) {
+      return;
+    }
+
+    long earliest = startedAt + processed * TimeUnit.SECONDS.toNanos(1) / maxDeletesPerSecond;
+    long remaining = earliest - System.nanoTime();
+    if (remaining > 0) {
+      TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+  }
+
+  private static String next(Iterator<String> references) {
+    return references.hasNext() ? references.next() : null;
+  }
+}
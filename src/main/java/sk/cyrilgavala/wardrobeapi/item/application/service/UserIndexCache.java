@@ -0,0 +1,83 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Lazily built per-user search indexes, kept for a bounded number of users in least recently used
+ * order.
+ *
+ * <p>An index is built on the first lookup of a user, outside of any lock, so that users do not
+ * wait for each other. Every change of an item is counted; an index built while a change happened
+ * may miss it and is returned to its caller without being kept.
+ *
+ * @param <T> the type of the index
+ */
+final class UserIndexCache<T> {
+
+  private final Map<String, T> indexes;
+  private final AtomicLong changes = new AtomicLong();
+
+  UserIndexCache(int maxUsers) {
+    this.indexes = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+        return size() > maxUsers;
+      }
+    };
+  }
+
+  /**
+   * Returns the index of a user, building it first if it is not loaded.
+   *
+   * @param userId the user's unique identifier
+   * @param build  builds the index of the user
+   * @return the index
+   */
+  T get(String userId, Function<String, T> build) {
+    synchronized (indexes) {
+      T index = indexes.get(userId);
+      if (index != null) {
+        return index;
+      }
+    }
+
+    long version = changes.get();
+    T index = build.apply(userId);
+    synchronized (indexes) {
+      if (changes.get() == version) {
+        indexes.put(userId, index);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Records a change of a user's items for an index that is updated in place.
+   *
+   * @param userId the user's unique identifier
+   * @return the loaded index of the user, to be updated by the caller, or empty if none is loaded
+   */
+  Optional<T> changed(String userId) {
+    changes.incrementAndGet();
+    synchronized (indexes) {
+      return Optional.ofNullable(indexes.get(userId));
+    }
+  }
+
+  /**
+   * Records a change of a user's items and drops the user's index, which is built again on the
+   * next lookup.
+   *
+   * @param userId the user's unique identifier
+   */
+  void invalidate(String userId) {
+    changes.incrementAndGet();
+    synchronized (indexes) {
+      indexes.remove(userId);
+    }
+  }
+}
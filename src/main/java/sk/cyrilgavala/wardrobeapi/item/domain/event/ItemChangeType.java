@@ -0,0 +1,7 @@
+package sk.cyrilgavala.wardrobeapi.item.domain.event;
+
+public enum ItemChangeType {
+  CREATED,
+  UPDATED,
+  DELETED
+}
@@ -0,0 +1,32 @@
+package sk.cyrilgavala.wardrobeapi.item.domain.event;
+
+import java.time.Instant;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+
+/**
+ * Domain event published by the item command handlers after an item of a user was created,
+ * updated or deleted. For deletions, {@code item} holds the last known state of the item.
+ */
+public record ItemChangedEvent(
+    ItemChangeType type,
+    String itemId,
+    String userId,
+    Item item,
+    Instant occurredAt
+) {
+
+  public static ItemChangedEvent created(Item item) {
+    return new ItemChangedEvent(ItemChangeType.CREATED, item.id(), item.userId(), item,
+        Instant.now());
+  }
+
+  public static ItemChangedEvent updated(Item item) {
+    return new ItemChangedEvent(ItemChangeType.UPDATED, item.id(), item.userId(), item,
+        Instant.now());
+  }
+
+  public static ItemChangedEvent deleted(Item item) {
+    return new ItemChangedEvent(ItemChangeType.DELETED, item.id(), item.userId(), item,
+        Instant.now());
+  }
+}
@@ -0,0 +1,11 @@
+package sk.cyrilgavala.wardrobeapi.item.domain.model;
+
+/**
+ * Number of items a user keeps in a single storage box.
+ */
+public record BoxSummary(
+    Integer boxNumber,
+    Long itemCount
+) {
+
+}
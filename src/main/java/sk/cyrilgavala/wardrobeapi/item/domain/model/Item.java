@@ -1,13 +1,22 @@
 package sk.cyrilgavala.wardrobeapi.item.domain.model;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
 import lombok.Builder;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 @Document(collection = "items")
-@Builder
+@CompoundIndexes({
+    @CompoundIndex(name = "user_box_idx", def = "{'user_id': 1, 'box_number': 1}"),
+    @CompoundIndex(name = "user_seq_idx", def = "{'user_id': 1, 'seq': 1}")
+})
+@Builder(toBuilder = true)
 public record Item(
     @Id
     String id,
@@ -31,14 +40,22 @@ public record Item(
     Boolean canBeDried,
     @Field("can_be_bleached")
     Boolean canBeBleached,
+    @Indexed(name = "image_id_idx", sparse = true)
     @Field("image_id")
     String imageId,
+    @Field("palette")
+    List<String> palette,
     @Field("box_number")
     Integer boxNumber,
     @Field("created_at")
     Instant createdAt,
     @Field("updated_at")
-    Instant updatedAt
+    Instant updatedAt,
+    @Field("seq")
+    Long seq,
+    @Indexed(name = "deleted_at_idx", sparse = true)
+    @Field("deleted_at")
+    Instant deletedAt
 ) {
 
   public static Item create(
@@ -97,10 +114,21 @@ public record Item(
         .canBeDried(canBeDried)
         .canBeBleached(canBeBleached)
         .imageId(imageId)
+        .palette(Objects.equals(imageId, this.imageId) ? this.palette : null)
         .boxNumber(boxNumber)
         .createdAt(this.createdAt)
         .updatedAt(Instant.now())
         .build();
   }
-}
 
+  /**
+   * Stamps the item with the change sequence number of its owner, marking it as changed for
+   * delta synchronization.
+   *
+   * @param seq the sequence number allocated for this change
+   * @return a copy of the item carrying the sequence number
+   */
+  public Item withSeq(long seq) {
+    return toBuilder().seq(seq).build();
+  }
+}
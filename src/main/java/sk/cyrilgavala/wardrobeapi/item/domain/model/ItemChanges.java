@@ -0,0 +1,17 @@
+package sk.cyrilgavala.wardrobeapi.item.domain.model;
+
+import java.util.List;
+
+/**
+ * Result of a delta synchronization: items created or updated and ids of items deleted since the
+ * client's token, plus the token to use for the next synchronization. If {@code fullResync} is
+ * set, {@code items} holds the whole wardrobe and the client must replace its local copy.
+ */
+public record ItemChanges(
+    List<Item> items,
+    List<String> deletedItemIds,
+    SyncToken token,
+    boolean fullResync
+) {
+
+}
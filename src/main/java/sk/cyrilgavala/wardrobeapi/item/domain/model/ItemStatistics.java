@@ -0,0 +1,73 @@
+package sk.cyrilgavala.wardrobeapi.item.domain.model;
+
+import java.time.Instant;
+import java.util.Map;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Materialized per-user statistics over wardrobe items. One document exists per user and is kept
+ * up to date by the item command handlers with atomic increments, so reading it costs a single
+ * lookup by primary key regardless of the wardrobe size.
+ */
+@Document(collection = "item_statistics")
+@Builder
+public record ItemStatistics(
+    @Id
+    String userId,
+    @Field("total_items")
+    Long totalItems,
+    @Field("colors")
+    Map<String, Long> colors,
+    @Field("brands")
+    Map<String, Long> brands,
+    @Field("sizes")
+    Map<String, Long> sizes,
+    @Field("boxes")
+    Map<String, Long> boxes,
+    @Field("care_labels")
+    Map<String, Long> careLabels,
+    @Field("updated_at")
+    Instant updatedAt
+) {
+
+  public static ItemStatistics empty(String userId) {
+    return ItemStatistics.builder()
+        .userId(userId)
+        .totalItems(0L)
+        .colors(Map.of())
+        .brands(Map.of())
+        .sizes(Map.of())
+        .boxes(Map.of())
+        .careLabels(Map.of())
+        .updatedAt(Instant.now())
+        .build();
+  }
+
+  /**
+   * Builds the care-label combination key of an item, e.g. {@code wash:40|iron:yes|dry:no|bleach:-}.
+   * Unknown attributes are rendered as {@code -}.
+   *
+   * @param item the item to describe
+   * @return the combination key, or {@code null} if the item has no care attributes at all
+   */
+  public static String careLabelOf(Item item) {
+    if (item.washingTemperature() == null && item.canBeIroned() == null
+        && item.canBeDried() == null && item.canBeBleached() == null) {
+      return null;
+    }
+    return "wash:" + (item.washingTemperature() == null ? "-" : item.washingTemperature())
+        + "|iron:" + flag(item.canBeIroned())
+        + "|dry:" + flag(item.canBeDried())
+        + "|bleach:" + flag(item.canBeBleached());
+  }
+
+  private static String flag(Boolean value) {
+    if (value == null) {
+      return "-";
+    }
+    return value ? "yes" : "no";
+  }
+}
@@ -0,0 +1,45 @@
+package sk.cyrilgavala.wardrobeapi.item.domain.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Marker of a deleted item kept for delta synchronization, so clients can learn about deletions
+ * without downloading the whole wardrobe. Tombstones are compacted by a TTL index after
+ * {@link #RETENTION}; sync tokens older than that require a full resynchronization.
+ */
+@Document(collection = "item_tombstones")
+@CompoundIndex(name = "user_seq_idx", def = "{'user_id': 1, 'seq': 1}")
+@Builder
+public record ItemTombstone(
+    @Id
+    String itemId,
+    @Field("user_id")
+    String userId,
+    @Field("seq")
+    Long seq,
+    @Indexed(name = "deleted_at_ttl_idx", expireAfter = "30d")
+    @Field("deleted_at")
+    Instant deletedAt
+) {
+
+  /**
+   * How long tombstones are kept. Must match the {@code expireAfter} of the TTL index.
+   */
+  public static final Duration RETENTION = Duration.ofDays(30);
+
+  public static ItemTombstone of(Item item, long seq) {
+    return ItemTombstone.builder()
+        .itemId(item.id())
+        .userId(item.userId())
+        .seq(seq)
+        .deletedAt(Instant.now())
+        .build();
+  }
+}
@@ -0,0 +1,55 @@
+package sk.cyrilgavala.wardrobeapi.item.domain.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque position in the change sequence of a user, handed out to clients by delta
+ * synchronization. Besides the sequence number it records when it was issued, so that tokens
+ * older than the tombstone retention can be detected.
+ */
+public record SyncToken(
+    long seq,
+    Instant issuedAt
+) {
+
+  private static final String SEPARATOR = ":";
+
+  public String encode() {
+    String raw = seq + SEPARATOR + issuedAt.toEpochMilli();
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Decodes a token previously produced by {@link #encode()}.
+   *
+   * @param token the encoded token
+   * @return the decoded token
+   * @throws IllegalArgumentException if the token is malformed
+   */
+  public static SyncToken decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+      int separator = raw.indexOf(SEPARATOR);
+      return new SyncToken(Long.parseLong(raw.substring(0, separator)),
+          Instant.ofEpochMilli(Long.parseLong(raw.substring(separator + 1))));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Invalid sync token: " + token, e);
+    }
+  }
+
+  /**
+   * Whether changes since this token may no longer be fully reconstructed because tombstones of
+   * deletions which happened after it could already have been compacted.
+   *
+   * @param retention how long tombstones are kept
+   * @param now       the current time
+   * @return {@code true} if the client has to resynchronize from scratch
+   */
+  public boolean isExpired(Duration retention, Instant now) {
+    return issuedAt.plus(retention).isBefore(now);
+  }
+}
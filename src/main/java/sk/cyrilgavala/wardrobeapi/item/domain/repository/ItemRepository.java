@@ -1,7 +1,10 @@
 package sk.cyrilgavala.wardrobeapi.item.domain.repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
 
 /**
@@ -24,7 +27,29 @@ public interface ItemRepository {
   Item save(Item item);
 
   /**
-   * Finds an item by its unique identifier.
+   * Replaces a stored item with a changed copy of it, unless the item was soft-deleted in the
+   * meantime, so that a stale copy never brings a deleted item back.
+   *
+   * @param item the changed item, carrying the ID of the stored one
+   * @return whether the item was replaced, {@code false} if it doesn't exist or was deleted
+   */
+  boolean update(Item item);
+
+  /**
+   * Sets the palette of an item and stamps it with a change sequence number, provided the item
+   * still has the image the palette was extracted from and was not soft-deleted. Only these two
+   * fields are written, so concurrent changes of the item are kept.
+   *
+   * @param id      the item ID
+   * @param imageId the image the palette was extracted from
+   * @param palette hex colors, the most dominant first
+   * @param seq     the sequence number allocated for this change
+   * @return the item with its palette, empty if it was deleted or got another image
+   */
+  Optional<Item> attachPalette(String id, String imageId, List<String> palette, long seq);
+
+  /**
+   * Finds an item by its unique identifier. Soft-deleted items are not returned.
    *
    * @param id the item ID
    * @return an Optional containing the item if found, empty otherwise
@@ -33,7 +58,7 @@ public interface ItemRepository {
   Optional<Item> findById(String id);
 
   /**
-   * Retrieves all items belonging to a specific user.
+   * Retrieves all items belonging to a specific user, excluding soft-deleted ones.
    *
    * @param userId the user's unique identifier
    * @return a list of items owned by the user, empty list if none found
@@ -42,12 +67,117 @@ public interface ItemRepository {
   List<Item> findAllByUserId(String userId);
 
   /**
-   * Deletes an item by its unique identifier. Does nothing if the item doesn't exist.
+   * Retrieves the items with the given IDs that belong to a user, excluding soft-deleted ones, in
+   * a single query. Items of other users are left out like missing ones.
    *
-   * @param id the item ID to delete
+   * @param userId the user's unique identifier
+   * @param ids    the item IDs
+   * @return the user's items among the IDs, empty list if none found
+   * @throws IllegalArgumentException if userId is null
+   */
+  List<Item> findAllByUserIdAndIds(String userId, Collection<String> ids);
+
+  /**
+   * Retrieves all items of a user stored in a specific box, excluding soft-deleted ones.
+   *
+   * @param userId    the user's unique identifier
+   * @param boxNumber the number of the box
+   * @return a list of items in the box, empty list if none found
+   * @throws IllegalArgumentException if userId is null
+   */
+  List<Item> findAllByUserIdAndBoxNumber(String userId, Integer boxNumber);
+
+  /**
+   * Retrieves all items of a user changed after the given change sequence number, in sequence
+   * order, excluding soft-deleted ones.
+   *
+   * @param userId the user's unique identifier
+   * @param seq    the exclusive lower bound of the change sequence number
+   * @return a list of items changed since the sequence number, empty list if none found
+   * @throws IllegalArgumentException if userId is null
+   */
+  List<Item> findAllByUserIdChangedAfter(String userId, long seq);
+
+  /**
+   * Soft-deletes an item by its unique identifier. The item disappears from all reads immediately
+   * and is physically removed later by the background purge. Does nothing if the item doesn't
+   * exist or was already deleted.
+   *
+   * @param id        the item ID to delete
+   * @param deletedAt the time of deletion
+   * @return whether this call deleted the item, {@code false} if it was not there to delete
    * @throws IllegalArgumentException if id is null
    */
-  void deleteById(String id);
+  boolean markDeleted(String id, Instant deletedAt);
+
+  /**
+   * Retrieves a batch of soft-deleted items awaiting the purge. Only the ID, user ID and image ID
+   * of the returned items are populated.
+   *
+   * @param cutoff the inclusive upper bound of the deletion time
+   * @param limit  the maximum number of items to return
+   * @return a list of soft-deleted items, empty list if none found
+   */
+  List<Item> findDeletedBefore(Instant cutoff, int limit);
+
+  /**
+   * Counts soft-deleted items awaiting the purge.
+   *
+   * @return the number of soft-deleted items
+   */
+  long countDeleted();
+
+  /**
+   * Physically deletes items by their unique identifiers in a single operation.
+   *
+   * @param ids the item IDs to delete
+   */
+  void deleteAllById(Collection<String> ids);
+
+  /**
+   * Retrieves a batch of items whose current image has no palette yet, excluding soft-deleted
+   * ones. Only the ID, user ID and image ID of the returned items are populated.
+   *
+   * @param limit the maximum number of items to return
+   * @return a list of items awaiting palette extraction, empty list if none found
+   */
+  List<Item> findWithoutPalette(int limit);
+
+  /**
+   * Counts items whose current image has no palette yet, excluding soft-deleted ones.
+   *
+   * @return the number of items awaiting palette extraction
+   */
+  long countWithoutPalette();
+
+  /**
+   * Retrieves the items of a user that have a non-empty palette, excluding soft-deleted ones.
+   * Only the ID and palette of the returned items are populated.
+   *
+   * @param userId the user's unique identifier
+   * @return a list of items with their palettes, empty list if none found
+   * @throws IllegalArgumentException if userId is null
+   */
+  List<Item> findPalettesByUserId(String userId);
+
+  /**
+   * Retrieves the items of a user that have an image, excluding soft-deleted ones. Only the ID and
+   * image ID of the returned items are populated.
+   *
+   * @param userId the user's unique identifier
+   * @return a list of items with their image IDs, empty list if none found
+   * @throws IllegalArgumentException if userId is null
+   */
+  List<Item> findImageIdsByUserId(String userId);
+
+  /**
+   * Streams the image IDs referenced by items in ascending order, soft-deleted items included as
+   * their images are released by the purge. An image referenced by several items is repeated. The
+   * stream holds a database cursor and has to be closed.
+   *
+   * @return the referenced image IDs in ascending order
+   */
+  Stream<String> streamImageIds();
 
 }
 
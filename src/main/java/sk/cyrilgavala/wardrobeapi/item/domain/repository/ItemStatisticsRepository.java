@@ -0,0 +1,67 @@
+package sk.cyrilgavala.wardrobeapi.item.domain.repository;
+
+import java.util.Optional;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+
+/**
+ * Repository interface for the materialized {@link ItemStatistics} of a user.
+ *
+ * <p>Counters are maintained incrementally by the item command handlers once they were
+ * initialized by {@link #recompute}; until then changes are only collected for the recompute,
+ * which adds those it did not count itself. {@link #invalidate} followed by {@link #recompute}
+ * repairs them.
+ */
+public interface ItemStatisticsRepository {
+
+  /**
+   * Finds the statistics document of a user.
+   *
+   * @param userId the user's unique identifier
+   * @return an Optional containing the statistics if they were already initialized
+   */
+  Optional<ItemStatistics> findByUserId(String userId);
+
+  /**
+   * Atomically increments all counters the given item contributes to, or collects the increments
+   * until the counters are initialized.
+   *
+   * @param item the newly created item
+   */
+  void recordCreated(Item item);
+
+  /**
+   * Atomically moves the counters from the previous to the current state of an item, or collects
+   * the move until the counters are initialized. Counters that did not change are left untouched.
+   *
+   * @param previous the item before the update
+   * @param current  the item after the update
+   */
+  void recordUpdated(Item previous, Item current);
+
+  /**
+   * Atomically decrements all counters the given item contributed to, or collects the decrements
+   * until the counters are initialized.
+   *
+   * @param item the deleted item
+   */
+  void recordDeleted(Item item);
+
+  /**
+   * Recomputes the statistics of a user from scratch with an aggregation over the items collection
+   * and stores them as initialized counters, together with the changes recorded while the
+   * aggregation ran, unless counters were initialized in the meantime.
+   *
+   * @param userId the user's unique identifier
+   * @return the recomputed statistics, or the counters initialized in the meantime
+   */
+  ItemStatistics recompute(String userId);
+
+  /**
+   * Marks the counters of a user as no longer initialized, so that changes are only collected for
+   * the next {@link #recompute}, which replaces them.
+   *
+   * @param userId the user's unique identifier
+   */
+  void invalidate(String userId);
+}
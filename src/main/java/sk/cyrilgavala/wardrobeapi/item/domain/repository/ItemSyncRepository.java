@@ -0,0 +1,45 @@
+package sk.cyrilgavala.wardrobeapi.item.domain.repository;
+
+import java.util.List;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemTombstone;
+
+/**
+ * Repository interface for the bookkeeping behind delta synchronization: the per-user change
+ * sequence and the {@link ItemTombstone}s of deleted items.
+ */
+public interface ItemSyncRepository {
+
+  /**
+   * Atomically allocates the next change sequence number of a user. Numbers are strictly
+   * increasing per user and start at 1.
+   *
+   * @param userId the user's unique identifier
+   * @return the allocated sequence number
+   */
+  long nextSeq(String userId);
+
+  /**
+   * Reads the last allocated change sequence number of a user without allocating a new one.
+   *
+   * @param userId the user's unique identifier
+   * @return the last allocated sequence number, 0 if none was allocated yet
+   */
+  long currentSeq(String userId);
+
+  /**
+   * Persists a tombstone of a deleted item.
+   *
+   * @param tombstone the tombstone to save
+   */
+  void saveTombstone(ItemTombstone tombstone);
+
+  /**
+   * Retrieves the tombstones of a user recorded after the given sequence number, in sequence
+   * order.
+   *
+   * @param userId the user's unique identifier
+   * @param seq    the exclusive lower bound of the sequence number
+   * @return the matching tombstones, empty list if none found
+   */
+  List<ItemTombstone> findTombstonesAfter(String userId, long seq);
+}
@@ -1,8 +1,17 @@
 package sk.cyrilgavala.wardrobeapi.item.infrastructure.persistence;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
 import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
@@ -12,25 +21,101 @@ import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
 public class ItemRepositoryImpl implements ItemRepository {
 
   private final MongoItemRepository mongoItemRepository;
+  private final MongoTemplate mongoTemplate;
 
   @Override
   public Item save(Item item) {
     return mongoItemRepository.save(item);
   }
 
+  @Override
+  public boolean update(Item item) {
+    Query notDeleted = Query.query(Criteria.where("_id").is(item.id()).and("deleted_at").is(null));
+    return mongoTemplate.replace(notDeleted, item).getMatchedCount() > 0;
+  }
+
+  @Override
+  public Optional<Item> attachPalette(String id, String imageId, List<String> palette,
+      long seq) {
+    Query sameImage = Query.query(Criteria.where("_id").is(id)
+        .and("image_id").is(imageId)
+        .and("deleted_at").is(null));
+    // Dates the change for delta synchronization, like any other change carrying a seq
+    Update update = new Update().set("palette", List.copyOf(palette)).set("seq", seq)
+        .set("updated_at", Instant.now());
+    return Optional.ofNullable(mongoTemplate.findAndModify(sameImage, update,
+        FindAndModifyOptions.options().returnNew(true), Item.class));
+  }
+
   @Override
   public Optional<Item> findById(String id) {
-    return mongoItemRepository.findById(id);
+    return mongoItemRepository.findById(id).filter(item -> item.deletedAt() == null);
   }
 
   @Override
   public List<Item> findAllByUserId(String userId) {
-    return mongoItemRepository.findAllByUserId(userId);
+    return mongoItemRepository.findAllByUserIdAndDeletedAtIsNull(userId);
+  }
+
+  @Override
+  public List<Item> findAllByUserIdAndIds(String userId, Collection<String> ids) {
+    return mongoItemRepository.findAllByIdInAndUserIdAndDeletedAtIsNull(ids, userId);
+  }
+
+  @Override
+  public List<Item> findAllByUserIdAndBoxNumber(String userId, Integer boxNumber) {
+    return mongoItemRepository.findAllByUserIdAndBoxNumberAndDeletedAtIsNull(userId, boxNumber);
+  }
+
+  @Override
+  public List<Item> findAllByUserIdChangedAfter(String userId, long seq) {
+    return mongoItemRepository
+        .findAllByUserIdAndSeqGreaterThanAndDeletedAtIsNullOrderBySeqAsc(userId, seq);
+  }
+
+  @Override
+  public boolean markDeleted(String id, Instant deletedAt) {
+    return mongoItemRepository.markDeletedById(id, deletedAt) > 0;
+  }
+
+  @Override
+  public List<Item> findDeletedBefore(Instant cutoff, int limit) {
+    return mongoItemRepository.findDeletedBefore(cutoff, Limit.of(limit));
+  }
+
+  @Override
+  public long countDeleted() {
+    return mongoItemRepository.countDeleted();
+  }
+
+  @Override
+  public void deleteAllById(Collection<String> ids) {
+    mongoItemRepository.deleteAllById(ids);
+  }
+
+  @Override
+  public List<Item> findWithoutPalette(int limit) {
+    return mongoItemRepository.findWithoutPalette(Limit.of(limit));
+  }
+
+  @Override
+  public long countWithoutPalette() {
+    return mongoItemRepository.countWithoutPalette();
+  }
+
+  @Override
+  public List<Item> findPalettesByUserId(String userId) {
+    return mongoItemRepository.findPalettesByUserId(userId);
+  }
+
+  @Override
+  public List<Item> findImageIdsByUserId(String userId) {
+    return mongoItemRepository.findImageIdsByUserId(userId);
   }
 
   @Override
-  public void deleteById(String id) {
-    mongoItemRepository.deleteById(id);
+  public Stream<String> streamImageIds() {
+    return mongoItemRepository.streamAllWithImage().map(Item::imageId);
   }
 
 }
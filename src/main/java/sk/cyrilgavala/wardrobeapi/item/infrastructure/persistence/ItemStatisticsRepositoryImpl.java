@@ -0,0 +1,332 @@
+package sk.cyrilgavala.wardrobeapi.item.infrastructure.persistence;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+
+/**
+ * MongoDB implementation of {@link ItemStatisticsRepository}.
+ *
+ * <p>Counter maps are stored as sub-documents keyed by the counted value. Since MongoDB field
+ * names must not contain dots or start with a dollar sign, keys are percent-encoded on write and
+ * decoded on read.
+ *
+ * <p>Only documents written by {@link #recompute} carry the {@code initialized} marker, and
+ * documents without it are treated as missing, so counters are always based on a full
+ * aggregation; a user whose items predate the counters gets them computed on first read instead
+ * of starting from zero. Until then deltas are collected in a {@code pending} sub-document, each
+ * one bumping {@code pending_version}. A recompute adds the deltas collected since it started its
+ * aggregation to the result, in an update conditional on {@code pending_version} being unchanged,
+ * so a change written while the aggregation runs is not lost.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class ItemStatisticsRepositoryImpl implements ItemStatisticsRepository {
+
+  static final String COLLECTION = "item_statistics";
+  static final String ITEMS_COLLECTION = "items";
+
+  private static final String TOTAL_ITEMS = "total_items";
+  private static final String COLORS = "colors";
+  private static final String BRANDS = "brands";
+  private static final String SIZES = "sizes";
+  private static final String BOXES = "boxes";
+  private static final String CARE_LABELS = "care_labels";
+  private static final String UPDATED_AT = "updated_at";
+  private static final String INITIALIZED = "initialized";
+  private static final String PENDING = "pending";
+  private static final String PENDING_VERSION = "pending_version";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public Optional<ItemStatistics> findByUserId(String userId) {
+    return Optional.ofNullable(mongoTemplate.findOne(initialized(userId), ItemStatistics.class))
+        .map(ItemStatisticsRepositoryImpl::decode);
+  }
+
+  @Override
+  public void recordCreated(Item item) {
+    applyDelta(item.userId(), null, item);
+  }
+
+  @Override
+  public void recordUpdated(Item previous, Item current) {
+    applyDelta(current.userId(), previous, current);
+  }
+
+  @Override
+  public void recordDeleted(Item item) {
+    applyDelta(item.userId(), item, null);
+  }
+
+  @Override
+  public ItemStatistics recompute(String userId) {
+    log.info("Recomputing item statistics for user: {}", userId);
+
+    // Deltas collected so far are part of the aggregation result already
+    Map<String, Long> baseline = pendingDeltasOf(findCounters(userId));
+    Aggregation aggregation = Aggregation.newAggregation(
+        Aggregation.match(Criteria.where("user_id").is(userId).and("deleted_at").exists(false)),
+        facetStage()
+    );
+    Document result = mongoTemplate.aggregate(aggregation, ITEMS_COLLECTION, Document.class)
+        .getUniqueMappedResult();
+    Map<String, Long> aggregated = result == null ? Map.of() : countsOf(result);
+
+    while (true) {
+      Document counters = findCounters(userId);
+      if (counters != null && Boolean.TRUE.equals(counters.get(INITIALIZED))) {
+        log.debug("Item statistics of user {} were initialized concurrently", userId);
+        return findByUserId(userId).orElseGet(() -> decode(statisticsOf(userId, aggregated)));
+      }
+
+      Map<String, Long> counts = new HashMap<>(aggregated);
+      pendingDeltasOf(counters).forEach((path, delta) ->
+          counts.merge(path, delta - baseline.getOrDefault(path, 0L), Long::sum));
+      ItemStatistics statistics = statisticsOf(userId, counts);
+
+      Update replacement = new Update()
+          .set(TOTAL_ITEMS, statistics.totalItems())
+          .set(COLORS, statistics.colors())
+          .set(BRANDS, statistics.brands())
+          .set(SIZES, statistics.sizes())
+          .set(BOXES, statistics.boxes())
+          .set(CARE_LABELS, statistics.careLabels())
+          .set(UPDATED_AT, statistics.updatedAt())
+          .set(INITIALIZED, true)
+          .unset(PENDING)
+          .unset(PENDING_VERSION);
+      try {
+        // Never replaces initialized counters, which may already hold deltas newer than the
+        // result, nor misses a delta collected since the counters were read
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(userId)
+                .and(INITIALIZED).ne(true)
+                .and(PENDING_VERSION).is(counters == null ? null : counters.get(PENDING_VERSION))),
+            replacement, COLLECTION);
+        return decode(statistics);
+      } catch (DuplicateKeyException e) {
+        log.debug("Item statistics of user {} changed while being recomputed", userId);
+      }
+    }
+  }
+
+  @Override
+  public void invalidate(String userId) {
+    mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(userId)),
+        new Update().unset(INITIALIZED), COLLECTION);
+  }
+
+  private void applyDelta(String userId, Item previous, Item current) {
+    Map<String, Integer> deltas = new LinkedHashMap<>();
+    if (previous != null) {
+      contributionsOf(previous).forEach(path -> deltas.merge(path, -1, Integer::sum));
+    }
+    if (current != null) {
+      contributionsOf(current).forEach(path -> deltas.merge(path, 1, Integer::sum));
+    }
+    deltas.values().removeIf(delta -> delta == 0);
+
+    if (deltas.isEmpty()) {
+      return;
+    }
+
+    Update update = new Update().set(UPDATED_AT, Instant.now());
+    deltas.forEach(update::inc);
+    if (mongoTemplate.updateFirst(initialized(userId), update, COLLECTION).getMatchedCount() > 0) {
+      return;
+    }
+
+    Update pending = new Update().inc(PENDING_VERSION, 1);
+    deltas.forEach((path, delta) -> pending.inc(PENDING + "." + path, delta));
+    try {
+      mongoTemplate.upsert(Query.query(Criteria.where("_id").is(userId).and(INITIALIZED).ne(true)),
+          pending, COLLECTION);
+    } catch (DuplicateKeyException e) {
+      // Initialized since the first attempt
+      mongoTemplate.updateFirst(initialized(userId), update, COLLECTION);
+    }
+  }
+
+  private Document findCounters(String userId) {
+    Query query = Query.query(Criteria.where("_id").is(userId));
+    query.fields().include(INITIALIZED, PENDING, PENDING_VERSION);
+    return mongoTemplate.findOne(query, Document.class, COLLECTION);
+  }
+
+  private static Query initialized(String userId) {
+    return Query.query(Criteria.where("_id").is(userId).and(INITIALIZED).is(true));
+  }
+
+  private static List<String> contributionsOf(Item item) {
+    List<String> paths = new ArrayList<>();
+    paths.add(TOTAL_ITEMS);
+    addPath(paths, COLORS, item.color());
+    addPath(paths, BRANDS, item.brand());
+    addPath(paths, SIZES, item.size());
+    addPath(paths, BOXES, item.boxNumber() == null ? null : item.boxNumber().toString());
+    addPath(paths, CARE_LABELS, ItemStatistics.careLabelOf(item));
+    return paths;
+  }
+
+  private static void addPath(List<String> paths, String counter, String value) {
+    if (value != null && !value.isEmpty()) {
+      paths.add(counter + "." + encodeKey(value));
+    }
+  }
+
+  /**
+   * Groups the matched items of a user by every counted dimension in one pass. The care-label key
+   * mirrors {@link ItemStatistics#careLabelOf(Item)}.
+   */
+  private static AggregationOperation facetStage() {
+    Document facets = new Document()
+        .append(TOTAL_ITEMS, List.of(new Document("$count", "count")))
+        .append(COLORS, groupByField("color"))
+        .append(BRANDS, groupByField("brand"))
+        .append(SIZES, groupByField("size"))
+        .append(BOXES, groupByField("box_number"))
+        .append(CARE_LABELS, List.of(
+            new Document("$match", new Document("$or", List.of(
+                new Document("washing_temperature", new Document("$ne", null)),
+                new Document("can_be_ironed", new Document("$ne", null)),
+                new Document("can_be_tumble_dried", new Document("$ne", null)),
+                new Document("can_be_bleached", new Document("$ne", null))))),
+            new Document("$group", new Document("_id", new Document("$concat", List.of(
+                "wash:", new Document("$ifNull",
+                    List.of(new Document("$toString", "$washing_temperature"), "-")),
+                "|iron:", flagExpression("$can_be_ironed"),
+                "|dry:", flagExpression("$can_be_tumble_dried"),
+                "|bleach:", flagExpression("$can_be_bleached"))))
+                .append("count", new Document("$sum", 1)))));
+    return context -> new Document("$facet", facets);
+  }
+
+  private static List<Document> groupByField(String field) {
+    return List.of(
+        new Document("$match",
+            new Document(field, new Document("$nin", Arrays.asList("", null)))),
+        new Document("$group", new Document("_id", "$" + field)
+            .append("count", new Document("$sum", 1))));
+  }
+
+  private static Document flagExpression(String field) {
+    return new Document("$switch", new Document("branches", List.of(
+        new Document("case", new Document("$eq", List.of(field, true))).append("then", "yes"),
+        new Document("case", new Document("$eq", List.of(field, false))).append("then", "no")))
+        .append("default", "-"));
+  }
+
+  /**
+   * Flattens the facets of an aggregation result into counts keyed by the paths that deltas
+   * increment.
+   */
+  private static Map<String, Long> countsOf(Document result) {
+    Map<String, Long> counts = new HashMap<>();
+    List<Document> total = result.getList(TOTAL_ITEMS, Document.class, List.of());
+    if (!total.isEmpty()) {
+      counts.put(TOTAL_ITEMS, ((Number) total.getFirst().get("count")).longValue());
+    }
+    for (String facet : List.of(COLORS, BRANDS, SIZES, BOXES, CARE_LABELS)) {
+      for (Document group : result.getList(facet, Document.class, List.of())) {
+        counts.put(facet + "." + encodeKey(String.valueOf(group.get("_id"))),
+            ((Number) group.get("count")).longValue());
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Flattens the deltas collected on uninitialized counters into the paths they incremented.
+   */
+  private static Map<String, Long> pendingDeltasOf(Document counters) {
+    Map<String, Long> deltas = new HashMap<>();
+    Document pending = counters == null ? null : counters.get(PENDING, Document.class);
+    if (pending != null) {
+      pending.forEach((counter, value) -> {
+        if (value instanceof Document keys) {
+          keys.forEach((key, delta) ->
+              deltas.put(counter + "." + key, ((Number) delta).longValue()));
+        } else {
+          deltas.put(counter, ((Number) value).longValue());
+        }
+      });
+    }
+    return deltas;
+  }
+
+  private static ItemStatistics statisticsOf(String userId, Map<String, Long> counts) {
+    Map<String, Map<String, Long>> counters = new HashMap<>();
+    counts.forEach((path, count) -> {
+      int separator = path.indexOf('.');
+      if (separator > 0) {
+        counters.computeIfAbsent(path.substring(0, separator), counter -> new HashMap<>())
+            .put(path.substring(separator + 1), count);
+      }
+    });
+    return ItemStatistics.builder()
+        .userId(userId)
+        .totalItems(counts.getOrDefault(TOTAL_ITEMS, 0L))
+        .colors(counters.getOrDefault(COLORS, Map.of()))
+        .brands(counters.getOrDefault(BRANDS, Map.of()))
+        .sizes(counters.getOrDefault(SIZES, Map.of()))
+        .boxes(counters.getOrDefault(BOXES, Map.of()))
+        .careLabels(counters.getOrDefault(CARE_LABELS, Map.of()))
+        .updatedAt(Instant.now())
+        .build();
+  }
+
+  private static ItemStatistics decode(ItemStatistics statistics) {
+    return ItemStatistics.builder()
+        .userId(statistics.userId())
+        .totalItems(statistics.totalItems() == null ? 0L : statistics.totalItems())
+        .colors(decode(statistics.colors()))
+        .brands(decode(statistics.brands()))
+        .sizes(decode(statistics.sizes()))
+        .boxes(decode(statistics.boxes()))
+        .careLabels(decode(statistics.careLabels()))
+        .updatedAt(statistics.updatedAt())
+        .build();
+  }
+
+  private static Map<String, Long> decode(Map<String, Long> counts) {
+    Map<String, Long> decoded = new HashMap<>();
+    if (counts != null) {
+      // Counters of values no longer present drop to zero but are kept in the document
+      counts.forEach((key, count) -> {
+        if (count != null && count > 0) {
+          decoded.put(decodeKey(key), count);
+        }
+      });
+    }
+    return decoded;
+  }
+
+  static String encodeKey(String key) {
+    return key.replace("%", "%25").replace(".", "%2E").replace("$", "%24");
+  }
+
+  static String decodeKey(String key) {
+    return key.replace("%2E", ".").replace("%24", "$").replace("%25", "%");
+  }
+}
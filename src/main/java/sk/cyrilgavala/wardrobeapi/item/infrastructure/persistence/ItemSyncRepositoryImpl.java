@@ -0,0 +1,67 @@
+package sk.cyrilgavala.wardrobeapi.item.infrastructure.persistence;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemTombstone;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
+
+/**
+ * MongoDB implementation of {@link ItemSyncRepository}.
+ *
+ * <p>The change sequence of each user is a single counter document incremented with
+ * {@code findAndModify}, so concurrent writers never receive the same number.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ItemSyncRepositoryImpl implements ItemSyncRepository {
+
+  static final String SEQUENCES_COLLECTION = "item_sequences";
+
+  private static final String SEQ = "seq";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public long nextSeq(String userId) {
+    Document counter = mongoTemplate.findAndModify(
+        Query.query(Criteria.where("_id").is(userId)),
+        new Update().inc(SEQ, 1L),
+        FindAndModifyOptions.options().upsert(true).returnNew(true),
+        Document.class,
+        SEQUENCES_COLLECTION);
+    return seqOf(counter);
+  }
+
+  @Override
+  public long currentSeq(String userId) {
+    Document counter = mongoTemplate.findById(userId, Document.class, SEQUENCES_COLLECTION);
+    return seqOf(counter);
+  }
+
+  @Override
+  public void saveTombstone(ItemTombstone tombstone) {
+    mongoTemplate.save(tombstone);
+  }
+
+  @Override
+  public List<ItemTombstone> findTombstonesAfter(String userId, long seq) {
+    Query query = Query.query(Criteria.where("user_id").is(userId).and(SEQ).gt(seq))
+        .with(Sort.by(SEQ));
+    return mongoTemplate.find(query, ItemTombstone.class);
+  }
+
+  private static long seqOf(Document counter) {
+    if (counter == null || counter.get(SEQ) == null) {
+      return 0L;
+    }
+    return ((Number) counter.get(SEQ)).longValue();
+  }
+}
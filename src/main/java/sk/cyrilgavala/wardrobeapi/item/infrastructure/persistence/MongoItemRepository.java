@@ -1,7 +1,13 @@
 package sk.cyrilgavala.wardrobeapi.item.infrastructure.persistence;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
 
 /**
@@ -15,11 +21,129 @@ import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
 public interface MongoItemRepository extends MongoRepository<Item, String> {
 
   /**
-   * Finds all wardrobe items belonging to a specific user. Uses Spring Data's query derivation
-   * mechanism to automatically generate the MongoDB query from the method name.
+   * Finds all wardrobe items belonging to a specific user, excluding soft-deleted ones. Uses
+   * Spring Data's query derivation mechanism to automatically generate the MongoDB query from the
+   * method name.
    *
    * @param userId the unique identifier of the user who owns the items
    * @return a list of all items owned by the user, empty list if none found
    */
-  List<Item> findAllByUserId(String userId);
-}
\ No newline at end of file
+  List<Item> findAllByUserIdAndDeletedAtIsNull(String userId);
+
+  /**
+   * Finds the wardrobe items with the given IDs that belong to a user, excluding soft-deleted
+   * ones, with a single {@code $in} query on the primary key.
+   *
+   * @param ids    the item IDs
+   * @param userId the unique identifier of the user who owns the items
+   * @return the matching items, empty list if none found
+   */
+  List<Item> findAllByIdInAndUserIdAndDeletedAtIsNull(Collection<String> ids, String userId);
+
+  /**
+   * Finds all wardrobe items of a user stored in a specific box, excluding soft-deleted ones.
+   * Served by the compound {@code (user_id, box_number)} index.
+   *
+   * @param userId    the unique identifier of the user who owns the items
+   * @param boxNumber the number of the box
+   * @return a list of items in the box, empty list if none found
+   */
+  List<Item> findAllByUserIdAndBoxNumberAndDeletedAtIsNull(String userId, Integer boxNumber);
+
+  /**
+   * Finds all wardrobe items of a user changed after the given change sequence number, ordered
+   * by sequence and excluding soft-deleted ones. Served by the compound {@code (user_id, seq)}
+   * index.
+   *
+   * @param userId the unique identifier of the user who owns the items
+   * @param seq    the exclusive lower bound of the change sequence number
+   * @return a list of changed items, empty list if none found
+   */
+  List<Item> findAllByUserIdAndSeqGreaterThanAndDeletedAtIsNullOrderBySeqAsc(String userId,
+      Long seq);
+
+  /**
+   * Marks an item as deleted with a single update by primary key, unless it already is. The item
+   * is removed later by the background purge.
+   *
+   * @param id        the item ID
+   * @param deletedAt the time of deletion
+   * @return the number of items marked, 0 if the item doesn't exist or was already deleted
+   */
+  @Query("{'_id': ?0, 'deleted_at': null}")
+  @Update("{'$set': {'deleted_at': ?1}}")
+  long markDeletedById(String id, Instant deletedAt);
+
+  /**
+   * Finds soft-deleted items awaiting the purge. Only the ID and image ID are loaded. Served by
+   * the sparse {@code deleted_at} index.
+   *
+   * @param cutoff the inclusive upper bound of the deletion time
+   * @param limit  the maximum number of items to return
+   * @return a list of soft-deleted items, empty list if none found
+   */
+  @Query(value = "{'deleted_at': {'$lte': ?0}}",
+      fields = "{'_id': 1, 'user_id': 1, 'image_id': 1}")
+  List<Item> findDeletedBefore(Instant cutoff, Limit limit);
+
+  /**
+   * Counts soft-deleted items awaiting the purge. Served by the sparse {@code deleted_at} index.
+   *
+   * @return the number of soft-deleted items
+   */
+  @Query(value = "{'deleted_at': {'$exists': true}}", count = true)
+  long countDeleted();
+
+  /**
+   * Finds items whose current image has no palette yet, excluding soft-deleted ones. Only the ID,
+   * user ID and image ID are loaded. Served by the sparse {@code image_id} index; an empty
+   * palette marks an image without usable colors and is not picked up again.
+   *
+   * @param limit the maximum number of items to return
+   * @return a list of items awaiting palette extraction, empty list if none found
+   */
+  @Query(value = "{'image_id': {'$type': 'string'}, 'palette': null, 'deleted_at': null}",
+      fields = "{'_id': 1, 'user_id': 1, 'image_id': 1}")
+  List<Item> findWithoutPalette(Limit limit);
+
+  /**
+   * Counts items whose current image has no palette yet, excluding soft-deleted ones.
+   *
+   * @return the number of items awaiting palette extraction
+   */
+  @Query(value = "{'image_id': {'$type': 'string'}, 'palette': null, 'deleted_at': null}",
+      count = true)
+  long countWithoutPalette();
+
+  /**
+   * Finds the items of a user with a non-empty palette, excluding soft-deleted ones. Only the ID
+   * and palette are loaded.
+   *
+   * @param userId the unique identifier of the user who owns the items
+   * @return a list of items with their palettes, empty list if none found
+   */
+  @Query(value = "{'user_id': ?0, 'palette.0': {'$exists': true}, 'deleted_at': null}",
+      fields = "{'_id': 1, 'palette': 1}")
+  List<Item> findPalettesByUserId(String userId);
+
+  /**
+   * Finds the items of a user with an image, excluding soft-deleted ones. Only the ID and image ID
+   * are loaded.
+   *
+   * @param userId the unique identifier of the user who owns the items
+   * @return a list of items with their image IDs, empty list if none found
+   */
+  @Query(value = "{'user_id': ?0, 'image_id': {'$type': 'string'}, 'deleted_at': null}",
+      fields = "{'_id': 1, 'image_id': 1}")
+  List<Item> findImageIdsByUserId(String userId);
+
+  /**
+   * Streams all items with an image, soft-deleted ones included, ordered by image ID. Only the
+   * image ID is loaded. Served by the sparse {@code image_id} index.
+   *
+   * @return a stream of items holding an open cursor
+   */
+  @Query(value = "{'image_id': {'$type': 'string'}}", fields = "{'_id': 0, 'image_id': 1}",
+      sort = "{'image_id': 1}")
+  Stream<Item> streamAllWithImage();
+}
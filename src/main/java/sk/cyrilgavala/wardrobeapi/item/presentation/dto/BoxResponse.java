@@ -0,0 +1,14 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Response containing a storage box and the number of items in it")
+public record BoxResponse(
+    @Schema(description = "Box number", example = "7")
+    Integer boxNumber,
+
+    @Schema(description = "Number of items stored in the box", example = "12")
+    Long itemCount
+) {
+
+}
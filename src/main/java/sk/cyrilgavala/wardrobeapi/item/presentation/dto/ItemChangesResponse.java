@@ -0,0 +1,24 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+@Schema(description = "Response containing the item changes since a sync token")
+public record ItemChangesResponse(
+    @Schema(description = "Items created or updated since the token, or all items on full resync")
+    List<ItemResponse> items,
+
+    @Schema(description = "IDs of items deleted since the token",
+        example = "[\"507f1f77bcf86cd799439011\"]")
+    List<String> deletedItemIds,
+
+    @Schema(description = "Token to pass as 'since' in the next sync request",
+        example = "NDI6MTcwMTc5MDIwMDAwMA")
+    String token,
+
+    @Schema(description = "Whether the client must replace its local copy with 'items'",
+        example = "false")
+    boolean fullResync
+) {
+
+}
@@ -0,0 +1,22 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+
+@Schema(description = "Change event of a wardrobe item pushed over the item event stream")
+public record ItemEventResponse(
+    @Schema(description = "Type of the change", example = "UPDATED",
+        allowableValues = {"CREATED", "UPDATED", "DELETED"})
+    String type,
+
+    @Schema(description = "Unique identifier of the changed item", example = "507f1f77bcf86cd799439011")
+    String itemId,
+
+    @Schema(description = "Current state of the item, absent for deletions")
+    ItemResponse item,
+
+    @Schema(description = "Date when the change happened", example = "2023-12-05T15:30:00Z")
+    Instant occurredAt
+) {
+
+}
@@ -0,0 +1,25 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Metadata of the image of a wardrobe item, in the requested rendition")
+public record ItemImageResponse(
+    @Schema(description = "Item ID", example = "507f1f77bcf86cd799439011")
+    String itemId,
+
+    @Schema(description = "ID of the original image", example = "65f0c2a9e4b0a1b2c3d4e5f6")
+    String imageId,
+
+    @Schema(description = "MIME type of the rendition", example = "image/jpeg")
+    String contentType,
+
+    @Schema(description = "Size of the rendition in bytes", example = "18342")
+    long length,
+
+    @Schema(description = "Strong ETag of the rendition, as sent by the image endpoint; absent " +
+        "while the original is sent in place of a rendition that is not generated yet",
+        example = "\"65f0c2a9e4b0a1b2c3d4e5f6-thumb\"")
+    String eTag
+) {
+
+}
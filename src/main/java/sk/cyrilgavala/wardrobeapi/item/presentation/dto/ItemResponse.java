@@ -2,6 +2,7 @@ package sk.cyrilgavala.wardrobeapi.item.presentation.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import java.time.Instant;
+import java.util.List;
 
 @Schema(description = "Response containing wardrobe item details")
 public record ItemResponse(
@@ -41,6 +42,17 @@ public record ItemResponse(
     @Schema(description = "GridFS ID of the item image", example = "507f1f77bcf86cd799439013")
     String imageId,
 
+    @Schema(description = "Signed URL of the item image, relative to the API root, which can be "
+        + "fetched without Authorization header until its expires parameter; append "
+        + "&variant=thumb or &variant=medium for a rendition",
+        example = "/api/images/signed/507f1f77bcf86cd799439013?expires=1735689600&signature="
+            + "Qk3v9sY1c2xXh8m0bWc4Jz5TQ7yRr2uVh1k9sD3fP0A")
+    String imageUrl,
+
+    @Schema(description = "Dominant colors of the item image, the most dominant first; null "
+        + "until extracted in the background", example = "[\"#1f3a93\", \"#f2f2f2\"]")
+    List<String> palette,
+
     @Schema(description = "Box number where the item is stored", example = "1")
     Integer boxNumber,
 
@@ -64,6 +76,8 @@ public record ItemResponse(
       Boolean canBeDried,
       Boolean canBeBleached,
       String imageId,
+      String imageUrl,
+      List<String> palette,
       Integer boxNumber,
       Instant createdAt,
       Instant updatedAt) {
@@ -80,6 +94,8 @@ public record ItemResponse(
         canBeDried,
         canBeBleached,
         imageId,
+        imageUrl,
+        palette,
         boxNumber,
         createdAt,
         updatedAt
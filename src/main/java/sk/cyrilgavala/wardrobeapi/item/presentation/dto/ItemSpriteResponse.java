@@ -0,0 +1,26 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.Map;
+
+@Schema(description = "Layout of the sprite sheet holding the thumbnails of several items")
+public record ItemSpriteResponse(
+    @Schema(description = "Strong ETag of the sheet, as sent by the sprite image endpoint",
+        example = "\"sprite-9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08\"")
+    String eTag,
+
+    @Schema(description = "Width of the sheet in pixels", example = "600")
+    int width,
+
+    @Schema(description = "Height of the sheet in pixels", example = "400")
+    int height,
+
+    @Schema(description = "Side of a square tile in pixels", example = "200")
+    int tileSize,
+
+    @Schema(description = "Area of each item's thumbnail by item ID, in the requested order; "
+        + "items without a drawable image are missing")
+    Map<String, SpriteTileResponse> tiles
+) {
+
+}
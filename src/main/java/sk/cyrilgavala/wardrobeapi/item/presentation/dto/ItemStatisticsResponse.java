@@ -0,0 +1,32 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.util.Map;
+
+@Schema(description = "Response containing wardrobe statistics of the authenticated user")
+public record ItemStatisticsResponse(
+    @Schema(description = "Total number of items", example = "42")
+    Long totalItems,
+
+    @Schema(description = "Number of items per color", example = "{\"Blue\": 7, \"Black\": 5}")
+    Map<String, Long> colors,
+
+    @Schema(description = "Number of items per brand", example = "{\"Levi's\": 3}")
+    Map<String, Long> brands,
+
+    @Schema(description = "Number of items per size", example = "{\"M\": 12, \"L\": 4}")
+    Map<String, Long> sizes,
+
+    @Schema(description = "Number of items per box number", example = "{\"1\": 10, \"7\": 3}")
+    Map<String, Long> boxes,
+
+    @Schema(description = "Number of items per care-label combination",
+        example = "{\"wash:40|iron:yes|dry:no|bleach:no\": 6}")
+    Map<String, Long> careLabels,
+
+    @Schema(description = "Date when the statistics were last updated", example = "2023-12-05T15:30:00Z")
+    Instant updatedAt
+) {
+
+}
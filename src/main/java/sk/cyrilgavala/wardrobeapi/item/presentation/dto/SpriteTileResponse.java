@@ -0,0 +1,20 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Area of an item's thumbnail on the sprite sheet, in pixels")
+public record SpriteTileResponse(
+    @Schema(description = "Left edge", example = "200")
+    int x,
+
+    @Schema(description = "Top edge", example = "25")
+    int y,
+
+    @Schema(description = "Width", example = "200")
+    int width,
+
+    @Schema(description = "Height", example = "150")
+    int height
+) {
+
+}
@@ -4,6 +4,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 @Schema(description = "Request to update an existing wardrobe item")
@@ -45,7 +46,12 @@ public record UpdateItemRequest(
 
     @Schema(description = "Box number where the item is stored", example = "1")
     @Min(value = 1, message = "Box number must be at least 1")
-    Integer boxNumber
+    Integer boxNumber,
+
+    @Schema(description = "ID of an image from a completed resumable upload, instead of an "
+        + "image file", example = "507f1f77bcf86cd799439011")
+    @Pattern(regexp = "[0-9a-fA-F]{24}", message = "Image ID must be a valid upload image ID")
+    String imageId
 ) {
 
 }
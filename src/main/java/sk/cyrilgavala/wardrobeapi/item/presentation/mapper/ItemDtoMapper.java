@@ -1,17 +1,38 @@
 package sk.cyrilgavala.wardrobeapi.item.presentation.mapper;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageSprite;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.security.ImageUrlSigner;
 import sk.cyrilgavala.wardrobeapi.item.application.command.CreateItemCommand;
 import sk.cyrilgavala.wardrobeapi.item.application.command.UpdateItemCommand;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangeType;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.BoxSummary;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemChanges;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.BoxResponse;
 import sk.cyrilgavala.wardrobeapi.item.presentation.dto.CreateItemRequest;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemChangesResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemEventResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemImageResponse;
 import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemSpriteResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemStatisticsResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.SpriteTileResponse;
 import sk.cyrilgavala.wardrobeapi.item.presentation.dto.UpdateItemRequest;
 
 @Component
+@RequiredArgsConstructor
 public class ItemDtoMapper {
 
+  private final ImageUrlSigner imageUrlSigner;
+
   public CreateItemCommand toCreateCommand(CreateItemRequest request, String userId,
       String imageId) {
     return new CreateItemCommand(
@@ -67,6 +88,8 @@ public class ItemDtoMapper {
         item.canBeDried(),
         item.canBeBleached(),
         item.imageId(),
+        item.imageId() != null ? imageUrlSigner.sign(item.imageId()) : null,
+        item.palette(),
         item.boxNumber(),
         item.createdAt(),
         item.updatedAt()
@@ -82,4 +105,79 @@ public class ItemDtoMapper {
         .map(this::toResponse)
         .toList();
   }
+
+  public ItemStatisticsResponse toStatisticsResponse(ItemStatistics statistics) {
+    if (statistics == null) {
+      return null;
+    }
+
+    return new ItemStatisticsResponse(
+        statistics.totalItems(),
+        statistics.colors(),
+        statistics.brands(),
+        statistics.sizes(),
+        statistics.boxes(),
+        statistics.careLabels(),
+        statistics.updatedAt()
+    );
+  }
+
+  public ItemEventResponse toEventResponse(ItemChangedEvent event) {
+    if (event == null) {
+      return null;
+    }
+
+    return new ItemEventResponse(
+        event.type().name(),
+        event.itemId(),
+        event.type() == ItemChangeType.DELETED ? null : toResponse(event.item()),
+        event.occurredAt()
+    );
+  }
+
+  public ItemChangesResponse toChangesResponse(ItemChanges changes) {
+    if (changes == null) {
+      return null;
+    }
+
+    return new ItemChangesResponse(
+        toResponseList(changes.items()),
+        changes.deletedItemIds(),
+        changes.token().encode(),
+        changes.fullResync()
+    );
+  }
+
+  public ItemImageResponse toImageResponse(Item item, StoredImage image, String eTag) {
+    return new ItemImageResponse(
+        item.id(),
+        item.imageId(),
+        image.contentType(),
+        image.length(),
+        eTag
+    );
+  }
+
+  public ItemSpriteResponse toSpriteResponse(ImageSprite sprite, String eTag) {
+    Map<String, SpriteTileResponse> tiles = new LinkedHashMap<>();
+    sprite.tiles().forEach((itemId, tile) -> tiles.put(itemId,
+        new SpriteTileResponse(tile.x(), tile.y(), tile.width(), tile.height())));
+    return new ItemSpriteResponse(
+        eTag,
+        sprite.width(),
+        sprite.height(),
+        sprite.tileSize(),
+        tiles
+    );
+  }
+
+  public List<BoxResponse> toBoxResponseList(List<BoxSummary> boxes) {
+    if (boxes == null) {
+      return List.of();
+    }
+
+    return boxes.stream()
+        .map(box -> new BoxResponse(box.boxNumber(), box.itemCount()))
+        .toList();
+  }
 }
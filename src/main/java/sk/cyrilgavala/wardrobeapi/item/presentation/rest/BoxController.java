@@ -0,0 +1,86 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.rest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetBoxItemsQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetBoxesQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.query.handler.GetBoxItemsQueryHandler;
+import sk.cyrilgavala.wardrobeapi.item.application.query.handler.GetBoxesQueryHandler;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.BoxSummary;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.BoxResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.mapper.ItemDtoMapper;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/boxes")
+@RequiredArgsConstructor
+@Tag(name = "Boxes", description = "Storage box inventory endpoints")
+@SecurityRequirement(name = "bearerAuth")
+public class BoxController {
+
+  private final GetBoxesQueryHandler getBoxesQueryHandler;
+  private final GetBoxItemsQueryHandler getBoxItemsQueryHandler;
+  private final ItemDtoMapper itemMapper;
+
+  @GetMapping
+  @Operation(
+      summary = "Get storage boxes",
+      description = "Retrieves all box numbers used by the authenticated user together with the "
+          + "number of items stored in each box"
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Boxes retrieved successfully"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
+  })
+  public ResponseEntity<List<BoxResponse>> getBoxes() {
+    String userId = getCurrentUserId();
+    log.debug("Received get boxes request for user: {}", userId);
+
+    List<BoxSummary> boxes = getBoxesQueryHandler.handle(new GetBoxesQuery(userId));
+
+    return ResponseEntity.ok(itemMapper.toBoxResponseList(boxes));
+  }
+
+  @GetMapping("/{boxNumber}/items")
+  @Operation(
+      summary = "Get items in a box",
+      description = "Retrieves all wardrobe items of the authenticated user stored in the given box"
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Items retrieved successfully"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
+  })
+  public ResponseEntity<List<ItemResponse>> getBoxItems(
+      @Parameter(description = "Box number", required = true)
+      @PathVariable Integer boxNumber) {
+    String userId = getCurrentUserId();
+    log.debug("Received get box items request for box: {} by user: {}", boxNumber, userId);
+
+    List<Item> items = getBoxItemsQueryHandler.handle(new GetBoxItemsQuery(userId, boxNumber));
+
+    log.debug("Retrieved {} items in box {} for user: {}", items.size(), boxNumber, userId);
+    return ResponseEntity.ok(itemMapper.toResponseList(items));
+  }
+
+  private String getCurrentUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    assert authentication != null;
+    return authentication.getName();
+  }
+}
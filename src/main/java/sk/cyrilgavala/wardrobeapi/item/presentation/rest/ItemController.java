@@ -2,44 +2,86 @@ package sk.cyrilgavala.wardrobeapi.item.presentation.rest;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.validation.Valid;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.validation.BindException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageSpriteService;
 import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageUploadService;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageException;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageSprite;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
 import sk.cyrilgavala.wardrobeapi.item.application.command.CreateItemCommand;
 import sk.cyrilgavala.wardrobeapi.item.application.command.DeleteItemCommand;
+import sk.cyrilgavala.wardrobeapi.item.application.command.RebuildItemStatisticsCommand;
 import sk.cyrilgavala.wardrobeapi.item.application.command.UpdateItemCommand;
 import sk.cyrilgavala.wardrobeapi.item.application.command.handler.CreateItemCommandHandler;
 import sk.cyrilgavala.wardrobeapi.item.application.command.handler.DeleteItemCommandHandler;
+import sk.cyrilgavala.wardrobeapi.item.application.command.handler.RebuildItemStatisticsCommandHandler;
 import sk.cyrilgavala.wardrobeapi.item.application.command.handler.UpdateItemCommandHandler;
 import sk.cyrilgavala.wardrobeapi.item.application.query.GetAllItemsQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemChangesQuery;
 import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemStatisticsQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemsByColorQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemsQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetSimilarItemsQuery;
 import sk.cyrilgavala.wardrobeapi.item.application.query.handler.GetAllItemsQueryHandler;
+import sk.cyrilgavala.wardrobeapi.item.application.query.handler.GetItemChangesQueryHandler;
 import sk.cyrilgavala.wardrobeapi.item.application.query.handler.GetItemQueryHandler;
+import sk.cyrilgavala.wardrobeapi.item.application.query.handler.GetItemStatisticsQueryHandler;
+import sk.cyrilgavala.wardrobeapi.item.application.query.handler.GetItemsByColorQueryHandler;
+import sk.cyrilgavala.wardrobeapi.item.application.query.handler.GetItemsQueryHandler;
+import sk.cyrilgavala.wardrobeapi.item.application.query.handler.GetSimilarItemsQueryHandler;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemChanges;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
 import sk.cyrilgavala.wardrobeapi.item.presentation.dto.CreateItemRequest;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemChangesResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemImageResponse;
 import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemSpriteResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemStatisticsResponse;
 import sk.cyrilgavala.wardrobeapi.item.presentation.dto.UpdateItemRequest;
 import sk.cyrilgavala.wardrobeapi.item.presentation.mapper.ItemDtoMapper;
+import sk.cyrilgavala.wardrobeapi.item.presentation.rest.ItemFormReader.ItemForm;
+import sk.cyrilgavala.wardrobeapi.item.presentation.sse.ItemEventBroadcaster;
 
 @Slf4j
 @RestController
@@ -49,13 +91,32 @@ import sk.cyrilgavala.wardrobeapi.item.presentation.mapper.ItemDtoMapper;
 @SecurityRequirement(name = "bearerAuth")
 public class ItemController {
 
+  private static final int MAX_BATCH_ITEMS = 100;
+  // Beyond half of the 64 bits, hashes are no more alike than those of unrelated images
+  private static final int MAX_HASH_DISTANCE = 32;
+  private static final CacheControl SPRITE_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+  private static final CacheControl IMAGE_CACHE_CONTROL = CacheControl
+      .maxAge(Duration.ofDays(365))
+      .cachePrivate()
+      .immutable();
+
   private final CreateItemCommandHandler createItemCommandHandler;
   private final UpdateItemCommandHandler updateItemCommandHandler;
   private final DeleteItemCommandHandler deleteItemCommandHandler;
+  private final RebuildItemStatisticsCommandHandler rebuildItemStatisticsCommandHandler;
   private final GetItemQueryHandler getItemQueryHandler;
+  private final GetItemsQueryHandler getItemsQueryHandler;
   private final GetAllItemsQueryHandler getAllItemsQueryHandler;
+  private final GetItemsByColorQueryHandler getItemsByColorQueryHandler;
+  private final GetSimilarItemsQueryHandler getSimilarItemsQueryHandler;
+  private final GetItemStatisticsQueryHandler getItemStatisticsQueryHandler;
+  private final GetItemChangesQueryHandler getItemChangesQueryHandler;
   private final ItemDtoMapper itemMapper;
   private final ImageStorageService imageStorageService;
+  private final ImageSpriteService imageSpriteService;
+  private final ItemEventBroadcaster itemEventBroadcaster;
+  private final ImageUploadService imageUploadService;
+  private final ItemFormReader itemFormReader;
 
   @PostMapping(consumes = "multipart/form-data")
   @Operation(
@@ -63,27 +124,45 @@ public class ItemController {
       description =
           "Creates a new wardrobe item for the authenticated user. Supports optional image upload. "
               +
-              "Maximum image size: 20MB. Supported formats: JPEG, PNG, WebP."
+              "Maximum image size: 20MB. Supported formats: JPEG, PNG, WebP. " +
+              "The image is stored while the request body arrives. " +
+              "Alternatively, imageId attaches the image of a completed resumable upload.",
+      requestBody = @RequestBody(description = "Item fields, optionally with an image file "
+          + "in the part named image", content = @Content(
+          mediaType = MediaType.MULTIPART_FORM_DATA_VALUE,
+          schema = @Schema(implementation = CreateItemRequest.class)))
   )
   @ApiResponses(value = {
       @ApiResponse(responseCode = "201", description = "Item created successfully"),
       @ApiResponse(responseCode = "400", description = "Invalid request data or image validation failed"),
       @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
   })
-  public ResponseEntity<ItemResponse> createItem(
-      @Valid @ModelAttribute CreateItemRequest request,
-      @RequestPart(value = "image", required = false) MultipartFile image) {
+  public ResponseEntity<ItemResponse> createItem(HttpServletRequest servletRequest)
+      throws BindException {
     String userId = getCurrentUserId();
     log.debug("Received create item request for user: {}", userId);
 
-    // Store image if provided
-    String imageId = null;
-    if (image != null && !image.isEmpty()) {
-      imageId = imageStorageService.storeImage(image);
-    }
+    ItemForm<CreateItemRequest> form = itemFormReader.read(servletRequest,
+        CreateItemRequest.class);
+    CreateItemRequest request = form.request();
+
+    String imageId = form.imageId();
+    Item item;
+    try {
+      requireSingleImageSource(form.hasImage(), request.imageId() != null);
+      if (request.imageId() != null) {
+        imageUploadService.claim(userId, request.imageId());
+        imageId = request.imageId();
+      }
 
-    CreateItemCommand command = itemMapper.toCreateCommand(request, userId, imageId);
-    Item item = createItemCommandHandler.handle(command);
+      CreateItemCommand command = itemMapper.toCreateCommand(request, userId, imageId);
+      item = createItemCommandHandler.handle(command);
+    } catch (RuntimeException e) {
+      if (imageId != null) {
+        imageStorageService.deleteImage(imageId);
+      }
+      throw e;
+    }
     ItemResponse response = itemMapper.toResponse(item);
 
     log.debug("Item created successfully with id: {}", item.id());
@@ -94,8 +173,14 @@ public class ItemController {
   @Operation(
       summary = "Update an existing wardrobe item",
       description = "Updates an existing wardrobe item owned by the authenticated user. " +
-          "If a new image is provided, the old image will be automatically deleted and replaced. " +
-          "Maximum image size: 20MB. Supported formats: JPEG, PNG, WebP."
+          "If a new image is provided, it replaces the old image, which is deleted once the item " +
+          "was updated. Instead of an image file, imageId attaches the image of a completed " +
+          "resumable upload. " +
+          "Maximum image size: 20MB. Supported formats: JPEG, PNG, WebP.",
+      requestBody = @RequestBody(description = "Item fields, optionally with an image file "
+          + "in the part named image", content = @Content(
+          mediaType = MediaType.MULTIPART_FORM_DATA_VALUE,
+          schema = @Schema(implementation = UpdateItemRequest.class)))
   )
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Item updated successfully"),
@@ -107,27 +192,43 @@ public class ItemController {
   public ResponseEntity<ItemResponse> updateItem(
       @Parameter(description = "Item ID", required = true)
       @PathVariable String id,
-      @Valid @ModelAttribute UpdateItemRequest request,
-      @RequestPart(value = "image", required = false) MultipartFile image) {
+      HttpServletRequest servletRequest) throws BindException {
     String userId = getCurrentUserId();
     log.debug("Received update item request for id: {} by user: {}", id, userId);
 
-    // Get existing item to retrieve current imageId
+    // Get existing item to retrieve current imageId, before an image in the body gets stored
     GetItemQuery getQuery = new GetItemQuery(id, userId);
     Item existingItem = getItemQueryHandler.handle(getQuery);
 
-    String imageId = existingItem.imageId();
+    ItemForm<UpdateItemRequest> form = itemFormReader.read(servletRequest,
+        UpdateItemRequest.class);
+    UpdateItemRequest request = form.request();
+    String oldImageId = existingItem.imageId();
+    boolean replacesImage = form.hasImage() || request.imageId() != null;
 
-    // If new image provided, delete old one and store new one
-    if (image != null && !image.isEmpty()) {
+    // The new image is stored before the item points at it and the old one is released only
+    // after the item stopped pointing at it, so a failure at any step leaves no dangling reference
+    String imageId = form.imageId();
+    Item item;
+    try {
+      requireSingleImageSource(form.hasImage(), request.imageId() != null);
+      if (request.imageId() != null) {
+        imageUploadService.claim(userId, request.imageId());
+        imageId = request.imageId();
+      }
+
+      UpdateItemCommand command = itemMapper.toUpdateCommand(request, id, userId,
+          replacesImage ? imageId : oldImageId);
+      item = updateItemCommandHandler.handle(command);
+    } catch (RuntimeException e) {
       if (imageId != null) {
         imageStorageService.deleteImage(imageId);
       }
-      imageId = imageStorageService.storeImage(image);
+      throw e;
+    }
+    if (replacesImage && oldImageId != null) {
+      imageStorageService.deleteImage(oldImageId);
     }
-
-    UpdateItemCommand command = itemMapper.toUpdateCommand(request, id, userId, imageId);
-    Item item = updateItemCommandHandler.handle(command);
     ItemResponse response = itemMapper.toResponse(item);
 
     log.debug("Item updated successfully: {}", id);
@@ -182,23 +283,75 @@ public class ItemController {
     return ResponseEntity.ok(response);
   }
 
+  @GetMapping("/{id}/similar-images")
+  @Operation(
+      summary = "Get items with similar images",
+      description = "Retrieves the other items of the authenticated user whose image is a near "
+          + "duplicate of the item's image, e.g. the same garment added twice with another "
+          + "photo, the closest first. Similarity is the number of bits in which the 64-bit "
+          + "perceptual hashes of the images differ."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Items retrieved successfully"),
+      @ApiResponse(responseCode = "400", description = "Invalid distance or limit"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required"),
+      @ApiResponse(responseCode = "403", description = "Forbidden - item belongs to another user"),
+      @ApiResponse(responseCode = "404", description = "Item not found")
+  })
+  public ResponseEntity<List<ItemResponse>> getSimilarItems(
+      @Parameter(description = "Item ID", required = true)
+      @PathVariable String id,
+      @Parameter(description = "Maximum number of differing hash bits, at most "
+          + MAX_HASH_DISTANCE)
+      @RequestParam(defaultValue = "10") int maxDistance,
+      @Parameter(description = "Maximum number of items, at most " + MAX_BATCH_ITEMS)
+      @RequestParam(defaultValue = "20") int limit) {
+    String userId = getCurrentUserId();
+    log.debug("Received get similar items request for id: {} by user: {}", id, userId);
+    if (maxDistance < 0 || maxDistance > MAX_HASH_DISTANCE) {
+      throw new IllegalArgumentException("Maximum distance must be between 0 and "
+          + MAX_HASH_DISTANCE);
+    }
+    if (limit < 1 || limit > MAX_BATCH_ITEMS) {
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_BATCH_ITEMS);
+    }
+
+    List<Item> items = getSimilarItemsQueryHandler.handle(
+        new GetSimilarItemsQuery(id, userId, maxDistance, limit));
+
+    return ResponseEntity.ok(itemMapper.toResponseList(items));
+  }
+
   @GetMapping("/{id}/image")
   @Operation(
       summary = "Get item image",
       description = "Retrieves the image binary data for a specific wardrobe item. " +
-          "Returns the image with appropriate Content-Type header (image/jpeg, image/png, or image/webp)"
+          "Returns the image with appropriate Content-Type header (image/jpeg, image/png, or image/webp). " +
+          "Supports Range requests for partial and resumed downloads. " +
+          "Downscaled renditions are available via the variant parameter: thumb (200px) and " +
+          "medium (800px) on the longer side. Image content never changes for a given ID, so " +
+          "responses carry a strong ETag and may be cached indefinitely; If-None-Match is " +
+          "answered with 304 without reading the image."
   )
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Image retrieved successfully"),
+      @ApiResponse(responseCode = "206", description = "Requested byte range of the image"),
+      @ApiResponse(responseCode = "304", description = "Cached copy of the image is still valid"),
+      @ApiResponse(responseCode = "400", description = "Unknown image variant"),
+      @ApiResponse(responseCode = "416", description = "Requested range not satisfiable"),
       @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required"),
       @ApiResponse(responseCode = "403", description = "Forbidden - item belongs to another user"),
       @ApiResponse(responseCode = "404", description = "Item not found or item has no image")
   })
-  public ResponseEntity<byte[]> getItemImage(
+  public ResponseEntity<Resource> getItemImage(
       @Parameter(description = "Item ID", required = true)
-      @PathVariable String id) {
+      @PathVariable String id,
+      @Parameter(description = "Image rendition: original (default), thumb or medium")
+      @RequestParam(required = false) String variant,
+      WebRequest webRequest) {
     String userId = getCurrentUserId();
     log.debug("Received get image request for item id: {} by user: {}", id, userId);
+    ImageVariant imageVariant = ImageVariant.fromParameter(variant);
 
     // Verify item ownership
     GetItemQuery query = new GetItemQuery(id, userId);
@@ -208,29 +361,189 @@ public class ItemController {
       return ResponseEntity.notFound().build();
     }
 
-    byte[] imageData = imageStorageService.getImage(item.imageId());
-    String contentType = imageStorageService.getContentType(item.imageId());
+    // A new image always gets a new ID, so the tag is known before GridFS is touched
+    String eTag = imageVariant.eTag(item.imageId());
+    if (webRequest.checkNotModified(eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(eTag)
+          .cacheControl(IMAGE_CACHE_CONTROL)
+          .build();
+    }
+
+    // Streamed chunk by chunk; Range requests are answered with 206 by the resource converters
+    StoredImage image = imageStorageService.getImage(item.imageId(), imageVariant);
+    if (image.substitute()) {
+      // The variant is generated by a later request, which must reach the server again
+      return ResponseEntity.ok()
+          .header("Content-Type", image.contentType())
+          .cacheControl(CacheControl.noStore())
+          .body(image.content());
+    }
+
+    return ResponseEntity.ok()
+        .header("Content-Type", image.contentType())
+        .eTag(eTag)
+        .cacheControl(IMAGE_CACHE_CONTROL)
+        .body(image.content());
+  }
+
+  @GetMapping(value = "/images",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.MULTIPART_MIXED_VALUE})
+  @Operation(
+      summary = "Get images of several items",
+      description = "Resolves the images of up to " + MAX_BATCH_ITEMS + " items at once, e.g. the " +
+          "thumbnails of a page, with one item query and bulk image lookups instead of a " +
+          "request per item. Returns their metadata as JSON, or with Accept: multipart/mixed " +
+          "the images themselves: one part per item, named after the item ID and carrying the " +
+          "same ETag as the single image endpoint. Items that do not exist, belong to another " +
+          "user or have no image are left out; the order of the requested IDs is kept."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Images resolved successfully"),
+      @ApiResponse(responseCode = "400", description = "Too many item IDs or unknown image variant"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
+  })
+  public ResponseEntity<?> getItemImages(
+      @Parameter(description = "Item IDs, comma-separated or repeated", required = true)
+      @RequestParam List<String> ids,
+      @Parameter(description = "Image rendition: original (default), thumb or medium")
+      @RequestParam(required = false) String variant,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    String userId = getCurrentUserId();
+    log.debug("Received get images request for {} items by user: {}", ids.size(), userId);
+    ImageVariant imageVariant = ImageVariant.fromParameter(variant);
+
+    List<Item> items = itemsWithImage(ids, userId);
+    Map<String, StoredImage> images = imageStorageService.getImages(
+        items.stream().map(Item::imageId).toList(), imageVariant);
+    List<Item> withImage = items.stream()
+        .filter(item -> images.containsKey(item.imageId()))
+        .toList();
+
+    if (!acceptsMultipart(accept)) {
+      List<ItemImageResponse> response = withImage.stream()
+          .map(item -> itemMapper.toImageResponse(item, images.get(item.imageId()),
+              images.get(item.imageId()).substitute()
+                  ? null : quoted(imageVariant.eTag(item.imageId()))))
+          .toList();
+      return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(response);
+    }
+
+    // Written part by part, each image streamed from the store like a single download
+    MultiValueMap<String, HttpEntity<Resource>> parts = new LinkedMultiValueMap<>();
+    for (Item item : withImage) {
+      StoredImage image = images.get(item.imageId());
+      HttpHeaders headers = new HttpHeaders();
+      headers.setContentType(MediaType.parseMediaType(image.contentType()));
+      if (!image.substitute()) {
+        headers.setETag(quoted(imageVariant.eTag(item.imageId())));
+      }
+      parts.add(item.id(), new HttpEntity<>(image.content(), headers));
+    }
+    return ResponseEntity.ok().contentType(MediaType.MULTIPART_MIXED).body(parts);
+  }
+
+  @GetMapping("/sprite")
+  @Operation(
+      summary = "Get sprite layout of several items",
+      description = "Lays out the thumbnails of up to " + MAX_BATCH_ITEMS + " items, e.g. a " +
+          "page of the grid view, on one sprite sheet and returns where each item's thumbnail " +
+          "is. The sheet itself is served by /api/items/sprite/image for the same IDs, so a " +
+          "page needs one image request instead of one per item. Items that do not exist, " +
+          "belong to another user or have no decodable image get no tile."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Sprite laid out successfully"),
+      @ApiResponse(responseCode = "400", description = "Too many item IDs"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
+  })
+  public ResponseEntity<ItemSpriteResponse> getItemSprite(
+      @Parameter(description = "Item IDs in tile order, comma-separated or repeated",
+          required = true)
+      @RequestParam List<String> ids) {
+    String userId = getCurrentUserId();
+    log.debug("Received get sprite request for {} items by user: {}", ids.size(), userId);
+
+    ImageSprite sprite = imageSpriteService.getSprite(spriteImageIds(ids, userId));
+    return ResponseEntity.ok(itemMapper.toSpriteResponse(sprite, spriteETag(sprite.key())));
+  }
+
+  @GetMapping("/sprite/image")
+  @Operation(
+      summary = "Get sprite sheet of several items",
+      description = "Returns the JPEG sprite sheet laid out by /api/items/sprite for the same " +
+          "IDs. Sheets are rendered once and cached. Replacing an item's image changes the " +
+          "sheet, so responses have to be revalidated; If-None-Match is answered with 304 " +
+          "without rendering."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Sprite sheet rendered successfully"),
+      @ApiResponse(responseCode = "304", description = "Cached copy of the sheet is still valid"),
+      @ApiResponse(responseCode = "400", description = "Too many item IDs"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required"),
+      @ApiResponse(responseCode = "404", description = "None of the items has a drawable image")
+  })
+  public ResponseEntity<byte[]> getItemSpriteImage(
+      @Parameter(description = "Item IDs in tile order, comma-separated or repeated",
+          required = true)
+      @RequestParam List<String> ids,
+      WebRequest webRequest) {
+    String userId = getCurrentUserId();
+    log.debug("Received get sprite image request for {} items by user: {}", ids.size(), userId);
+
+    Map<String, String> imageIds = spriteImageIds(ids, userId);
+    String eTag = spriteETag(ImageSprite.keyOf(imageIds));
+    if (webRequest.checkNotModified(eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(eTag)
+          .cacheControl(SPRITE_CACHE_CONTROL)
+          .build();
+    }
 
+    ImageSprite sprite = imageSpriteService.getSprite(imageIds);
+    if (sprite.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
     return ResponseEntity.ok()
-        .header("Content-Type", contentType)
-        .body(imageData);
+        .contentType(MediaType.IMAGE_JPEG)
+        .eTag(eTag)
+        .cacheControl(SPRITE_CACHE_CONTROL)
+        .body(sprite.content());
   }
 
   @GetMapping
   @Operation(
       summary = "Get all wardrobe items",
-      description = "Retrieves all wardrobe items for the authenticated user"
+      description = "Retrieves all wardrobe items for the authenticated user. With nearColor, " +
+          "retrieves only the items whose image has a dominant color close to the given one, " +
+          "the closest first. Dominant colors are extracted from the images in the background, " +
+          "so items with a recently added image may be missing for a while."
   )
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Items retrieved successfully"),
+      @ApiResponse(responseCode = "400", description = "Invalid color or limit"),
       @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
   })
-  public ResponseEntity<List<ItemResponse>> getAllItems() {
+  public ResponseEntity<List<ItemResponse>> getAllItems(
+      @Parameter(description = "Hex color to search by, e.g. #1f3a93")
+      @RequestParam(required = false) String nearColor,
+      @Parameter(description = "Maximum number of items found by color, at most "
+          + MAX_BATCH_ITEMS)
+      @RequestParam(defaultValue = "20") int limit) {
     String userId = getCurrentUserId();
-    log.debug("Received get all items request for user: {}", userId);
 
-    GetAllItemsQuery query = new GetAllItemsQuery(userId);
-    List<Item> items = getAllItemsQueryHandler.handle(query);
+    List<Item> items;
+    if (nearColor != null) {
+      log.debug("Received get items near color {} request for user: {}", nearColor, userId);
+      if (limit < 1 || limit > MAX_BATCH_ITEMS) {
+        throw new IllegalArgumentException("Limit must be between 1 and " + MAX_BATCH_ITEMS);
+      }
+      items = getItemsByColorQueryHandler.handle(
+          new GetItemsByColorQuery(userId, nearColor, limit));
+    } else {
+      log.debug("Received get all items request for user: {}", userId);
+      items = getAllItemsQueryHandler.handle(new GetAllItemsQuery(userId));
+    }
 
     List<ItemResponse> response = itemMapper.toResponseList(items);
 
@@ -238,6 +551,137 @@ public class ItemController {
     return ResponseEntity.ok(response);
   }
 
+  @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @Operation(
+      summary = "Stream item changes",
+      description = "Opens a Server-Sent Events stream pushing created, updated and deleted events "
+          + "for items of the authenticated user. Clients that cannot keep up are disconnected "
+          + "and should reconnect."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Event stream opened"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
+  })
+  public SseEmitter streamItemEvents() {
+    String userId = getCurrentUserId();
+    log.debug("Received item event stream request for user: {}", userId);
+
+    return itemEventBroadcaster.subscribe(userId);
+  }
+
+  @GetMapping("/changes")
+  @Operation(
+      summary = "Get item changes since a sync token",
+      description = "Returns items created or updated and IDs of items deleted since the given "
+          + "token, together with a new token. Without a token, or with a token older than the "
+          + "deletion retention (30 days), all items are returned and fullResync is set."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Changes retrieved successfully"),
+      @ApiResponse(responseCode = "400", description = "Malformed sync token"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
+  })
+  public ResponseEntity<ItemChangesResponse> getItemChanges(
+      @Parameter(description = "Token returned by the previous sync")
+      @RequestParam(required = false) String since) {
+    String userId = getCurrentUserId();
+    log.debug("Received get item changes request for user: {}", userId);
+
+    GetItemChangesQuery query = new GetItemChangesQuery(userId, since);
+    ItemChanges changes = getItemChangesQueryHandler.handle(query);
+
+    return ResponseEntity.ok(itemMapper.toChangesResponse(changes));
+  }
+
+  @GetMapping("/stats")
+  @Operation(
+      summary = "Get wardrobe statistics",
+      description = "Retrieves item counts per color, brand, size, box and care-label combination "
+          + "for the authenticated user. Served from incrementally maintained counters."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
+  })
+  public ResponseEntity<ItemStatisticsResponse> getItemStatistics() {
+    String userId = getCurrentUserId();
+    log.debug("Received get item statistics request for user: {}", userId);
+
+    GetItemStatisticsQuery query = new GetItemStatisticsQuery(userId);
+    ItemStatistics statistics = getItemStatisticsQueryHandler.handle(query);
+
+    return ResponseEntity.ok(itemMapper.toStatisticsResponse(statistics));
+  }
+
+  @PostMapping("/stats/rebuild")
+  @Operation(
+      summary = "Rebuild wardrobe statistics",
+      description = "Recomputes the wardrobe statistics of the authenticated user from all items. "
+          + "Intended for repairing counters that drifted."
+  )
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Statistics rebuilt successfully"),
+      @ApiResponse(responseCode = "401", description = "Unauthorized - valid JWT token required")
+  })
+  public ResponseEntity<ItemStatisticsResponse> rebuildItemStatistics() {
+    String userId = getCurrentUserId();
+    log.debug("Received rebuild item statistics request for user: {}", userId);
+
+    RebuildItemStatisticsCommand command = new RebuildItemStatisticsCommand(userId);
+    ItemStatistics statistics = rebuildItemStatisticsCommandHandler.handle(command);
+
+    return ResponseEntity.ok(itemMapper.toStatisticsResponse(statistics));
+  }
+
+  private static void requireSingleImageSource(boolean uploadsImage, boolean uploadedImage) {
+    if (uploadsImage && uploadedImage) {
+      throw new InvalidImageException("Provide either an image file or an image ID, not both");
+    }
+  }
+
+  /**
+   * Finds the items of the user among the requested IDs that have an image, in requested order.
+   * Ownership is part of the item query, so foreign items are never seen here.
+   */
+  private List<Item> itemsWithImage(List<String> ids, String userId) {
+    if (ids.size() > MAX_BATCH_ITEMS) {
+      throw new IllegalArgumentException(
+          "At most " + MAX_BATCH_ITEMS + " items can be requested at once");
+    }
+    return getItemsQueryHandler.handle(new GetItemsQuery(ids, userId)).stream()
+        .filter(item -> item.imageId() != null)
+        .toList();
+  }
+
+  private Map<String, String> spriteImageIds(List<String> ids, String userId) {
+    Map<String, String> imageIds = new LinkedHashMap<>();
+    itemsWithImage(ids, userId).forEach(item -> imageIds.put(item.id(), item.imageId()));
+    return imageIds;
+  }
+
+  private static String spriteETag(String spriteKey) {
+    return quoted("sprite-" + spriteKey);
+  }
+
+  private static String quoted(String eTag) {
+    return "\"" + eTag + "\"";
+  }
+
+  /**
+   * Tells whether the client asked for {@code multipart/mixed} explicitly; wildcards get JSON.
+   */
+  private static boolean acceptsMultipart(String accept) {
+    if (accept == null || accept.isBlank()) {
+      return false;
+    }
+    try {
+      return MediaType.parseMediaTypes(accept).stream()
+          .anyMatch(MediaType.MULTIPART_MIXED::equalsTypeAndSubtype);
+    } catch (InvalidMediaTypeException e) {
+      return false;
+    }
+  }
+
   private String getCurrentUserId() {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     assert authentication != null;
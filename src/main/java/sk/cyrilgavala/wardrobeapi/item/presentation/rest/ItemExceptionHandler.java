@@ -6,8 +6,8 @@ import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindException;
 import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
@@ -17,7 +17,7 @@ import sk.cyrilgavala.wardrobeapi.shared.presentation.dto.ErrorResponse;
 import sk.cyrilgavala.wardrobeapi.shared.presentation.dto.ValidationErrorResponse;
 
 @Slf4j
-@RestControllerAdvice(assignableTypes = ItemController.class)
+@RestControllerAdvice(assignableTypes = {ItemController.class, BoxController.class})
 public class ItemExceptionHandler {
 
   @ExceptionHandler(ItemNotFoundException.class)
@@ -52,9 +52,9 @@ public class ItemExceptionHandler {
     return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
   }
 
-  @ExceptionHandler(MethodArgumentNotValidException.class)
+  @ExceptionHandler(BindException.class)
   public ResponseEntity<ValidationErrorResponse> handleValidationExceptions(
-      MethodArgumentNotValidException ex,
+      BindException ex,
       WebRequest request) {
     log.error("Validation failed: {}", ex.getMessage());
 
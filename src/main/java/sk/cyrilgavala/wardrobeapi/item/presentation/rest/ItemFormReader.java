@@ -0,0 +1,195 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.DataBinder;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.util.WebUtils;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.shared.presentation.multipart.MultipartStreamException;
+import sk.cyrilgavala.wardrobeapi.shared.presentation.multipart.MultipartStreamReader;
+import sk.cyrilgavala.wardrobeapi.shared.presentation.multipart.MultipartStreamReader.Part;
+
+/**
+ * Reads the multipart form of item requests into its request DTO and image.
+ *
+ * <p>Bodies the servlet container left alone are read part by part as they arrive: the image part
+ * is piped straight into the image store, so it is written once and never spooled to a temporary
+ * file, and its size limit applies while it streams in. Requests that a multipart resolver parsed
+ * already, with {@code spring.servlet.multipart.enabled}, are read from their parts and their
+ * buffered image is stored once the fields are valid. Either way the form carries a stored image.
+ */
+@Slf4j
+@Component
+public class ItemFormReader {
+
+  private static final String IMAGE_PART = "image";
+  private static final int MAX_PARTS = 32;
+  private static final int MAX_FIELD_LENGTH = 16 * 1024;
+
+  private final ImageStorageService imageStorageService;
+  private final SpringValidatorAdapter validator;
+  private final long maxRequestSize;
+
+  public ItemFormReader(
+      ImageStorageService imageStorageService,
+      Validator validator,
+      @Value("${spring.servlet.multipart.max-request-size:25MB}") DataSize maxRequestSize) {
+    this.imageStorageService = imageStorageService;
+    this.validator = new SpringValidatorAdapter(validator);
+    this.maxRequestSize = maxRequestSize.toBytes();
+  }
+
+  /**
+   * The fields and the image of an item form. The image is stored already and holds one
+   * reference, which the caller has to release if the item does not take it over.
+   *
+   * @param request the bound and validated fields
+   * @param imageId the ID of the stored image, or {@code null}
+   */
+  public record ItemForm<T>(T request, String imageId) {
+
+    public boolean hasImage() {
+      return imageId != null;
+    }
+  }
+
+  /**
+   * Reads and validates an item form.
+   *
+   * @param request the multipart request
+   * @param type    the request DTO to bind the fields to
+   * @return the form
+   * @throws BindException            if the fields are invalid
+   * @throws IllegalArgumentException if the body is not a well-formed multipart form
+   */
+  public <T> ItemForm<T> read(HttpServletRequest request, Class<T> type) throws BindException {
+    MultipartHttpServletRequest resolved =
+        WebUtils.getNativeRequest(request, MultipartHttpServletRequest.class);
+    if (resolved != null) {
+      MultiValueMap<String, String> fields = new LinkedMultiValueMap<>();
+      resolved.getParameterMap().forEach((name, values) -> fields.addAll(name, List.of(values)));
+      T bound = bind(type, fields);
+      MultipartFile image = resolved.getFile(IMAGE_PART);
+      return new ItemForm<>(bound,
+          image != null && !image.isEmpty() ? imageStorageService.storeImage(image) : null);
+    }
+
+    String imageId = null;
+    try {
+      MultiValueMap<String, String> fields = new LinkedMultiValueMap<>();
+      MultipartStreamReader reader = MultipartStreamReader.open(request.getContentType(),
+          request.getInputStream(), maxRequestSize);
+      int parts = 0;
+      for (Part part = reader.next(); part != null; part = reader.next()) {
+        if (++parts > MAX_PARTS) {
+          throw new IllegalArgumentException("Form must not have more than " + MAX_PARTS
+              + " parts");
+        }
+        if (!part.isFile()) {
+          fields.add(part.name(), readField(part));
+        } else if (IMAGE_PART.equals(part.name()) && imageId == null && !part.isEmpty()) {
+          imageId = imageStorageService.storeImage(part.fileName(), part.contentType(),
+              part.content());
+        }
+      }
+      return new ItemForm<>(bind(type, fields), imageId);
+    } catch (MultipartStreamException e) {
+      release(imageId);
+      throw new IllegalArgumentException(e.getMessage(), e);
+    } catch (IOException e) {
+      release(imageId);
+      log.error("Failed to read item form: {}", e.getMessage(), e);
+      throw new RuntimeException("Failed to read item form", e);
+    } catch (RuntimeException e) {
+      release(imageId);
+      // The image store reports a body that broke off inside the image as its own failure
+      MultipartStreamException cause = findCause(e);
+      if (cause != null) {
+        throw new IllegalArgumentException(cause.getMessage(), cause);
+      }
+      throw e;
+    } catch (BindException e) {
+      release(imageId);
+      throw e;
+    }
+  }
+
+  private static MultipartStreamException findCause(Throwable e) {
+    for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+      if (cause instanceof MultipartStreamException multipart) {
+        return multipart;
+      }
+    }
+    return null;
+  }
+
+  private void release(String imageId) {
+    if (imageId != null) {
+      imageStorageService.deleteImage(imageId);
+    }
+  }
+
+  private static String readField(Part part) throws IOException {
+    byte[] value = part.content().readNBytes(MAX_FIELD_LENGTH + 1);
+    if (value.length > MAX_FIELD_LENGTH) {
+      throw new IllegalArgumentException("Field " + part.name() + " must not exceed "
+          + MAX_FIELD_LENGTH + " bytes");
+    }
+    return new String(value, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Binds the fields through the record constructor like {@code @Valid @ModelAttribute} does.
+   */
+  private <T> T bind(Class<T> type, MultiValueMap<String, String> fields) throws BindException {
+    WebDataBinder binder = new WebDataBinder(null, StringUtils.uncapitalize(type.getSimpleName()));
+    binder.setTargetType(ResolvableType.forClass(type));
+    binder.setValidator(validator);
+    binder.construct(new FieldValues(fields));
+    if (binder.getTarget() != null) {
+      binder.validate();
+    }
+
+    BindingResult result = binder.getBindingResult();
+    if (result.hasErrors()) {
+      throw new BindException(result);
+    }
+    return type.cast(binder.getTarget());
+  }
+
+  private record FieldValues(MultiValueMap<String, String> fields)
+      implements DataBinder.ValueResolver {
+
+    @Override
+    public Object resolveValue(String name, Class<?> type) {
+      List<String> values = fields.get(name);
+      if (values == null) {
+        return null;
+      }
+      return values.size() == 1 ? values.getFirst() : values.toArray(String[]::new);
+    }
+
+    @Override
+    public Set<String> getNames() {
+      return fields.keySet();
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.sse;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.presentation.mapper.ItemDtoMapper;
+
+/**
+ * Fans out {@link ItemChangedEvent}s to the Server-Sent Events connections of the owning user.
+ *
+ * <p>Connections are asynchronous, so no request thread is held while they are open. Every
+ * connection owns a bounded buffer which is drained on a virtual thread. A consumer too slow to
+ * keep its buffer from overflowing is disconnected and expected to reconnect and resynchronize.
+ */
+@Slf4j
+@Component
+public class ItemEventBroadcaster {
+
+  private static final String HEARTBEAT = "heartbeat";
+
+  private final ItemDtoMapper itemMapper;
+  private final int bufferSize;
+  private final long timeoutMillis;
+  private final ExecutorService sendExecutor;
+  private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+  @Autowired
+  public ItemEventBroadcaster(
+      ItemDtoMapper itemMapper,
+      @Value("${app.items.events.buffer-size:64}") int bufferSize,
+      @Value("${app.items.events.timeout-minutes:30}") long timeoutMinutes) {
+    this(itemMapper, bufferSize, Duration.ofMinutes(timeoutMinutes).toMillis(),
+        Executors.newVirtualThreadPerTaskExecutor());
+  }
+
+  ItemEventBroadcaster(ItemDtoMapper itemMapper, int bufferSize, long timeoutMillis,
+      ExecutorService sendExecutor) {
+    this.itemMapper = itemMapper;
+    this.bufferSize = bufferSize;
+    this.timeoutMillis = timeoutMillis;
+    this.sendExecutor = sendExecutor;
+  }
+
+  /**
+   * Opens a new event stream for a user.
+   *
+   * @param userId the user whose item changes should be streamed
+   * @return the emitter to be returned from the controller
+   */
+  public SseEmitter subscribe(String userId) {
+    return register(userId, new SseEmitter(timeoutMillis));
+  }
+
+  SseEmitter register(String userId, SseEmitter emitter) {
+    Subscription subscription = new Subscription(userId, emitter,
+        new ArrayBlockingQueue<>(bufferSize));
+
+    emitter.onCompletion(() -> unsubscribe(subscription));
+    emitter.onTimeout(() -> unsubscribe(subscription));
+    emitter.onError(error -> unsubscribe(subscription));
+
+    subscriptions.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(subscription);
+    log.debug("Opened item event stream for user: {}", userId);
+    return emitter;
+  }
+
+  @EventListener
+  public void onItemChanged(ItemChangedEvent event) {
+    Set<Subscription> userSubscriptions = subscriptions.get(event.userId());
+    if (userSubscriptions == null) {
+      return;
+    }
+    userSubscriptions.forEach(subscription -> enqueue(subscription, event));
+  }
+
+  /**
+   * Periodically sends a comment to every open stream so idle connections are not closed by
+   * proxies and disconnected clients are detected.
+   */
+  @Scheduled(fixedDelayString = "${app.items.events.heartbeat-interval-ms:25000}")
+  public void sendHeartbeats() {
+    subscriptions.values().forEach(userSubscriptions ->
+        userSubscriptions.forEach(subscription -> enqueue(subscription, HEARTBEAT)));
+  }
+
+  int subscriberCount(String userId) {
+    Set<Subscription> userSubscriptions = subscriptions.get(userId);
+    return userSubscriptions == null ? 0 : userSubscriptions.size();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    subscriptions.values().forEach(userSubscriptions ->
+        userSubscriptions.forEach(subscription -> subscription.emitter().complete()));
+    subscriptions.clear();
+    sendExecutor.shutdownNow();
+  }
+
+  private void enqueue(Subscription subscription, Object message) {
+    if (!subscription.buffer().offer(message)) {
+      log.warn("Dropping slow item event consumer of user: {}", subscription.userId());
+      unsubscribe(subscription);
+      subscription.emitter().complete();
+      return;
+    }
+    if (subscription.draining().compareAndSet(false, true)) {
+      sendExecutor.execute(() -> drain(subscription));
+    }
+  }
+
+  private void drain(Subscription subscription) {
+    try {
+      Object message;
+      while ((message = subscription.buffer().poll()) != null) {
+        send(subscription.emitter(), message);
+      }
+    } catch (IOException | IllegalStateException e) {
+      log.debug("Item event stream of user {} closed: {}", subscription.userId(), e.getMessage());
+      unsubscribe(subscription);
+      subscription.buffer().clear();
+    } finally {
+      subscription.draining().set(false);
+    }
+    // An event may have been enqueued after the last poll but before the flag was reset
+    if (!subscription.buffer().isEmpty() && subscription.draining().compareAndSet(false, true)) {
+      sendExecutor.execute(() -> drain(subscription));
+    }
+  }
+
+  private void send(SseEmitter emitter, Object message) throws IOException {
+    if (message instanceof ItemChangedEvent event) {
+      emitter.send(SseEmitter.event()
+          .name(event.type().name().toLowerCase())
+          .data(itemMapper.toEventResponse(event), MediaType.APPLICATION_JSON));
+    } else {
+      emitter.send(SseEmitter.event().comment(message.toString()));
+    }
+  }
+
+  private void unsubscribe(Subscription subscription) {
+    subscriptions.computeIfPresent(subscription.userId(), (userId, userSubscriptions) -> {
+      userSubscriptions.remove(subscription);
+      return userSubscriptions.isEmpty() ? null : userSubscriptions;
+    });
+  }
+
+  private static final class Subscription {
+
+    private final String userId;
+    private final SseEmitter emitter;
+    private final Queue<Object> buffer;
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private Subscription(String userId, SseEmitter emitter, Queue<Object> buffer) {
+      this.userId = userId;
+      this.emitter = emitter;
+      this.buffer = buffer;
+    }
+
+    String userId() {
+      return userId;
+    }
+
+    SseEmitter emitter() {
+      return emitter;
+    }
+
+    Queue<Object> buffer() {
+      return buffer;
+    }
+
+    AtomicBoolean draining() {
+      return draining;
+    }
+  }
+}
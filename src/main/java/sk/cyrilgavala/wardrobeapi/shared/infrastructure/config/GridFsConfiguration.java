@@ -0,0 +1,36 @@
+package sk.cyrilgavala.wardrobeapi.shared.infrastructure.config;
+
+import com.mongodb.client.gridfs.GridFSBuckets;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+
+/**
+ * Replaces the auto-configured {@link GridFsTemplate} with one storing files in chunks of
+ * {@code app.image.gridfs.chunk-size-bytes}. Files keep the chunk size they were stored with, so
+ * changing it affects only images stored afterwards. Resumable uploads are chunked by their own
+ * setting.
+ */
+@Configuration
+public class GridFsConfiguration {
+
+  // Leaves room for the other fields of a chunk below the 16 MB document limit
+  private static final int MAX_CHUNK_SIZE_BYTES = 15 * 1024 * 1024;
+
+  @Bean
+  public GridFsTemplate gridFsTemplate(
+      MongoDatabaseFactory mongoDatabaseFactory,
+      MongoTemplate mongoTemplate,
+      @Value("${app.image.gridfs.chunk-size-bytes:261120}") int chunkSizeBytes) {
+    if (chunkSizeBytes < 1 || chunkSizeBytes > MAX_CHUNK_SIZE_BYTES) {
+      throw new IllegalArgumentException(
+          "GridFS chunk size must be between 1 and " + MAX_CHUNK_SIZE_BYTES + " bytes");
+    }
+    return new GridFsTemplate(mongoTemplate.getConverter(),
+        () -> GridFSBuckets.create(mongoDatabaseFactory.getMongoDatabase())
+            .withChunkSizeBytes(chunkSizeBytes));
+  }
+}
@@ -1,10 +1,12 @@
 package sk.cyrilgavala.wardrobeapi.shared.infrastructure.config;
 
+import jakarta.servlet.DispatcherType;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -27,6 +29,11 @@ import sk.cyrilgavala.wardrobeapi.auth.infrastructure.security.JwtAuthentication
 @Configuration
 public class SecurityConfiguration {
 
+  /**
+   * Path of signed image URLs, which carry their own authorization instead of a token.
+   */
+  public static final String SIGNED_IMAGE_PATH = "/api/images/signed";
+
   private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
   @Value("${app.cors.allowed-origins:http://localhost:3000,http://localhost:4200}")
@@ -63,10 +70,14 @@ public class SecurityConfiguration {
     http
         // Authorization rules
         .authorizeHttpRequests(authz -> authz
+            // Async dispatches (e.g. SSE streams) were authorized on the initial request
+            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
             // Public endpoints - no authentication required
             .requestMatchers("/api/auth/register", "/api/auth/login", "/api/auth/refresh")
             .permitAll()
             .requestMatchers("/actuator/health", "/actuator/info").permitAll()
+            // Signed image URLs carry their own authorization, checked by the endpoint
+            .requestMatchers(HttpMethod.GET, SIGNED_IMAGE_PATH + "/**").permitAll()
             .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
             // All other endpoints require authentication
             .anyRequest().authenticated())
@@ -0,0 +1,32 @@
+package sk.cyrilgavala.wardrobeapi.shared.presentation.multipart;
+
+import java.io.IOException;
+
+/**
+ * A multipart body that is malformed or larger than allowed. Thrown from reads of the part
+ * streams, hence checked.
+ */
+public class MultipartStreamException extends IOException {
+
+  public MultipartStreamException(String message) {
+    super(message);
+  }
+
+  public static MultipartStreamException notMultipart(String contentType) {
+    return new MultipartStreamException(
+        "Expected a multipart/form-data request with a boundary, got: " + contentType);
+  }
+
+  public static MultipartStreamException unexpectedEnd() {
+    return new MultipartStreamException("Multipart body ended before its closing boundary");
+  }
+
+  public static MultipartStreamException malformed(String detail) {
+    return new MultipartStreamException("Malformed multipart body: " + detail);
+  }
+
+  public static MultipartStreamException tooLarge(long maxSize) {
+    return new MultipartStreamException(
+        "Multipart body exceeds maximum allowed size of " + maxSize + " bytes");
+  }
+}
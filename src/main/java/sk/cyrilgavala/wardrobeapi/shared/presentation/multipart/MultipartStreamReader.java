@@ -0,0 +1,335 @@
+package sk.cyrilgavala.wardrobeapi.shared.presentation.multipart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+/**
+ * Reads a {@code multipart/form-data} body part by part while it arrives, so that a large part can
+ * be piped to where it belongs instead of being spooled to a temporary file first.
+ *
+ * <p>Each part is exposed as a stream that ends at the next boundary. Moving on to the next part
+ * skips whatever of the current one was not read, after which the streams of earlier parts read as
+ * ended. Content passes through a fixed buffer; only the bytes that might start a boundary are held
+ * back until more of the body arrived.
+ */
+public class MultipartStreamReader {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_BOUNDARY_LENGTH = 70;
+  private static final int MAX_HEADER_SIZE = 8 * 1024;
+  private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+  private final InputStream input;
+  private final byte[] delimiter;
+  private final long maxSize;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private long received;
+  private int contentLimit;
+  private boolean delimiterAhead;
+  private PartContent current;
+  private boolean finished;
+
+  /**
+   * A part of the body. Its content can only be read until the reader moves on to the next part.
+   */
+  public static final class Part {
+
+    private final String name;
+    private final String fileName;
+    private final String contentType;
+    private final PartContent content;
+
+    private Part(String name, String fileName, String contentType, PartContent content) {
+      this.name = name;
+      this.fileName = fileName;
+      this.contentType = contentType;
+      this.content = content;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    /**
+     * Returns the file name of a file part, which is empty when a form was sent without choosing
+     * a file.
+     */
+    public String fileName() {
+      return fileName;
+    }
+
+    public String contentType() {
+      return contentType;
+    }
+
+    public InputStream content() {
+      return content;
+    }
+
+    public boolean isFile() {
+      return fileName != null;
+    }
+
+    /**
+     * Tells whether the part has no content, without consuming any of it.
+     */
+    public boolean isEmpty() throws IOException {
+      return content.readable() < 0;
+    }
+  }
+
+  public MultipartStreamReader(InputStream input, String boundary, long maxSize) {
+    this.input = input;
+    this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+    this.maxSize = maxSize;
+    // The first boundary is not preceded by a line break, a virtual one lets it match as well
+    buffer[0] = '\r';
+    buffer[1] = '\n';
+    limit = 2;
+    current = new PartContent();
+  }
+
+  /**
+   * Opens a reader for a request body, taking the boundary from its content type.
+   *
+   * @param contentType the content type of the request
+   * @param input       the request body
+   * @param maxSize     the maximum number of bytes read from the body
+   * @return the reader, positioned before the first part
+   * @throws MultipartStreamException if the content type is not {@code multipart/form-data} with
+   *                                  a valid boundary
+   */
+  public static MultipartStreamReader open(String contentType, InputStream input, long maxSize)
+      throws MultipartStreamException {
+    String boundary = null;
+    try {
+      MediaType mediaType = MediaType.parseMediaType(contentType);
+      if (MediaType.MULTIPART_FORM_DATA.includes(mediaType)) {
+        boundary = unquote(mediaType.getParameter("boundary"));
+      }
+    } catch (InvalidMediaTypeException e) {
+      throw MultipartStreamException.notMultipart(contentType);
+    }
+    if (boundary == null || boundary.isEmpty() || boundary.length() > MAX_BOUNDARY_LENGTH) {
+      throw MultipartStreamException.notMultipart(contentType);
+    }
+    return new MultipartStreamReader(input, boundary, maxSize);
+  }
+
+  /**
+   * Skips the rest of the current part and reads the headers of the next one.
+   *
+   * @return the next part, or {@code null} after the last one
+   * @throws MultipartStreamException if the body is malformed, ends early or is too large
+   * @throws IOException              if reading the body fails
+   */
+  public Part next() throws IOException {
+    if (finished) {
+      return null;
+    }
+
+    current.drain();
+    position += delimiter.length;
+    require(2);
+    if (buffer[position] == '-' && buffer[position + 1] == '-') {
+      finished = true;
+      current = null;
+      return null;
+    }
+    // Transport padding may follow a boundary before its line break
+    while (buffer[position] == ' ' || buffer[position] == '\t') {
+      position++;
+      require(2);
+    }
+    if (buffer[position] != '\r' || buffer[position + 1] != '\n') {
+      throw MultipartStreamException.malformed("boundary is not followed by a line break");
+    }
+
+    Map<String, String> headers = readHeaders();
+    String disposition = headers.get("content-disposition");
+    if (disposition == null) {
+      throw MultipartStreamException.malformed("part without Content-Disposition header");
+    }
+    ContentDisposition contentDisposition;
+    try {
+      contentDisposition = ContentDisposition.parse(disposition);
+    } catch (IllegalArgumentException e) {
+      throw MultipartStreamException.malformed("invalid Content-Disposition: " + disposition);
+    }
+    if (contentDisposition.getName() == null) {
+      throw MultipartStreamException.malformed("part without a name");
+    }
+
+    current = new PartContent();
+    contentLimit = position;
+    delimiterAhead = false;
+    return new Part(contentDisposition.getName(), contentDisposition.getFilename(),
+        headers.get("content-type"), current);
+  }
+
+  /**
+   * Reads the header block of a part, starting at the line break that ends its boundary line.
+   */
+  private Map<String, String> readHeaders() throws IOException {
+    int end;
+    while ((end = indexOf(HEADER_END, position, limit)) < 0) {
+      if (limit - position > MAX_HEADER_SIZE) {
+        throw MultipartStreamException.malformed(
+            "part headers exceed " + MAX_HEADER_SIZE + " bytes");
+      }
+      if (!fill()) {
+        throw MultipartStreamException.unexpectedEnd();
+      }
+    }
+
+    Map<String, String> headers = new HashMap<>();
+    int start = position + 2;
+    if (end > position) {
+      for (String line : new String(buffer, start, end - start, StandardCharsets.UTF_8)
+          .split("\r\n")) {
+        int colon = line.indexOf(':');
+        if (colon > 0) {
+          headers.put(line.substring(0, colon).trim().toLowerCase(),
+              line.substring(colon + 1).trim());
+        }
+      }
+    }
+    position = end + HEADER_END.length;
+    return headers;
+  }
+
+  private void require(int length) throws IOException {
+    while (limit - position < length) {
+      if (!fill()) {
+        throw MultipartStreamException.unexpectedEnd();
+      }
+    }
+  }
+
+  /**
+   * Moves the unread bytes to the front of the buffer and appends what the body has available.
+   *
+   * @return {@code false} if the body has ended
+   */
+  private boolean fill() throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      contentLimit -= position;
+      position = 0;
+    }
+
+    int read = input.read(buffer, limit, buffer.length - limit);
+    if (read < 0) {
+      return false;
+    }
+    received += read;
+    if (received > maxSize) {
+      throw MultipartStreamException.tooLarge(maxSize);
+    }
+    limit += read;
+    return true;
+  }
+
+  private int indexOf(byte[] pattern, int from, int to) {
+    for (int index = from; index <= to - pattern.length; index++) {
+      if (matchesAt(pattern, index)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private boolean matchesAt(byte[] pattern, int index) {
+    for (int offset = 0; offset < pattern.length; offset++) {
+      if (buffer[index + offset] != pattern[offset]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String unquote(String value) {
+    if (value != null && value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+      return value.substring(1, value.length() - 1);
+    }
+    return value;
+  }
+
+  /**
+   * The content of the current part, up to the delimiter that follows it.
+   */
+  private final class PartContent extends InputStream {
+
+    @Override
+    public int read() throws IOException {
+      if (readable() < 0) {
+        return -1;
+      }
+      return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException {
+      Objects.checkFromIndexSize(offset, length, target.length);
+      if (length == 0) {
+        return 0;
+      }
+      int readable = readable();
+      if (readable < 0) {
+        return -1;
+      }
+      int count = Math.min(readable, length);
+      System.arraycopy(buffer, position, target, offset, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return this == current ? contentLimit - position : 0;
+    }
+
+    void drain() throws IOException {
+      int readable;
+      while ((readable = readable()) > 0) {
+        position += readable;
+      }
+    }
+
+    /**
+     * Returns how many bytes at the current position are known to be content, reading more of the
+     * body when none are, or {@code -1} once the delimiter is reached.
+     */
+    int readable() throws IOException {
+      if (this != current) {
+        return -1;
+      }
+      while (position == contentLimit) {
+        if (delimiterAhead) {
+          return -1;
+        }
+        int index = indexOf(delimiter, position, limit);
+        if (index >= 0) {
+          contentLimit = index;
+          delimiterAhead = true;
+        } else if (limit - position >= delimiter.length) {
+          // Only the tail that may be the beginning of a delimiter is held back
+          contentLimit = limit - delimiter.length + 1;
+        } else if (!fill()) {
+          throw MultipartStreamException.unexpectedEnd();
+        }
+      }
+      return contentLimit - position;
+    }
+  }
+}
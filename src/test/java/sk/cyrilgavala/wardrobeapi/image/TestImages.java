@@ -0,0 +1,106 @@
+package sk.cyrilgavala.wardrobeapi.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+
+/**
+ * Minimal uploads that pass the image header check: the header of a 16x16 pixel image followed by
+ * arbitrary content, which keeps otherwise identical test images apart. Only {@link #solidPng}
+ * produces images that can actually be decoded.
+ */
+public final class TestImages {
+
+  private static final byte[] JPEG_HEADER = {
+      (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xC0, 0x00, 0x11, 0x08, 0x00, 0x10, 0x00, 0x10
+  };
+
+  private static final byte[] PNG_HEADER = {
+      (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n',
+      0x00, 0x00, 0x00, 0x0D, 'I', 'H', 'D', 'R', 0x00, 0x00, 0x00, 0x10, 0x00, 0x00, 0x00, 0x10
+  };
+
+  private static final byte[] WEBP_HEADER = {
+      'R', 'I', 'F', 'F', 0x00, 0x00, 0x00, 0x00, 'W', 'E', 'B', 'P',
+      'V', 'P', '8', 'X', 0x0A, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x0F, 0x00, 0x00, 0x0F,
+      0x00, 0x00
+  };
+
+  private TestImages() {
+  }
+
+  public static byte[] jpeg(String content) {
+    return withHeader(JPEG_HEADER, content);
+  }
+
+  public static byte[] png(String content) {
+    return withHeader(PNG_HEADER, content);
+  }
+
+  public static byte[] webp(String content) {
+    return withHeader(WEBP_HEADER, content);
+  }
+
+  /**
+   * A real, decodable PNG of a single color.
+   */
+  public static byte[] solidPng(int width, int height, Color color) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setColor(color);
+      graphics.fillRect(0, 0, width, height);
+    } finally {
+      graphics.dispose();
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      ImageIO.write(image, "png", output);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Inserts an EXIF segment in front of the frame of an encoded JPEG, the way cameras do.
+   *
+   * @param jpeg        the encoded image
+   * @param order       the byte order of the TIFF structure
+   * @param orientation the orientation tag value
+   * @param extraBytes  bytes of filler after the tags, standing in for maker notes and thumbnails
+   */
+  public static byte[] withExif(byte[] jpeg, ByteOrder order, int orientation, int extraBytes) {
+    ByteBuffer tiff = ByteBuffer.allocate(26 + extraBytes).order(order);
+    tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+    tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+    tiff.putShort((short) 42).putInt(8);
+    // One directory entry: orientation, SHORT, one value, followed by no further directory
+    tiff.putShort((short) 1);
+    tiff.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation)
+        .putShort((short) 0);
+    tiff.putInt(0);
+
+    int length = 2 + 6 + tiff.capacity();
+    ByteBuffer image = ByteBuffer.allocate(jpeg.length + 2 + length);
+    image.put(jpeg, 0, 2);
+    image.put((byte) 0xFF).put((byte) 0xE1).putShort((short) length);
+    image.put(new byte[]{'E', 'x', 'i', 'f', 0, 0}).put(tiff.array());
+    image.put(jpeg, 2, jpeg.length - 2);
+    return image.array();
+  }
+
+  private static byte[] withHeader(byte[] header, String content) {
+    byte[] payload = content.getBytes();
+    byte[] image = Arrays.copyOf(header, header.length + payload.length);
+    System.arraycopy(payload, 0, image, header.length, payload.length);
+    return image;
+  }
+}
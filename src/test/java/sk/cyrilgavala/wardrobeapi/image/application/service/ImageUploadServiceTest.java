@@ -0,0 +1,200 @@
+package sk.cyrilgavala.wardrobeapi.image.application.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageUploadNotFoundException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageUploadException;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.domain.repository.ImageUploadRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ImageUploadServiceTest {
+
+  private static final String USER_ID = "user123";
+
+  @Mock
+  private ImageUploadRepository imageUploadRepository;
+
+  @Mock
+  private ImageStorageService imageStorageService;
+
+  private ImageUploadService service;
+
+  @BeforeEach
+  void setUp() {
+    service = new ImageUploadService(imageUploadRepository, imageStorageService, 32, 24);
+  }
+
+  @Test
+  void startsUploadSplitIntoChunksOfConfiguredSize() {
+    when(imageUploadRepository.save(any(ImageUpload.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+
+    ImageUpload upload = service.start(USER_ID, "image/jpeg", 70, "coat.jpg");
+
+    assertThat(upload.userId()).isEqualTo(USER_ID);
+    assertThat(upload.chunkSize()).isEqualTo(32);
+    assertThat(upload.chunkCount()).isEqualTo(3);
+    assertThat(upload.chunkLength(2)).isEqualTo(6);
+    assertThat(upload.missingChunks()).containsExactly(0, 1, 2);
+    assertThat(upload.expiresAt()).isAfter(Instant.now().plus(Duration.ofHours(23)));
+    verify(imageStorageService).validateUpload(upload);
+  }
+
+  @Test
+  void rejectsUploadThatIsNotAnAllowedImage() {
+    doThrow(InvalidImageException.invalidType("text/plain"))
+        .when(imageStorageService).validateUpload(any(ImageUpload.class));
+
+    assertThatThrownBy(() -> service.start(USER_ID, "text/plain", 70, null))
+        .isInstanceOf(InvalidImageException.class);
+
+    verify(imageUploadRepository, never()).save(any(ImageUpload.class));
+  }
+
+  @Test
+  void hidesUploadsOfOtherUsers() {
+    ImageUpload upload = upload(70);
+    when(imageUploadRepository.findById(upload.id())).thenReturn(Optional.of(upload));
+
+    assertThatThrownBy(() -> service.get("otherUser", upload.id()))
+        .isInstanceOf(ImageUploadNotFoundException.class);
+  }
+
+  @Test
+  void storesChunkAndRecordsItsArrival() {
+    ImageUpload upload = upload(70);
+    ImageUpload updated = upload.toBuilder().receivedChunks(Set.of(2)).build();
+    when(imageUploadRepository.findById(upload.id())).thenReturn(Optional.of(upload));
+    when(imageUploadRepository.markChunkReceived(upload.id(), 2)).thenReturn(Optional.of(updated));
+
+    ImageUpload result = service.writeChunk(USER_ID, upload.id(), 2,
+        new ByteArrayInputStream(new byte[6]));
+
+    assertThat(result.missingChunks()).containsExactly(0, 1);
+    verify(imageStorageService).writeUploadChunk(upload, 2, new byte[6]);
+  }
+
+  @Test
+  void rejectsChunkOfWrongLength() {
+    ImageUpload upload = upload(70);
+    when(imageUploadRepository.findById(upload.id())).thenReturn(Optional.of(upload));
+
+    assertThatThrownBy(() -> service.writeChunk(USER_ID, upload.id(), 0,
+        new ByteArrayInputStream(new byte[33])))
+        .isInstanceOf(InvalidImageUploadException.class)
+        .hasMessageContaining("exactly 32 bytes");
+    assertThatThrownBy(() -> service.writeChunk(USER_ID, upload.id(), 2,
+        new ByteArrayInputStream(new byte[5])))
+        .isInstanceOf(InvalidImageUploadException.class)
+        .hasMessageContaining("exactly 6 bytes");
+
+    verify(imageStorageService, never()).writeUploadChunk(any(), anyInt(), any());
+  }
+
+  @Test
+  void rejectsChunkOutOfRange() {
+    ImageUpload upload = upload(70);
+    when(imageUploadRepository.findById(upload.id())).thenReturn(Optional.of(upload));
+
+    assertThatThrownBy(() -> service.writeChunk(USER_ID, upload.id(), 3,
+        new ByteArrayInputStream(new byte[6])))
+        .isInstanceOf(InvalidImageUploadException.class)
+        .hasMessageContaining("chunks 0 to 2");
+  }
+
+  @Test
+  void rejectsChunkOfCompletedUpload() {
+    ImageUpload upload = upload(70).toBuilder().imageId("507f1f77bcf86cd799439011").build();
+    when(imageUploadRepository.findById(upload.id())).thenReturn(Optional.of(upload));
+
+    assertThatThrownBy(() -> service.writeChunk(USER_ID, upload.id(), 0,
+        new ByteArrayInputStream(new byte[32])))
+        .isInstanceOf(InvalidImageUploadException.class)
+        .hasMessageContaining("already completed");
+  }
+
+  @Test
+  void rejectsCompletionWhileChunksAreMissing() {
+    ImageUpload upload = upload(70).toBuilder().receivedChunks(Set.of(0, 2)).build();
+    when(imageUploadRepository.findById(upload.id())).thenReturn(Optional.of(upload));
+
+    assertThatThrownBy(() -> service.complete(USER_ID, upload.id()))
+        .isInstanceOf(InvalidImageUploadException.class)
+        .hasMessageContaining("[1]");
+
+    verify(imageStorageService, never()).completeUpload(any());
+  }
+
+  @Test
+  void completesUploadOnce() {
+    ImageUpload upload = upload(70).toBuilder().receivedChunks(Set.of(0, 1, 2)).build();
+    ImageUpload completed = upload.toBuilder().imageId(upload.id()).build();
+    when(imageUploadRepository.findById(upload.id()))
+        .thenReturn(Optional.of(upload))
+        .thenReturn(Optional.of(completed));
+    when(imageStorageService.completeUpload(upload)).thenReturn(upload.id());
+    when(imageUploadRepository.markCompleted(upload.id(), upload.id()))
+        .thenReturn(Optional.of(completed));
+
+    assertThat(service.complete(USER_ID, upload.id()).imageId()).isEqualTo(upload.id());
+    assertThat(service.complete(USER_ID, upload.id()).imageId()).isEqualTo(upload.id());
+
+    verify(imageStorageService).completeUpload(upload);
+  }
+
+  @Test
+  void discardsChunksOfAbortedUpload() {
+    ImageUpload upload = upload(70);
+    when(imageUploadRepository.findById(upload.id())).thenReturn(Optional.of(upload));
+    when(imageUploadRepository.remove(upload.id())).thenReturn(Optional.of(upload));
+
+    service.abort(USER_ID, upload.id());
+
+    verify(imageStorageService).discardUpload(upload);
+    verify(imageStorageService, never()).deleteImage(any());
+  }
+
+  @Test
+  void releasesImageOfAbortedCompletedUpload() {
+    ImageUpload upload = upload(70).toBuilder().imageId("507f1f77bcf86cd799439011").build();
+    when(imageUploadRepository.findById(upload.id())).thenReturn(Optional.of(upload));
+    when(imageUploadRepository.remove(upload.id())).thenReturn(Optional.of(upload));
+
+    service.abort(USER_ID, upload.id());
+
+    verify(imageStorageService).deleteImage("507f1f77bcf86cd799439011");
+    verify(imageStorageService, never()).discardUpload(any());
+  }
+
+  @Test
+  void rejectsClaimOfImageThatIsNotACompletedUploadOfUser() {
+    when(imageUploadRepository.claimCompleted(eq(USER_ID), any())).thenReturn(Optional.empty());
+
+    assertThatThrownBy(() -> service.claim(USER_ID, "507f1f77bcf86cd799439011"))
+        .isInstanceOf(InvalidImageUploadException.class);
+  }
+
+  private static ImageUpload upload(long length) {
+    return ImageUpload.start(USER_ID, "image/jpeg", length, null, 32, Duration.ofHours(24));
+  }
+}
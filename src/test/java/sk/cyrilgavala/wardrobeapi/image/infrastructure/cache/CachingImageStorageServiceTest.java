@@ -0,0 +1,214 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+
+@ExtendWith(MockitoExtension.class)
+class CachingImageStorageServiceTest {
+
+  @Mock
+  private ImageStorageService delegate;
+
+  private MeterRegistry meterRegistry;
+  private CachingImageStorageService service;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    service = new CachingImageStorageService(delegate, meterRegistry, 10, 6);
+  }
+
+  @Test
+  void servesRepeatedReadsFromOffHeapCopy() throws IOException {
+    when(delegate.getImage("image1", ImageVariant.THUMB)).thenReturn(image("image1", "abcd"));
+
+    StoredImage first = service.getImage("image1", ImageVariant.THUMB);
+    StoredImage second = service.getImage("image1", ImageVariant.THUMB);
+
+    verify(delegate, times(1)).getImage("image1", ImageVariant.THUMB);
+    assertThat(second).isSameAs(first);
+    assertThat(second.content().getDescription()).startsWith("Cached image");
+    try (InputStream content = second.content().getInputStream()) {
+      assertThat(content.readAllBytes()).isEqualTo("abcd".getBytes());
+    }
+    try (InputStream content = second.content().getInputStream()) {
+      assertThat(content.skip(2)).isEqualTo(2);
+      assertThat(content.readAllBytes()).isEqualTo("cd".getBytes());
+    }
+  }
+
+  @Test
+  void exportsHitRatioAndResidentBytes() {
+    when(delegate.getImage("image1", ImageVariant.ORIGINAL)).thenReturn(image("image1", "abcd"));
+
+    service.getImage("image1");
+    service.getImage("image1");
+    service.getImage("image1");
+
+    assertThat(meterRegistry.get("images.cache.requests").tag("result", "hit").counter().count())
+        .isEqualTo(2);
+    assertThat(meterRegistry.get("images.cache.requests").tag("result", "miss").counter().count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("images.cache.hit.ratio").gauge().value())
+        .isCloseTo(2 / 3.0, offset(0.001));
+    assertThat(meterRegistry.get("images.cache.resident.bytes").gauge().value()).isEqualTo(4);
+  }
+
+  @Test
+  void doesNotCacheImagesAboveEntryLimit() {
+    StoredImage large = image("image1", "abcdefg");
+    when(delegate.getImage("image1", ImageVariant.ORIGINAL)).thenReturn(large);
+
+    StoredImage first = service.getImage("image1");
+    service.getImage("image1");
+
+    assertThat(first).isSameAs(large);
+    verify(delegate, times(2)).getImage("image1", ImageVariant.ORIGINAL);
+  }
+
+  @Test
+  void leavesLocalFilesToOperatingSystemCache(@TempDir Path directory) throws IOException {
+    Path file = Files.write(directory.resolve("original.png"), "ab".getBytes());
+    StoredImage local = new StoredImage("image1", "image/png", 2, Instant.now(), null,
+        new FileSystemResource(file));
+    when(delegate.getImage("image1", ImageVariant.ORIGINAL)).thenReturn(local);
+
+    StoredImage first = service.getImage("image1");
+    service.getImage("image1");
+
+    assertThat(first).isSameAs(local);
+    verify(delegate, times(2)).getImage("image1", ImageVariant.ORIGINAL);
+  }
+
+  @Test
+  void doesNotCacheOriginalServedInPlaceOfVariant() {
+    StoredImage substitute = image("image1", "ab").asSubstitute();
+    when(delegate.getImage("image1", ImageVariant.THUMB)).thenReturn(substitute);
+
+    StoredImage first = service.getImage("image1", ImageVariant.THUMB);
+    service.getImage("image1", ImageVariant.THUMB);
+
+    assertThat(first).isSameAs(substitute);
+    verify(delegate, times(2)).getImage("image1", ImageVariant.THUMB);
+  }
+
+  @Test
+  void leavesMappedFilesToOperatingSystemCache() {
+    StoredImage mapped = new StoredImage("image1", "image/png", 2, Instant.now(), null,
+        new ByteBufferResource(ByteBuffer.wrap("ab".getBytes()), 0, "Disk cached image", true));
+    when(delegate.getImage("image1", ImageVariant.ORIGINAL)).thenReturn(mapped);
+
+    StoredImage first = service.getImage("image1");
+    service.getImage("image1");
+
+    assertThat(first).isSameAs(mapped);
+    verify(delegate, times(2)).getImage("image1", ImageVariant.ORIGINAL);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedImagesToStayWithinBudget() {
+    when(delegate.getImage("image1", ImageVariant.ORIGINAL)).thenReturn(image("image1", "aaaa"));
+    when(delegate.getImage("image2", ImageVariant.ORIGINAL)).thenReturn(image("image2", "bbbb"));
+    when(delegate.getImage("image3", ImageVariant.ORIGINAL)).thenReturn(image("image3", "cccc"));
+
+    service.getImage("image1");
+    service.getImage("image2");
+    service.getImage("image1");
+    service.getImage("image3");
+    service.getImage("image1");
+    service.getImage("image2");
+
+    verify(delegate, times(1)).getImage("image1", ImageVariant.ORIGINAL);
+    verify(delegate, times(2)).getImage("image2", ImageVariant.ORIGINAL);
+    assertThat(meterRegistry.get("images.cache.resident.bytes").gauge().value()).isEqualTo(8);
+  }
+
+  @Test
+  void invalidatesAllVariantsOnDelete() {
+    when(delegate.getImage("image1", ImageVariant.ORIGINAL)).thenReturn(image("image1", "aa"));
+    when(delegate.getImage("image1", ImageVariant.THUMB)).thenReturn(image("image1t", "a"));
+
+    service.getImage("image1");
+    service.getImage("image1", ImageVariant.THUMB);
+    service.deleteImage("image1");
+    service.getImage("image1");
+
+    verify(delegate).deleteImage("image1");
+    verify(delegate, times(2)).getImage("image1", ImageVariant.ORIGINAL);
+    assertThat(meterRegistry.get("images.cache.entries").gauge().value()).isEqualTo(1);
+  }
+
+  @Test
+  void invalidatesImagesDeletedInBulk() {
+    when(delegate.getImage("image1", ImageVariant.ORIGINAL)).thenReturn(image("image1", "aa"));
+    when(delegate.deleteImages(List.of("image1", "image2"))).thenReturn(2L);
+
+    service.getImage("image1");
+    long deleted = service.deleteImages(List.of("image1", "image2"));
+
+    assertThat(deleted).isEqualTo(2);
+    assertThat(meterRegistry.get("images.cache.resident.bytes").gauge().value()).isZero();
+  }
+
+  @Test
+  void servesCachedImagesOfBatchAndLooksUpOnlyMissingOnesAtOnce() {
+    StoredImage missing = image("image2t", "b");
+    when(delegate.getImage("image1", ImageVariant.THUMB)).thenReturn(image("image1t", "a"));
+    when(delegate.getImages(List.of("image2", "image3"), ImageVariant.THUMB))
+        .thenReturn(Map.of("image2", missing));
+
+    StoredImage cached = service.getImage("image1", ImageVariant.THUMB);
+    Map<String, StoredImage> result = service.getImages(
+        List.of("image1", "image2", "image3", "image2"), ImageVariant.THUMB);
+
+    assertThat(result).containsOnly(entry("image1", cached), entry("image2", missing));
+    assertThat(meterRegistry.get("images.cache.requests").tag("result", "hit").counter().count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("images.cache.requests").tag("result", "miss").counter().count())
+        .isEqualTo(3);
+  }
+
+  @Test
+  void doesNotFillCacheFromBatchLookups() {
+    when(delegate.getImages(List.of("image1"), ImageVariant.ORIGINAL))
+        .thenReturn(Map.of("image1", image("image1", "aa")));
+
+    service.getImages(List.of("image1"), ImageVariant.ORIGINAL);
+
+    assertThat(meterRegistry.get("images.cache.entries").gauge().value()).isZero();
+    verify(delegate, never()).getImage(any(), any());
+  }
+
+  private static StoredImage image(String id, String content) {
+    return new StoredImage(id, "image/png", content.length(), Instant.now(), null,
+        new ByteArrayResource(content.getBytes()));
+  }
+}
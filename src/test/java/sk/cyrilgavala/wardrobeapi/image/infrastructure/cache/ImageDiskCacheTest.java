@@ -0,0 +1,165 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+
+class ImageDiskCacheTest {
+
+  private static final String IMAGE1 = "65f0c2a9e4b0a1b2c3d4e5f1";
+  private static final String IMAGE2 = "65f0c2a9e4b0a1b2c3d4e5f2";
+  private static final String IMAGE3 = "65f0c2a9e4b0a1b2c3d4e5f3";
+
+  @TempDir
+  private Path directory;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private ImageDiskCache cache;
+
+  @AfterEach
+  void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  @Test
+  void servesImageWrittenOnMissFromMappedFile() throws IOException {
+    cache = start(10, 10);
+    Instant uploadDate = Instant.parse("2025-01-01T10:00:00Z");
+    StoredImage image = new StoredImage("variant1", "image/png", 4, uploadDate, "abc123",
+        new ByteArrayResource("abcd".getBytes()));
+
+    assertThat(cache.get(IMAGE1, ImageVariant.THUMB)).isEmpty();
+    StoredImage filled = cache.put(IMAGE1, ImageVariant.THUMB, image).orElseThrow();
+    StoredImage cached = cache.get(IMAGE1, ImageVariant.THUMB).orElseThrow();
+
+    assertThat(((ByteBufferResource) filled.content()).isMapped()).isTrue();
+    assertThat(filled.content().isFile()).isFalse();
+    assertThat(cached).usingRecursiveComparison().ignoringFields("content")
+        .isEqualTo(image);
+    assertThat(((ByteBufferResource) cached.content()).isMapped()).isTrue();
+    assertThat(cached.content().contentLength()).isEqualTo(4);
+    try (InputStream content = cached.content().getInputStream()) {
+      assertThat(content.readAllBytes()).isEqualTo("abcd".getBytes());
+    }
+    assertThat(meterRegistry.get("images.disk-cache.requests").tag("result", "hit").counter()
+        .count()).isEqualTo(1);
+    assertThat(meterRegistry.get("images.disk-cache.resident.bytes").gauge().value())
+        .isEqualTo(4);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedImagesAndDeletesTheirFiles() {
+    cache = start(10, 10);
+    cache.put(IMAGE1, ImageVariant.ORIGINAL, image(IMAGE1, "aaaa"));
+    cache.put(IMAGE2, ImageVariant.ORIGINAL, image(IMAGE2, "bbbb"));
+    cache.get(IMAGE1, ImageVariant.ORIGINAL);
+
+    cache.put(IMAGE3, ImageVariant.ORIGINAL, image(IMAGE3, "cccc"));
+
+    assertThat(cache.get(IMAGE2, ImageVariant.ORIGINAL)).isEmpty();
+    assertThat(directory.resolve(IMAGE2 + "-original.img")).doesNotExist();
+    assertThat(cache.get(IMAGE1, ImageVariant.ORIGINAL)).isPresent();
+    assertThat(cache.get(IMAGE3, ImageVariant.ORIGINAL)).isPresent();
+    assertThat(cache.residentBytes()).isEqualTo(8);
+  }
+
+  @Test
+  void restoresAccessOrderFromLogOnRestart() {
+    cache = start(10, 10);
+    cache.put(IMAGE1, ImageVariant.ORIGINAL, image(IMAGE1, "aaaa"));
+    cache.put(IMAGE2, ImageVariant.ORIGINAL, image(IMAGE2, "bbbb"));
+    cache.get(IMAGE1, ImageVariant.ORIGINAL);
+    cache.close();
+
+    cache = start(10, 10);
+    assertThat(cache.size()).isEqualTo(2);
+    cache.put(IMAGE3, ImageVariant.ORIGINAL, image(IMAGE3, "cccc"));
+
+    assertThat(cache.get(IMAGE1, ImageVariant.ORIGINAL)).isPresent();
+    assertThat(cache.get(IMAGE2, ImageVariant.ORIGINAL)).isEmpty();
+  }
+
+  @Test
+  void dropsIncompleteAndLeftoverFilesOnRestart() throws IOException {
+    cache = start(10, 10);
+    cache.put(IMAGE1, ImageVariant.ORIGINAL, image(IMAGE1, "aaaa"));
+    cache.put(IMAGE2, ImageVariant.ORIGINAL, image(IMAGE2, "bbbb"));
+    cache.close();
+    Path truncated = directory.resolve(IMAGE2 + "-original.img");
+    byte[] content = Files.readAllBytes(truncated);
+    Files.write(truncated, Arrays.copyOf(content, content.length - 1));
+    Path leftover = Files.writeString(directory.resolve(IMAGE3 + "-original-1.tmp"), "cc");
+
+    cache = start(10, 10);
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.get(IMAGE2, ImageVariant.ORIGINAL)).isEmpty();
+    assertThat(truncated).doesNotExist();
+    assertThat(leftover).doesNotExist();
+  }
+
+  @Test
+  void evictsAllVariantsOfImages() {
+    cache = start(100, 100);
+    cache.put(IMAGE1, ImageVariant.ORIGINAL, image(IMAGE1, "aaaa"));
+    cache.put(IMAGE1, ImageVariant.THUMB, image("thumb1", "aa"));
+    cache.put(IMAGE2, ImageVariant.THUMB, image("thumb2", "bb"));
+
+    cache.evict(List.of(IMAGE1));
+
+    assertThat(cache.get(IMAGE1, ImageVariant.ORIGINAL)).isEmpty();
+    assertThat(cache.get(IMAGE1, ImageVariant.THUMB)).isEmpty();
+    assertThat(cache.get(IMAGE2, ImageVariant.THUMB)).isPresent();
+    assertThat(directory.resolve(IMAGE1 + "-thumb.img")).doesNotExist();
+  }
+
+  @Test
+  void leavesOutLargeImagesForeignIdsAndEverythingWhenDisabled() {
+    cache = start(10, 3);
+    assertThat(cache.put(IMAGE1, ImageVariant.ORIGINAL, image(IMAGE1, "aaaa"))).isEmpty();
+    assertThat(cache.put("../image", ImageVariant.ORIGINAL, image("../image", "aa"))).isEmpty();
+    assertThat(cache.get(null, ImageVariant.ORIGINAL)).isEmpty();
+
+    ImageDiskCache disabled = new ImageDiskCache(meterRegistry, false, directory.resolve("off"),
+        10, 10);
+    Optional<StoredImage> notCached = disabled.put(IMAGE1, ImageVariant.ORIGINAL,
+        image(IMAGE1, "aa"));
+
+    assertThat(notCached).isEmpty();
+    assertThat(directory.resolve("off")).doesNotExist();
+    assertThat(cache.size()).isZero();
+  }
+
+  private ImageDiskCache start(long maxBytes, long maxEntryBytes) {
+    ImageDiskCache started = new ImageDiskCache(meterRegistry, true, directory, maxBytes,
+        maxEntryBytes);
+    try {
+      started.initialize();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return started;
+  }
+
+  private static StoredImage image(String id, String content) {
+    return new StoredImage(id, "image/png", content.length(), Instant.now(), null,
+        new ByteArrayResource(content.getBytes()));
+  }
+}
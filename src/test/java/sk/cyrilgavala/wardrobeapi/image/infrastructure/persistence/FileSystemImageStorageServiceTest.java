@@ -0,0 +1,472 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.jpeg;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.png;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.solidPng;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.withExif;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.web.MockMultipartFile;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageNotFoundException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageUploadException;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageHeaderReader;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageOptimizer;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImagePerceptualHasher;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageResizer;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageResizer.ResizedImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageValidator;
+
+@ExtendWith(MockitoExtension.class)
+class FileSystemImageStorageServiceTest {
+
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  @Mock
+  private ImageResizer imageResizer;
+
+  @TempDir
+  private Path root;
+
+  private FileSystemImageStorageService service;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    service = new FileSystemImageStorageService(mongoTemplate, imageResizer,
+        new ImageValidator(new ImageHeaderReader()),
+        new ImageOptimizer(new ImageHeaderReader(), true, 0.85f, 2), new ImagePerceptualHasher(),
+        root, 24);
+    when(mongoTemplate.indexOps("images")).thenReturn(mock(IndexOperations.class));
+    service.initialize();
+  }
+
+  @Test
+  void storesImageInShardedDirectoryBeforePublishingReference() throws IOException {
+    String imageId = service.storeImage(upload("shirt.jpg", "image/jpeg", jpeg("shirt")));
+
+    Path file = root.resolve(imageId.substring(22, 24)).resolve(imageId.substring(20, 22))
+        .resolve(imageId).resolve("original.jpg");
+    assertThat(file).hasBinaryContent(jpeg("shirt"));
+    assertThat(root.resolve("tmp")).isEmptyDirectory();
+
+    InOrder order = inOrder(mongoTemplate);
+    order.verify(mongoTemplate).insert(any(Document.class), eq("images"));
+    order.verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq("images"));
+  }
+
+  @Test
+  void reusesStoredImageWithIdenticalContent() {
+    ObjectId existingId = new ObjectId();
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("images")))
+        .thenReturn(new Document("_id", existingId));
+
+    String imageId = service.storeImage(upload("copy.jpg", "image/jpeg", jpeg("shirt")));
+
+    assertThat(imageId).isEqualTo(existingId.toHexString());
+    verify(mongoTemplate, never()).insert(any(Document.class), any(String.class));
+    assertThat(root.resolve("tmp")).isEmptyDirectory();
+  }
+
+  @Test
+  void storesStreamedImageWithSingleWrite() throws IOException {
+    String imageId = service.storeImage("shirt.png", "image/png",
+        new ByteArrayInputStream(png("shirt")));
+
+    Path file = root.resolve(imageId.substring(22, 24)).resolve(imageId.substring(20, 22))
+        .resolve(imageId).resolve("original.png");
+    assertThat(file).hasBinaryContent(png("shirt"));
+    assertThat(root.resolve("tmp")).isEmptyDirectory();
+    verify(mongoTemplate).insert(argThat((Document document) -> document.containsKey("sha256")),
+        eq("images"));
+  }
+
+  @Test
+  void storesReEncodedImageWhenSmallerAndRecordsBothSizes() throws IOException {
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "jpeg", encoded);
+    byte[] original = withExif(encoded.toByteArray(), ByteOrder.BIG_ENDIAN, 1, 16 * 1024);
+
+    String imageId = service.storeImage("photo.jpg", "image/jpeg",
+        new ByteArrayInputStream(original));
+
+    Path file = root.resolve(imageId.substring(22, 24)).resolve(imageId.substring(20, 22))
+        .resolve(imageId).resolve("original.jpg");
+    long storedSize = Files.size(file);
+    assertThat(storedSize).isLessThan(original.length);
+    verify(mongoTemplate).insert(argThat((Document document) ->
+        document.get("original_size").equals((long) original.length)
+            && document.get("stored_size").equals(storedSize)), eq("images"));
+  }
+
+  @Test
+  void recordsPerceptualHashOfStoredImage() {
+    service.storeImage("shirt.png", "image/png",
+        new ByteArrayInputStream(solidPng(120, 80, Color.RED)));
+
+    // A flat image has no gradients, every bit is clear
+    verify(mongoTemplate).insert(argThat((Document document) ->
+        Long.valueOf(0).equals(document.get("dhash"))), eq("images"));
+  }
+
+  @Test
+  void hashesImageWithoutHashFromThumbnailOnFirstLookupAndKeepsHash() {
+    String imageId = service.storeImage(upload("shirt.png", "image/png",
+        solidPng(120, 80, Color.RED)));
+    ObjectId hashedId = new ObjectId();
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("images"))).thenReturn(
+        List.of(new Document("_id", new ObjectId(imageId)),
+            new Document("_id", hashedId).append("dhash", 42L)));
+
+    Map<String, Long> hashes = service.getPerceptualHashes(
+        List.of(imageId, hashedId.toHexString(), "malformed"));
+
+    assertThat(hashes).containsOnly(entry(imageId, 0L), entry(hashedId.toHexString(), 42L));
+    verify(mongoTemplate).updateFirst(any(Query.class),
+        eq(Update.update("dhash", 0L)), eq("images"));
+  }
+
+  @Test
+  void stopsStreamedImageAtSizeLimitLeavingNothingBehind() {
+    InputStream oversized = new SequenceInputStream(new ByteArrayInputStream(jpeg("big")),
+        new ByteArrayInputStream(new byte[21 * 1024 * 1024]));
+
+    assertThatThrownBy(() -> service.storeImage("big.jpg", "image/jpeg", oversized))
+        .isInstanceOf(InvalidImageException.class)
+        .hasMessageContaining("exceeds maximum allowed size");
+
+    assertThat(root.resolve("tmp")).isEmptyDirectory();
+    verify(mongoTemplate, never()).insert(any(Document.class), any(String.class));
+  }
+
+  @Test
+  void rejectsInvalidImageBeforeWritingAnything() {
+    assertThatThrownBy(() -> service.storeImage(upload("fake.png", "image/png",
+        "not an image".getBytes())))
+        .isInstanceOf(InvalidImageException.class);
+
+    assertThat(root.resolve("tmp")).isEmptyDirectory();
+    verify(mongoTemplate, never()).insert(any(Document.class), any(String.class));
+  }
+
+  @Test
+  void servesOriginalFromFileWithoutDatabase() throws IOException {
+    String imageId = service.storeImage(upload("shirt.png", "image/png", png("shirt")));
+    clearInvocations(mongoTemplate);
+
+    StoredImage image = service.getImage(imageId);
+
+    assertThat(image.id()).isEqualTo(imageId);
+    assertThat(image.contentType()).isEqualTo("image/png");
+    assertThat(image.length()).isEqualTo(png("shirt").length);
+    assertThat(image.content().isFile()).isTrue();
+    try (InputStream content = image.content().getInputStream()) {
+      assertThat(content.readAllBytes()).isEqualTo(png("shirt"));
+    }
+    assertThat(service.imageExists(imageId)).isTrue();
+    verifyNoInteractions(mongoTemplate);
+  }
+
+  @Test
+  void throwsImageNotFoundExceptionForMissingOrMalformedId() {
+    assertThatThrownBy(() -> service.getImage(new ObjectId().toHexString()))
+        .isInstanceOf(ImageNotFoundException.class);
+    assertThatThrownBy(() -> service.getImage("not-an-object-id", ImageVariant.THUMB))
+        .isInstanceOf(ImageNotFoundException.class);
+    assertThat(service.imageExists("not-an-object-id")).isFalse();
+  }
+
+  @Test
+  void generatesVariantOnceAndServesItFromFileAfterwards() throws IOException {
+    String imageId = service.storeImage(upload("shirt.jpg", "image/jpeg", jpeg("shirt")));
+    when(imageResizer.tryAcquire()).thenReturn(freePermit());
+    when(imageResizer.resize(any(InputStream.class), eq(200)))
+        .thenReturn(Optional.of(new ResizedImage(new byte[]{1, 2, 3}, "image/png")));
+
+    StoredImage first = service.getImage(imageId, ImageVariant.THUMB);
+    StoredImage second = service.getImage(imageId, ImageVariant.THUMB);
+
+    assertThat(first.contentType()).isEqualTo("image/png");
+    assertThat(second.length()).isEqualTo(3);
+    assertThat(second.content().getFile().toPath().getFileName().toString())
+        .isEqualTo("thumb.png");
+    verify(imageResizer, times(1)).resize(any(InputStream.class), anyInt());
+  }
+
+  @Test
+  void linksOriginalAsVariantWhenNoSmallerOneCanBeProduced() throws IOException {
+    String imageId = service.storeImage(upload("small.jpg", "image/jpeg", jpeg("small")));
+    when(imageResizer.tryAcquire()).thenReturn(freePermit());
+    when(imageResizer.resize(any(InputStream.class), eq(800))).thenReturn(Optional.empty());
+
+    service.getImage(imageId, ImageVariant.MEDIUM);
+    StoredImage variant = service.getImage(imageId, ImageVariant.MEDIUM);
+
+    assertThat(variant.contentType()).isEqualTo("image/jpeg");
+    try (InputStream content = variant.content().getInputStream()) {
+      assertThat(content.readAllBytes()).isEqualTo(jpeg("small"));
+    }
+    verify(imageResizer, times(1)).resize(any(InputStream.class), anyInt());
+  }
+
+  @Test
+  void servesOriginalInPlaceOfVariantWhileResizingIsBusy() throws IOException {
+    String imageId = service.storeImage(upload("shirt.jpg", "image/jpeg", jpeg("shirt")));
+    when(imageResizer.tryAcquire()).thenReturn(Optional.empty());
+
+    StoredImage result = service.getImage(imageId, ImageVariant.THUMB);
+
+    assertThat(result.substitute()).isTrue();
+    try (InputStream content = result.content().getInputStream()) {
+      assertThat(content.readAllBytes()).isEqualTo(jpeg("shirt"));
+    }
+    assertThat(directoryOf(imageId).resolve("thumb.jpg")).doesNotExist();
+    verify(imageResizer, never()).resize(any(InputStream.class), anyInt());
+  }
+
+  @Test
+  void deletesImageWithVariantsWhenLastReferenceIsReleased() throws IOException {
+    String imageId = service.storeImage(upload("shirt.jpg", "image/jpeg", jpeg("shirt")));
+    when(imageResizer.tryAcquire()).thenReturn(freePermit());
+    when(imageResizer.resize(any(InputStream.class), anyInt())).thenReturn(Optional.empty());
+    service.getImage(imageId, ImageVariant.THUMB);
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("images")))
+        .thenReturn(new Document("_id", new ObjectId(imageId)).append("ref_count", 0));
+
+    service.deleteImage(imageId);
+
+    assertThat(service.imageExists(imageId)).isFalse();
+    assertThat(directoryOf(imageId)).doesNotExist();
+    verify(mongoTemplate).remove(any(Query.class), eq("images"));
+  }
+
+  @Test
+  void keepsImageThatIsStillReferenced() {
+    String imageId = service.storeImage(upload("shirt.jpg", "image/jpeg", jpeg("shirt")));
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("images")))
+        .thenReturn(new Document("_id", new ObjectId(imageId)).append("ref_count", 1));
+
+    service.deleteImage(imageId);
+
+    assertThat(service.imageExists(imageId)).isTrue();
+    verify(mongoTemplate, never()).remove(any(Query.class), eq("images"));
+  }
+
+  @Test
+  void deletesUnreferencedImagesInBulk() {
+    String released = service.storeImage(upload("a.jpg", "image/jpeg", jpeg("a")));
+    String kept = service.storeImage(upload("b.jpg", "image/jpeg", jpeg("b")));
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("images")))
+        .thenReturn(List.of(new Document("_id", new ObjectId(released))));
+
+    long deleted = service.deleteImages(List.of(released, kept));
+
+    assertThat(deleted).isEqualTo(1);
+    assertThat(service.imageExists(released)).isFalse();
+    assertThat(service.imageExists(kept)).isTrue();
+    verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq("images"));
+  }
+
+  @Test
+  void streamsUnusedImageIdsFromDatabase() {
+    ObjectId first = new ObjectId();
+    when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("images")))
+        .thenReturn(Stream.of(new Document("_id", first)));
+
+    try (Stream<String> imageIds = service.streamImageIdsUnusedSince(Instant.now())) {
+      assertThat(imageIds).containsExactly(first.toHexString());
+    }
+  }
+
+  @Test
+  void importsImageKeepingItsIdAndUploadDate() throws IOException {
+    ObjectId imageId = new ObjectId();
+    Instant storedAt = Instant.now().minus(30, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+
+    boolean imported = service.importImage(imageId, "image/jpg", storedAt, null, 2, null,
+        new ByteArrayInputStream(jpeg("legacy")));
+
+    assertThat(imported).isTrue();
+    StoredImage image = service.getImage(imageId.toHexString());
+    assertThat(image.uploadDate()).isEqualTo(storedAt);
+    assertThat(image.contentType()).isEqualTo("image/jpeg");
+    verify(mongoTemplate).insert(any(Document.class), eq("images"));
+  }
+
+  @Test
+  void importsLastReferenceDateAndPerceptualHashOfImage() throws IOException {
+    Instant storedAt = Instant.now().minus(30, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+    Instant referencedAt = storedAt.plus(7, ChronoUnit.DAYS);
+
+    service.importImage(new ObjectId(), "image/jpeg", storedAt, referencedAt, 1, 42L,
+        new ByteArrayInputStream(jpeg("legacy")));
+
+    ArgumentCaptor<Document> record = ArgumentCaptor.forClass(Document.class);
+    verify(mongoTemplate).insert(record.capture(), eq("images"));
+    assertThat(record.getValue())
+        .containsEntry("referenced_at", Date.from(referencedAt))
+        .containsEntry("dhash", 42L);
+  }
+
+  @Test
+  void skipsImageImportedBefore() throws IOException {
+    when(mongoTemplate.exists(any(Query.class), eq("images"))).thenReturn(true);
+
+    boolean imported = service.importImage(new ObjectId(), "image/png", Instant.now(), null, 1,
+        null, new ByteArrayInputStream(png("legacy")));
+
+    assertThat(imported).isFalse();
+    verify(mongoTemplate, never()).insert(any(Document.class), any(String.class));
+  }
+
+  @Test
+  void assemblesChunksSentInAnyOrderInPlace() throws IOException {
+    byte[] content = png("a shirt sent in three chunks of up to 32 bytes");
+    ImageUpload upload = ImageUpload.start("user", "image/png", content.length, "shirt.png", 32,
+        Duration.ofHours(1)).toBuilder().receivedChunks(Set.of(0, 1, 2)).build();
+
+    service.writeUploadChunk(upload, 2, Arrays.copyOfRange(content, 64, content.length));
+    service.writeUploadChunk(upload, 0, Arrays.copyOfRange(content, 0, 32));
+    service.writeUploadChunk(upload, 1, Arrays.copyOfRange(content, 32, 64));
+    String imageId = service.completeUpload(upload);
+
+    assertThat(imageId).isEqualTo(upload.id());
+    assertThat(directoryOf(imageId).resolve("original.png")).hasBinaryContent(content);
+    assertThat(root.resolve("tmp")).isEmptyDirectory();
+    verify(mongoTemplate).insert(argThat((Document document) ->
+            document.getInteger("ref_count") == 1
+                && Date.from(upload.expiresAt()).equals(document.get("referenced_at"))),
+        eq("images"));
+  }
+
+  @Test
+  void rejectsFirstChunkNotMatchingAnnouncedType() {
+    ImageUpload upload = ImageUpload.start("user", "image/png", 64, null, 32,
+        Duration.ofHours(1));
+
+    assertThatThrownBy(() -> service.writeUploadChunk(upload, 0, Arrays.copyOf(jpeg("x"), 32)))
+        .isInstanceOf(InvalidImageException.class);
+
+    assertThat(root.resolve("tmp")).isEmptyDirectory();
+  }
+
+  @Test
+  void returnsSameImageWhenUploadIsCompletedAgain() {
+    byte[] content = jpeg("jacket");
+    ImageUpload upload = ImageUpload.start("user", "image/jpeg", content.length, null, 1024,
+        Duration.ofHours(1));
+    service.writeUploadChunk(upload, 0, content);
+    service.completeUpload(upload);
+    when(mongoTemplate.insert(any(Document.class), eq("images")))
+        .thenThrow(new DuplicateKeyException("duplicate"));
+
+    assertThat(service.completeUpload(upload)).isEqualTo(upload.id());
+    assertThat(service.imageExists(upload.id())).isTrue();
+  }
+
+  @Test
+  void rejectsCompletionWithoutStagedChunks() {
+    ImageUpload upload = ImageUpload.start("user", "image/jpeg", 10, null, 1024,
+        Duration.ofHours(1));
+
+    assertThatThrownBy(() -> service.completeUpload(upload))
+        .isInstanceOf(InvalidImageUploadException.class);
+    verify(mongoTemplate, never()).insert(any(Document.class), any(String.class));
+  }
+
+  @Test
+  void discardsStagedChunksOfAbortedUpload() {
+    ImageUpload upload = ImageUpload.start("user", "image/jpeg", 2048, null, 1024,
+        Duration.ofHours(1));
+    service.writeUploadChunk(upload, 0, Arrays.copyOf(jpeg("coat"), 1024));
+
+    service.discardUpload(upload);
+
+    assertThat(root.resolve("tmp")).isEmptyDirectory();
+  }
+
+  @Test
+  void deletesOnlyStagingFilesOlderThanUploadLifetime() throws IOException {
+    Path abandoned = Files.write(root.resolve("tmp").resolve("session-a.part"), new byte[]{1});
+    Files.setLastModifiedTime(abandoned,
+        FileTime.from(Instant.now().minus(25, ChronoUnit.HOURS)));
+    Path active = Files.write(root.resolve("tmp").resolve("session-b.part"), new byte[]{1});
+
+    service.deleteAbandonedUploads();
+
+    assertThat(abandoned).doesNotExist();
+    assertThat(active).exists();
+  }
+
+  private Path directoryOf(String imageId) {
+    return root.resolve(imageId.substring(22, 24)).resolve(imageId.substring(20, 22))
+        .resolve(imageId);
+  }
+
+  private static MockMultipartFile upload(String name, String contentType, byte[] content) {
+    return new MockMultipartFile("image", name, contentType, content);
+  }
+
+  private static Optional<ImageResizer.Permit> freePermit() {
+    return Optional.of(() -> {
+    });
+  }
+}
@@ -0,0 +1,144 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class GridFsChunkInputStreamTest {
+
+  private static final BsonObjectId FILE_ID = new BsonObjectId(new ObjectId());
+
+  @Mock
+  private MongoCollection<Document> chunks;
+
+  @Mock
+  private FindIterable<Document> findIterable;
+
+  @Mock
+  private MongoCursor<Document> cursor;
+
+  @BeforeEach
+  void setUp() {
+    when(chunks.find(any(Bson.class))).thenReturn(findIterable);
+    when(findIterable.sort(any())).thenReturn(findIterable);
+    when(findIterable.batchSize(anyInt())).thenReturn(findIterable);
+    when(findIterable.iterator()).thenReturn(cursor);
+  }
+
+  @Test
+  void readsContentAcrossChunks() throws IOException {
+    when(cursor.hasNext()).thenReturn(true);
+    when(cursor.next()).thenReturn(chunk(0, "abcd"), chunk(1, "efgh"), chunk(2, "ij"));
+
+    try (InputStream stream = new GridFsChunkInputStream(chunks, FILE_ID, 4, 10, 2, null)) {
+      assertThat(new String(stream.readAllBytes())).isEqualTo("abcdefghij");
+    }
+    verify(findIterable).batchSize(2);
+  }
+
+  @Test
+  void startsAtChunkContainingPositionWhenSkippingBeforeFirstRead() throws IOException {
+    when(cursor.hasNext()).thenReturn(true);
+    when(cursor.next()).thenReturn(chunk(1, "efgh"), chunk(2, "ij"));
+
+    try (InputStream stream = new GridFsChunkInputStream(chunks, FILE_ID, 4, 10, 2, null)) {
+      assertThat(stream.skip(5)).isEqualTo(5);
+      assertThat(new String(stream.readAllBytes())).isEqualTo("fghij");
+    }
+
+    ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+    verify(chunks).find(filter.capture());
+    assertThat(filter.getValue().toBsonDocument().toJson()).contains("\"$gte\": 1");
+  }
+
+  @Test
+  void failsWhenChunkIsMissing() {
+    when(cursor.hasNext()).thenReturn(true);
+    when(cursor.next()).thenReturn(chunk(0, "abcd"), chunk(2, "ij"));
+
+    InputStream stream = new GridFsChunkInputStream(chunks, FILE_ID, 4, 10, 2, null);
+
+    assertThatThrownBy(stream::readAllBytes)
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("Missing chunk 1");
+  }
+
+  @Test
+  void closesCursorOnClose() throws IOException {
+    when(cursor.hasNext()).thenReturn(true);
+    when(cursor.next()).thenReturn(chunk(0, "abcd"));
+
+    InputStream stream = new GridFsChunkInputStream(chunks, FILE_ID, 4, 10, 2, null);
+    stream.read();
+    stream.close();
+
+    verify(cursor).close();
+  }
+
+  @Test
+  void requestsNextBatchAheadWhenCurrentBatchIsHandedOut() throws IOException {
+    List<Runnable> readAhead = new ArrayList<>();
+    when(cursor.hasNext()).thenReturn(true);
+    when(cursor.next()).thenReturn(chunk(0, "abcd"), chunk(1, "efgh"), chunk(2, "ij"));
+    when(cursor.available()).thenReturn(1, 0, 0);
+
+    try (InputStream stream = new GridFsChunkInputStream(chunks, FILE_ID, 4, 10, 2,
+        readAhead::add)) {
+      assertThat(stream.readNBytes(8)).isEqualTo("abcdefgh".getBytes());
+      assertThat(readAhead).hasSize(1);
+      verify(cursor, times(2)).hasNext();
+
+      readAhead.getFirst().run();
+      assertThat(new String(stream.readAllBytes())).isEqualTo("ij");
+    }
+    // The last chunk was fetched ahead, nothing is left to request
+    assertThat(readAhead).hasSize(1);
+    verify(cursor, times(3)).hasNext();
+  }
+
+  @Test
+  void closesCursorOnlyAfterBatchRequestedAheadArrived() throws IOException {
+    List<Runnable> readAhead = new ArrayList<>();
+    when(cursor.hasNext()).thenReturn(true);
+    when(cursor.next()).thenReturn(chunk(0, "abcd"));
+
+    InputStream stream = new GridFsChunkInputStream(chunks, FILE_ID, 4, 10, 2, readAhead::add);
+    stream.read();
+    stream.close();
+
+    verify(cursor, never()).close();
+    readAhead.getFirst().run();
+    verify(cursor).close();
+  }
+
+  private static Document chunk(int n, String data) {
+    return new Document("files_id", FILE_ID)
+        .append("n", n)
+        .append("data", new Binary(data.getBytes()));
+  }
+}
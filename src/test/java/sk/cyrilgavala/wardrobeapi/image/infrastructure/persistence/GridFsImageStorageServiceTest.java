@@ -2,29 +2,78 @@ package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.jpeg;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.png;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.solidPng;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.webp;
 
+import com.mongodb.client.gridfs.GridFSFindIterable;
 import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import java.awt.Color;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import org.bson.Document;
+import org.bson.types.Binary;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.data.mongodb.gridfs.GridFsUpload;
 import org.springframework.mock.web.MockMultipartFile;
 import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageNotFoundException;
 import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageException;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageUploadException;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.cache.ImageDiskCache;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageHeaderReader;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageOptimizer;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImagePerceptualHasher;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageResizer;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageResizer.ResizedImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageValidator;
 
 @ExtendWith(MockitoExtension.class)
 class GridFsImageStorageServiceTest {
@@ -32,11 +81,33 @@ class GridFsImageStorageServiceTest {
   @Mock
   private GridFsTemplate gridFsTemplate;
 
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  @Mock
+  private GridFsChunkReader gridFsChunkReader;
+
+  @Mock
+  private ImageResizer imageResizer;
+
+  @Spy
+  private ImageValidator imageValidator = new ImageValidator(new ImageHeaderReader());
+
+  @Spy
+  private ImageOptimizer imageOptimizer = new ImageOptimizer(new ImageHeaderReader(), true, 0.85f,
+      2);
+
+  @Spy
+  private ImagePerceptualHasher imagePerceptualHasher = new ImagePerceptualHasher();
+
+  @Mock
+  private ImageDiskCache imageDiskCache;
+
   @Mock
   private GridFSFile gridFSFile;
 
   @Mock
-  private GridFsResource gridFsResource;
+  private GridFSFile variantFile;
 
   @InjectMocks
   private GridFsImageStorageService service;
@@ -47,16 +118,16 @@ class GridFsImageStorageServiceTest {
         "image",
         "test.jpg",
         "image/jpeg",
-        "image-content".getBytes()
+        jpeg("image-content")
     );
     ObjectId expectedId = new ObjectId();
 
-    when(gridFsTemplate.store(any(), eq("test.jpg"), eq("image/jpeg"))).thenReturn(expectedId);
+    when(gridFsTemplate.store(any(), eq("test.jpg"), eq("image/jpeg"), any(Document.class))).thenReturn(expectedId);
 
     String result = service.storeImage(file);
 
     assertThat(result).isEqualTo(expectedId.toString());
-    verify(gridFsTemplate).store(any(), eq("test.jpg"), eq("image/jpeg"));
+    verify(gridFsTemplate).store(any(), eq("test.jpg"), eq("image/jpeg"), any(Document.class));
   }
 
   @Test
@@ -65,11 +136,11 @@ class GridFsImageStorageServiceTest {
         "image",
         "test.png",
         "image/png",
-        "png-content".getBytes()
+        png("png-content")
     );
     ObjectId expectedId = new ObjectId();
 
-    when(gridFsTemplate.store(any(), eq("test.png"), eq("image/png"))).thenReturn(expectedId);
+    when(gridFsTemplate.store(any(), eq("test.png"), eq("image/png"), any(Document.class))).thenReturn(expectedId);
 
     String result = service.storeImage(file);
 
@@ -82,11 +153,11 @@ class GridFsImageStorageServiceTest {
         "image",
         "test.webp",
         "image/webp",
-        "webp-content".getBytes()
+        webp("webp-content")
     );
     ObjectId expectedId = new ObjectId();
 
-    when(gridFsTemplate.store(any(), eq("test.webp"), eq("image/webp"))).thenReturn(expectedId);
+    when(gridFsTemplate.store(any(), eq("test.webp"), eq("image/webp"), any(Document.class))).thenReturn(expectedId);
 
     String result = service.storeImage(file);
 
@@ -99,11 +170,11 @@ class GridFsImageStorageServiceTest {
         "image",
         "test.jpg",
         "image/jpg",
-        "jpg-content".getBytes()
+        jpeg("jpg-content")
     );
     ObjectId expectedId = new ObjectId();
 
-    when(gridFsTemplate.store(any(), eq("test.jpg"), eq("image/jpg"))).thenReturn(expectedId);
+    when(gridFsTemplate.store(any(), eq("test.jpg"), eq("image/jpg"), any(Document.class))).thenReturn(expectedId);
 
     String result = service.storeImage(file);
 
@@ -190,7 +261,7 @@ class GridFsImageStorageServiceTest {
 
   @Test
   void acceptsFileSizeAtExactLimit() {
-    byte[] maxContent = new byte[20 * 1024 * 1024];
+    byte[] maxContent = Arrays.copyOf(jpeg(""), 20 * 1024 * 1024);
     MockMultipartFile maxFile = new MockMultipartFile(
         "image",
         "max.jpg",
@@ -199,7 +270,7 @@ class GridFsImageStorageServiceTest {
     );
     ObjectId expectedId = new ObjectId();
 
-    when(gridFsTemplate.store(any(), eq("max.jpg"), eq("image/jpeg"))).thenReturn(expectedId);
+    when(gridFsTemplate.store(any(), eq("max.jpg"), eq("image/jpeg"), any(Document.class))).thenReturn(expectedId);
 
     String result = service.storeImage(maxFile);
 
@@ -212,11 +283,11 @@ class GridFsImageStorageServiceTest {
         "image",
         "test.jpg",
         "IMAGE/JPEG",
-        "content".getBytes()
+        jpeg("content")
     );
     ObjectId expectedId = new ObjectId();
 
-    when(gridFsTemplate.store(any(), eq("test.jpg"), eq("IMAGE/JPEG"))).thenReturn(expectedId);
+    when(gridFsTemplate.store(any(), eq("test.jpg"), eq("IMAGE/JPEG"), any(Document.class))).thenReturn(expectedId);
 
     String result = service.storeImage(file);
 
@@ -224,17 +295,538 @@ class GridFsImageStorageServiceTest {
   }
 
   @Test
-  void retrievesImageSuccessfully() throws IOException {
+  void describesImageFromSingleMetadataLookup() throws IOException {
     String imageId = new ObjectId().toString();
-    byte[] expectedContent = "image-data".getBytes();
+    Date uploadDate = new Date();
 
     when(gridFsTemplate.findOne(any(Query.class))).thenReturn(gridFSFile);
-    when(gridFsTemplate.getResource(gridFSFile)).thenReturn(gridFsResource);
-    when(gridFsResource.getInputStream()).thenReturn(new ByteArrayInputStream(expectedContent));
+    when(gridFSFile.getObjectId()).thenReturn(new ObjectId(imageId));
+    when(gridFSFile.getLength()).thenReturn(10L);
+    when(gridFSFile.getUploadDate()).thenReturn(uploadDate);
+    when(gridFSFile.getMetadata()).thenReturn(
+        new Document("_contentType", "image/png").append("sha256", "abc123"));
+
+    StoredImage result = service.getImage(imageId);
+
+    assertThat(result.id()).isEqualTo(imageId);
+    assertThat(result.contentType()).isEqualTo("image/png");
+    assertThat(result.length()).isEqualTo(10L);
+    assertThat(result.uploadDate()).isEqualTo(uploadDate.toInstant());
+    assertThat(result.sha256()).isEqualTo("abc123");
+    assertThat(result.content().contentLength()).isEqualTo(10L);
+    verify(gridFsTemplate).findOne(any(Query.class));
+  }
+
+  @Test
+  void servesImageFromDiskCacheWithoutQueryingGridFs() {
+    String imageId = new ObjectId().toString();
+    StoredImage cached = new StoredImage(imageId, "image/png", 4, Instant.now(), null,
+        new ByteArrayResource("abcd".getBytes()));
+    when(imageDiskCache.get(imageId, ImageVariant.THUMB)).thenReturn(Optional.of(cached));
+
+    StoredImage result = service.getImage(imageId, ImageVariant.THUMB);
+
+    assertThat(result).isSameAs(cached);
+    verify(gridFsTemplate, never()).findOne(any(Query.class));
+  }
+
+  @Test
+  void fillsDiskCacheWithImageReadFromGridFs() {
+    String imageId = new ObjectId().toString();
+    StoredImage cached = new StoredImage(imageId, "image/png", 10, Instant.now(), null,
+        new ByteArrayResource(new byte[10]));
+    when(gridFsTemplate.findOne(any(Query.class))).thenReturn(gridFSFile);
+    when(gridFSFile.getObjectId()).thenReturn(new ObjectId(imageId));
+    when(gridFSFile.getLength()).thenReturn(10L);
+    when(gridFSFile.getUploadDate()).thenReturn(new Date());
+    when(imageDiskCache.put(eq(imageId), eq(ImageVariant.ORIGINAL), any(StoredImage.class)))
+        .thenReturn(Optional.of(cached));
+
+    StoredImage result = service.getImage(imageId, ImageVariant.ORIGINAL);
+
+    assertThat(result).isSameAs(cached);
+    ArgumentCaptor<StoredImage> read = ArgumentCaptor.forClass(StoredImage.class);
+    verify(imageDiskCache).put(eq(imageId), eq(ImageVariant.ORIGINAL), read.capture());
+    assertThat(read.getValue().length()).isEqualTo(10L);
+  }
+
+  @Test
+  void doesNotReadImageContentUntilStreamIsOpened() {
+    String imageId = new ObjectId().toString();
+
+    when(gridFsTemplate.findOne(any(Query.class))).thenReturn(gridFSFile);
+    when(gridFSFile.getObjectId()).thenReturn(new ObjectId(imageId));
+    when(gridFSFile.getUploadDate()).thenReturn(new Date());
+
+    service.getImage(imageId);
+
+    verify(gridFsTemplate, never()).getResource(any(GridFSFile.class));
+    verify(gridFsChunkReader, never()).open(any());
+  }
+
+  @Test
+  void recordsContentHashAndFirstReferenceWhenStoringImage() {
+    MockMultipartFile file = new MockMultipartFile(
+        "image",
+        "test.jpg",
+        "image/jpeg",
+        jpeg("image-content")
+    );
+
+    when(gridFsTemplate.store(any(), eq("test.jpg"), eq("image/jpeg"), any(Document.class)))
+        .thenReturn(new ObjectId());
+
+    service.storeImage(file);
+
+    ArgumentCaptor<Document> metadata = ArgumentCaptor.forClass(Document.class);
+    verify(gridFsTemplate).store(any(), eq("test.jpg"), eq("image/jpeg"), metadata.capture());
+    // sha256(jpeg("image-content"))
+    assertThat(metadata.getValue())
+        .containsEntry("sha256",
+            "a7b900dd30000a2f6f72b2b59a3145e7d961fdf2c61fad6f86bed512ccd46075")
+        .containsEntry("ref_count", 1);
+  }
+
+  @Test
+  void reusesStoredImageWithIdenticalContent() {
+    MockMultipartFile file = new MockMultipartFile(
+        "image",
+        "copy.jpg",
+        "image/jpeg",
+        jpeg("image-content")
+    );
+    ObjectId existingId = new ObjectId();
+
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(new Document("_id", existingId));
+
+    String result = service.storeImage(file);
+
+    assertThat(result).isEqualTo(existingId.toString());
+    verify(gridFsTemplate, never()).store(any(), any(), any(String.class), any(Document.class));
+    ArgumentCaptor<Query> lookup = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).findAndModify(lookup.capture(), update.capture(),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files"));
+    assertThat(lookup.getValue().getQueryObject()).containsEntry("metadata.sha256",
+        "a7b900dd30000a2f6f72b2b59a3145e7d961fdf2c61fad6f86bed512ccd46075");
+    assertThat(update.getValue().getUpdateObject().get("$inc", Document.class))
+        .containsEntry("metadata.ref_count", 1);
+    assertThat(update.getValue().getUpdateObject().get("$set", Document.class))
+        .containsKey("metadata.referenced_at");
+  }
+
+  @Test
+  void pipesStreamedImageAndRecordsHashComputedOnTheWayWithoutOptimization() {
+    doReturn(false).when(imageOptimizer).isEnabled();
+    drainStoredUploads();
+
+    String result = service.storeImage("test.jpg", "image/jpeg",
+        new ByteArrayInputStream(jpeg("image-content")));
+
+    ArgumentCaptor<GridFsUpload<ObjectId>> upload = ArgumentCaptor.captor();
+    verify(gridFsTemplate).store(upload.capture());
+    assertThat(result).isEqualTo(upload.getValue().getFileId().toHexString());
+    assertThat(upload.getValue().getFilename()).isEqualTo("test.jpg");
+    assertThat(upload.getValue().getOptions().getMetadata()).containsEntry("ref_count", 1);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq("fs.files"));
+    // sha256(jpeg("image-content"))
+    assertThat(update.getValue().getUpdateObject().get("$set", Document.class))
+        .containsEntry("metadata.sha256",
+            "a7b900dd30000a2f6f72b2b59a3145e7d961fdf2c61fad6f86bed512ccd46075");
+  }
+
+  @Test
+  void dropsStreamedCopyOfImageThatWasStoredBefore() {
+    doReturn(false).when(imageOptimizer).isEnabled();
+    ObjectId existingId = new ObjectId();
+    drainStoredUploads();
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(new Document("_id", existingId))
+        .thenReturn(released(0));
+    when(mongoTemplate.remove(any(Query.class), eq("fs.files")))
+        .thenReturn(DeleteResult.acknowledged(1));
+
+    String result = service.storeImage("copy.jpg", "image/jpeg",
+        new ByteArrayInputStream(jpeg("image-content")));
+
+    assertThat(result).isEqualTo(existingId.toHexString());
+    ArgumentCaptor<GridFsUpload<ObjectId>> upload = ArgumentCaptor.captor();
+    verify(gridFsTemplate).store(upload.capture());
+    ArgumentCaptor<Query> chunks = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).remove(chunks.capture(), eq("fs.chunks"));
+    assertThat(chunks.getValue().getQueryObject())
+        .containsEntry("files_id", new Document("$in", List.of(upload.getValue().getFileId())));
+  }
+
+  @Test
+  void movesReferenceOfImageToOldestCopyStoredByConcurrentUpload() {
+    ObjectId existingId = new ObjectId();
+    ObjectId fileId = new ObjectId();
+    when(gridFsTemplate.store(any(), eq("copy.jpg"), eq("image/jpeg"), any(Document.class)))
+        .thenReturn(fileId);
+    // Not stored yet when looked up before writing, found once both copies are written
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(null)
+        .thenReturn(new Document("_id", existingId))
+        .thenReturn(released(0));
+    when(mongoTemplate.remove(any(Query.class), eq("fs.files")))
+        .thenReturn(DeleteResult.acknowledged(1));
+
+    String result = service.storeImage(new MockMultipartFile("image", "copy.jpg", "image/jpeg",
+        jpeg("image-content")));
+
+    assertThat(result).isEqualTo(existingId.toHexString());
+    ArgumentCaptor<Query> lookups = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate, times(3)).findAndModify(lookups.capture(), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files"));
+    Query settling = lookups.getAllValues().get(1);
+    assertThat(settling.getQueryObject())
+        .containsEntry("_id", new Document("$ne", fileId));
+    assertThat(settling.getSortObject()).containsEntry("_id", 1);
+    ArgumentCaptor<Query> chunks = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).remove(chunks.capture(), eq("fs.chunks"));
+    assertThat(chunks.getValue().getQueryObject())
+        .containsEntry("files_id", new Document("$in", List.of(fileId)));
+  }
+
+  @Test
+  void keepsCopyReusedMeanwhileWhenMovingItsReference() {
+    ObjectId existingId = new ObjectId();
+    when(gridFsTemplate.store(any(), eq("copy.jpg"), eq("image/jpeg"), any(Document.class)))
+        .thenReturn(new ObjectId());
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(null)
+        .thenReturn(new Document("_id", existingId))
+        .thenReturn(released(1));
+
+    String result = service.storeImage(new MockMultipartFile("image", "copy.jpg", "image/jpeg",
+        jpeg("image-content")));
+
+    assertThat(result).isEqualTo(existingId.toHexString());
+    verify(mongoTemplate, never()).remove(any(Query.class), any(String.class));
+  }
+
+  @Test
+  void removesChunksOfStreamedImageStoppedAtSizeLimit() {
+    doReturn(false).when(imageOptimizer).isEnabled();
+    drainStoredUploads();
+    InputStream oversized = new SequenceInputStream(new ByteArrayInputStream(jpeg("big")),
+        new ByteArrayInputStream(new byte[21 * 1024 * 1024]));
+
+    assertThatThrownBy(() -> service.storeImage("big.jpg", "image/jpeg", oversized))
+        .isInstanceOf(InvalidImageException.class)
+        .hasMessageContaining("exceeds maximum allowed size");
+
+    ArgumentCaptor<GridFsUpload<ObjectId>> upload = ArgumentCaptor.captor();
+    verify(gridFsTemplate).store(upload.capture());
+    ArgumentCaptor<Query> chunks = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).remove(chunks.capture(), eq("fs.chunks"));
+    assertThat(chunks.getValue().getQueryObject())
+        .containsEntry("files_id", upload.getValue().getFileId());
+  }
+
+  @Test
+  void collectsStreamedImageForOptimizationAndReusesDuplicateWithoutWriting() {
+    ObjectId existingId = new ObjectId();
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(new Document("_id", existingId));
+
+    String result = service.storeImage("copy.jpg", "image/jpeg",
+        new ByteArrayInputStream(jpeg("image-content")));
+
+    assertThat(result).isEqualTo(existingId.toHexString());
+    verify(gridFsTemplate, never()).store(ArgumentMatchers.<GridFsUpload<ObjectId>>any());
+    verify(gridFsTemplate, never()).store(any(), any(), any(), any(Document.class));
+  }
+
+  @Test
+  void storesOptimizedImageAndRecordsBothSizes() throws Exception {
+    byte[] original = jpeg("bulky-original");
+    byte[] optimized = jpeg("lean");
+    doReturn(Optional.of(optimized)).when(imageOptimizer).optimize(original, "image/jpeg");
+    when(gridFsTemplate.store(any(), eq("photo.jpg"), eq("image/jpg"), any(Document.class)))
+        .thenReturn(new ObjectId());
+
+    service.storeImage(new MockMultipartFile("image", "photo.jpg", "image/jpg", original));
+
+    ArgumentCaptor<InputStream> content = ArgumentCaptor.forClass(InputStream.class);
+    ArgumentCaptor<Document> metadata = ArgumentCaptor.forClass(Document.class);
+    verify(gridFsTemplate).store(content.capture(), eq("photo.jpg"), eq("image/jpg"),
+        metadata.capture());
+    assertThat(content.getValue()).hasBinaryContent(optimized);
+    assertThat(metadata.getValue())
+        .containsEntry("original_size", original.length)
+        .containsEntry("stored_size", optimized.length)
+        // Duplicates are recognized by what was uploaded
+        .containsEntry("sha256", HexFormat.of().formatHex(
+            MessageDigest.getInstance("SHA-256").digest(original)));
+  }
+
+  @Test
+  void recordsPerceptualHashOfImageHeldInMemory() {
+    when(gridFsTemplate.store(any(), eq("shirt.png"), eq("image/png"), any(Document.class)))
+        .thenReturn(new ObjectId());
+
+    service.storeImage(new MockMultipartFile("image", "shirt.png", "image/png",
+        solidPng(120, 80, Color.RED)));
+
+    ArgumentCaptor<Document> metadata = ArgumentCaptor.forClass(Document.class);
+    verify(gridFsTemplate).store(any(), eq("shirt.png"), eq("image/png"), metadata.capture());
+    // A flat image has no gradients, every bit is clear
+    assertThat(metadata.getValue()).containsEntry("dhash", 0L);
+  }
+
+  @Test
+  void storesUndecodableImageWithoutPerceptualHash() {
+    when(gridFsTemplate.store(any(), eq("test.jpg"), eq("image/jpeg"), any(Document.class)))
+        .thenReturn(new ObjectId());
+
+    service.storeImage(new MockMultipartFile("image", "test.jpg", "image/jpeg",
+        jpeg("image-content")));
+
+    ArgumentCaptor<Document> metadata = ArgumentCaptor.forClass(Document.class);
+    verify(gridFsTemplate).store(any(), eq("test.jpg"), eq("image/jpeg"), metadata.capture());
+    assertThat(metadata.getValue()).doesNotContainKey("dhash");
+  }
+
+  @Test
+  void looksUpKeptPerceptualHashesWithSingleQuery() {
+    ObjectId hashedId = new ObjectId();
+    ObjectId missingId = new ObjectId();
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("fs.files"))).thenReturn(
+        List.of(new Document("_id", hashedId).append("metadata", new Document("dhash", 42L))));
+
+    Map<String, Long> hashes = service.getPerceptualHashes(
+        List.of(hashedId.toHexString(), missingId.toHexString(), "malformed"));
+
+    assertThat(hashes).containsOnly(entry(hashedId.toHexString(), 42L));
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).find(query.capture(), eq(Document.class), eq("fs.files"));
+    assertThat(query.getValue().getFieldsObject()).containsKey("metadata.dhash");
+    verify(gridFsTemplate, never()).findOne(any(Query.class));
+  }
+
+  @Test
+  void rejectsStreamedContentNotMatchingDeclaredTypeBeforeStoringIt() {
+    assertThatThrownBy(() -> service.storeImage("fake.jpg", "image/jpeg",
+        new ByteArrayInputStream(png("png-content"))))
+        .isInstanceOf(InvalidImageException.class);
+
+    verify(gridFsTemplate, never()).store(ArgumentMatchers.<GridFsUpload<ObjectId>>any());
+  }
+
+  @Test
+  void servesPreviouslyGeneratedVariantWithSingleLookup() throws IOException {
+    String imageId = new ObjectId().toString();
+    ObjectId variantId = new ObjectId();
 
-    byte[] result = service.getImage(imageId);
+    when(gridFsTemplate.findOne(any(Query.class))).thenReturn(variantFile);
+    when(variantFile.getObjectId()).thenReturn(variantId);
+    when(variantFile.getUploadDate()).thenReturn(new Date());
+    when(variantFile.getMetadata()).thenReturn(new Document("_contentType", "image/jpeg"));
 
-    assertThat(result).isEqualTo(expectedContent);
+    StoredImage result = service.getImage(imageId, ImageVariant.THUMB);
+
+    assertThat(result.id()).isEqualTo(variantId.toHexString());
+    assertThat(result.contentType()).isEqualTo("image/jpeg");
+    verify(gridFsTemplate).findOne(any(Query.class));
+    verify(imageResizer, never()).resize(any(), anyInt());
+  }
+
+  @Test
+  void generatesAndLinksVariantOnFirstRequest() throws IOException {
+    ObjectId originalId = new ObjectId();
+    ObjectId variantId = new ObjectId();
+
+    when(gridFsTemplate.findOne(any(Query.class))).thenReturn(null, gridFSFile, variantFile);
+    when(gridFSFile.getObjectId()).thenReturn(originalId);
+    when(gridFSFile.getFilename()).thenReturn("shirt.jpg");
+    when(imageResizer.tryAcquire()).thenReturn(freePermit());
+    when(imageResizer.resize(any(), eq(200))).thenReturn(
+        Optional.of(new ResizedImage(new byte[]{1, 2, 3}, "image/jpeg")));
+    when(gridFsTemplate.store(any(), eq("shirt.jpg-thumb"), eq("image/jpeg"),
+        any(Document.class))).thenReturn(variantId);
+    when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq("fs.files")))
+        .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    when(variantFile.getObjectId()).thenReturn(variantId);
+    when(variantFile.getUploadDate()).thenReturn(new Date());
+
+    StoredImage result = service.getImage(originalId.toHexString(), ImageVariant.THUMB);
+
+    assertThat(result.id()).isEqualTo(variantId.toHexString());
+    ArgumentCaptor<Document> metadata = ArgumentCaptor.forClass(Document.class);
+    verify(gridFsTemplate).store(any(), eq("shirt.jpg-thumb"), eq("image/jpeg"),
+        metadata.capture());
+    assertThat(metadata.getValue())
+        .containsEntry("original_id", originalId)
+        .containsEntry("variant", "thumb");
+    ArgumentCaptor<Update> link = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).updateFirst(any(Query.class), link.capture(), eq("fs.files"));
+    assertThat(link.getValue().getUpdateObject().get("$set", Document.class))
+        .containsEntry("metadata.variants.thumb", variantId);
+  }
+
+  @Test
+  void servesOriginalWhenNoSmallerVariantCanBeProduced() throws IOException {
+    ObjectId originalId = new ObjectId();
+
+    when(gridFsTemplate.findOne(any(Query.class))).thenReturn(null, gridFSFile);
+    when(gridFSFile.getObjectId()).thenReturn(originalId);
+    when(gridFSFile.getUploadDate()).thenReturn(new Date());
+    when(imageResizer.tryAcquire()).thenReturn(freePermit());
+    when(imageResizer.resize(any(), eq(800))).thenReturn(Optional.empty());
+    when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq("fs.files")))
+        .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+    StoredImage result = service.getImage(originalId.toHexString(), ImageVariant.MEDIUM);
+
+    assertThat(result.id()).isEqualTo(originalId.toHexString());
+    verify(gridFsTemplate, never()).store(any(), any(), any(String.class), any(Document.class));
+    ArgumentCaptor<Update> link = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).updateFirst(any(Query.class), link.capture(), eq("fs.files"));
+    assertThat(link.getValue().getUpdateObject().get("$set", Document.class))
+        .containsEntry("metadata.variants.medium", originalId);
+  }
+
+  @Test
+  void servesOriginalInPlaceOfVariantWhileResizingIsBusy() throws IOException {
+    ObjectId originalId = new ObjectId();
+
+    when(gridFsTemplate.findOne(any(Query.class))).thenReturn(null, gridFSFile);
+    when(gridFSFile.getObjectId()).thenReturn(originalId);
+    when(gridFSFile.getUploadDate()).thenReturn(new Date());
+    when(imageResizer.tryAcquire()).thenReturn(Optional.empty());
+
+    StoredImage result = service.getImage(originalId.toHexString(), ImageVariant.THUMB);
+
+    assertThat(result.id()).isEqualTo(originalId.toHexString());
+    assertThat(result.substitute()).isTrue();
+    verify(imageResizer, never()).resize(any(), anyInt());
+    verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class),
+        eq("fs.files"));
+    verify(imageDiskCache, never()).put(any(), any(), any());
+  }
+
+  @Test
+  void servesOriginalLinkedAsVariantWithoutResizingAgain() throws IOException {
+    ObjectId originalId = new ObjectId();
+
+    when(gridFsTemplate.findOne(any(Query.class))).thenReturn(null, gridFSFile);
+    when(gridFSFile.getObjectId()).thenReturn(originalId);
+    when(gridFSFile.getUploadDate()).thenReturn(new Date());
+    when(gridFSFile.getMetadata()).thenReturn(new Document("_contentType", "image/webp")
+        .append("variants", new Document("thumb", originalId)));
+
+    StoredImage result = service.getImage(originalId.toHexString(), ImageVariant.THUMB);
+
+    assertThat(result.id()).isEqualTo(originalId.toHexString());
+    verify(imageResizer, never()).resize(any(), anyInt());
+  }
+
+  @Test
+  void keepsConcurrentlyGeneratedVariantAndDiscardsOwnCopy() throws IOException {
+    ObjectId originalId = new ObjectId();
+    ObjectId ownVariantId = new ObjectId();
+    ObjectId winningVariantId = new ObjectId();
+
+    when(gridFsTemplate.findOne(any(Query.class))).thenReturn(null, gridFSFile, variantFile);
+    when(gridFSFile.getObjectId()).thenReturn(originalId);
+    when(imageResizer.tryAcquire()).thenReturn(freePermit());
+    when(imageResizer.resize(any(), eq(200))).thenReturn(
+        Optional.of(new ResizedImage(new byte[]{1}, "image/jpeg")));
+    when(gridFsTemplate.store(any(), any(), eq("image/jpeg"), any(Document.class)))
+        .thenReturn(ownVariantId);
+    when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq("fs.files")))
+        .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+    when(variantFile.getObjectId()).thenReturn(winningVariantId);
+    when(variantFile.getUploadDate()).thenReturn(new Date());
+
+    StoredImage result = service.getImage(originalId.toHexString(), ImageVariant.THUMB);
+
+    assertThat(result.id()).isEqualTo(winningVariantId.toHexString());
+    verify(gridFsTemplate).delete(any(Query.class));
+  }
+
+  @Test
+  void resolvesVariantsOfManyImagesWithTwoBulkLookups() throws IOException {
+    ObjectId generatedId = new ObjectId();
+    ObjectId linkedId = new ObjectId();
+    GridFSFindIterable variants = found(variantFile);
+    GridFSFindIterable originals = found(gridFSFile);
+
+    when(gridFsTemplate.find(any(Query.class))).thenReturn(variants, originals);
+    when(variantFile.getObjectId()).thenReturn(new ObjectId());
+    when(variantFile.getUploadDate()).thenReturn(new Date());
+    when(variantFile.getMetadata()).thenReturn(new Document("_contentType", "image/jpeg")
+        .append("original_id", generatedId).append("variant", "thumb"));
+    when(gridFSFile.getObjectId()).thenReturn(linkedId);
+    when(gridFSFile.getUploadDate()).thenReturn(new Date());
+    when(gridFSFile.getMetadata()).thenReturn(new Document("_contentType", "image/webp")
+        .append("variants", new Document("thumb", linkedId)));
+
+    Map<String, StoredImage> result = service.getImages(List.of(generatedId.toHexString(),
+        linkedId.toHexString(), generatedId.toHexString(), "malformed"), ImageVariant.THUMB);
+
+    assertThat(result).containsOnlyKeys(generatedId.toHexString(), linkedId.toHexString());
+    assertThat(result.get(generatedId.toHexString()).contentType()).isEqualTo("image/jpeg");
+    assertThat(result.get(linkedId.toHexString()).id()).isEqualTo(linkedId.toHexString());
+    ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+    verify(gridFsTemplate, times(2)).find(queries.capture());
+    assertThat(queries.getAllValues().get(1).getQueryObject().get("_id", Document.class)
+        .getList("$in", ObjectId.class)).containsExactly(linkedId);
+    verify(gridFsTemplate, never()).findOne(any(Query.class));
+    verify(imageResizer, never()).resize(any(), anyInt());
+  }
+
+  @Test
+  void resolvesManyOriginalsWithSingleLookupAndSkipsMissingOnes() {
+    ObjectId imageId = new ObjectId();
+    GridFSFindIterable originals = found(gridFSFile);
+
+    when(gridFsTemplate.find(any(Query.class))).thenReturn(originals);
+    when(gridFSFile.getObjectId()).thenReturn(imageId);
+    when(gridFSFile.getUploadDate()).thenReturn(new Date());
+
+    Map<String, StoredImage> result = service.getImages(
+        List.of(imageId.toHexString(), new ObjectId().toHexString()), ImageVariant.ORIGINAL);
+
+    assertThat(result).containsOnlyKeys(imageId.toHexString());
+    verify(gridFsTemplate).find(any(Query.class));
+  }
+
+  @Test
+  void skipsBulkLookupWhenNoImageIdIsValid() {
+    assertThat(service.getImages(List.of("malformed"), ImageVariant.THUMB)).isEmpty();
+
+    verify(gridFsTemplate, never()).find(any(Query.class));
+  }
+
+  @Test
+  void deletesVariantsAlongWithImages() {
+    ObjectId imageId = new ObjectId();
+    ObjectId variantId = new ObjectId();
+
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(List.of(new Document("_id", imageId)))
+        .thenReturn(List.of(new Document("_id", variantId)));
+    when(mongoTemplate.remove(any(Query.class), eq("fs.files")))
+        .thenReturn(DeleteResult.acknowledged(2));
+
+    long deleted = service.deleteImages(List.of(imageId.toHexString()));
+
+    assertThat(deleted).isEqualTo(2);
+    ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).remove(removed.capture(), eq("fs.chunks"));
+    assertThat(removed.getValue().getQueryObject().get("files_id", Document.class)
+        .getList("$in", ObjectId.class)).containsExactly(imageId, variantId);
+    verify(imageDiskCache).evict(List.of(imageId.toHexString()));
   }
 
   @Test
@@ -244,7 +836,7 @@ class GridFsImageStorageServiceTest {
     when(gridFsTemplate.findOne(any(Query.class))).thenReturn(null);
 
     assertThatThrownBy(() -> service.getImage(invalidImageId))
-        .isInstanceOf(NullPointerException.class);
+        .isInstanceOf(ImageNotFoundException.class);
   }
 
   @Test
@@ -256,6 +848,7 @@ class GridFsImageStorageServiceTest {
   }
 
   @Test
+  @SuppressWarnings("deprecation")
   void retrievesContentTypeSuccessfully() {
     String imageId = new ObjectId().toString();
     Document metadata = new Document("_contentType", "image/jpeg");
@@ -269,6 +862,7 @@ class GridFsImageStorageServiceTest {
   }
 
   @Test
+  @SuppressWarnings("deprecation")
   void returnsDefaultContentTypeWhenMetadataIsNull() {
     String imageId = new ObjectId().toString();
 
@@ -281,6 +875,7 @@ class GridFsImageStorageServiceTest {
   }
 
   @Test
+  @SuppressWarnings("deprecation")
   void throwsImageNotFoundExceptionWhenGettingContentTypeForNonExistentImage() {
     String invalidImageId = "not-an-object-id";
 
@@ -289,33 +884,73 @@ class GridFsImageStorageServiceTest {
   }
 
   @Test
-  void deletesImageSuccessfully() {
-    String imageId = new ObjectId().toString();
+  void deletesImageWhenLastReferenceIsReleased() {
+    ObjectId imageId = new ObjectId();
 
-    service.deleteImage(imageId);
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(new Document("_id", imageId)
+            .append("metadata", new Document("ref_count", 0)));
+    when(mongoTemplate.remove(any(Query.class), eq("fs.files")))
+        .thenReturn(DeleteResult.acknowledged(1));
 
-    verify(gridFsTemplate).delete(any(Query.class));
+    service.deleteImage(imageId.toString());
+
+    verify(mongoTemplate).remove(any(Query.class), eq("fs.files"));
+    verify(mongoTemplate).remove(any(Query.class), eq("fs.chunks"));
+  }
+
+  @Test
+  void deletesLegacyImageWithoutReferenceCount() {
+    ObjectId imageId = new ObjectId();
+
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(new Document("_id", imageId).append("metadata", new Document()));
+    when(mongoTemplate.remove(any(Query.class), eq("fs.files")))
+        .thenReturn(DeleteResult.acknowledged(1));
+
+    service.deleteImage(imageId.toString());
+
+    verify(mongoTemplate).remove(any(Query.class), eq("fs.chunks"));
+  }
+
+  @Test
+  void keepsImageThatIsStillReferenced() {
+    ObjectId imageId = new ObjectId();
+
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(new Document("_id", imageId)
+            .append("metadata", new Document("ref_count", 1)));
+
+    service.deleteImage(imageId.toString());
+
+    verify(mongoTemplate, never()).remove(any(Query.class), any(String.class));
   }
 
   @Test
   void doesNotDeleteWhenImageIdIsNull() {
     service.deleteImage(null);
 
-    verify(gridFsTemplate, never()).delete(any(Query.class));
+    verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), any(String.class));
   }
 
   @Test
   void doesNotDeleteWhenImageIdIsEmpty() {
     service.deleteImage("");
 
-    verify(gridFsTemplate, never()).delete(any(Query.class));
+    verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), any(String.class));
   }
 
   @Test
   void doesNotDeleteWhenImageIdIsBlank() {
     service.deleteImage("   ");
 
-    verify(gridFsTemplate, never()).delete(any(Query.class));
+    verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), any(String.class));
   }
 
   @Test
@@ -325,6 +960,137 @@ class GridFsImageStorageServiceTest {
     service.deleteImage(invalidImageId);
   }
 
+  @Test
+  void deletesManyImagesWithOneBulkOperationPerCollection() {
+    ObjectId first = new ObjectId();
+    ObjectId second = new ObjectId();
+
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(List.of(new Document("_id", first), new Document("_id", second)))
+        .thenReturn(List.of());
+    when(mongoTemplate.remove(any(Query.class), eq("fs.files")))
+        .thenReturn(DeleteResult.acknowledged(2));
+
+    long result = service.deleteImages(List.of(first.toString(), second.toString()));
+
+    assertThat(result).isEqualTo(2);
+    verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq("fs.files"));
+    verify(mongoTemplate).remove(any(Query.class), eq("fs.files"));
+    verify(mongoTemplate).remove(any(Query.class), eq("fs.chunks"));
+  }
+
+  @Test
+  void releasesRepeatedReferencesInBulk() {
+    ObjectId shared = new ObjectId();
+    ObjectId single = new ObjectId();
+
+    service.deleteImages(List.of(shared.toString(), single.toString(), shared.toString()));
+
+    ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate, times(2)).updateMulti(any(Query.class), updates.capture(),
+        eq("fs.files"));
+    assertThat(updates.getAllValues())
+        .extracting(update -> update.getUpdateObject().get("$inc", Document.class)
+            .get("metadata.ref_count"))
+        .containsExactlyInAnyOrder(-1L, -2L);
+    verify(mongoTemplate, never()).remove(any(Query.class), any(String.class));
+  }
+
+  @Test
+  void keepsBulkReleasedImagesThatAreStillReferenced() {
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(List.of());
+
+    long result = service.deleteImages(List.of(new ObjectId().toString()));
+
+    assertThat(result).isZero();
+    verify(mongoTemplate, never()).remove(any(Query.class), any(String.class));
+  }
+
+  @Test
+  void skipsBulkDeleteWhenNoImageIdIsValid() {
+    long result = service.deleteImages(List.of("not-an-object-id"));
+
+    assertThat(result).isZero();
+    verify(mongoTemplate, never()).remove(any(Query.class), any(String.class));
+  }
+
+  @Test
+  void streamsIdsOfUnusedOriginalImagesInAscendingOrder() {
+    ObjectId first = new ObjectId();
+    ObjectId second = new ObjectId();
+    Instant cutoff = Instant.now();
+
+    when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(Stream.of(new Document("_id", first), new Document("_id", second)));
+
+    try (Stream<String> imageIds = service.streamImageIdsUnusedSince(cutoff)) {
+      assertThat(imageIds).containsExactly(first.toHexString(), second.toHexString());
+    }
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).stream(query.capture(), eq(Document.class), eq("fs.files"));
+    assertThat(query.getValue().getSortObject()).containsEntry("_id", 1);
+    assertThat(query.getValue().getQueryObject())
+        .containsEntry("uploadDate", new Document("$lt", Date.from(cutoff)))
+        .containsEntry("metadata.original_id", new Document("$exists", false))
+        .containsKey("metadata.referenced_at");
+  }
+
+  @Test
+  void deletesOrphanedImagesWithTheirVariantsAndChunks() {
+    ObjectId first = new ObjectId();
+    ObjectId second = new ObjectId();
+
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(List.of(new Document("_id", first), new Document("_id", second)))
+        .thenReturn(List.of(new Document("_id", new ObjectId())));
+    when(mongoTemplate.remove(any(Query.class), eq("fs.files")))
+        .thenReturn(DeleteResult.acknowledged(2), DeleteResult.acknowledged(1));
+
+    long result = service.deleteOrphanedImages(
+        List.of(first.toString(), second.toString(), "not-an-object-id"), Instant.now());
+
+    assertThat(result).isEqualTo(3);
+    verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class),
+        any(String.class));
+    verify(mongoTemplate).remove(any(Query.class), eq("fs.chunks"));
+  }
+
+  @Test
+  void keepsOrphanedImagesReferencedAgainWhileDeleting() {
+    ObjectId orphaned = new ObjectId();
+    ObjectId reused = new ObjectId();
+
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(List.of(new Document("_id", orphaned), new Document("_id", reused)))
+        .thenReturn(List.of(new Document("_id", reused)))
+        .thenReturn(List.of());
+    when(mongoTemplate.remove(any(Query.class), eq("fs.files")))
+        .thenReturn(DeleteResult.acknowledged(1), DeleteResult.acknowledged(0));
+
+    long result = service.deleteOrphanedImages(
+        List.of(orphaned.toString(), reused.toString()), Instant.now());
+
+    assertThat(result).isEqualTo(1);
+    ArgumentCaptor<Query> chunks = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).remove(chunks.capture(), eq("fs.chunks"));
+    assertThat(chunks.getValue().getQueryObject().get("files_id", Document.class)
+        .getList("$in", ObjectId.class)).containsExactly(orphaned);
+  }
+
+  @Test
+  void skipsOrphanDeleteWhenNoneIsUnusedAnymore() {
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("fs.files")))
+        .thenReturn(List.of());
+
+    long result = service.deleteOrphanedImages(List.of(new ObjectId().toString()),
+        Instant.now());
+
+    assertThat(result).isZero();
+    verify(mongoTemplate, never()).remove(any(Query.class), any(String.class));
+  }
+
   @Test
   void returnsTrueWhenImageExists() {
     String imageId = new ObjectId().toString();
@@ -387,11 +1153,17 @@ class GridFsImageStorageServiceTest {
         "image",
         "test.jpg",
         "image/jpeg",
-        "content".getBytes()
+        jpeg("content")
     ) {
+      private int reads;
+
       @Override
       public InputStream getInputStream() throws IOException {
-        throw new IOException("Storage error");
+        // The header check still succeeds, reading the content for storage fails
+        if (reads++ > 0) {
+          throw new IOException("Storage error");
+        }
+        return super.getInputStream();
       }
     };
 
@@ -401,20 +1173,210 @@ class GridFsImageStorageServiceTest {
   }
 
   @Test
-  void throwsRuntimeExceptionWhenIOErrorOccursDuringRetrieval() throws IOException {
-    String imageId = new ObjectId().toString();
+  void rejectsContentThatIsNotAnImage() {
+    MockMultipartFile file = new MockMultipartFile(
+        "image",
+        "fake.png",
+        "image/png",
+        "not an image at all".getBytes()
+    );
 
-    when(gridFsTemplate.findOne(any(Query.class))).thenReturn(gridFSFile);
-    when(gridFsTemplate.getResource(gridFSFile)).thenReturn(gridFsResource);
-    when(gridFsResource.getInputStream()).thenThrow(new IOException("Read error"));
+    assertThatThrownBy(() -> service.storeImage(file))
+        .isInstanceOf(InvalidImageException.class)
+        .hasMessageContaining("not a valid JPEG, PNG, or WebP image");
+    verify(gridFsTemplate, never()).store(any(), any(), any(String.class), any(Document.class));
+  }
 
-    assertThatThrownBy(() -> service.getImage(imageId))
-        .isInstanceOf(RuntimeException.class)
-        .hasMessageContaining("Failed to read image");
+  @Test
+  void rejectsContentNotMatchingDeclaredType() {
+    MockMultipartFile file = new MockMultipartFile(
+        "image",
+        "photo.jpg",
+        "image/jpeg",
+        png("png-content")
+    );
+
+    assertThatThrownBy(() -> service.storeImage(file))
+        .isInstanceOf(InvalidImageException.class)
+        .hasMessageContaining("Image content is image/png but was uploaded as image/jpeg");
+    verify(gridFsTemplate, never()).store(any(), any(), any(String.class), any(Document.class));
   }
-}
 
+  @Test
+  void rejectsImageWithTooManyPixelsBeforeStoringIt() {
+    byte[] huge = png("huge");
+    // IHDR of 10000x10000 pixels
+    huge[18] = 0x27;
+    huge[19] = 0x10;
+    huge[22] = 0x27;
+    huge[23] = 0x10;
+    MockMultipartFile file = new MockMultipartFile("image", "huge.png", "image/png", huge);
 
+    assertThatThrownBy(() -> service.storeImage(file))
+        .isInstanceOf(InvalidImageException.class)
+        .hasMessageContaining("Image dimensions 10000x10000 exceed");
+    verify(gridFsTemplate, never()).store(any(), any(), any(String.class), any(Document.class));
+  }
 
+  @Test
+  void rejectsImageWithoutPixels() {
+    byte[] empty = png("empty");
+    empty[19] = 0;
+    MockMultipartFile file = new MockMultipartFile("image", "empty.png", "image/png", empty);
 
+    assertThatThrownBy(() -> service.storeImage(file))
+        .isInstanceOf(InvalidImageException.class)
+        .hasMessageContaining("Image dimensions 0x16");
+    verify(gridFsTemplate, never()).store(any(), any(), any(String.class), any(Document.class));
+  }
 
+  @Test
+  void writesUploadChunkAsExpiringChunkOfFinalFile() {
+    ImageUpload upload = ImageUpload.start("user", "image/png", 64, null, 32,
+        Duration.ofHours(1));
+    byte[] data = Arrays.copyOf(png("first"), 32);
+
+    service.writeUploadChunk(upload, 0, data);
+
+    ArgumentCaptor<Query> chunk = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).upsert(chunk.capture(), update.capture(), eq("fs.chunks"));
+    assertThat(chunk.getValue().getQueryObject())
+        .containsEntry("files_id", new ObjectId(upload.id()))
+        .containsEntry("n", 0)
+        .containsEntry("expires_at", new Document("$exists", true));
+    assertThat(update.getValue().getUpdateObject().get("$set", Document.class).get("data"))
+        .isEqualTo(new Binary(data));
+    assertThat(update.getValue().getUpdateObject().get("$setOnInsert", Document.class))
+        .containsEntry("expires_at", Date.from(upload.expiresAt()));
+  }
+
+  @Test
+  void rejectsUploadChunkOfUploadCompletedInTheMeantime() {
+    ImageUpload upload = ImageUpload.start("user", "image/png", 64, null, 32,
+        Duration.ofHours(1));
+    when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq("fs.chunks")))
+        .thenThrow(new DuplicateKeyException("files_id_1_n_1"));
+
+    assertThatThrownBy(() -> service.writeUploadChunk(upload, 1, new byte[32]))
+        .isInstanceOf(InvalidImageUploadException.class)
+        .hasMessageContaining("already completed");
+  }
+
+  @Test
+  void rejectsFirstUploadChunkNotMatchingAnnouncedType() {
+    ImageUpload upload = ImageUpload.start("user", "image/webp", 64, null, 32,
+        Duration.ofHours(1));
+
+    assertThatThrownBy(() -> service.writeUploadChunk(upload, 0, Arrays.copyOf(png("x"), 32)))
+        .isInstanceOf(InvalidImageException.class);
+
+    verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), any(String.class));
+  }
+
+  @Test
+  void completesUploadByPointingNewFileAtStagedChunks() {
+    ImageUpload upload = ImageUpload.start("user", "image/jpeg", 70, "coat.jpg", 32,
+        Duration.ofHours(1));
+    when(mongoTemplate.count(any(Query.class), eq("fs.chunks"))).thenReturn(3L);
+
+    String imageId = service.completeUpload(upload);
+
+    assertThat(imageId).isEqualTo(upload.id());
+    InOrder order = inOrder(mongoTemplate);
+    ArgumentCaptor<Update> unset = ArgumentCaptor.forClass(Update.class);
+    order.verify(mongoTemplate).updateMulti(any(Query.class), unset.capture(), eq("fs.chunks"));
+    ArgumentCaptor<Document> file = ArgumentCaptor.forClass(Document.class);
+    order.verify(mongoTemplate).insert(file.capture(), eq("fs.files"));
+    assertThat(unset.getValue().getUpdateObject().get("$unset", Document.class))
+        .containsKey("expires_at");
+    assertThat(file.getValue())
+        .containsEntry("_id", new ObjectId(upload.id()))
+        .containsEntry("length", 70L)
+        .containsEntry("chunkSize", 32)
+        .containsEntry("filename", "coat.jpg");
+    assertThat(file.getValue().get("metadata", Document.class))
+        .containsEntry("_contentType", "image/jpeg")
+        .containsEntry("ref_count", 1)
+        .containsEntry("referenced_at", Date.from(upload.expiresAt()));
+    verify(gridFsTemplate, never()).store(any(), any(String.class), any(String.class),
+        any(Document.class));
+  }
+
+  @Test
+  void rejectsCompletionWhileChunksAreMissing() {
+    ImageUpload upload = ImageUpload.start("user", "image/jpeg", 70, null, 32,
+        Duration.ofHours(1));
+    when(mongoTemplate.count(any(Query.class), eq("fs.chunks"))).thenReturn(2L);
+
+    assertThatThrownBy(() -> service.completeUpload(upload))
+        .isInstanceOf(InvalidImageUploadException.class);
+
+    verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class),
+        any(String.class));
+    verify(mongoTemplate, never()).insert(any(Document.class), any(String.class));
+  }
+
+  @Test
+  void returnsSameImageWhenUploadIsCompletedAgain() {
+    ImageUpload upload = ImageUpload.start("user", "image/jpeg", 10, null, 32,
+        Duration.ofHours(1));
+    when(mongoTemplate.count(any(Query.class), eq("fs.chunks"))).thenReturn(1L);
+    when(mongoTemplate.insert(any(Document.class), eq("fs.files")))
+        .thenThrow(new DuplicateKeyException("duplicate"));
+
+    assertThat(service.completeUpload(upload)).isEqualTo(upload.id());
+  }
+
+  @Test
+  void discardsOnlyChunksStillWaitingForCompletion() {
+    ImageUpload upload = ImageUpload.start("user", "image/jpeg", 10, null, 32,
+        Duration.ofHours(1));
+
+    service.discardUpload(upload);
+
+    ArgumentCaptor<Query> chunks = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).remove(chunks.capture(), eq("fs.chunks"));
+    assertThat(chunks.getValue().getQueryObject())
+        .containsEntry("files_id", new ObjectId(upload.id()))
+        .containsEntry("expires_at", new Document("$exists", true));
+  }
+
+  /**
+   * Lets the GridFS mock read streamed uploads to their end, like storing them does.
+   */
+  private void drainStoredUploads() {
+    when(gridFsTemplate.store(ArgumentMatchers.<GridFsUpload<ObjectId>>any()))
+        .thenAnswer(invocation -> {
+          GridFsUpload<ObjectId> upload = invocation.getArgument(0);
+          upload.getContent().transferTo(OutputStream.nullOutputStream());
+          return upload.getFileId();
+        });
+  }
+
+  /**
+   * A find result handing the given files to {@code forEach}.
+   */
+  private static GridFSFindIterable found(GridFSFile... files) {
+    GridFSFindIterable iterable = mock(GridFSFindIterable.class);
+    doAnswer(invocation -> {
+      Consumer<GridFSFile> action = invocation.getArgument(0);
+      List.of(files).forEach(action);
+      return null;
+    }).when(iterable).forEach(any());
+    return iterable;
+  }
+
+  /**
+   * A file document as returned after releasing a reference to it.
+   */
+  private static Document released(int references) {
+    return new Document("_id", new ObjectId())
+        .append("metadata", new Document("ref_count", references));
+  }
+
+  private static Optional<ImageResizer.Permit> freePermit() {
+    return Optional.of(() -> {
+    });
+  }
+}
@@ -0,0 +1,171 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.testcontainers.mongodb.MongoDBContainer;
+
+/**
+ * Measures store and read throughput and latency of GridFS images for combinations of chunk
+ * size, read batch size and read-ahead threads, against MongoDB in a container. Run with
+ * {@code ./gradlew benchmark}.
+ *
+ * <p>The settings to compare are comma-separated system properties {@code benchmark.chunk-sizes},
+ * {@code benchmark.read-batch-chunks} and {@code benchmark.read-ahead-threads};
+ * {@code benchmark.iterations} sets the measured rounds per combination. Reads are written to a
+ * sink taking {@code benchmark.client-mbps} megabits per second, standing in for the socket to
+ * the client, or as fast as they come when 0.
+ */
+@Tag("benchmark")
+class GridFsThroughputBenchmark {
+
+  private static final int[] IMAGE_SIZES = {100 * 1024, 1024 * 1024, 5 * 1024 * 1024,
+      20 * 1024 * 1024};
+  private static final int WARMUP_ITERATIONS = 2;
+
+  private static MongoDBContainer mongoDBContainer;
+  private static MongoClient mongoClient;
+  private static MongoTemplate mongoTemplate;
+
+  @BeforeAll
+  static void startMongo() {
+    mongoDBContainer = new MongoDBContainer("mongo:7.0");
+    mongoDBContainer.start();
+    mongoClient = MongoClients.create(mongoDBContainer.getConnectionString());
+    mongoTemplate = new MongoTemplate(mongoClient, "gridfs-benchmark");
+  }
+
+  @AfterAll
+  static void stopMongo() {
+    if (mongoClient != null) {
+      mongoClient.close();
+    }
+    if (mongoDBContainer != null) {
+      mongoDBContainer.stop();
+    }
+  }
+
+  @Test
+  void measuresStoreAndReadThroughput() throws IOException {
+    int iterations = Integer.getInteger("benchmark.iterations", 10);
+    int[] chunkSizes = setting("benchmark.chunk-sizes", "261120,1048576,4194304");
+    int[] batchSizes = setting("benchmark.read-batch-chunks", "1,2,8");
+    int[] readAheadThreads = setting("benchmark.read-ahead-threads", "0,2");
+    long clientBytesPerSecond = Long.getLong("benchmark.client-mbps", 0) * 1_000_000 / 8;
+
+    System.out.printf("%-5s %9s %9s %6s %10s %9s %9s %9s%n", "op", "image", "chunk", "batch",
+        "read-ahead", "MB/s", "p50 ms", "p95 ms");
+    for (int chunkSize : chunkSizes) {
+      GridFsTemplate gridFsTemplate = new GridFsTemplate(mongoTemplate.getConverter(),
+          () -> GridFSBuckets.create(mongoTemplate.getDb()).withChunkSizeBytes(chunkSize));
+      for (int imageSize : IMAGE_SIZES) {
+        byte[] image = new byte[imageSize];
+        new Random(imageSize).nextBytes(image);
+
+        List<GridFSFile> files = new ArrayList<>();
+        long[] storeNanos = new long[iterations];
+        for (int i = -WARMUP_ITERATIONS; i < iterations; i++) {
+          long start = System.nanoTime();
+          ObjectId fileId = gridFsTemplate.store(new ByteArrayInputStream(image), "benchmark",
+              "image/jpeg", new Document("references", 1));
+          long elapsed = System.nanoTime() - start;
+          files.add(gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(fileId))));
+          if (i >= 0) {
+            storeNanos[i] = elapsed;
+          }
+        }
+        report("store", imageSize, chunkSize, "-", "-", storeNanos);
+
+        for (int batchChunks : batchSizes) {
+          for (int threads : readAheadThreads) {
+            GridFsChunkReader reader = new GridFsChunkReader(mongoTemplate, batchChunks, threads);
+            long[] readNanos = new long[iterations];
+            for (int i = -WARMUP_ITERATIONS; i < iterations; i++) {
+              GridFSFile file = files.get(i + WARMUP_ITERATIONS);
+              long start = System.nanoTime();
+              long read;
+              try (InputStream content = reader.open(file)) {
+                read = content.transferTo(client(clientBytesPerSecond));
+              }
+              long elapsed = System.nanoTime() - start;
+              assertThat(read).isEqualTo(imageSize);
+              if (i >= 0) {
+                readNanos[i] = elapsed;
+              }
+            }
+            reader.shutdown();
+            report("read", imageSize, chunkSize, String.valueOf(batchChunks),
+                threads > 0 ? threads + " threads" : "off", readNanos);
+          }
+        }
+        mongoTemplate.dropCollection("fs.files");
+        mongoTemplate.dropCollection("fs.chunks");
+      }
+    }
+  }
+
+  private static void report(String operation, int imageSize, int chunkSize, String batch,
+      String readAhead, long[] nanos) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    double seconds = Arrays.stream(sorted).sum() / 1e9;
+    System.out.printf("%-5s %8dK %8dK %6s %10s %9.1f %9.2f %9.2f%n", operation,
+        imageSize / 1024, chunkSize / 1024, batch, readAhead,
+        (double) imageSize * sorted.length / seconds / (1024 * 1024),
+        sorted[(sorted.length - 1) / 2] / 1e6, sorted[(sorted.length * 95 - 1) / 100] / 1e6);
+  }
+
+  private static int[] setting(String property, String defaults) {
+    return Arrays.stream(System.getProperty(property, defaults).split(","))
+        .map(String::trim)
+        .mapToInt(Integer::parseInt)
+        .toArray();
+  }
+
+  /**
+   * Returns a sink taking bytes at the given rate, like a client socket would.
+   */
+  private static OutputStream client(long bytesPerSecond) {
+    if (bytesPerSecond <= 0) {
+      return OutputStream.nullOutputStream();
+    }
+    return new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int count) throws IOException {
+        long nanos = count * 1_000_000_000L / bytesPerSecond;
+        try {
+          Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while writing to the client", e);
+        }
+      }
+    };
+  }
+}
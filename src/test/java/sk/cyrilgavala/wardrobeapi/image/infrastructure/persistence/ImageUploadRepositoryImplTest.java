@@ -0,0 +1,66 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+
+@ExtendWith(MockitoExtension.class)
+class ImageUploadRepositoryImplTest {
+
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  @InjectMocks
+  private ImageUploadRepositoryImpl repository;
+
+  @Test
+  void recordsReceivedChunkOfOpenUploadAtomically() {
+    ImageUpload upload = ImageUpload.start("user123", "image/jpeg", 10, null, 32,
+        Duration.ofHours(1));
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(ImageUpload.class))).thenReturn(upload);
+
+    assertThat(repository.markChunkReceived(upload.id(), 3)).contains(upload);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).findAndModify(query.capture(), update.capture(),
+        any(FindAndModifyOptions.class), eq(ImageUpload.class));
+    assertThat(query.getValue().getQueryObject())
+        .containsEntry("_id", upload.id())
+        .containsEntry("image_id", new Document("$exists", false))
+        .containsKey("expires_at");
+    assertThat(update.getValue().getUpdateObject().get("$addToSet", Document.class))
+        .containsEntry("received_chunks", 3);
+  }
+
+  @Test
+  void claimsOnlyCompletedUploadOfSameUser() {
+    when(mongoTemplate.findAndRemove(any(Query.class), eq(ImageUpload.class))).thenReturn(null);
+
+    assertThat(repository.claimCompleted("user123", "507f1f77bcf86cd799439011")).isEmpty();
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).findAndRemove(query.capture(), eq(ImageUpload.class));
+    assertThat(query.getValue().getQueryObject())
+        .containsEntry("image_id", "507f1f77bcf86cd799439011")
+        .containsEntry("user_id", "user123")
+        .containsKey("expires_at");
+  }
+}
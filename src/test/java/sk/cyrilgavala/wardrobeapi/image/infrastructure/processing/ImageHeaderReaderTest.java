@@ -0,0 +1,178 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.withExif;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Optional;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageHeaderReader.ImageHeader;
+
+class ImageHeaderReaderTest {
+
+  private final ImageHeaderReader reader = new ImageHeaderReader();
+
+  @Test
+  void readsDimensionsOfPng() throws IOException {
+    byte[] png = encode(new BufferedImage(640, 480, BufferedImage.TYPE_INT_ARGB), "png");
+
+    Optional<ImageHeader> header = reader.read(new ByteArrayInputStream(png));
+
+    assertThat(header).contains(new ImageHeader("image/png", 640, 480));
+  }
+
+  @Test
+  void readsDimensionsOfJpeg() throws IOException {
+    byte[] jpeg = encode(new BufferedImage(300, 1200, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+    Optional<ImageHeader> header = reader.read(new ByteArrayInputStream(jpeg));
+
+    assertThat(header).contains(new ImageHeader("image/jpeg", 300, 1200));
+  }
+
+  @Test
+  void skipsLargeJpegSegmentsWithoutReadingThem() throws IOException {
+    byte[] jpeg = encode(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), "jpeg");
+    // APP1 segment of almost 64 KiB, as left by cameras for EXIF data, in front of the frame
+    byte[] exif = new byte[65_535 + 2];
+    exif[0] = (byte) 0xFF;
+    exif[1] = (byte) 0xE1;
+    exif[2] = (byte) 0xFF;
+    exif[3] = (byte) 0xFF;
+    byte[] withExif = new byte[jpeg.length + exif.length];
+    System.arraycopy(jpeg, 0, withExif, 0, 2);
+    System.arraycopy(exif, 0, withExif, 2, exif.length);
+    System.arraycopy(jpeg, 2, withExif, 2 + exif.length, jpeg.length - 2);
+    CountingInputStream content = new CountingInputStream(new ByteArrayInputStream(withExif));
+
+    Optional<ImageHeader> header = reader.read(content);
+
+    assertThat(header).contains(new ImageHeader("image/jpeg", 20, 10));
+    assertThat(content.bytesRead).isLessThan(16 * 1024);
+  }
+
+  @Test
+  void readsDimensionsOfLossyWebp() throws IOException {
+    byte[] webp = webp("VP8 ", 0x00, 0x00, 0x00, 0x9D, 0x01, 0x2A, 0x20, 0x03, 0x58, 0x02);
+
+    Optional<ImageHeader> header = reader.read(new ByteArrayInputStream(webp));
+
+    assertThat(header).contains(new ImageHeader("image/webp", 800, 600));
+  }
+
+  @Test
+  void readsDimensionsOfLosslessWebp() throws IOException {
+    // Width and height minus one packed into 14 bits each: 99 and 49
+    int bits = 99 | (49 << 14);
+    byte[] webp = webp("VP8L", 0x2F, bits & 0xFF, (bits >> 8) & 0xFF, (bits >> 16) & 0xFF,
+        (bits >> 24) & 0xFF);
+
+    Optional<ImageHeader> header = reader.read(new ByteArrayInputStream(webp));
+
+    assertThat(header).contains(new ImageHeader("image/webp", 100, 50));
+  }
+
+  @Test
+  void readsCanvasDimensionsOfExtendedWebp() throws IOException {
+    byte[] webp = webp("VP8X", 0x10, 0x00, 0x00, 0x00, 0x1F, 0x4E, 0x00, 0x0F, 0x27, 0x00);
+
+    Optional<ImageHeader> header = reader.read(new ByteArrayInputStream(webp));
+
+    assertThat(header).contains(new ImageHeader("image/webp", 20_000, 10_000));
+  }
+
+  @Test
+  void returnsEmptyForContentWithoutKnownSignature() throws IOException {
+    Optional<ImageHeader> header = reader.read(
+        new ByteArrayInputStream("%PDF-1.7 not an image".getBytes()));
+
+    assertThat(header).isEmpty();
+  }
+
+  @Test
+  void returnsEmptyForImageTruncatedBeforeItsDimensions() throws IOException {
+    byte[] png = encode(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "png");
+
+    Optional<ImageHeader> header = reader.read(
+        new ByteArrayInputStream(Arrays.copyOf(png, 18)));
+
+    assertThat(header).isEmpty();
+  }
+
+  @Test
+  void readsExifOrientationInEitherByteOrder() throws IOException {
+    byte[] jpeg = encode(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+    assertThat(reader.readOrientation(new ByteArrayInputStream(
+        withExif(jpeg, ByteOrder.BIG_ENDIAN, 6, 0)))).isEqualTo(6);
+    assertThat(reader.readOrientation(new ByteArrayInputStream(
+        withExif(jpeg, ByteOrder.LITTLE_ENDIAN, 3, 1024)))).isEqualTo(3);
+  }
+
+  @Test
+  void treatsImagesWithoutValidOrientationAsUpright() throws IOException {
+    byte[] jpeg = encode(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), "jpeg");
+    byte[] png = encode(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), "png");
+
+    assertThat(reader.readOrientation(new ByteArrayInputStream(jpeg))).isEqualTo(1);
+    assertThat(reader.readOrientation(new ByteArrayInputStream(png))).isEqualTo(1);
+    assertThat(reader.readOrientation(new ByteArrayInputStream(
+        withExif(jpeg, ByteOrder.BIG_ENDIAN, 42, 0)))).isEqualTo(1);
+    assertThat(reader.readOrientation(new ByteArrayInputStream(
+        Arrays.copyOf(withExif(jpeg, ByteOrder.BIG_ENDIAN, 6, 0), 20)))).isEqualTo(1);
+  }
+
+  private static byte[] webp(String chunk, int... payload) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    output.writeBytes("RIFF".getBytes());
+    output.writeBytes(new byte[4]);
+    output.writeBytes("WEBPVP8".getBytes());
+    output.write(chunk.charAt(3));
+    output.writeBytes(new byte[]{(byte) payload.length, 0, 0, 0});
+    for (int value : payload) {
+      output.write(value);
+    }
+    return output.toByteArray();
+  }
+
+  private static byte[] encode(BufferedImage image, String format) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, format, output);
+    return output.toByteArray();
+  }
+
+  private static final class CountingInputStream extends FilterInputStream {
+
+    private long bytesRead;
+
+    private CountingInputStream(InputStream input) {
+      super(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value = super.read();
+      if (value >= 0) {
+        bytesRead++;
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read > 0) {
+        bytesRead += read;
+      }
+      return read;
+    }
+  }
+}
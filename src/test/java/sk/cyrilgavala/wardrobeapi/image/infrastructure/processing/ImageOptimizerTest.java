@@ -0,0 +1,179 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.jpeg;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.webp;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.withExif;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.junit.jupiter.api.Test;
+
+class ImageOptimizerTest {
+
+  private final ImageOptimizer optimizer = new ImageOptimizer(new ImageHeaderReader(), true,
+      0.85f, 2);
+
+  @Test
+  void stripsExifBlockFromJpeg() throws IOException {
+    byte[] original = withExif(encode(photo(120, 80), "jpeg", 0.85f), ByteOrder.BIG_ENDIAN, 1,
+        32 * 1024);
+
+    Optional<byte[]> optimized = optimizer.optimize(original, "image/jpeg");
+
+    assertThat(optimized).isPresent();
+    assertThat(optimized.get().length).isLessThan(original.length);
+    assertThat(new String(optimized.get(), StandardCharsets.ISO_8859_1)).doesNotContain("Exif");
+    BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(optimized.get()));
+    assertThat(decoded.getWidth()).isEqualTo(120);
+    assertThat(decoded.getHeight()).isEqualTo(80);
+  }
+
+  @Test
+  void turnsJpegUprightAccordingToItsOrientation() throws IOException {
+    // Red top left corner of a sideways photo, which orientation 6 turns 90 degrees clockwise
+    BufferedImage sideways = photo(120, 80);
+    Graphics2D graphics = sideways.createGraphics();
+    graphics.setColor(Color.RED);
+    graphics.fillRect(0, 0, 30, 30);
+    graphics.dispose();
+    byte[] original = withExif(encode(sideways, "jpeg", 0.85f), ByteOrder.LITTLE_ENDIAN, 6,
+        32 * 1024);
+
+    BufferedImage upright = ImageIO.read(new ByteArrayInputStream(
+        optimizer.optimize(original, "image/jpeg").orElseThrow()));
+
+    assertThat(upright.getWidth()).isEqualTo(80);
+    assertThat(upright.getHeight()).isEqualTo(120);
+    assertThat(new Color(upright.getRGB(70, 10)).getRed()).isGreaterThan(200);
+    assertThat(new Color(upright.getRGB(10, 10)).getRed()).isLessThan(200);
+  }
+
+  @Test
+  void recompressesPngWithoutChangingPixels() throws IOException {
+    BufferedImage image = photo(200, 200);
+    byte[] original = encode(image, "png", 1.0f);
+
+    Optional<byte[]> optimized = optimizer.optimize(original, "image/png");
+
+    assertThat(optimized).isPresent();
+    assertThat(optimized.get().length).isLessThan(original.length);
+    BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(optimized.get()));
+    for (int y = 0; y < image.getHeight(); y += 7) {
+      for (int x = 0; x < image.getWidth(); x += 7) {
+        assertThat(decoded.getRGB(x, y)).isEqualTo(image.getRGB(x, y));
+      }
+    }
+  }
+
+  @Test
+  void keepsUploadWhenReEncodingWouldNotBeSmaller() throws IOException {
+    byte[] original = encode(photo(120, 80), "jpeg", 0.3f);
+    ImageOptimizer highQuality = new ImageOptimizer(new ImageHeaderReader(), true, 0.95f, 2);
+
+    assertThat(highQuality.optimize(original, "image/jpeg")).isEmpty();
+  }
+
+  @Test
+  void keepsFormatsItCannotWriteAndContentItCannotDecode() {
+    assertThat(optimizer.optimize(webp("webp-content"), "image/webp")).isEmpty();
+    assertThat(optimizer.optimize(jpeg("not-really-a-jpeg"), "image/jpeg")).isEmpty();
+  }
+
+  @Test
+  void leavesImagesAloneWhenDisabled() throws IOException {
+    byte[] original = withExif(encode(photo(120, 80), "jpeg", 0.85f), ByteOrder.BIG_ENDIAN, 6,
+        32 * 1024);
+    ImageOptimizer disabled = new ImageOptimizer(new ImageHeaderReader(), false, 0.85f, 2);
+
+    assertThat(disabled.isEnabled()).isFalse();
+    assertThat(disabled.optimize(original, "image/jpeg")).isEmpty();
+  }
+
+  @Test
+  void rejectsQualityOutsideOfJpegRange() {
+    assertThatThrownBy(() -> new ImageOptimizer(new ImageHeaderReader(), true, 1.5f, 2))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void rejectsLessThanOneConcurrentOptimization() {
+    assertThatThrownBy(() -> new ImageOptimizer(new ImageHeaderReader(), true, 0.85f, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void letsUploadsWaitForFreePermit() throws Exception {
+    ImageOptimizer single = new ImageOptimizer(new ImageHeaderReader(), true, 0.85f, 1);
+    CountDownLatch acquired = new CountDownLatch(1);
+
+    Thread waiting;
+    try (ImageOptimizer.Permit permit = single.acquire()) {
+      waiting = Thread.ofVirtual().start(() -> {
+        try (ImageOptimizer.Permit second = single.acquire()) {
+          acquired.countDown();
+        }
+      });
+      assertThat(acquired.await(200, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+    waiting.join();
+  }
+
+  @Test
+  void grantsPermitsAtOnceWhenDisabled() {
+    ImageOptimizer disabled = new ImageOptimizer(new ImageHeaderReader(), false, 0.85f, 1);
+
+    try (ImageOptimizer.Permit first = disabled.acquire();
+        ImageOptimizer.Permit second = disabled.acquire()) {
+      assertThat(first).isNotNull();
+      assertThat(second).isNotNull();
+    }
+  }
+
+  /**
+   * A smooth gradient, which compresses like a photo rather than a flat color.
+   */
+  private static BufferedImage photo(int width, int height) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, new Color(x * 255 / width, y * 255 / height, 128).getRGB());
+      }
+    }
+    return image;
+  }
+
+  private static byte[] encode(BufferedImage image, String format, float quality)
+      throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+    ImageWriteParam params = writer.getDefaultWriteParam();
+    params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+    params.setCompressionQuality(quality);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+      writer.setOutput(imageOutput);
+      writer.write(null, new IIOImage(image, null, null), params);
+    } finally {
+      writer.dispose();
+    }
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,115 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Mockito.when;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.png;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.solidPng;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.LabColor;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+
+@ExtendWith(MockitoExtension.class)
+class ImagePaletteExtractorTest {
+
+  @Mock
+  private ImageStorageService imageStorageService;
+
+  private ImagePaletteExtractor extractor;
+
+  @BeforeEach
+  void setUp() {
+    extractor = new ImagePaletteExtractor(imageStorageService, 5, 4096);
+  }
+
+  @Test
+  void extractsSingleColorOfSolidImage() {
+    when(imageStorageService.getImage("image1", ImageVariant.THUMB))
+        .thenReturn(image("image1", solidPng(120, 80, new Color(0x1f3a93))));
+
+    assertThat(extractor.extractPalette("image1")).containsExactly("#1f3a93");
+  }
+
+  @Test
+  void ordersColorsByShareAndDropsNoise() throws IOException {
+    // Three quarters navy, a quarter white and a few red pixels below five percent
+    BufferedImage image = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    graphics.setColor(new Color(0x1f3a93));
+    graphics.fillRect(0, 0, 150, 200);
+    graphics.setColor(Color.WHITE);
+    graphics.fillRect(150, 0, 50, 200);
+    graphics.setColor(Color.RED);
+    graphics.fillRect(0, 0, 20, 20);
+    graphics.dispose();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", output);
+    when(imageStorageService.getImage("image1", ImageVariant.THUMB))
+        .thenReturn(image("image1", output.toByteArray()));
+
+    List<String> palette = extractor.extractPalette("image1");
+
+    assertThat(palette).hasSize(2);
+    assertThat(LabColor.fromHex(palette.get(0)).distance(LabColor.fromHex("#1f3a93")))
+        .isLessThan(2);
+    assertThat(LabColor.fromHex(palette.get(1)).distance(LabColor.fromHex("#ffffff")))
+        .isLessThan(2);
+  }
+
+  @Test
+  void samplesAtMostConfiguredNumberOfPixelsAndSkipsTransparentOnes() {
+    BufferedImage image = new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = image.createGraphics();
+    graphics.setColor(Color.GREEN);
+    graphics.fillRect(0, 0, 400, 200);
+    graphics.dispose();
+
+    List<double[]> samples = ImagePaletteExtractor.sample(image, 1000);
+
+    assertThat(samples).hasSizeLessThanOrEqualTo(500).isNotEmpty();
+    LabColor green = LabColor.fromRgb(Color.GREEN.getRGB());
+    assertThat(samples).allSatisfy(sample -> assertThat(sample[0]).isEqualTo(green.l()));
+  }
+
+  @Test
+  void returnsEmptyPaletteOfImageItCannotDecode() {
+    when(imageStorageService.getImage("image1", ImageVariant.THUMB))
+        .thenReturn(image("image1", png("not-really-a-png")));
+
+    assertThat(extractor.extractPalette("image1")).isEmpty();
+  }
+
+  @Test
+  void convertsColorsBetweenRgbAndLab() {
+    LabColor white = LabColor.fromHex("#FFFFFF");
+    assertThat(white.l()).isCloseTo(100, offset(0.01));
+    assertThat(white.toHex()).isEqualTo("#ffffff");
+    assertThat(LabColor.fromHex("1f3a93").toHex()).isEqualTo("#1f3a93");
+    assertThat(LabColor.fromRgb(0x000000).distance(white)).isCloseTo(100, offset(0.01));
+    assertThatThrownBy(() -> LabColor.fromHex("navy"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Invalid color");
+  }
+
+  private static StoredImage image(String id, byte[] content) {
+    return new StoredImage(id, "image/png", content.length, Instant.now(), null,
+        new ByteArrayResource(content));
+  }
+}
@@ -0,0 +1,79 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.png;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class ImagePerceptualHasherTest {
+
+  private final ImagePerceptualHasher hasher = new ImagePerceptualHasher();
+
+  @Test
+  void hashesReEncodedAndResizedCopyAlmostIdentically() throws IOException {
+    BufferedImage photo = photo(1200, 900, 0);
+    BufferedImage smaller = ImageResizer.downscale(photo, 400, 300, false);
+
+    long original = hasher.hash(new ByteArrayInputStream(encode(photo, "png"))).orElseThrow();
+    long copy = hasher.hash(new ByteArrayInputStream(encode(smaller, "jpeg"))).orElseThrow();
+
+    assertThat(Long.bitCount(original ^ copy)).isLessThanOrEqualTo(4);
+  }
+
+  @Test
+  void hashesDifferentImagesFarApart() {
+    long first = ImagePerceptualHasher.hash(photo(300, 200, 0));
+    long second = ImagePerceptualHasher.hash(photo(300, 200, 1));
+
+    assertThat(Long.bitCount(first ^ second)).isGreaterThan(16);
+  }
+
+  @Test
+  void hashesFlatImageToZero() {
+    BufferedImage flat = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+
+    assertThat(ImagePerceptualHasher.hash(flat)).isZero();
+  }
+
+  @Test
+  void returnsEmptyForContentWithoutReader() throws IOException {
+    assertThat(hasher.hash(new ByteArrayInputStream("not an image".getBytes()))).isEmpty();
+  }
+
+  @Test
+  void failsOnCorruptContentOfKnownFormat() {
+    assertThatThrownBy(() -> hasher.hash(new ByteArrayInputStream(png("truncated"))))
+        .isInstanceOf(IOException.class);
+  }
+
+  /**
+   * Smooth waves of brightness like the shading of a photo, with a different pattern per variant.
+   */
+  private static BufferedImage photo(int width, int height, int variant) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    double frequency = 1.3 + variant * 0.9;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        double u = (double) x / width;
+        double v = (double) y / height;
+        int level = (int) (128 + 60 * Math.sin(2 * Math.PI * frequency * u + variant)
+            + 50 * Math.cos(2 * Math.PI * (1.1 * v + 0.4 * u)));
+        image.setRGB(x, y, new Color(level, level, level).getRGB());
+      }
+    }
+    return image;
+  }
+
+  private static byte[] encode(BufferedImage image, String format) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, format, output);
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,125 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.processing.ImageResizer.ResizedImage;
+
+class ImageResizerTest {
+
+  private final ImageResizer resizer = new ImageResizer(1);
+
+  @Test
+  void downscalesOpaqueImageToJpegKeepingAspectRatio() throws IOException {
+    byte[] original = encode(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "png");
+
+    Optional<ResizedImage> result = resizer.resize(new ByteArrayInputStream(original), 200);
+
+    assertThat(result).isPresent();
+    assertThat(result.get().contentType()).isEqualTo("image/jpeg");
+    BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(result.get().data()));
+    assertThat(scaled.getWidth()).isEqualTo(200);
+    assertThat(scaled.getHeight()).isEqualTo(100);
+  }
+
+  @Test
+  void keepsTransparentImagesAsPng() throws IOException {
+    byte[] original = encode(new BufferedImage(300, 600, BufferedImage.TYPE_INT_ARGB), "png");
+
+    Optional<ResizedImage> result = resizer.resize(new ByteArrayInputStream(original), 200);
+
+    assertThat(result).isPresent();
+    assertThat(result.get().contentType()).isEqualTo("image/png");
+    BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(result.get().data()));
+    assertThat(scaled.getWidth()).isEqualTo(100);
+    assertThat(scaled.getHeight()).isEqualTo(200);
+    assertThat(scaled.getColorModel().hasAlpha()).isTrue();
+  }
+
+  @Test
+  void returnsEmptyWhenImageIsAlreadySmallEnough() throws IOException {
+    byte[] original = encode(new BufferedImage(150, 80, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+    Optional<ResizedImage> result = resizer.resize(new ByteArrayInputStream(original), 200);
+
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  void returnsEmptyWhenImageCannotBeDecoded() throws IOException {
+    Optional<ResizedImage> result = resizer.resize(
+        new ByteArrayInputStream("not-an-image".getBytes()), 200);
+
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  void returnsEmptyWhenImageContentIsCorrupt() throws IOException {
+    byte[] png = encode(new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB), "png");
+    byte[] truncated = Arrays.copyOf(png, 40);
+
+    Optional<ResizedImage> result = resizer.resize(new ByteArrayInputStream(truncated), 200);
+
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  void failsWhenOriginalCannotBeRead() throws IOException {
+    byte[] png = encode(new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB), "png");
+    InputStream failing = new FilterInputStream(new ByteArrayInputStream(png)) {
+      @Override
+      public int read(byte[] target, int offset, int count) {
+        throw new IllegalStateException("connection reset");
+      }
+    };
+
+    assertThatThrownBy(() -> resizer.resize(failing, 200))
+        .isInstanceOf(IOException.class)
+        .hasRootCauseMessage("connection reset");
+  }
+
+  @Test
+  void halvesProgressivelyBeforeFinalStep() {
+    BufferedImage source = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+
+    BufferedImage scaled = ImageResizer.downscale(source, 150, 113, false);
+
+    assertThat(scaled.getWidth()).isEqualTo(150);
+    assertThat(scaled.getHeight()).isEqualTo(113);
+  }
+
+  @Test
+  void rejectsLessThanOneConcurrentResize() {
+    assertThatThrownBy(() -> new ImageResizer(0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void grantsNoPermitUntilTakenOneIsReturned() {
+    Optional<ImageResizer.Permit> first = resizer.tryAcquire();
+
+    assertThat(first).isPresent();
+    assertThat(resizer.tryAcquire()).isEmpty();
+
+    first.get().close();
+
+    try (ImageResizer.Permit second = resizer.tryAcquire().orElseThrow()) {
+      assertThat(second).isNotNull();
+    }
+  }
+
+  private static byte[] encode(BufferedImage image, String format) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, format, output);
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,129 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.processing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.png;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.solidPng;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageSprite;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageSprite.Tile;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageVariant;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+
+@ExtendWith(MockitoExtension.class)
+class ImageSpriteRendererTest {
+
+  @Mock
+  private ImageStorageService imageStorageService;
+
+  private ImageSpriteRenderer renderer;
+
+  @BeforeEach
+  void setUp() {
+    renderer = new ImageSpriteRenderer(imageStorageService, Executors.newFixedThreadPool(2), 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    renderer.shutdown();
+  }
+
+  @Test
+  void laysOutThumbnailsOnGridAndSharesTileOfRepeatedImage() throws IOException {
+    Map<String, String> imageIds = new LinkedHashMap<>();
+    imageIds.put("item1", "image1");
+    imageIds.put("item2", "image2");
+    imageIds.put("item3", "image1");
+    when(imageStorageService.getImages(Set.of("image1", "image2"), ImageVariant.THUMB))
+        .thenReturn(Map.of(
+            "image1", image("image1", solidPng(400, 200, Color.RED)),
+            "image2", image("image2", solidPng(100, 100, Color.BLUE))));
+
+    ImageSprite sprite = renderer.getSprite(imageIds);
+
+    assertThat(sprite.key()).isEqualTo(ImageSprite.keyOf(imageIds));
+    assertThat(sprite.width()).isEqualTo(400);
+    assertThat(sprite.height()).isEqualTo(200);
+    assertThat(sprite.tileSize()).isEqualTo(200);
+    assertThat(sprite.tiles()).containsExactly(
+        Map.entry("item1", new Tile(0, 50, 200, 100)),
+        Map.entry("item2", new Tile(250, 50, 100, 100)),
+        Map.entry("item3", new Tile(0, 50, 200, 100)));
+    BufferedImage sheet = ImageIO.read(new ByteArrayInputStream(sprite.content()));
+    assertThat(new Color(sheet.getRGB(100, 100)).getRed()).isGreaterThan(200);
+    assertThat(new Color(sheet.getRGB(300, 100)).getBlue()).isGreaterThan(200);
+    // Space left in a tile stays white
+    assertThat(new Color(sheet.getRGB(100, 10)).getBlue()).isGreaterThan(240);
+  }
+
+  @Test
+  void servesRepeatedSpriteFromCache() {
+    Map<String, String> imageIds = Map.of("item1", "image1");
+    when(imageStorageService.getImages(any(), eq(ImageVariant.THUMB)))
+        .thenReturn(Map.of("image1", image("image1", solidPng(50, 50, Color.GREEN))));
+
+    ImageSprite first = renderer.getSprite(imageIds);
+    ImageSprite second = renderer.getSprite(imageIds);
+
+    assertThat(second).isSameAs(first);
+    verify(imageStorageService, times(1)).getImages(any(), eq(ImageVariant.THUMB));
+  }
+
+  @Test
+  void leavesOutImagesThatAreMissingOrCannotBeDecoded() {
+    Map<String, String> imageIds = new LinkedHashMap<>();
+    imageIds.put("item1", "image1");
+    imageIds.put("item2", "missing");
+    when(imageStorageService.getImages(any(), eq(ImageVariant.THUMB)))
+        .thenReturn(Map.of("image1", image("image1", png("not-really-a-png"))));
+
+    ImageSprite sprite = renderer.getSprite(imageIds);
+
+    assertThat(sprite.isEmpty()).isTrue();
+    assertThat(sprite.content()).isEmpty();
+  }
+
+  @Test
+  void derivesDifferentKeysForDifferentImagesOrOrder() {
+    Map<String, String> page = new LinkedHashMap<>();
+    page.put("item1", "image1");
+    page.put("item2", "image2");
+    Map<String, String> reordered = new LinkedHashMap<>();
+    reordered.put("item2", "image2");
+    reordered.put("item1", "image1");
+    Map<String, String> replaced = new LinkedHashMap<>(page);
+    replaced.put("item2", "image3");
+
+    assertThat(List.of(ImageSprite.keyOf(page), ImageSprite.keyOf(reordered),
+        ImageSprite.keyOf(replaced))).doesNotHaveDuplicates();
+    assertThat(ImageSprite.keyOf(page)).isEqualTo(ImageSprite.keyOf(new LinkedHashMap<>(page)));
+  }
+
+  private static StoredImage image(String id, byte[] content) {
+    return new StoredImage(id, "image/png", content.length, Instant.now(), null,
+        new ByteArrayResource(content));
+  }
+}
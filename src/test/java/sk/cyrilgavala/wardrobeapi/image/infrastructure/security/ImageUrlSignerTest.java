@@ -0,0 +1,72 @@
+package sk.cyrilgavala.wardrobeapi.image.infrastructure.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageSignatureException;
+
+class ImageUrlSignerTest {
+
+  private static final Instant NOW = Instant.parse("2025-01-01T10:05:00Z");
+
+  private final ImageUrlSigner signer = new ImageUrlSigner("test-image-url-secret", 60);
+
+  @Test
+  void signsImageIdWithExpiryAtEndOfNextWindow() {
+    UriComponents url = UriComponentsBuilder.fromUriString(signer.sign("image1", NOW)).build();
+
+    assertThat(url.getPath()).isEqualTo("/api/images/signed/image1");
+    assertThat(url.getQueryParams().getFirst("expires"))
+        .isEqualTo(String.valueOf(Instant.parse("2025-01-01T11:00:00Z").getEpochSecond()));
+    assertThat(url.getQueryParams().getFirst("signature")).matches("[A-Za-z0-9_-]{43}");
+  }
+
+  @Test
+  void keepsSameUrlWithinWindow() {
+    assertThat(signer.sign("image1", NOW))
+        .isEqualTo(signer.sign("image1", NOW.plus(Duration.ofMinutes(20))))
+        .isNotEqualTo(signer.sign("image1", NOW.plus(Duration.ofMinutes(30))))
+        .isNotEqualTo(signer.sign("image2", NOW));
+  }
+
+  @Test
+  void acceptsOwnSignatureUntilExpiry() {
+    UriComponents url = UriComponentsBuilder.fromUriString(signer.sign("image1", NOW)).build();
+    long expires = Long.parseLong(url.getQueryParams().getFirst("expires"));
+    String signature = url.getQueryParams().getFirst("signature");
+
+    assertThat(signer.verify("image1", expires, signature, NOW)).isEqualTo(Duration.ofMinutes(55));
+    assertThatThrownBy(() -> signer.verify("image1", expires, signature,
+        Instant.ofEpochSecond(expires)))
+        .isInstanceOf(InvalidImageSignatureException.class)
+        .hasMessageContaining("expired");
+  }
+
+  @Test
+  void rejectsSignatureOfOtherImageExpiryOrSecret() {
+    UriComponents url = UriComponentsBuilder.fromUriString(signer.sign("image1", NOW)).build();
+    long expires = Long.parseLong(url.getQueryParams().getFirst("expires"));
+    String signature = url.getQueryParams().getFirst("signature");
+    ImageUrlSigner otherSigner = new ImageUrlSigner("other-image-url-secret", 60);
+
+    assertThatThrownBy(() -> signer.verify("image2", expires, signature, NOW))
+        .isInstanceOf(InvalidImageSignatureException.class);
+    assertThatThrownBy(() -> signer.verify("image1", expires + 3600, signature, NOW))
+        .isInstanceOf(InvalidImageSignatureException.class);
+    assertThatThrownBy(() -> otherSigner.verify("image1", expires, signature, NOW))
+        .isInstanceOf(InvalidImageSignatureException.class);
+    assertThatThrownBy(() -> signer.verify("image1", expires, "", NOW))
+        .isInstanceOf(InvalidImageSignatureException.class);
+  }
+
+  @Test
+  void rejectsLifetimeTooShortForWindows() {
+    assertThatThrownBy(() -> new ImageUrlSigner("test-image-url-secret", 1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
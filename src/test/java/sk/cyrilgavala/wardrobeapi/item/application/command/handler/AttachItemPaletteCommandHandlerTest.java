@@ -0,0 +1,97 @@
+package sk.cyrilgavala.wardrobeapi.item.application.command.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import sk.cyrilgavala.wardrobeapi.item.application.command.AttachItemPaletteCommand;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangeType;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
+
+@ExtendWith(MockitoExtension.class)
+class AttachItemPaletteCommandHandlerTest {
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @Mock
+  private ItemSyncRepository itemSyncRepository;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @InjectMocks
+  private AttachItemPaletteCommandHandler handler;
+
+  @Test
+  void attachesPaletteToItemWithSameImage() {
+    Item item = Item.builder().id("item123").userId("user123").imageId("image123").build();
+    when(itemRepository.findById("item123")).thenReturn(Optional.of(item));
+    when(itemSyncRepository.nextSeq("user123")).thenReturn(4L);
+    Item savedItem = item.toBuilder().palette(List.of("#1f3a93", "#f2f2f2")).seq(4L).build();
+    when(itemRepository.attachPalette("item123", "image123", List.of("#1f3a93", "#f2f2f2"), 4L))
+        .thenReturn(Optional.of(savedItem));
+
+    boolean attached = handler.handle(
+        new AttachItemPaletteCommand("item123", "image123", List.of("#1f3a93", "#f2f2f2")));
+
+    assertThat(attached).isTrue();
+    verify(itemRepository, never()).save(any());
+    ArgumentCaptor<ItemChangedEvent> event = ArgumentCaptor.forClass(ItemChangedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertThat(event.getValue().type()).isEqualTo(ItemChangeType.UPDATED);
+    assertThat(event.getValue().item()).isSameAs(savedItem);
+  }
+
+  @Test
+  void discardsPaletteWhenItemChangesWhileAttaching() {
+    Item item = Item.builder().id("item123").userId("user123").imageId("image123").build();
+    when(itemRepository.findById("item123")).thenReturn(Optional.of(item));
+    when(itemSyncRepository.nextSeq("user123")).thenReturn(4L);
+    when(itemRepository.attachPalette("item123", "image123", List.of("#1f3a93"), 4L))
+        .thenReturn(Optional.empty());
+
+    boolean attached = handler.handle(
+        new AttachItemPaletteCommand("item123", "image123", List.of("#1f3a93")));
+
+    assertThat(attached).isFalse();
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  void discardsPaletteOfImageItemNoLongerHas() {
+    Item item = Item.builder().id("item123").userId("user123").imageId("image456").build();
+    when(itemRepository.findById("item123")).thenReturn(Optional.of(item));
+
+    boolean attached = handler.handle(
+        new AttachItemPaletteCommand("item123", "image123", List.of("#1f3a93")));
+
+    assertThat(attached).isFalse();
+    verify(itemRepository, never()).attachPalette(any(), any(), any(), anyLong());
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  void discardsPaletteOfDeletedItem() {
+    when(itemRepository.findById("item123")).thenReturn(Optional.empty());
+
+    assertThat(handler.handle(
+        new AttachItemPaletteCommand("item123", "image123", List.of("#1f3a93")))).isFalse();
+    verify(itemRepository, never()).attachPalette(any(), any(), any(), anyLong());
+  }
+}
@@ -6,13 +6,19 @@ import static org.mockito.Mockito.when;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import sk.cyrilgavala.wardrobeapi.item.application.command.CreateItemCommand;
 import sk.cyrilgavala.wardrobeapi.item.application.mapper.ItemMapper;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangeType;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
 import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
 
 @ExtendWith(MockitoExtension.class)
 class CreateItemCommandHandlerTest {
@@ -23,6 +29,15 @@ class CreateItemCommandHandlerTest {
   @Mock
   private ItemMapper itemMapper;
 
+  @Mock
+  private ItemStatisticsRepository itemStatisticsRepository;
+
+  @Mock
+  private ItemSyncRepository itemSyncRepository;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private CreateItemCommandHandler handler;
 
@@ -72,8 +87,10 @@ class CreateItemCommandHandlerTest {
         .boxNumber(5)
         .build();
 
+    when(itemSyncRepository.nextSeq(command.userId())).thenReturn(7L);
+
     when(itemMapper.fromCreateCommand(command)).thenReturn(mappedItem);
-    when(itemRepository.save(mappedItem)).thenReturn(savedItem);
+    when(itemRepository.save(mappedItem.withSeq(7L))).thenReturn(savedItem);
 
     Item result = handler.handle(command);
 
@@ -82,7 +99,7 @@ class CreateItemCommandHandlerTest {
     assertThat(result.userId()).isEqualTo("user123");
     assertThat(result.name()).isEqualTo("Blue Jeans");
     verify(itemMapper).fromCreateCommand(command);
-    verify(itemRepository).save(mappedItem);
+    verify(itemRepository).save(mappedItem.withSeq(7L));
   }
 
   @Test
@@ -121,8 +138,10 @@ class CreateItemCommandHandlerTest {
         .name("T-Shirt")
         .build();
 
+    when(itemSyncRepository.nextSeq(command.userId())).thenReturn(7L);
+
     when(itemMapper.fromCreateCommand(command)).thenReturn(mappedItem);
-    when(itemRepository.save(mappedItem)).thenReturn(savedItem);
+    when(itemRepository.save(mappedItem.withSeq(7L))).thenReturn(savedItem);
 
     Item result = handler.handle(command);
 
@@ -161,12 +180,67 @@ class CreateItemCommandHandlerTest {
     );
     Item savedItem = Item.builder().id("item789").userId("user789").build();
 
+    when(itemSyncRepository.nextSeq(command.userId())).thenReturn(7L);
+
+    when(itemMapper.fromCreateCommand(command)).thenReturn(mappedItem);
+    when(itemRepository.save(mappedItem.withSeq(7L))).thenReturn(savedItem);
+
+    handler.handle(command);
+
+    verify(itemRepository).save(mappedItem.withSeq(7L));
+  }
+
+  @Test
+  void recordsSavedItemInStatistics() {
+    CreateItemCommand command = new CreateItemCommand(
+        "user123",
+        "Scarf",
+        null,
+        "Red",
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        2
+    );
+    Item mappedItem = Item.create("user123", "Scarf", null, "Red", null, null, null, null, null,
+        null, null, 2);
+    Item savedItem = Item.builder().id("item321").userId("user123").color("Red").boxNumber(2)
+        .build();
+
+    when(itemSyncRepository.nextSeq(command.userId())).thenReturn(7L);
+
+    when(itemMapper.fromCreateCommand(command)).thenReturn(mappedItem);
+    when(itemRepository.save(mappedItem.withSeq(7L))).thenReturn(savedItem);
+
+    handler.handle(command);
+
+    verify(itemStatisticsRepository).recordCreated(savedItem);
+  }
+
+  @Test
+  void publishesCreatedEvent() {
+    CreateItemCommand command = new CreateItemCommand(
+        "user123", "Hat", null, null, null, null, null, null, null, null, null, null);
+    Item mappedItem = Item.create("user123", "Hat", null, null, null, null, null, null, null,
+        null, null, null);
+    Item savedItem = Item.builder().id("item654").userId("user123").name("Hat").build();
+
+    when(itemSyncRepository.nextSeq(command.userId())).thenReturn(7L);
+
     when(itemMapper.fromCreateCommand(command)).thenReturn(mappedItem);
-    when(itemRepository.save(mappedItem)).thenReturn(savedItem);
+    when(itemRepository.save(mappedItem.withSeq(7L))).thenReturn(savedItem);
 
     handler.handle(command);
 
-    verify(itemRepository).save(mappedItem);
+    ArgumentCaptor<ItemChangedEvent> event = ArgumentCaptor.forClass(ItemChangedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertThat(event.getValue().type()).isEqualTo(ItemChangeType.CREATED);
+    assertThat(event.getValue().itemId()).isEqualTo("item654");
+    assertThat(event.getValue().userId()).isEqualTo("user123");
   }
 }
 
@@ -1,21 +1,32 @@
 package sk.cyrilgavala.wardrobeapi.item.application.command.handler;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Instant;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import sk.cyrilgavala.wardrobeapi.item.application.command.DeleteItemCommand;
 import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemAccessDeniedException;
 import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemNotFoundException;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangeType;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemTombstone;
 import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
 
 @ExtendWith(MockitoExtension.class)
 class DeleteItemCommandHandlerTest {
@@ -23,6 +34,15 @@ class DeleteItemCommandHandlerTest {
   @Mock
   private ItemRepository itemRepository;
 
+  @Mock
+  private ItemStatisticsRepository itemStatisticsRepository;
+
+  @Mock
+  private ItemSyncRepository itemSyncRepository;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private DeleteItemCommandHandler handler;
 
@@ -36,10 +56,51 @@ class DeleteItemCommandHandlerTest {
         .build();
 
     when(itemRepository.findById("item123")).thenReturn(Optional.of(item));
+    when(itemRepository.markDeleted(eq("item123"), any(Instant.class))).thenReturn(true);
+
+    handler.handle(command);
+
+    verify(itemRepository).markDeleted(eq("item123"), any(Instant.class));
+    verify(itemStatisticsRepository).recordDeleted(item);
+
+    ArgumentCaptor<ItemChangedEvent> event = ArgumentCaptor.forClass(ItemChangedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertThat(event.getValue().type()).isEqualTo(ItemChangeType.DELETED);
+    assertThat(event.getValue().itemId()).isEqualTo("item123");
+  }
+
+  @Test
+  void recordsTombstoneWithNextSequenceNumber() {
+    DeleteItemCommand command = new DeleteItemCommand("item123", "user123");
+    Item item = Item.builder().id("item123").userId("user123").name("Jeans").build();
+
+    when(itemRepository.findById("item123")).thenReturn(Optional.of(item));
+    when(itemRepository.markDeleted(eq("item123"), any(Instant.class))).thenReturn(true);
+    when(itemSyncRepository.nextSeq("user123")).thenReturn(12L);
+
+    handler.handle(command);
+
+    ArgumentCaptor<ItemTombstone> tombstone = ArgumentCaptor.forClass(ItemTombstone.class);
+    verify(itemSyncRepository).saveTombstone(tombstone.capture());
+    assertThat(tombstone.getValue().itemId()).isEqualTo("item123");
+    assertThat(tombstone.getValue().userId()).isEqualTo("user123");
+    assertThat(tombstone.getValue().seq()).isEqualTo(12L);
+    assertThat(tombstone.getValue().deletedAt()).isNotNull();
+  }
+
+  @Test
+  void skipsTombstoneAndCountersWhenItemWasDeletedConcurrently() {
+    DeleteItemCommand command = new DeleteItemCommand("item123", "user123");
+    Item item = Item.builder().id("item123").userId("user123").name("Jeans").build();
+
+    when(itemRepository.findById("item123")).thenReturn(Optional.of(item));
+    when(itemRepository.markDeleted(eq("item123"), any(Instant.class))).thenReturn(false);
 
     handler.handle(command);
 
-    verify(itemRepository).deleteById("item123");
+    verify(itemSyncRepository, never()).saveTombstone(any());
+    verify(itemStatisticsRepository, never()).recordDeleted(any());
+    verify(eventPublisher, never()).publishEvent(any());
   }
 
   @Test
@@ -84,7 +145,9 @@ class DeleteItemCommandHandlerTest {
       // Expected
     }
 
-    verify(itemRepository, never()).deleteById("item123");
+    verify(itemRepository, never()).markDeleted(any(), any());
+    verify(itemStatisticsRepository, never()).recordDeleted(any());
+    verify(itemSyncRepository, never()).saveTombstone(any());
   }
 
   @Test
@@ -97,11 +160,12 @@ class DeleteItemCommandHandlerTest {
         .build();
 
     when(itemRepository.findById("item789")).thenReturn(Optional.of(item));
+    when(itemRepository.markDeleted(eq("item789"), any(Instant.class))).thenReturn(true);
 
     handler.handle(command);
 
     verify(itemRepository).findById("item789");
-    verify(itemRepository).deleteById("item789");
+    verify(itemRepository).markDeleted(eq("item789"), any(Instant.class));
   }
 }
 
@@ -0,0 +1,44 @@
+package sk.cyrilgavala.wardrobeapi.item.application.command.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.item.application.command.RebuildItemStatisticsCommand;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+
+@ExtendWith(MockitoExtension.class)
+class RebuildItemStatisticsCommandHandlerTest {
+
+  @Mock
+  private ItemStatisticsRepository itemStatisticsRepository;
+
+  @InjectMocks
+  private RebuildItemStatisticsCommandHandler handler;
+
+  @Test
+  void recomputesStatisticsForUser() {
+    ItemStatistics statistics = ItemStatistics.builder()
+        .userId("user123")
+        .totalItems(3L)
+        .colors(Map.of("Blue", 2L, "Red", 1L))
+        .build();
+
+    when(itemStatisticsRepository.recompute("user123")).thenReturn(statistics);
+
+    ItemStatistics result = handler.handle(new RebuildItemStatisticsCommand("user123"));
+
+    assertThat(result).isEqualTo(statistics);
+    InOrder order = inOrder(itemStatisticsRepository);
+    order.verify(itemStatisticsRepository).invalidate("user123");
+    order.verify(itemStatisticsRepository).recompute("user123");
+  }
+}
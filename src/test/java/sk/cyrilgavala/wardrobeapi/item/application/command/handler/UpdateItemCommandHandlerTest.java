@@ -2,21 +2,29 @@ package sk.cyrilgavala.wardrobeapi.item.application.command.handler;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import sk.cyrilgavala.wardrobeapi.item.application.command.UpdateItemCommand;
 import sk.cyrilgavala.wardrobeapi.item.application.mapper.ItemMapper;
 import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemAccessDeniedException;
 import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemNotFoundException;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangeType;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
 import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
 
 @ExtendWith(MockitoExtension.class)
 class UpdateItemCommandHandlerTest {
@@ -27,6 +35,15 @@ class UpdateItemCommandHandlerTest {
   @Mock
   private ItemMapper itemMapper;
 
+  @Mock
+  private ItemStatisticsRepository itemStatisticsRepository;
+
+  @Mock
+  private ItemSyncRepository itemSyncRepository;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @InjectMocks
   private UpdateItemCommandHandler handler;
 
@@ -70,15 +87,22 @@ class UpdateItemCommandHandlerTest {
         .build();
 
     when(itemRepository.findById("item123")).thenReturn(Optional.of(existingItem));
+    when(itemSyncRepository.nextSeq(command.userId())).thenReturn(7L);
     when(itemMapper.fromUpdateCommand(existingItem, command)).thenReturn(updatedItem);
-    when(itemRepository.save(updatedItem)).thenReturn(updatedItem);
+    when(itemRepository.update(updatedItem.withSeq(7L))).thenReturn(true);
 
     Item result = handler.handle(command);
 
     assertThat(result).isNotNull();
     assertThat(result.name()).isEqualTo("Updated Jeans");
     assertThat(result.description()).isEqualTo("New description");
-    verify(itemRepository).save(updatedItem);
+    verify(itemRepository).update(updatedItem.withSeq(7L));
+    verify(itemStatisticsRepository).recordUpdated(existingItem, updatedItem.withSeq(7L));
+
+    ArgumentCaptor<ItemChangedEvent> event = ArgumentCaptor.forClass(ItemChangedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    assertThat(event.getValue().type()).isEqualTo(ItemChangeType.UPDATED);
+    assertThat(event.getValue().item()).isEqualTo(updatedItem.withSeq(7L));
   }
 
   @Test
@@ -132,6 +156,8 @@ class UpdateItemCommandHandlerTest {
 
     assertThatThrownBy(() -> handler.handle(command))
         .isInstanceOf(ItemAccessDeniedException.class);
+    verify(itemStatisticsRepository, never()).recordUpdated(any(), any());
+    verify(eventPublisher, never()).publishEvent(any());
   }
 
   @Test
@@ -165,8 +191,9 @@ class UpdateItemCommandHandlerTest {
         .build();
 
     when(itemRepository.findById("item123")).thenReturn(Optional.of(existingItem));
+    when(itemSyncRepository.nextSeq(command.userId())).thenReturn(7L);
     when(itemMapper.fromUpdateCommand(existingItem, command)).thenReturn(updatedItem);
-    when(itemRepository.save(updatedItem)).thenReturn(updatedItem);
+    when(itemRepository.update(updatedItem.withSeq(7L))).thenReturn(true);
 
     Item result = handler.handle(command);
 
@@ -203,12 +230,32 @@ class UpdateItemCommandHandlerTest {
         .build();
 
     when(itemRepository.findById("item123")).thenReturn(Optional.of(existingItem));
+    when(itemSyncRepository.nextSeq(command.userId())).thenReturn(7L);
     when(itemMapper.fromUpdateCommand(existingItem, command)).thenReturn(updatedItem);
-    when(itemRepository.save(updatedItem)).thenReturn(updatedItem);
+    when(itemRepository.update(updatedItem.withSeq(7L))).thenReturn(true);
 
     Item result = handler.handle(command);
 
-    assertThat(result).isEqualTo(updatedItem);
+    assertThat(result).isEqualTo(updatedItem.withSeq(7L));
+  }
+
+  @Test
+  void throwsExceptionWhenItemWasDeletedConcurrently() {
+    UpdateItemCommand command = new UpdateItemCommand("item123", "user123", "Updated Item", null,
+        null, null, null, null, null, null, null, null, null);
+    Item existingItem = Item.builder().id("item123").userId("user123").name("Original").build();
+    Item updatedItem = Item.builder().id("item123").userId("user123").name("Updated Item")
+        .build();
+
+    when(itemRepository.findById("item123")).thenReturn(Optional.of(existingItem));
+    when(itemSyncRepository.nextSeq(command.userId())).thenReturn(7L);
+    when(itemMapper.fromUpdateCommand(existingItem, command)).thenReturn(updatedItem);
+    when(itemRepository.update(updatedItem.withSeq(7L))).thenReturn(false);
+
+    assertThatThrownBy(() -> handler.handle(command))
+        .isInstanceOf(ItemNotFoundException.class);
+    verify(itemStatisticsRepository, never()).recordUpdated(any(), any());
+    verify(eventPublisher, never()).publishEvent(any());
   }
 }
 
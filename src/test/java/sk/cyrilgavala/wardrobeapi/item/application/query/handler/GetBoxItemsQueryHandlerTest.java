@@ -0,0 +1,51 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetBoxItemsQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+@ExtendWith(MockitoExtension.class)
+class GetBoxItemsQueryHandlerTest {
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @InjectMocks
+  private GetBoxItemsQueryHandler handler;
+
+  @Test
+  void retrievesItemsInBoxForUser() {
+    List<Item> items = List.of(
+        Item.builder().id("item1").userId("user123").name("Jeans").boxNumber(7).build(),
+        Item.builder().id("item2").userId("user123").name("Scarf").boxNumber(7).build()
+    );
+
+    when(itemRepository.findAllByUserIdAndBoxNumber("user123", 7)).thenReturn(items);
+
+    List<Item> result = handler.handle(new GetBoxItemsQuery("user123", 7));
+
+    assertThat(result).containsExactlyElementsOf(items);
+    verify(itemRepository).findAllByUserIdAndBoxNumber("user123", 7);
+  }
+
+  @Test
+  void returnsEmptyListWhenBoxIsEmpty() {
+    when(itemRepository.findAllByUserIdAndBoxNumber("user123", 3))
+        .thenReturn(Collections.emptyList());
+
+    List<Item> result = handler.handle(new GetBoxItemsQuery("user123", 3));
+
+    assertThat(result).isEmpty();
+  }
+}
@@ -0,0 +1,72 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetBoxesQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.BoxSummary;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+
+@ExtendWith(MockitoExtension.class)
+class GetBoxesQueryHandlerTest {
+
+  @Mock
+  private ItemStatisticsRepository itemStatisticsRepository;
+
+  @InjectMocks
+  private GetBoxesQueryHandler handler;
+
+  @Test
+  void returnsBoxesSortedByNumber() {
+    ItemStatistics statistics = ItemStatistics.builder()
+        .userId("user123")
+        .boxes(Map.of("10", 1L, "2", 4L, "7", 3L))
+        .build();
+
+    when(itemStatisticsRepository.findByUserId("user123")).thenReturn(Optional.of(statistics));
+
+    List<BoxSummary> result = handler.handle(new GetBoxesQuery("user123"));
+
+    assertThat(result).containsExactly(
+        new BoxSummary(2, 4L),
+        new BoxSummary(7, 3L),
+        new BoxSummary(10, 1L));
+    verify(itemStatisticsRepository, never()).recompute("user123");
+  }
+
+  @Test
+  void recomputesStatisticsWhenNotInitializedYet() {
+    ItemStatistics statistics = ItemStatistics.builder()
+        .userId("user456")
+        .boxes(Map.of("1", 2L))
+        .build();
+
+    when(itemStatisticsRepository.findByUserId("user456")).thenReturn(Optional.empty());
+    when(itemStatisticsRepository.recompute("user456")).thenReturn(statistics);
+
+    List<BoxSummary> result = handler.handle(new GetBoxesQuery("user456"));
+
+    assertThat(result).containsExactly(new BoxSummary(1, 2L));
+  }
+
+  @Test
+  void returnsEmptyListWhenUserHasNoBoxes() {
+    when(itemStatisticsRepository.findByUserId("user789"))
+        .thenReturn(Optional.of(ItemStatistics.empty("user789")));
+
+    List<BoxSummary> result = handler.handle(new GetBoxesQuery("user789"));
+
+    assertThat(result).isEmpty();
+  }
+}
@@ -0,0 +1,184 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemChangesQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemChanges;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemTombstone;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.SyncToken;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemSyncRepository;
+
+@ExtendWith(MockitoExtension.class)
+class GetItemChangesQueryHandlerTest {
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @Mock
+  private ItemSyncRepository itemSyncRepository;
+
+  @InjectMocks
+  private GetItemChangesQueryHandler handler;
+
+  @Test
+  void returnsWholeWardrobeWithoutToken() {
+    Item item = Item.builder().id("item1").userId("user123").seq(3L).build();
+
+    when(itemRepository.findAllByUserId("user123")).thenReturn(List.of(item));
+
+    ItemChanges result = handler.handle(new GetItemChangesQuery("user123", null));
+
+    assertThat(result.fullResync()).isTrue();
+    assertThat(result.items()).containsExactly(item);
+    assertThat(result.deletedItemIds()).isEmpty();
+    assertThat(result.token().seq()).isEqualTo(3L);
+  }
+
+  @Test
+  void returnsOnlyChangesAfterToken() {
+    String since = new SyncToken(5L, Instant.now().minus(Duration.ofHours(1))).encode();
+    Item changed = Item.builder().id("item1").userId("user123").seq(6L).build();
+    ItemTombstone tombstone = ItemTombstone.builder().itemId("item2").userId("user123").seq(7L)
+        .deletedAt(Instant.now()).build();
+
+    when(itemSyncRepository.currentSeq("user123")).thenReturn(7L);
+    when(itemRepository.findAllByUserIdChangedAfter("user123", 5L)).thenReturn(List.of(changed));
+    when(itemSyncRepository.findTombstonesAfter("user123", 5L)).thenReturn(List.of(tombstone));
+
+    ItemChanges result = handler.handle(new GetItemChangesQuery("user123", since));
+
+    assertThat(result.fullResync()).isFalse();
+    assertThat(result.items()).containsExactly(changed);
+    assertThat(result.deletedItemIds()).containsExactly("item2");
+    assertThat(result.token().seq()).isEqualTo(7L);
+    verify(itemRepository, never()).findAllByUserId("user123");
+  }
+
+  @Test
+  void keepsTokenPositionForChangesNotVisibleYet() {
+    String since = new SyncToken(5L, Instant.now().minus(Duration.ofHours(1))).encode();
+    Item changed = Item.builder().id("item1").userId("user123").seq(6L).build();
+
+    when(itemSyncRepository.currentSeq("user123")).thenReturn(8L);
+    when(itemRepository.findAllByUserIdChangedAfter("user123", 5L)).thenReturn(List.of(changed));
+    when(itemSyncRepository.findTombstonesAfter("user123", 5L)).thenReturn(List.of());
+
+    ItemChanges result = handler.handle(new GetItemChangesQuery("user123", since));
+
+    assertThat(result.token().seq()).isEqualTo(6L);
+  }
+
+  @Test
+  void keepsTokenBelowChangeStillBeingWritten() {
+    String since = new SyncToken(10L, Instant.now().minus(Duration.ofHours(1))).encode();
+    // Seq 11 was allocated first but its write has not finished yet
+    Item changed = Item.builder().id("item1").userId("user123").seq(12L).updatedAt(Instant.now())
+        .build();
+
+    when(itemSyncRepository.currentSeq("user123")).thenReturn(12L);
+    when(itemRepository.findAllByUserIdChangedAfter("user123", 10L)).thenReturn(List.of(changed));
+    when(itemSyncRepository.findTombstonesAfter("user123", 10L)).thenReturn(List.of());
+
+    ItemChanges result = handler.handle(new GetItemChangesQuery("user123", since));
+
+    assertThat(result.items()).containsExactly(changed);
+    assertThat(result.token().seq()).isEqualTo(10L);
+  }
+
+  @Test
+  void movesTokenOverContiguousChangesWrittenOutOfOrder() {
+    String since = new SyncToken(10L, Instant.now().minus(Duration.ofHours(1))).encode();
+    Item first = Item.builder().id("item1").userId("user123").seq(11L).updatedAt(Instant.now())
+        .build();
+    Item second = Item.builder().id("item2").userId("user123").seq(12L).updatedAt(Instant.now())
+        .build();
+
+    when(itemSyncRepository.currentSeq("user123")).thenReturn(12L);
+    when(itemRepository.findAllByUserIdChangedAfter("user123", 10L))
+        .thenReturn(List.of(second, first));
+    when(itemSyncRepository.findTombstonesAfter("user123", 10L)).thenReturn(List.of());
+
+    ItemChanges result = handler.handle(new GetItemChangesQuery("user123", since));
+
+    assertThat(result.token().seq()).isEqualTo(12L);
+  }
+
+  @Test
+  void movesTokenOverGapOfSettledChanges() {
+    String since = new SyncToken(10L, Instant.now().minus(Duration.ofHours(1))).encode();
+    // Seq 11 was overwritten by a later change of its item, or its write failed
+    Item changed = Item.builder().id("item1").userId("user123").seq(12L)
+        .updatedAt(Instant.now().minus(GetItemChangesQueryHandler.SETTLE_TIME).minusSeconds(1))
+        .build();
+
+    when(itemSyncRepository.currentSeq("user123")).thenReturn(12L);
+    when(itemRepository.findAllByUserIdChangedAfter("user123", 10L)).thenReturn(List.of(changed));
+    when(itemSyncRepository.findTombstonesAfter("user123", 10L)).thenReturn(List.of());
+
+    ItemChanges result = handler.handle(new GetItemChangesQuery("user123", since));
+
+    assertThat(result.token().seq()).isEqualTo(12L);
+  }
+
+  @Test
+  void keepsGivenPositionWhenNothingChanged() {
+    String since = new SyncToken(5L, Instant.now().minus(Duration.ofHours(1))).encode();
+
+    when(itemSyncRepository.currentSeq("user123")).thenReturn(6L);
+    when(itemRepository.findAllByUserIdChangedAfter("user123", 5L)).thenReturn(List.of());
+    when(itemSyncRepository.findTombstonesAfter("user123", 5L)).thenReturn(List.of());
+
+    ItemChanges result = handler.handle(new GetItemChangesQuery("user123", since));
+
+    assertThat(result.token().seq()).isEqualTo(5L);
+  }
+
+  @Test
+  void requiresFullResyncWhenTokenIsOlderThanTombstoneRetention() {
+    Instant issuedAt = Instant.now().minus(ItemTombstone.RETENTION).minus(Duration.ofDays(1));
+    String since = new SyncToken(5L, issuedAt).encode();
+
+    when(itemSyncRepository.currentSeq("user123")).thenReturn(9L);
+    when(itemRepository.findAllByUserId("user123")).thenReturn(List.of());
+
+    ItemChanges result = handler.handle(new GetItemChangesQuery("user123", since));
+
+    assertThat(result.fullResync()).isTrue();
+    verify(itemSyncRepository, never()).findTombstonesAfter(anyString(), anyLong());
+  }
+
+  @Test
+  void requiresFullResyncWhenTokenIsAheadOfSequence() {
+    String since = new SyncToken(50L, Instant.now()).encode();
+
+    when(itemSyncRepository.currentSeq("user123")).thenReturn(9L);
+    when(itemRepository.findAllByUserId("user123")).thenReturn(List.of());
+
+    ItemChanges result = handler.handle(new GetItemChangesQuery("user123", since));
+
+    assertThat(result.fullResync()).isTrue();
+  }
+
+  @Test
+  void rejectsMalformedToken() {
+    assertThatThrownBy(() -> handler.handle(new GetItemChangesQuery("user123", "not-a-token")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Invalid sync token");
+  }
+}
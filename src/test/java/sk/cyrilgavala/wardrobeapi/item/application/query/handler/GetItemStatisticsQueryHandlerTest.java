@@ -0,0 +1,56 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemStatisticsQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemStatisticsRepository;
+
+@ExtendWith(MockitoExtension.class)
+class GetItemStatisticsQueryHandlerTest {
+
+  @Mock
+  private ItemStatisticsRepository itemStatisticsRepository;
+
+  @InjectMocks
+  private GetItemStatisticsQueryHandler handler;
+
+  @Test
+  void returnsMaterializedStatistics() {
+    ItemStatistics statistics = ItemStatistics.builder()
+        .userId("user123")
+        .totalItems(2L)
+        .colors(Map.of("Blue", 2L))
+        .build();
+
+    when(itemStatisticsRepository.findByUserId("user123")).thenReturn(Optional.of(statistics));
+
+    ItemStatistics result = handler.handle(new GetItemStatisticsQuery("user123"));
+
+    assertThat(result).isEqualTo(statistics);
+    verify(itemStatisticsRepository, never()).recompute("user123");
+  }
+
+  @Test
+  void recomputesStatisticsWhenNotMaterializedYet() {
+    ItemStatistics recomputed = ItemStatistics.empty("user456");
+
+    when(itemStatisticsRepository.findByUserId("user456")).thenReturn(Optional.empty());
+    when(itemStatisticsRepository.recompute("user456")).thenReturn(recomputed);
+
+    ItemStatistics result = handler.handle(new GetItemStatisticsQuery("user456"));
+
+    assertThat(result).isEqualTo(recomputed);
+    verify(itemStatisticsRepository).recompute("user456");
+  }
+}
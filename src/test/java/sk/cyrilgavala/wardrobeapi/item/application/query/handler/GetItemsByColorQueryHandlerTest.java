@@ -0,0 +1,63 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.LabColor;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemsByColorQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.service.ItemColorIndex;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+@ExtendWith(MockitoExtension.class)
+class GetItemsByColorQueryHandlerTest {
+
+  @Mock
+  private ItemColorIndex itemColorIndex;
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @InjectMocks
+  private GetItemsByColorQueryHandler handler;
+
+  @Test
+  void returnsItemsInOrderOfColorDistance() {
+    when(itemColorIndex.nearest("user123", LabColor.fromHex("#1f3a93"), 10))
+        .thenReturn(List.of("item2", "item1", "item3"));
+    Item first = Item.builder().id("item1").userId("user123").build();
+    Item second = Item.builder().id("item2").userId("user123").build();
+    when(itemRepository.findAllByUserIdAndIds("user123", List.of("item2", "item1", "item3")))
+        .thenReturn(List.of(first, second));
+
+    List<Item> items = handler.handle(new GetItemsByColorQuery("user123", "#1f3a93", 10));
+
+    assertThat(items).containsExactly(second, first);
+  }
+
+  @Test
+  void skipsLoadingWhenNoItemIsCloseEnough() {
+    when(itemColorIndex.nearest(eq("user123"), any(), eq(10))).thenReturn(List.of());
+
+    assertThat(handler.handle(new GetItemsByColorQuery("user123", "#1f3a93", 10))).isEmpty();
+    verify(itemRepository, never()).findAllByUserIdAndIds(anyString(), any());
+  }
+
+  @Test
+  void rejectsColorThatIsNotHex() {
+    assertThatThrownBy(() -> handler.handle(new GetItemsByColorQuery("user123", "navy", 10)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,50 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetItemsQuery;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+@ExtendWith(MockitoExtension.class)
+class GetItemsQueryHandlerTest {
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @InjectMocks
+  private GetItemsQueryHandler handler;
+
+  @Test
+  void returnsOwnedItemsInRequestedOrderWithSingleLookup() {
+    List<String> ids = List.of("item2", "foreign", "item1", "item2");
+    Item first = Item.builder().id("item1").userId("user123").name("Blue Jeans").build();
+    Item second = Item.builder().id("item2").userId("user123").name("White Shirt").build();
+
+    when(itemRepository.findAllByUserIdAndIds("user123", ids)).thenReturn(List.of(first, second));
+
+    List<Item> result = handler.handle(new GetItemsQuery(ids, "user123"));
+
+    assertThat(result).containsExactly(second, first);
+    verify(itemRepository).findAllByUserIdAndIds("user123", ids);
+  }
+
+  @Test
+  void returnsNothingWithoutQueryingWhenNoIdIsRequested() {
+    List<Item> result = handler.handle(new GetItemsQuery(List.of(), "user123"));
+
+    assertThat(result).isEmpty();
+    verify(itemRepository, never()).findAllByUserIdAndIds(anyString(), any());
+  }
+}
@@ -0,0 +1,79 @@
+package sk.cyrilgavala.wardrobeapi.item.application.query.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.item.application.query.GetSimilarItemsQuery;
+import sk.cyrilgavala.wardrobeapi.item.application.service.ItemImageHashIndex;
+import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemAccessDeniedException;
+import sk.cyrilgavala.wardrobeapi.item.domain.exception.ItemNotFoundException;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+@ExtendWith(MockitoExtension.class)
+class GetSimilarItemsQueryHandlerTest {
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @Mock
+  private ItemImageHashIndex itemImageHashIndex;
+
+  @InjectMocks
+  private GetSimilarItemsQueryHandler handler;
+
+  @Test
+  void returnsSimilarItemsInOrderOfDistance() {
+    Item shirt = Item.builder().id("item1").userId("user123").imageId("image1").build();
+    Item copy = Item.builder().id("item2").userId("user123").imageId("image2").build();
+    Item retake = Item.builder().id("item3").userId("user123").imageId("image3").build();
+    when(itemRepository.findById("item1")).thenReturn(Optional.of(shirt));
+    when(itemImageHashIndex.similar("user123", "item1", 10, 20))
+        .thenReturn(List.of("item3", "item2"));
+    when(itemRepository.findAllByUserIdAndIds("user123", List.of("item3", "item2")))
+        .thenReturn(List.of(copy, retake));
+
+    List<Item> items = handler.handle(new GetSimilarItemsQuery("item1", "user123", 10, 20));
+
+    assertThat(items).containsExactly(retake, copy);
+  }
+
+  @Test
+  void returnsNothingForItemWithoutImage() {
+    when(itemRepository.findById("item1"))
+        .thenReturn(Optional.of(Item.builder().id("item1").userId("user123").build()));
+
+    assertThat(handler.handle(new GetSimilarItemsQuery("item1", "user123", 10, 20))).isEmpty();
+    verify(itemImageHashIndex, never()).similar(anyString(), anyString(), anyInt(), anyInt());
+  }
+
+  @Test
+  void throwsWhenItemDoesNotExist() {
+    when(itemRepository.findById("item1")).thenReturn(Optional.empty());
+
+    assertThatThrownBy(() -> handler.handle(new GetSimilarItemsQuery("item1", "user123", 10, 20)))
+        .isInstanceOf(ItemNotFoundException.class);
+  }
+
+  @Test
+  void throwsWhenItemBelongsToAnotherUser() {
+    when(itemRepository.findById("item1")).thenReturn(Optional.of(
+        Item.builder().id("item1").userId("other").imageId("image1").build()));
+
+    assertThatThrownBy(() -> handler.handle(new GetSimilarItemsQuery("item1", "user123", 10, 20)))
+        .isInstanceOf(ItemAccessDeniedException.class);
+    verify(itemImageHashIndex, never()).similar(anyString(), anyString(), anyInt(), anyInt());
+  }
+}
@@ -0,0 +1,73 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import sk.cyrilgavala.wardrobeapi.item.application.service.ImageHashTree.Match;
+
+class ImageHashTreeTest {
+
+  @Test
+  void findsHashesWithinDistanceClosestFirst() {
+    ImageHashTree tree = new ImageHashTree();
+    tree.add(0b0000L, "item1");
+    tree.add(0b0001L, "item2");
+    tree.add(0b0111L, "item3");
+    tree.add(0b1111_1111L, "item4");
+    tree.add(0b0001L, "item5");
+
+    assertThat(tree.search(0b0000L, 3)).extracting(Match::itemId)
+        .containsExactly("item1", "item2", "item5", "item3");
+    assertThat(tree.search(0b0000L, 1)).containsExactly(new Match("item1", 0),
+        new Match("item2", 1), new Match("item5", 1));
+  }
+
+  @Test
+  void findsSameItemsAsLinearScan() {
+    Random random = new Random(7);
+    long[] hashes = IntStream.range(0, 2000).mapToLong(i -> random.nextLong()).toArray();
+    ImageHashTree tree = new ImageHashTree();
+    for (int i = 0; i < hashes.length; i++) {
+      tree.add(hashes[i], "item" + i);
+    }
+    // A near duplicate of one of the hashes
+    long query = hashes[42] ^ 0b1011L;
+
+    long expected = IntStream.range(0, hashes.length)
+        .filter(i -> Long.bitCount(hashes[i] ^ query) <= 20)
+        .count();
+    assertThat(tree.search(query, 20)).hasSize((int) expected)
+        .first().isEqualTo(new Match("item42", 3));
+  }
+
+  @Test
+  void keepsRoutingThroughNodesOfRemovedItems() {
+    ImageHashTree tree = new ImageHashTree();
+    tree.add(0b0000L, "item1");
+    tree.add(0b0011L, "item2");
+    tree.add(0b0111L, "item3");
+
+    tree.remove(0b0000L, "item1");
+    tree.remove(0b0011L, "item2");
+
+    assertThat(tree.search(0b0110L, 1)).containsExactly(new Match("item3", 1));
+    assertThat(tree.search(0b0000L, 0)).isEmpty();
+  }
+
+  @Test
+  void reportsTreeThatHoldsMostlyEmptyNodes() {
+    ImageHashTree tree = new ImageHashTree();
+    for (long hash = 1; hash <= 200; hash++) {
+      tree.add(hash * 0x9E3779B97F4A7C15L, "item" + hash);
+    }
+    for (long hash = 1; hash <= 100; hash++) {
+      tree.remove(hash * 0x9E3779B97F4A7C15L, "item" + hash);
+    }
+    assertThat(tree.isMostlyEmpty()).isFalse();
+
+    tree.remove(101 * 0x9E3779B97F4A7C15L, "item101");
+    assertThat(tree.isMostlyEmpty()).isTrue();
+  }
+}
@@ -0,0 +1,77 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.LabColor;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ItemColorIndexTest {
+
+  private static final LabColor NAVY = LabColor.fromHex("#1f3a93");
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  private ItemColorIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new ItemColorIndex(itemRepository, 25, 2);
+  }
+
+  @Test
+  void ranksItemsByTheirClosestPaletteColor() {
+    when(itemRepository.findPalettesByUserId("user123")).thenReturn(List.of(
+        item("shirt", "#ffffff", "#22408f"),
+        item("jeans", "#1f3a93"),
+        item("dress", "#c0392b"),
+        item("scarf", "#f1c40f", "#2a4a9e")));
+
+    assertThat(index.nearest("user123", NAVY, 10)).containsExactly("jeans", "shirt", "scarf");
+    assertThat(index.nearest("user123", NAVY, 2)).containsExactly("jeans", "shirt");
+  }
+
+  @Test
+  void reusesIndexUntilItemOfUserChanges() {
+    Item jeans = item("jeans", "#1f3a93");
+    when(itemRepository.findPalettesByUserId("user123")).thenReturn(List.of(jeans));
+
+    index.nearest("user123", NAVY, 10);
+    index.nearest("user123", NAVY, 10);
+    verify(itemRepository, times(1)).findPalettesByUserId("user123");
+
+    index.onItemChanged(ItemChangedEvent.updated(jeans));
+    index.nearest("user123", NAVY, 10);
+    verify(itemRepository, times(2)).findPalettesByUserId("user123");
+  }
+
+  @Test
+  void keepsIndexesOfLimitedNumberOfUsers() {
+    when(itemRepository.findPalettesByUserId("user1")).thenReturn(List.of());
+    when(itemRepository.findPalettesByUserId("user2")).thenReturn(List.of());
+    when(itemRepository.findPalettesByUserId("user3")).thenReturn(List.of());
+
+    index.nearest("user1", NAVY, 10);
+    index.nearest("user2", NAVY, 10);
+    index.nearest("user3", NAVY, 10);
+    index.nearest("user1", NAVY, 10);
+
+    verify(itemRepository, times(2)).findPalettesByUserId("user1");
+  }
+
+  private static Item item(String id, String... palette) {
+    return Item.builder().id(id).userId("user123").palette(List.of(palette)).build();
+  }
+}
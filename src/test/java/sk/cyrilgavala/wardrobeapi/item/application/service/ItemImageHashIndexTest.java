@@ -0,0 +1,115 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ItemImageHashIndexTest {
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @Mock
+  private ImageStorageService imageStorageService;
+
+  private ItemImageHashIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new ItemImageHashIndex(itemRepository, imageStorageService, 2);
+  }
+
+  @Test
+  void findsOtherItemsWithSimilarImagesClosestFirst() {
+    when(itemRepository.findImageIdsByUserId("user123")).thenReturn(List.of(
+        item("shirt", "image1"), item("copy", "image2"), item("retake", "image3"),
+        item("jeans", "image4")));
+    when(imageStorageService.getPerceptualHashes(List.of("image1", "image2", "image3", "image4")))
+        .thenReturn(Map.of("image1", 0b0000L, "image2", 0b0111L, "image3", 0b0001L,
+            "image4", -1L));
+
+    assertThat(index.similar("user123", "shirt", 10, 20)).containsExactly("retake", "copy");
+    assertThat(index.similar("user123", "shirt", 10, 1)).containsExactly("retake");
+    assertThat(index.similar("user123", "jeans", 10, 20)).isEmpty();
+    verify(itemRepository, times(1)).findImageIdsByUserId("user123");
+  }
+
+  @Test
+  void updatesLoadedIndexAndHashesNewImageOnNextSearchOnly() {
+    when(itemRepository.findImageIdsByUserId("user123")).thenReturn(List.of(
+        item("shirt", "image1"), item("jeans", "image2")));
+    when(imageStorageService.getPerceptualHashes(List.of("image1", "image2")))
+        .thenReturn(Map.of("image1", 0b0000L, "image2", -1L));
+    index.similar("user123", "shirt", 10, 20);
+
+    index.onItemChanged(ItemChangedEvent.created(item("copy", "image3")));
+    index.onItemChanged(ItemChangedEvent.deleted(item("jeans", "image2")));
+    verify(imageStorageService, never()).getPerceptualHashes(List.of("image3"));
+    when(imageStorageService.getPerceptualHashes(List.of("image3")))
+        .thenReturn(Map.of("image3", 0b0011L));
+
+    assertThat(index.similar("user123", "shirt", 64, 20)).containsExactly("copy");
+    verify(itemRepository, times(1)).findImageIdsByUserId("user123");
+  }
+
+  @Test
+  void ignoresChangesThatKeepImage() {
+    when(itemRepository.findImageIdsByUserId("user123")).thenReturn(List.of(
+        item("shirt", "image1")));
+    when(imageStorageService.getPerceptualHashes(List.of("image1")))
+        .thenReturn(Map.of("image1", 0b0000L));
+    index.similar("user123", "shirt", 10, 20);
+
+    index.onItemChanged(ItemChangedEvent.updated(item("shirt", "image1")));
+    index.similar("user123", "shirt", 10, 20);
+
+    verify(imageStorageService, times(1)).getPerceptualHashes(any());
+  }
+
+  @Test
+  void dropsItemWhoseImageWasRemoved() {
+    when(itemRepository.findImageIdsByUserId("user123")).thenReturn(List.of(
+        item("shirt", "image1"), item("copy", "image2")));
+    when(imageStorageService.getPerceptualHashes(List.of("image1", "image2")))
+        .thenReturn(Map.of("image1", 0b0000L, "image2", 0b0001L));
+    index.similar("user123", "shirt", 10, 20);
+
+    index.onItemChanged(ItemChangedEvent.updated(item("copy", null)));
+
+    assertThat(index.similar("user123", "shirt", 10, 20)).isEmpty();
+  }
+
+  @Test
+  void keepsIndexesOfLimitedNumberOfUsers() {
+    for (String userId : List.of("user1", "user2", "user3")) {
+      when(itemRepository.findImageIdsByUserId(userId)).thenReturn(List.of());
+    }
+
+    index.similar("user1", "shirt", 10, 20);
+    index.similar("user2", "shirt", 10, 20);
+    index.similar("user3", "shirt", 10, 20);
+    index.similar("user1", "shirt", 10, 20);
+
+    verify(itemRepository, times(2)).findImageIdsByUserId("user1");
+  }
+
+  private static Item item(String id, String imageId) {
+    return Item.builder().id(id).userId("user123").imageId(imageId).build();
+  }
+}
@@ -0,0 +1,116 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImagePaletteService;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.ImageNotFoundException;
+import sk.cyrilgavala.wardrobeapi.item.application.command.AttachItemPaletteCommand;
+import sk.cyrilgavala.wardrobeapi.item.application.command.handler.AttachItemPaletteCommandHandler;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ItemPaletteServiceTest {
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @Mock
+  private ImagePaletteService imagePaletteService;
+
+  @Mock
+  private AttachItemPaletteCommandHandler attachItemPaletteCommandHandler;
+
+  private MeterRegistry meterRegistry;
+
+  private ItemPaletteService service;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    service = new ItemPaletteService(itemRepository, imagePaletteService,
+        attachItemPaletteCommandHandler, meterRegistry, 2, 3, 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    service.shutdown();
+  }
+
+  @Test
+  void extractsPalettesBatchByBatchUntilBacklogIsDone() {
+    when(itemRepository.findWithoutPalette(2))
+        .thenReturn(List.of(item("item1", "image1"), item("item2", "image2")))
+        .thenReturn(List.of(item("item3", "image3")));
+    when(imagePaletteService.extractPalette(any())).thenReturn(List.of("#1f3a93"));
+    when(attachItemPaletteCommandHandler.handle(any())).thenReturn(true);
+
+    service.extractPalettes();
+
+    verify(itemRepository, times(2)).findWithoutPalette(2);
+    verify(attachItemPaletteCommandHandler).handle(
+        new AttachItemPaletteCommand("item3", "image3", List.of("#1f3a93")));
+    assertThat(meterRegistry.counter("items.palette.extracted").count()).isEqualTo(3);
+  }
+
+  @Test
+  void recordsEmptyPaletteOfMissingImageAndSkipsFailedOne() {
+    when(itemRepository.findWithoutPalette(2))
+        .thenReturn(List.of(item("item1", "image1"), item("item2", "image2")));
+    when(imagePaletteService.extractPalette("image1"))
+        .thenThrow(ImageNotFoundException.withId("image1"));
+    when(imagePaletteService.extractPalette("image2"))
+        .thenThrow(new IllegalStateException("Storage unavailable"));
+    when(attachItemPaletteCommandHandler.handle(any())).thenReturn(true);
+    when(itemRepository.countWithoutPalette()).thenReturn(1L);
+
+    service.extractPalettes();
+
+    verify(attachItemPaletteCommandHandler).handle(
+        new AttachItemPaletteCommand("item1", "image1", List.of()));
+    verify(attachItemPaletteCommandHandler, times(1)).handle(any());
+    // The failed image is left for the next run instead of being retried right away
+    verify(itemRepository, times(1)).findWithoutPalette(2);
+    assertThat(meterRegistry.get("items.palette.backlog").gauge().value()).isEqualTo(1);
+  }
+
+  @Test
+  void stopsAfterMaximumNumberOfBatches() {
+    when(itemRepository.findWithoutPalette(2))
+        .thenReturn(List.of(item("item1", "image1"), item("item2", "image2")));
+    when(imagePaletteService.extractPalette(any())).thenReturn(List.of("#ffffff"));
+    when(attachItemPaletteCommandHandler.handle(any())).thenReturn(true);
+
+    service.extractPalettes();
+
+    verify(itemRepository, times(3)).findWithoutPalette(2);
+  }
+
+  @Test
+  void doesNothingWithoutItemsAwaitingPalette() {
+    when(itemRepository.findWithoutPalette(2)).thenReturn(List.of());
+
+    service.extractPalettes();
+
+    verify(imagePaletteService, never()).extractPalette(any());
+    verify(attachItemPaletteCommandHandler, never()).handle(any());
+  }
+
+  private static Item item(String id, String imageId) {
+    return Item.builder().id(id).userId("user123").imageId(imageId).build();
+  }
+}
@@ -0,0 +1,89 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ItemPurgeServiceTest {
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @Mock
+  private ImageStorageService imageStorageService;
+
+  private MeterRegistry meterRegistry;
+
+  private ItemPurgeService service;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    service = new ItemPurgeService(itemRepository, imageStorageService, meterRegistry, 2, 3);
+  }
+
+  @Test
+  void deletesImagesBeforeItemsOfBatch() {
+    Item withImage = Item.builder().id("item1").imageId("image1").build();
+    Item withoutImage = Item.builder().id("item2").build();
+
+    when(itemRepository.findDeletedBefore(any(Instant.class), eq(2)))
+        .thenReturn(List.of(withImage, withoutImage))
+        .thenReturn(List.of());
+    when(imageStorageService.deleteImages(List.of("image1"))).thenReturn(1L);
+
+    service.purge();
+
+    InOrder order = inOrder(imageStorageService, itemRepository);
+    order.verify(imageStorageService).deleteImages(List.of("image1"));
+    order.verify(itemRepository).deleteAllById(List.of("item1", "item2"));
+    assertThat(meterRegistry.counter("items.purge.items").count()).isEqualTo(2);
+    assertThat(meterRegistry.counter("items.purge.images").count()).isEqualTo(1);
+  }
+
+  @Test
+  void stopsAfterMaxBatchesPerRun() {
+    Item first = Item.builder().id("item1").build();
+    Item second = Item.builder().id("item2").build();
+
+    when(itemRepository.findDeletedBefore(any(Instant.class), eq(2)))
+        .thenReturn(List.of(first, second));
+    when(itemRepository.countDeleted()).thenReturn(10L);
+
+    service.purge();
+
+    verify(itemRepository, times(3)).deleteAllById(anyCollection());
+    assertThat(meterRegistry.get("items.purge.backlog").gauge().value()).isEqualTo(10);
+  }
+
+  @Test
+  void doesNothingWithoutDeletedItems() {
+    when(itemRepository.findDeletedBefore(any(Instant.class), eq(2))).thenReturn(List.of());
+
+    service.purge();
+
+    verify(imageStorageService, never()).deleteImages(anyCollection());
+    verify(itemRepository, never()).deleteAllById(anyCollection());
+  }
+}
@@ -0,0 +1,115 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.item.domain.repository.ItemRepository;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanedImageSweeperTest {
+
+  private static final Instant CUTOFF = Instant.parse("2026-01-01T00:00:00Z");
+
+  @Mock
+  private ItemRepository itemRepository;
+
+  @Mock
+  private ImageStorageService imageStorageService;
+
+  private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void deletesImagesNoItemRefersTo() {
+    when(imageStorageService.streamImageIdsUnusedSince(CUTOFF))
+        .thenReturn(Stream.of("a1", "b2", "c3", "d4", "e5"));
+    when(itemRepository.streamImageIds()).thenReturn(Stream.of("0f", "b2", "b2", "d4"));
+    when(imageStorageService.deleteOrphanedImages(anyCollection(), eq(CUTOFF))).thenReturn(2L, 1L);
+
+    sweeper(2, 0, false).sweep(CUTOFF);
+
+    verify(imageStorageService).deleteOrphanedImages(List.of("a1", "c3"), CUTOFF);
+    verify(imageStorageService).deleteOrphanedImages(List.of("e5"), CUTOFF);
+    assertThat(meterRegistry.counter("items.orphaned.images.found").count()).isEqualTo(3);
+    assertThat(meterRegistry.counter("items.orphaned.images.deleted").count()).isEqualTo(3);
+  }
+
+  @Test
+  void keepsImagesReferencedByItems() {
+    when(imageStorageService.streamImageIdsUnusedSince(CUTOFF))
+        .thenReturn(Stream.of("a1", "b2"));
+    when(itemRepository.streamImageIds()).thenReturn(Stream.of("a1", "b2", "c3"));
+
+    sweeper(2, 0, false).sweep(CUTOFF);
+
+    verify(imageStorageService, never()).deleteOrphanedImages(anyCollection(), any());
+  }
+
+  @Test
+  void onlyCountsOrphansInDryRunMode() {
+    when(imageStorageService.streamImageIdsUnusedSince(CUTOFF))
+        .thenReturn(Stream.of("a1", "b2"));
+    when(itemRepository.streamImageIds()).thenReturn(Stream.empty());
+
+    sweeper(1, 0, true).sweep(CUTOFF);
+
+    verify(imageStorageService, never()).deleteOrphanedImages(anyCollection(), any());
+    assertThat(meterRegistry.counter("items.orphaned.images.found").count()).isEqualTo(2);
+  }
+
+  @Test
+  void closesBothStreams() {
+    AtomicBoolean imagesClosed = new AtomicBoolean();
+    AtomicBoolean referencesClosed = new AtomicBoolean();
+    when(imageStorageService.streamImageIdsUnusedSince(CUTOFF))
+        .thenReturn(Stream.of("a1").onClose(() -> imagesClosed.set(true)));
+    when(itemRepository.streamImageIds())
+        .thenReturn(Stream.of("a1").onClose(() -> referencesClosed.set(true)));
+
+    sweeper(1, 0, false).sweep(CUTOFF);
+
+    assertThat(imagesClosed).isTrue();
+    assertThat(referencesClosed).isTrue();
+  }
+
+  @Test
+  void pacesDeletesToConfiguredRate() {
+    when(imageStorageService.streamImageIdsUnusedSince(CUTOFF))
+        .thenReturn(Stream.of("a1", "b2"));
+    when(itemRepository.streamImageIds()).thenReturn(Stream.empty());
+
+    long startedAt = System.nanoTime();
+    sweeper(1, 20, false).sweep(CUTOFF);
+
+    // Two single-image batches at 20 deletes per second take at least 100 ms
+    assertThat(System.nanoTime() - startedAt).isGreaterThanOrEqualTo(
+        TimeUnit.MILLISECONDS.toNanos(100));
+  }
+
+  private OrphanedImageSweeper sweeper(int batchSize, int maxDeletesPerSecond, boolean dryRun) {
+    return new OrphanedImageSweeper(itemRepository, imageStorageService, meterRegistry, 60,
+        batchSize, maxDeletesPerSecond, dryRun);
+  }
+}
@@ -0,0 +1,58 @@
+package sk.cyrilgavala.wardrobeapi.item.application.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class UserIndexCacheTest {
+
+  private final UserIndexCache<String> cache = new UserIndexCache<>(2);
+  private final AtomicInteger builds = new AtomicInteger();
+
+  @Test
+  void buildsIndexOnceUntilInvalidated() {
+    assertThat(cache.get("user1", this::build)).isEqualTo("user1-1");
+    assertThat(cache.get("user1", this::build)).isEqualTo("user1-1");
+
+    cache.invalidate("user1");
+
+    assertThat(cache.get("user1", this::build)).isEqualTo("user1-2");
+  }
+
+  @Test
+  void handsLoadedIndexToChangeWithoutDroppingIt() {
+    assertThat(cache.changed("user1")).isEmpty();
+    cache.get("user1", this::build);
+
+    assertThat(cache.changed("user1")).contains("user1-1");
+    assertThat(cache.get("user1", this::build)).isEqualTo("user1-1");
+  }
+
+  @Test
+  void doesNotKeepIndexBuiltWhileItemChanged() {
+    String index = cache.get("user1", userId -> {
+      cache.changed("user2");
+      return build(userId);
+    });
+
+    assertThat(index).isEqualTo("user1-1");
+    assertThat(cache.get("user1", this::build)).isEqualTo("user1-2");
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedUser() {
+    cache.get("user1", this::build);
+    cache.get("user2", this::build);
+    cache.get("user1", this::build);
+    cache.get("user3", this::build);
+
+    assertThat(cache.changed("user1")).isPresent();
+    assertThat(cache.changed("user2")).isEmpty();
+    assertThat(cache.changed("user3")).isPresent();
+  }
+
+  private String build(String userId) {
+    return userId + "-" + builds.incrementAndGet();
+  }
+}
@@ -1,18 +1,30 @@
 package sk.cyrilgavala.wardrobeapi.item.infrastructure.persistence;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.mongodb.client.result.UpdateResult;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.bson.Document;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,6 +33,9 @@ class ItemRepositoryImplTest {
   @Mock
   private MongoItemRepository mongoItemRepository;
 
+  @Mock
+  private MongoTemplate mongoTemplate;
+
   @InjectMocks
   private ItemRepositoryImpl repository;
 
@@ -93,17 +108,17 @@ class ItemRepositoryImplTest {
         Item.builder().id("item3").userId("user123").name("Dress").build()
     );
 
-    when(mongoItemRepository.findAllByUserId("user123")).thenReturn(items);
+    when(mongoItemRepository.findAllByUserIdAndDeletedAtIsNull("user123")).thenReturn(items);
 
     List<Item> result = repository.findAllByUserId("user123");
 
     assertThat(result).containsExactlyElementsOf(items);
-    verify(mongoItemRepository).findAllByUserId("user123");
+    verify(mongoItemRepository).findAllByUserIdAndDeletedAtIsNull("user123");
   }
 
   @Test
   void returnsEmptyListWhenUserHasNoItems() {
-    when(mongoItemRepository.findAllByUserId("user456")).thenReturn(Collections.emptyList());
+    when(mongoItemRepository.findAllByUserIdAndDeletedAtIsNull("user456")).thenReturn(Collections.emptyList());
 
     List<Item> result = repository.findAllByUserId("user456");
 
@@ -111,10 +126,83 @@ class ItemRepositoryImplTest {
   }
 
   @Test
-  void deletesItemById() {
-    repository.deleteById("item123");
+  void doesNotFindSoftDeletedItemById() {
+    Item item = Item.builder().id("item123").userId("user123").deletedAt(Instant.now()).build();
+    when(mongoItemRepository.findById("item123")).thenReturn(Optional.of(item));
+
+    Optional<Item> result = repository.findById("item123");
+
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  void marksItemDeleted() {
+    Instant deletedAt = Instant.now();
+
+    when(mongoItemRepository.markDeletedById("item123", deletedAt)).thenReturn(1L);
+
+    assertThat(repository.markDeleted("item123", deletedAt)).isTrue();
+  }
+
+  @Test
+  void reportsItemAlreadyDeleted() {
+    Instant deletedAt = Instant.now();
+    when(mongoItemRepository.markDeletedById("item123", deletedAt)).thenReturn(0L);
 
-    verify(mongoItemRepository).deleteById("item123");
+    assertThat(repository.markDeleted("item123", deletedAt)).isFalse();
+  }
+
+  @Test
+  void replacesItemOnlyWhileNotDeleted() {
+    Item item = Item.builder().id("item123").userId("user123").name("Jeans").build();
+    when(mongoTemplate.replace(any(Query.class), eq(item)))
+        .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+    assertThat(repository.update(item)).isFalse();
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).replace(query.capture(), eq(item));
+    assertThat(query.getValue().getQueryObject())
+        .containsEntry("_id", "item123")
+        .containsEntry("deleted_at", null);
+  }
+
+  @Test
+  void setsOnlyPaletteAndSeqOfItemStillHavingTheImage() {
+    Item stored = Item.builder().id("item123").imageId("image123").palette(List.of("#1f3a93"))
+        .seq(4L).build();
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Item.class))).thenReturn(stored);
+
+    Optional<Item> result = repository.attachPalette("item123", "image123", List.of("#1f3a93"),
+        4L);
+
+    assertThat(result).contains(stored);
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    ArgumentCaptor<FindAndModifyOptions> options =
+        ArgumentCaptor.forClass(FindAndModifyOptions.class);
+    verify(mongoTemplate).findAndModify(query.capture(), update.capture(), options.capture(),
+        eq(Item.class));
+    assertThat(query.getValue().getQueryObject())
+        .containsEntry("_id", "item123")
+        .containsEntry("image_id", "image123")
+        .containsEntry("deleted_at", null);
+    assertThat(update.getValue().getUpdateObject()).containsOnlyKeys("$set");
+    assertThat(update.getValue().getUpdateObject().get("$set", Document.class))
+        .containsEntry("palette", List.of("#1f3a93"))
+        .containsEntry("seq", 4L)
+        .containsKey("updated_at");
+    assertThat(options.getValue().isReturnNew()).isTrue();
+  }
+
+  @Test
+  void attachesNoPaletteToItemThatChanged() {
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Item.class))).thenReturn(null);
+
+    assertThat(repository.attachPalette("item123", "image123", List.of("#1f3a93"), 4L))
+        .isEmpty();
   }
 
   @Test
@@ -148,18 +236,66 @@ class ItemRepositoryImplTest {
     List<Item> items = Collections.singletonList(
         Item.builder().id("item1").userId("user999").build()
     );
-    when(mongoItemRepository.findAllByUserId("user999")).thenReturn(items);
+    when(mongoItemRepository.findAllByUserIdAndDeletedAtIsNull("user999")).thenReturn(items);
 
     repository.findAllByUserId("user999");
 
-    verify(mongoItemRepository).findAllByUserId("user999");
+    verify(mongoItemRepository).findAllByUserIdAndDeletedAtIsNull("user999");
   }
 
   @Test
-  void delegatesDeleteByIdToMongoRepository() {
-    repository.deleteById("item888");
+  void delegatesDeleteAllByIdToMongoRepository() {
+    repository.deleteAllById(List.of("item887", "item888"));
 
-    verify(mongoItemRepository).deleteById("item888");
+    verify(mongoItemRepository).deleteAllById(List.of("item887", "item888"));
   }
-}
 
+  @Test
+  void streamsReferencedImageIds() {
+    when(mongoItemRepository.streamAllWithImage()).thenReturn(Stream.of(
+        Item.builder().imageId("image1").build(),
+        Item.builder().imageId("image2").build()));
+
+    try (Stream<String> imageIds = repository.streamImageIds()) {
+      assertThat(imageIds).containsExactly("image1", "image2");
+    }
+  }
+
+  @Test
+  void findsBatchOfDeletedItems() {
+    Instant cutoff = Instant.now();
+    List<Item> items = List.of(Item.builder().id("item1").imageId("image1").build());
+    when(mongoItemRepository.findDeletedBefore(cutoff, Limit.of(100))).thenReturn(items);
+
+    List<Item> result = repository.findDeletedBefore(cutoff, 100);
+
+    assertThat(result).containsExactlyElementsOf(items);
+  }
+
+  @Test
+  void findsAllItemsByUserIdAndBoxNumber() {
+    List<Item> items = Collections.singletonList(
+        Item.builder().id("item1").userId("user123").boxNumber(7).build()
+    );
+    when(mongoItemRepository.findAllByUserIdAndBoxNumberAndDeletedAtIsNull("user123", 7)).thenReturn(items);
+
+    List<Item> result = repository.findAllByUserIdAndBoxNumber("user123", 7);
+
+    assertThat(result).containsExactlyElementsOf(items);
+    verify(mongoItemRepository).findAllByUserIdAndBoxNumberAndDeletedAtIsNull("user123", 7);
+  }
+
+  @Test
+  void findsItemsChangedAfterSequenceNumber() {
+    List<Item> items = Collections.singletonList(
+        Item.builder().id("item1").userId("user123").seq(8L).build()
+    );
+    when(mongoItemRepository
+        .findAllByUserIdAndSeqGreaterThanAndDeletedAtIsNullOrderBySeqAsc("user123", 5L))
+        .thenReturn(items);
+
+    List<Item> result = repository.findAllByUserIdChangedAfter("user123", 5L);
+
+    assertThat(result).containsExactlyElementsOf(items);
+  }
+}
@@ -0,0 +1,328 @@
+package sk.cyrilgavala.wardrobeapi.item.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.mongodb.client.result.UpdateResult;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+
+@ExtendWith(MockitoExtension.class)
+class ItemStatisticsRepositoryImplTest {
+
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  @InjectMocks
+  private ItemStatisticsRepositoryImpl repository;
+
+  @Test
+  void incrementsAllCountersOfCreatedItem() {
+    Item item = Item.builder()
+        .id("item1")
+        .userId("user123")
+        .color("Blue")
+        .brand("Dr. Martens")
+        .size("M")
+        .boxNumber(7)
+        .washingTemperature(40)
+        .canBeIroned(true)
+        .build();
+    matchInitializedCounters();
+
+    repository.recordCreated(item);
+
+    Document increments = capturedIncrements();
+    assertThat(increments).containsExactlyInAnyOrderEntriesOf(Map.of(
+        "total_items", 1,
+        "colors.Blue", 1,
+        "brands.Dr%2E Martens", 1,
+        "sizes.M", 1,
+        "boxes.7", 1,
+        "care_labels.wash:40|iron:yes|dry:-|bleach:-", 1
+    ));
+  }
+
+  @Test
+  void decrementsAllCountersOfDeletedItem() {
+    Item item = Item.builder().id("item1").userId("user123").color("Red").build();
+    matchInitializedCounters();
+
+    repository.recordDeleted(item);
+
+    assertThat(capturedIncrements()).containsExactlyInAnyOrderEntriesOf(Map.of(
+        "total_items", -1,
+        "colors.Red", -1
+    ));
+  }
+
+  @Test
+  void movesOnlyChangedCountersOnUpdate() {
+    Item previous = Item.builder().id("item1").userId("user123").color("Blue").boxNumber(1)
+        .build();
+    Item current = Item.builder().id("item1").userId("user123").color("Blue").boxNumber(2)
+        .build();
+    matchInitializedCounters();
+
+    repository.recordUpdated(previous, current);
+
+    assertThat(capturedIncrements()).containsExactlyInAnyOrderEntriesOf(Map.of(
+        "boxes.1", -1,
+        "boxes.2", 1
+    ));
+  }
+
+  @Test
+  void skipsWriteWhenUpdateDoesNotChangeAnyCounter() {
+    Item previous = Item.builder().id("item1").userId("user123").name("Old").color("Blue").build();
+    Item current = Item.builder().id("item1").userId("user123").name("New").color("Blue").build();
+
+    repository.recordUpdated(previous, current);
+
+    verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class),
+        any(String.class));
+  }
+
+  @Test
+  void decodesKeysAndDropsEmptyCountersOnRead() {
+    ItemStatistics stored = ItemStatistics.builder()
+        .userId("user123")
+        .totalItems(2L)
+        .brands(Map.of("Dr%2E Martens", 2L, "Zara", 0L))
+        .build();
+
+    when(mongoTemplate.findOne(any(Query.class), eq(ItemStatistics.class))).thenReturn(stored);
+
+    Optional<ItemStatistics> result = repository.findByUserId("user123");
+
+    assertThat(result).isPresent();
+    assertThat(result.get().brands()).containsExactly(Map.entry("Dr. Martens", 2L));
+    assertThat(result.get().colors()).isEmpty();
+  }
+
+  @Test
+  void returnsEmptyWhenStatisticsNotMaterialized() {
+    when(mongoTemplate.findOne(any(Query.class), eq(ItemStatistics.class))).thenReturn(null);
+
+    assertThat(repository.findByUserId("user123")).isEmpty();
+
+    // Counters left without the marker, e.g. by deltas of an earlier version, count as missing
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).findOne(query.capture(), eq(ItemStatistics.class));
+    assertThat(query.getValue().getQueryObject())
+        .containsEntry("_id", "user123")
+        .containsEntry("initialized", true);
+  }
+
+  @Test
+  void recomputesStatisticsFromAggregation() {
+    Document facets = new Document()
+        .append("total_items", List.of(new Document("count", 3)))
+        .append("colors", List.of(
+            new Document("_id", "Blue").append("count", 2),
+            new Document("_id", "Red").append("count", 1)))
+        .append("brands", List.of())
+        .append("sizes", List.of())
+        .append("boxes", List.of(new Document("_id", 5).append("count", 3)))
+        .append("care_labels", List.of());
+
+    when(mongoTemplate.aggregate(any(Aggregation.class), eq("items"), eq(Document.class)))
+        .thenReturn(new AggregationResults<>(List.of(facets), new Document()));
+
+    ItemStatistics result = repository.recompute("user123");
+
+    assertThat(result.totalItems()).isEqualTo(3L);
+    assertThat(result.colors()).containsExactlyInAnyOrderEntriesOf(Map.of("Blue", 2L, "Red", 1L));
+    assertThat(result.boxes()).containsExactly(Map.entry("5", 3L));
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).upsert(query.capture(), update.capture(), eq("item_statistics"));
+    assertThat(query.getValue().getQueryObject().get("initialized", Document.class))
+        .containsEntry("$ne", true);
+    assertThat(query.getValue().getQueryObject()).containsEntry("pending_version", null);
+    assertThat(update.getValue().getUpdateObject().get("$set", Document.class))
+        .containsEntry("total_items", 3L)
+        .containsEntry("initialized", true);
+    assertThat(update.getValue().getUpdateObject().get("$unset", Document.class))
+        .containsKeys("pending", "pending_version");
+  }
+
+  @Test
+  void addsDeltasCollectedWhileAggregatingToResult() {
+    Document facets = new Document()
+        .append("total_items", List.of(new Document("count", 3)))
+        .append("colors", List.of(new Document("_id", "Blue").append("count", 3)));
+
+    // One item was created before the aggregation, another one while it ran
+    when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq("item_statistics")))
+        .thenReturn(pending(1, new Document("total_items", 1)
+                .append("colors", new Document("Blue", 1))),
+            pending(2, new Document("total_items", 2)
+                .append("colors", new Document("Blue", 1).append("Red", 1))));
+    when(mongoTemplate.aggregate(any(Aggregation.class), eq("items"), eq(Document.class)))
+        .thenReturn(new AggregationResults<>(List.of(facets), new Document()));
+
+    ItemStatistics result = repository.recompute("user123");
+
+    assertThat(result.totalItems()).isEqualTo(4L);
+    assertThat(result.colors()).containsExactlyInAnyOrderEntriesOf(Map.of("Blue", 3L, "Red", 1L));
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).upsert(query.capture(), any(Update.class), eq("item_statistics"));
+    assertThat(query.getValue().getQueryObject()).containsEntry("pending_version", 2);
+  }
+
+  @Test
+  void movesBoxCountOfItemMovedWhileBoxesAreRecomputed() {
+    Document facets = new Document()
+        .append("total_items", List.of(new Document("count", 2)))
+        .append("boxes", List.of(new Document("_id", 1).append("count", 2)));
+
+    // An item moved from box 1 to box 2 after the aggregation read it
+    when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq("item_statistics")))
+        .thenReturn(null, pending(1, new Document("boxes", new Document("1", -1).append("2", 1))));
+    when(mongoTemplate.aggregate(any(Aggregation.class), eq("items"), eq(Document.class)))
+        .thenReturn(new AggregationResults<>(List.of(facets), new Document()));
+
+    ItemStatistics result = repository.recompute("user123");
+
+    assertThat(result.totalItems()).isEqualTo(2L);
+    assertThat(result.boxes()).containsExactlyInAnyOrderEntriesOf(Map.of("1", 1L, "2", 1L));
+  }
+
+  @Test
+  void retriesWithDeltaCollectedBetweenAggregationAndUpsert() {
+    when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq("item_statistics")))
+        .thenReturn(null, null, pending(1, new Document("total_items", 1)));
+    when(mongoTemplate.aggregate(any(Aggregation.class), eq("items"), eq(Document.class)))
+        .thenReturn(new AggregationResults<>(List.of(), new Document()));
+    when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq("item_statistics")))
+        .thenThrow(new DuplicateKeyException("duplicate _id"))
+        .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+    ItemStatistics result = repository.recompute("user123");
+
+    assertThat(result.totalItems()).isEqualTo(1L);
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate, times(2))
+        .upsert(query.capture(), update.capture(), eq("item_statistics"));
+    assertThat(query.getValue().getQueryObject()).containsEntry("pending_version", 1);
+    assertThat(update.getValue().getUpdateObject().get("$set", Document.class))
+        .containsEntry("total_items", 1L);
+  }
+
+  @Test
+  void returnsCountersInitializedConcurrentlyInsteadOfReplacingThem() {
+    ItemStatistics stored = ItemStatistics.builder().userId("user123").totalItems(4L).build();
+
+    when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq("item_statistics")))
+        .thenReturn(null, null, new Document("initialized", true));
+    when(mongoTemplate.aggregate(any(Aggregation.class), eq("items"), eq(Document.class)))
+        .thenReturn(new AggregationResults<>(List.of(), new Document()));
+    when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq("item_statistics")))
+        .thenThrow(new DuplicateKeyException("duplicate _id"));
+    when(mongoTemplate.findOne(any(Query.class), eq(ItemStatistics.class))).thenReturn(stored);
+
+    ItemStatistics result = repository.recompute("user123");
+
+    assertThat(result.totalItems()).isEqualTo(4L);
+  }
+
+  @Test
+  void appliesDeltasToInitializedCountersWithoutCollectingThem() {
+    matchInitializedCounters();
+
+    repository.recordCreated(Item.builder().id("item1").userId("user123").build());
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq("item_statistics"));
+    assertThat(query.getValue().getQueryObject()).containsEntry("initialized", true);
+    verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), any(String.class));
+  }
+
+  @Test
+  void collectsDeltasUntilCountersAreInitialized() {
+    when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq("item_statistics")))
+        .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+    repository.recordCreated(Item.builder().id("item1").userId("user123").color("Blue").build());
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).upsert(query.capture(), update.capture(), eq("item_statistics"));
+    assertThat(query.getValue().getQueryObject().get("initialized", Document.class))
+        .containsEntry("$ne", true);
+    assertThat(update.getValue().getUpdateObject().get("$inc", Document.class))
+        .containsExactlyInAnyOrderEntriesOf(Map.of(
+            "pending_version", 1,
+            "pending.total_items", 1,
+            "pending.colors.Blue", 1));
+  }
+
+  @Test
+  void invalidatesCountersByRemovingMarker() {
+    repository.invalidate("user123");
+
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq("item_statistics"));
+    assertThat(update.getValue().getUpdateObject().get("$unset", Document.class))
+        .containsKey("initialized");
+  }
+
+  @Test
+  void recomputesEmptyStatisticsForUserWithoutItems() {
+    when(mongoTemplate.aggregate(any(Aggregation.class), eq("items"), eq(Document.class)))
+        .thenReturn(new AggregationResults<>(List.of(), new Document()));
+
+    ItemStatistics result = repository.recompute("user123");
+
+    assertThat(result.totalItems()).isZero();
+    assertThat(result.colors()).isEmpty();
+  }
+
+  @Test
+  void encodesAndDecodesReservedCharacters() {
+    String key = "100% $pecial.brand";
+
+    String encoded = ItemStatisticsRepositoryImpl.encodeKey(key);
+
+    assertThat(encoded).doesNotContain(".", "$");
+    assertThat(ItemStatisticsRepositoryImpl.decodeKey(encoded)).isEqualTo(key);
+  }
+
+  private void matchInitializedCounters() {
+    when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq("item_statistics")))
+        .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+  }
+
+  private static Document pending(int version, Document deltas) {
+    return new Document("pending", deltas).append("pending_version", version);
+  }
+
+  private Document capturedIncrements() {
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq("item_statistics"));
+    return update.getValue().getUpdateObject().get("$inc", Document.class);
+  }
+}
@@ -0,0 +1,64 @@
+package sk.cyrilgavala.wardrobeapi.item.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@ExtendWith(MockitoExtension.class)
+class ItemSyncRepositoryImplTest {
+
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  @InjectMocks
+  private ItemSyncRepositoryImpl repository;
+
+  @Test
+  void allocatesNextSequenceNumberWithAtomicUpsert() {
+    when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+        any(FindAndModifyOptions.class), eq(Document.class), eq("item_sequences")))
+        .thenReturn(new Document("_id", "user123").append("seq", 4L));
+
+    long seq = repository.nextSeq("user123");
+
+    assertThat(seq).isEqualTo(4L);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    ArgumentCaptor<FindAndModifyOptions> options =
+        ArgumentCaptor.forClass(FindAndModifyOptions.class);
+    verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), options.capture(),
+        eq(Document.class), eq("item_sequences"));
+    assertThat(update.getValue().getUpdateObject().get("$inc", Document.class))
+        .containsEntry("seq", 1L);
+    assertThat(options.getValue().isUpsert()).isTrue();
+    assertThat(options.getValue().isReturnNew()).isTrue();
+  }
+
+  @Test
+  void readsCurrentSequenceNumber() {
+    when(mongoTemplate.findById("user123", Document.class, "item_sequences"))
+        .thenReturn(new Document("_id", "user123").append("seq", 9L));
+
+    assertThat(repository.currentSeq("user123")).isEqualTo(9L);
+  }
+
+  @Test
+  void returnsZeroWhenNoSequenceNumberWasAllocated() {
+    when(mongoTemplate.findById("user123", Document.class, "item_sequences")).thenReturn(null);
+
+    assertThat(repository.currentSeq("user123")).isZero();
+  }
+}
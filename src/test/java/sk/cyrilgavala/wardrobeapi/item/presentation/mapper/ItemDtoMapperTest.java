@@ -4,23 +4,44 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.time.Instant;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageSprite;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageSprite.Tile;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.StoredImage;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.security.ImageUrlSigner;
 import sk.cyrilgavala.wardrobeapi.item.application.command.CreateItemCommand;
 import sk.cyrilgavala.wardrobeapi.item.application.command.UpdateItemCommand;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.BoxSummary;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemChanges;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.SyncToken;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.BoxResponse;
 import sk.cyrilgavala.wardrobeapi.item.presentation.dto.CreateItemRequest;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemChangesResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemEventResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemImageResponse;
 import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemSpriteResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.ItemStatisticsResponse;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.SpriteTileResponse;
 import sk.cyrilgavala.wardrobeapi.item.presentation.dto.UpdateItemRequest;
 
 class ItemDtoMapperTest {
 
+  private ImageUrlSigner imageUrlSigner;
   private ItemDtoMapper mapper;
 
   @BeforeEach
   void setUp() {
-    mapper = new ItemDtoMapper();
+    imageUrlSigner = new ImageUrlSigner("test-image-url-secret", 60);
+    mapper = new ItemDtoMapper(imageUrlSigner);
   }
 
   @Test
@@ -35,10 +56,11 @@ class ItemDtoMapperTest {
         true,
         false,
         false,
-        5
+        5,
+        null
     );
 
-    CreateItemCommand result = mapper.toCreateCommand(request, "user123", "image123");
+    CreateItemCommand result = mapper.toCreateCommand(request, "user123", null);
 
     assertThat(result)
         .usingRecursiveComparison()
@@ -53,11 +75,33 @@ class ItemDtoMapperTest {
             true,
             false,
             false,
-            "image123",
+            null,
             5
         ));
   }
 
+  @Test
+  void mapsGivenImageIdToCreateCommand() {
+    CreateItemRequest request = new CreateItemRequest(
+        "Jacket",
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null
+    );
+
+    CreateItemCommand result = mapper.toCreateCommand(request, "user123",
+        "507f1f77bcf86cd799439011");
+
+    assertThat(result.imageId()).isEqualTo("507f1f77bcf86cd799439011");
+  }
+
   @Test
   void mapsCreateRequestToCommandWithNullOptionalFields() {
     CreateItemRequest request = new CreateItemRequest(
@@ -70,6 +114,7 @@ class ItemDtoMapperTest {
         null,
         null,
         null,
+        null,
         null
     );
 
@@ -105,6 +150,7 @@ class ItemDtoMapperTest {
         true,
         false,
         false,
+        null,
         null
     );
 
@@ -140,7 +186,8 @@ class ItemDtoMapperTest {
         false,
         true,
         false,
-        7
+        7,
+        null
     );
 
     UpdateItemCommand result = mapper.toUpdateCommand(request, "item123", "user123",
@@ -177,6 +224,7 @@ class ItemDtoMapperTest {
         null,
         null,
         null,
+        null,
         null
     );
 
@@ -213,7 +261,8 @@ class ItemDtoMapperTest {
         true,
         false,
         false,
-        3
+        3,
+        null
     );
 
     UpdateItemCommand result = mapper.toUpdateCommand(request, "item456", "user456", null);
@@ -252,6 +301,7 @@ class ItemDtoMapperTest {
         .canBeDried(false)
         .canBeBleached(false)
         .imageId("image123")
+        .palette(List.of("#1f3a93", "#f2f2f2"))
         .boxNumber(5)
         .createdAt(Instant.parse("2024-01-01T10:00:00Z"))
         .updatedAt(Instant.parse("2024-01-02T15:30:00Z"))
@@ -274,6 +324,8 @@ class ItemDtoMapperTest {
             false,
             false,
             "image123",
+            imageUrlSigner.sign("image123"),
+            List.of("#1f3a93", "#f2f2f2"),
             5,
             Instant.parse("2024-01-01T10:00:00Z"),
             Instant.parse("2024-01-02T15:30:00Z")
@@ -318,6 +370,8 @@ class ItemDtoMapperTest {
             null,
             null,
             null,
+            null,
+            null,
             Instant.parse("2024-02-01T08:00:00Z"),
             Instant.parse("2024-02-01T08:00:00Z")
         ));
@@ -421,10 +475,131 @@ class ItemDtoMapperTest {
             false,
             false,
             "image1",
+            imageUrlSigner.sign("image1"),
+            null,
             1,
             Instant.parse("2024-01-01T10:00:00Z"),
             Instant.parse("2024-01-01T10:00:00Z")
         ));
   }
-}
 
+  @Test
+  void mapsStatisticsToResponse() {
+    ItemStatistics statistics = ItemStatistics.builder()
+        .userId("user1")
+        .totalItems(4L)
+        .colors(Map.of("Blue", 3L, "Red", 1L))
+        .brands(Map.of("Levi's", 2L))
+        .sizes(Map.of("M", 4L))
+        .boxes(Map.of("7", 4L))
+        .careLabels(Map.of("wash:40|iron:yes|dry:no|bleach:no", 2L))
+        .updatedAt(Instant.parse("2024-01-01T10:00:00Z"))
+        .build();
+
+    ItemStatisticsResponse result = mapper.toStatisticsResponse(statistics);
+
+    assertThat(result)
+        .usingRecursiveComparison()
+        .isEqualTo(new ItemStatisticsResponse(
+            4L,
+            Map.of("Blue", 3L, "Red", 1L),
+            Map.of("Levi's", 2L),
+            Map.of("M", 4L),
+            Map.of("7", 4L),
+            Map.of("wash:40|iron:yes|dry:no|bleach:no", 2L),
+            Instant.parse("2024-01-01T10:00:00Z")
+        ));
+  }
+
+  @Test
+  void returnsNullWhenStatisticsAreNull() {
+    assertThat(mapper.toStatisticsResponse(null)).isNull();
+  }
+
+  @Test
+  void mapsItemImageToResponse() {
+    Item item = Item.builder()
+        .id("item1")
+        .userId("user1")
+        .name("Blue Jeans")
+        .imageId("image1")
+        .build();
+    StoredImage image = new StoredImage("image1t", "image/jpeg", 2048L,
+        Instant.parse("2024-01-01T10:00:00Z"), null, new ByteArrayResource(new byte[0]));
+
+    ItemImageResponse result = mapper.toImageResponse(item, image, "\"image1-thumb\"");
+
+    assertThat(result).isEqualTo(
+        new ItemImageResponse("item1", "image1", "image/jpeg", 2048L, "\"image1-thumb\""));
+  }
+
+  @Test
+  void mapsSpriteLayoutToResponse() {
+    Map<String, Tile> tiles = new LinkedHashMap<>();
+    tiles.put("item2", new Tile(250, 50, 100, 100));
+    tiles.put("item1", new Tile(0, 50, 200, 100));
+    ImageSprite sprite = new ImageSprite("key", new byte[]{1}, 400, 200, 200, tiles);
+
+    ItemSpriteResponse result = mapper.toSpriteResponse(sprite, "\"sprite-key\"");
+
+    assertThat(result.eTag()).isEqualTo("\"sprite-key\"");
+    assertThat(result.width()).isEqualTo(400);
+    assertThat(result.height()).isEqualTo(200);
+    assertThat(result.tileSize()).isEqualTo(200);
+    assertThat(result.tiles()).containsExactly(
+        Map.entry("item2", new SpriteTileResponse(250, 50, 100, 100)),
+        Map.entry("item1", new SpriteTileResponse(0, 50, 200, 100)));
+  }
+
+  @Test
+  void mapsBoxSummariesToResponseList() {
+    List<BoxResponse> result = mapper.toBoxResponseList(List.of(
+        new BoxSummary(1, 4L),
+        new BoxSummary(7, 2L)
+    ));
+
+    assertThat(result).containsExactly(new BoxResponse(1, 4L), new BoxResponse(7, 2L));
+  }
+
+  @Test
+  void returnsEmptyListWhenBoxListIsNull() {
+    assertThat(mapper.toBoxResponseList(null)).isEmpty();
+  }
+
+  @Test
+  void mapsChangedEventToResponseWithItem() {
+    Item item = Item.builder().id("item1").userId("user123").name("Shirt").build();
+
+    ItemEventResponse result = mapper.toEventResponse(ItemChangedEvent.updated(item));
+
+    assertThat(result.type()).isEqualTo("UPDATED");
+    assertThat(result.itemId()).isEqualTo("item1");
+    assertThat(result.item().name()).isEqualTo("Shirt");
+    assertThat(result.occurredAt()).isNotNull();
+  }
+
+  @Test
+  void omitsItemInDeletedEventResponse() {
+    Item item = Item.builder().id("item1").userId("user123").name("Shirt").build();
+
+    ItemEventResponse result = mapper.toEventResponse(ItemChangedEvent.deleted(item));
+
+    assertThat(result.type()).isEqualTo("DELETED");
+    assertThat(result.itemId()).isEqualTo("item1");
+    assertThat(result.item()).isNull();
+  }
+
+  @Test
+  void mapsChangesToResponseWithEncodedToken() {
+    Item item = Item.builder().id("item1").userId("user123").name("Shirt").seq(4L).build();
+    SyncToken token = new SyncToken(4L, Instant.parse("2024-01-01T00:00:00Z"));
+
+    ItemChangesResponse result = mapper.toChangesResponse(
+        new ItemChanges(List.of(item), List.of("item2"), token, false));
+
+    assertThat(result.items()).extracting(ItemResponse::id).containsExactly("item1");
+    assertThat(result.deletedItemIds()).containsExactly("item2");
+    assertThat(SyncToken.decode(result.token())).isEqualTo(token);
+    assertThat(result.fullResync()).isFalse();
+  }
+}
@@ -0,0 +1,121 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.rest;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.infrastructure.persistence.MongoItemRepository;
+import sk.cyrilgavala.wardrobeapi.shared.config.TestcontainersConfiguration;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+class BoxControllerIntegrationTest {
+
+  @Autowired
+  private WebApplicationContext context;
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private MongoItemRepository itemRepository;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @BeforeEach
+  void setUp() {
+    mockMvc = MockMvcBuilders
+        .webAppContextSetup(context)
+        .apply(springSecurity())
+        .build();
+    itemRepository.deleteAll();
+    mongoTemplate.dropCollection(ItemStatistics.class);
+  }
+
+  @AfterEach
+  void tearDown() {
+    itemRepository.deleteAll();
+    mongoTemplate.dropCollection(ItemStatistics.class);
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void listsBoxesWithItemCounts() throws Exception {
+    createItem("Jeans", "7");
+    createItem("Scarf", "7");
+    createItem("Shirt", "2");
+
+    mockMvc.perform(get("/api/boxes"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].boxNumber").value(2))
+        .andExpect(jsonPath("$[0].itemCount").value(1))
+        .andExpect(jsonPath("$[1].boxNumber").value(7))
+        .andExpect(jsonPath("$[1].itemCount").value(2));
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void retrievesOnlyItemsOfUserInRequestedBox() throws Exception {
+    itemRepository.save(
+        Item.create("testuser", "Jeans", null, null, null, null, null, null, null, null, null, 7));
+    itemRepository.save(
+        Item.create("testuser", "Shirt", null, null, null, null, null, null, null, null, null, 2));
+    itemRepository.save(
+        Item.create("otheruser", "Dress", null, null, null, null, null, null, null, null, null,
+            7));
+
+    mockMvc.perform(get("/api/boxes/{boxNumber}/items", 7))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].name").value("Jeans"));
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void countsItemsStoredBeforeCountersExisted() throws Exception {
+    itemRepository.save(
+        Item.create("testuser", "Jeans", null, null, null, null, null, null, null, null, null, 3));
+    itemRepository.save(
+        Item.create("testuser", "Shirt", null, null, null, null, null, null, null, null, null, 3));
+    createItem("Scarf", "3");
+
+    mockMvc.perform(get("/api/boxes"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].boxNumber").value(3))
+        .andExpect(jsonPath("$[0].itemCount").value(3));
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void returnsEmptyListForUnusedBox() throws Exception {
+    mockMvc.perform(get("/api/boxes/{boxNumber}/items", 42))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+  }
+
+  private void createItem(String name, String boxNumber) throws Exception {
+    mockMvc.perform(multipart("/api/items")
+            .param("name", name)
+            .param("boxNumber", boxNumber))
+        .andExpect(status().isCreated());
+  }
+}
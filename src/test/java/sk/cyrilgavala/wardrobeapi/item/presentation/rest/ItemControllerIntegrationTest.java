@@ -1,26 +1,53 @@
 package sk.cyrilgavala.wardrobeapi.item.presentation.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.anonymous;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.jpeg;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.png;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.solidPng;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.webp;
 
+import com.jayway.jsonpath.JsonPath;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
+import sk.cyrilgavala.wardrobeapi.image.domain.model.ImageUpload;
+import sk.cyrilgavala.wardrobeapi.item.application.service.ItemPaletteService;
 import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemStatistics;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.ItemTombstone;
 import sk.cyrilgavala.wardrobeapi.item.infrastructure.persistence.MongoItemRepository;
 import sk.cyrilgavala.wardrobeapi.shared.config.TestcontainersConfiguration;
 
@@ -38,6 +65,12 @@ class ItemControllerIntegrationTest {
   @Autowired
   private MongoItemRepository itemRepository;
 
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ItemPaletteService itemPaletteService;
+
   @BeforeEach
   void setUp() {
     mockMvc = MockMvcBuilders
@@ -45,11 +78,19 @@ class ItemControllerIntegrationTest {
         .apply(springSecurity())
         .build();
     itemRepository.deleteAll();
+    dropSyncAndStatisticsCollections();
   }
 
   @AfterEach
   void tearDown() {
     itemRepository.deleteAll();
+    dropSyncAndStatisticsCollections();
+  }
+
+  private void dropSyncAndStatisticsCollections() {
+    mongoTemplate.dropCollection(ItemStatistics.class);
+    mongoTemplate.dropCollection(ItemTombstone.class);
+    mongoTemplate.dropCollection("item_sequences");
   }
 
   @Test
@@ -133,7 +174,10 @@ class ItemControllerIntegrationTest {
     mockMvc.perform(delete("/api/items/{id}", savedItem.id()))
         .andExpect(status().isNoContent());
 
-    assertThat(itemRepository.findById(savedItem.id())).isEmpty();
+    assertThat(itemRepository.findById(savedItem.id()))
+        .hasValueSatisfying(item -> assertThat(item.deletedAt()).isNotNull());
+    mockMvc.perform(get("/api/items/{id}", savedItem.id()))
+        .andExpect(status().isNotFound());
   }
 
   @Test
@@ -392,6 +436,26 @@ class ItemControllerIntegrationTest {
             org.hamcrest.Matchers.containsString("exceeds maximum allowed size")));
   }
 
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void returnsBadRequestWhenImageContentIsNotAnImage() throws Exception {
+    MockMultipartFile disguisedImage = new MockMultipartFile(
+        "image",
+        "script.png",
+        "image/png",
+        "#!/bin/sh".getBytes()
+    );
+
+    mockMvc.perform(multipart("/api/items")
+            .file(disguisedImage)
+            .param("name", "Blue Jeans"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value(
+            org.hamcrest.Matchers.containsString("not a valid JPEG, PNG, or WebP image")));
+
+    assertThat(itemRepository.findAll()).isEmpty();
+  }
+
   @Test
   @WithMockUser(username = "testuser", authorities = {"USER"})
   void createsItemSuccessfullyWithValidImage() throws Exception {
@@ -399,7 +463,7 @@ class ItemControllerIntegrationTest {
         "image",
         "test.jpg",
         "image/jpeg",
-        "fake-image-content".getBytes()
+        jpeg("fake-image-content")
     );
 
     mockMvc.perform(multipart("/api/items")
@@ -418,6 +482,33 @@ class ItemControllerIntegrationTest {
     assertThat(savedItem.imageId()).isNotNull();
   }
 
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void storesStreamedImageBeforeRespondingWithItem() throws Exception {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.writeBytes(("--streamBoundary\r\n"
+        + "Content-Disposition: form-data; name=\"name\"\r\n\r\n"
+        + "Blue Jeans\r\n"
+        + "--streamBoundary\r\n"
+        + "Content-Disposition: form-data; name=\"image\"; filename=\"jeans.jpg\"\r\n"
+        + "Content-Type: image/jpeg\r\n\r\n").getBytes());
+    body.writeBytes(jpeg("streamed-image"));
+    body.writeBytes("\r\n--streamBoundary--\r\n".getBytes());
+
+    // A plain request is not resolved by MockMvc, so the form is read as it streams in
+    mockMvc.perform(post("/api/items")
+            .contentType("multipart/form-data; boundary=streamBoundary")
+            .content(body.toByteArray()))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.name").value("Blue Jeans"))
+        .andExpect(jsonPath("$.imageId").exists());
+
+    Item savedItem = itemRepository.findAll().get(0);
+    mockMvc.perform(get("/api/items/{id}/image", savedItem.id()))
+        .andExpect(status().isOk())
+        .andExpect(content().bytes(jpeg("streamed-image")));
+  }
+
   @Test
   @WithMockUser(username = "testuser", authorities = {"USER"})
   void updatesItemAndReplacesImageSuccessfully() throws Exception {
@@ -425,7 +516,7 @@ class ItemControllerIntegrationTest {
         "image",
         "initial.jpg",
         "image/jpeg",
-        "initial-image".getBytes()
+        jpeg("initial-image")
     );
 
     String itemId = mockMvc.perform(multipart("/api/items")
@@ -445,7 +536,7 @@ class ItemControllerIntegrationTest {
         "image",
         "updated.png",
         "image/png",
-        "updated-image".getBytes()
+        png("updated-image")
     );
 
     mockMvc.perform(multipart("/api/items/{id}", item.id())
@@ -464,6 +555,32 @@ class ItemControllerIntegrationTest {
     assertThat(updatedItem.imageId()).isNotEqualTo(originalImageId);
   }
 
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void keepsOldImageWhenReplacementIsRejected() throws Exception {
+    mockMvc.perform(multipart("/api/items")
+            .file(new MockMultipartFile("image", "kept.jpg", "image/jpeg",
+                jpeg("kept-image")))
+            .param("name", "Original"))
+        .andExpect(status().isCreated());
+    Item item = itemRepository.findAll().get(0);
+
+    mockMvc.perform(multipart("/api/items/{id}", item.id())
+            .file(new MockMultipartFile("image", "document.pdf", "application/pdf",
+                "PDF content".getBytes()))
+            .with(request -> {
+              request.setMethod("PUT");
+              return request;
+            })
+            .param("name", "Updated"))
+        .andExpect(status().isBadRequest());
+
+    assertThat(itemRepository.findById(item.id()).get().imageId()).isEqualTo(item.imageId());
+    mockMvc.perform(get("/api/items/{id}/image", item.id()))
+        .andExpect(status().isOk())
+        .andExpect(content().bytes(jpeg("kept-image")));
+  }
+
   @Test
   @WithMockUser(username = "testuser", authorities = {"USER"})
   void returnsImageWithCorrectContentType() throws Exception {
@@ -471,7 +588,7 @@ class ItemControllerIntegrationTest {
         "image",
         "test.png",
         "image/png",
-        new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47}
+        png("png")
     );
 
     String responseBody = mockMvc.perform(multipart("/api/items")
@@ -496,7 +613,7 @@ class ItemControllerIntegrationTest {
         "image",
         "test.webp",
         "image/webp",
-        "RIFF-webp-content".getBytes()
+        webp("webp-content")
     );
 
     mockMvc.perform(multipart("/api/items")
@@ -567,4 +684,498 @@ class ItemControllerIntegrationTest {
     assertThat(savedItem.washingTemperature()).isNotNull();
     assertThat(savedItem.washingTemperature()).isEqualTo(0);
   }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void maintainsStatisticsAcrossCreateAndDelete() throws Exception {
+    mockMvc.perform(multipart("/api/items")
+            .param("name", "Blue Jeans")
+            .param("color", "Blue")
+            .param("boxNumber", "7"))
+        .andExpect(status().isCreated());
+    mockMvc.perform(multipart("/api/items")
+            .param("name", "Blue Shirt")
+            .param("color", "Blue")
+            .param("brand", "Dr. Shirt")
+            .param("boxNumber", "3"))
+        .andExpect(status().isCreated());
+
+    mockMvc.perform(get("/api/items/stats"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.totalItems").value(2))
+        .andExpect(jsonPath("$.colors.Blue").value(2))
+        .andExpect(jsonPath("$.brands['Dr. Shirt']").value(1))
+        .andExpect(jsonPath("$.boxes['7']").value(1));
+
+    Item jeans = itemRepository.findAll().stream()
+        .filter(item -> item.name().equals("Blue Jeans"))
+        .findFirst()
+        .orElseThrow();
+    mockMvc.perform(delete("/api/items/{id}", jeans.id()))
+        .andExpect(status().isNoContent());
+
+    mockMvc.perform(get("/api/items/stats"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.totalItems").value(1))
+        .andExpect(jsonPath("$.colors.Blue").value(1))
+        .andExpect(jsonPath("$.boxes['7']").doesNotExist());
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void rebuildsStatisticsFromExistingItems() throws Exception {
+    itemRepository.save(
+        Item.create("testuser", "Jeans", null, "Blue", null, "M", 40, true, null, null, null, 1));
+    itemRepository.save(
+        Item.create("testuser", "Shirt", null, "White", null, "M", null, null, null, null, null,
+            1));
+
+    mockMvc.perform(post("/api/items/stats/rebuild"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.totalItems").value(2))
+        .andExpect(jsonPath("$.sizes.M").value(2))
+        .andExpect(jsonPath("$.boxes['1']").value(2))
+        .andExpect(jsonPath("$.careLabels['wash:40|iron:yes|dry:-|bleach:-']").value(1));
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void returnsOnlyChangesSinceSyncToken() throws Exception {
+    mockMvc.perform(multipart("/api/items").param("name", "Jeans"))
+        .andExpect(status().isCreated());
+    mockMvc.perform(multipart("/api/items").param("name", "Shirt"))
+        .andExpect(status().isCreated());
+
+    String fullSync = mockMvc.perform(get("/api/items/changes"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.fullResync").value(true))
+        .andExpect(jsonPath("$.items.length()").value(2))
+        .andReturn().getResponse().getContentAsString();
+    String token = JsonPath.read(fullSync, "$.token");
+
+    Item jeans = itemRepository.findAll().stream()
+        .filter(item -> item.name().equals("Jeans"))
+        .findFirst()
+        .orElseThrow();
+    mockMvc.perform(delete("/api/items/{id}", jeans.id()))
+        .andExpect(status().isNoContent());
+    mockMvc.perform(multipart("/api/items").param("name", "Hat"))
+        .andExpect(status().isCreated());
+
+    mockMvc.perform(get("/api/items/changes").param("since", token))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.fullResync").value(false))
+        .andExpect(jsonPath("$.items.length()").value(1))
+        .andExpect(jsonPath("$.items[0].name").value("Hat"))
+        .andExpect(jsonPath("$.deletedItemIds[0]").value(jeans.id()));
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void returnsBadRequestForMalformedSyncToken() throws Exception {
+    mockMvc.perform(get("/api/items/changes").param("since", "garbage"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void returnsPartialContentForRangeRequest() throws Exception {
+    MockMultipartFile pngImage = new MockMultipartFile(
+        "image",
+        "test.png",
+        "image/png",
+        png("")
+    );
+    mockMvc.perform(multipart("/api/items")
+            .file(pngImage)
+            .param("name", "Item with PNG"))
+        .andExpect(status().isCreated());
+    Item item = itemRepository.findAll().get(0);
+
+    mockMvc.perform(get("/api/items/{id}/image", item.id()))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Accept-Ranges", "bytes"))
+        .andExpect(header().longValue("Content-Length", 24));
+
+    mockMvc.perform(get("/api/items/{id}/image", item.id()).header("Range", "bytes=2-5"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "bytes 2-5/24"))
+        .andExpect(content().bytes(new byte[]{0x4E, 0x47, 0x0D, 0x0A}));
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void servesDownscaledThumbnailVariant() throws Exception {
+    ByteArrayOutputStream original = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(1000, 400, BufferedImage.TYPE_INT_RGB), "png", original);
+    MockMultipartFile pngImage = new MockMultipartFile(
+        "image",
+        "large.png",
+        "image/png",
+        original.toByteArray()
+    );
+    mockMvc.perform(multipart("/api/items")
+            .file(pngImage)
+            .param("name", "Item with large PNG"))
+        .andExpect(status().isCreated());
+    Item item = itemRepository.findAll().get(0);
+
+    for (int request = 0; request < 2; request++) {
+      byte[] thumbnail = mockMvc.perform(get("/api/items/{id}/image", item.id())
+              .param("variant", "thumb"))
+          .andExpect(status().isOk())
+          .andExpect(header().string("Content-Type", "image/jpeg"))
+          .andReturn().getResponse().getContentAsByteArray();
+
+      BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(thumbnail));
+      assertThat(decoded.getWidth()).isEqualTo(200);
+      assertThat(decoded.getHeight()).isEqualTo(80);
+    }
+    assertThat(mongoTemplate.getCollection("fs.files").countDocuments(
+        new Document("metadata.original_id", new ObjectId(item.imageId())))).isEqualTo(1);
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void returnsBadRequestForUnknownImageVariant() throws Exception {
+    MockMultipartFile pngImage = new MockMultipartFile(
+        "image",
+        "test.png",
+        "image/png",
+        png("png")
+    );
+    mockMvc.perform(multipart("/api/items")
+            .file(pngImage)
+            .param("name", "Item with PNG"))
+        .andExpect(status().isCreated());
+    Item item = itemRepository.findAll().get(0);
+
+    mockMvc.perform(get("/api/items/{id}/image", item.id()).param("variant", "huge"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void returnsImmutableCachingHeadersAndNotModifiedForMatchingETag() throws Exception {
+    MockMultipartFile pngImage = new MockMultipartFile(
+        "image",
+        "test.png",
+        "image/png",
+        png("png")
+    );
+    mockMvc.perform(multipart("/api/items")
+            .file(pngImage)
+            .param("name", "Item with PNG"))
+        .andExpect(status().isCreated());
+    Item item = itemRepository.findAll().get(0);
+    String eTag = "\"" + item.imageId() + "\"";
+
+    mockMvc.perform(get("/api/items/{id}/image", item.id()))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", eTag))
+        .andExpect(header().string("Cache-Control", "max-age=31536000, private, immutable"));
+
+    mockMvc.perform(get("/api/items/{id}/image", item.id()).header("If-None-Match", eTag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", eTag))
+        .andExpect(content().bytes(new byte[0]));
+
+    mockMvc.perform(get("/api/items/{id}/image", item.id())
+            .param("variant", "thumb")
+            .header("If-None-Match", eTag))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"" + item.imageId() + "-thumb\""));
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void servesImageBySignedUrlWithoutAuthentication() throws Exception {
+    MockMultipartFile pngImage = new MockMultipartFile(
+        "image",
+        "test.png",
+        "image/png",
+        png("png")
+    );
+    String imageUrl = JsonPath.read(mockMvc.perform(multipart("/api/items")
+            .file(pngImage)
+            .param("name", "Item with PNG"))
+        .andExpect(status().isCreated())
+        .andReturn().getResponse().getContentAsString(), "$.imageUrl");
+    Item item = itemRepository.findAll().get(0);
+    assertThat(imageUrl).startsWith("/api/images/signed/" + item.imageId() + "?");
+
+    mockMvc.perform(get(imageUrl).with(anonymous()))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "image/png"))
+        .andExpect(header().string("ETag", "\"" + item.imageId() + "\""))
+        .andExpect(header().string("Cache-Control",
+            org.hamcrest.Matchers.containsString("public")))
+        .andExpect(content().bytes(png("png")));
+
+    mockMvc.perform(get(imageUrl + "&variant=thumb").with(anonymous()))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"" + item.imageId() + "-thumb\""));
+
+    mockMvc.perform(get(imageUrl.replace("signature=", "signature=x")).with(anonymous()))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void returnsImageMetadataOfOwnItemsInRequestedOrder() throws Exception {
+    for (String name : List.of("Shirt", "Jeans")) {
+      mockMvc.perform(multipart("/api/items")
+              .file(new MockMultipartFile("image", name + ".png", "image/png", png(name)))
+              .param("name", name))
+          .andExpect(status().isCreated());
+    }
+    List<Item> items = itemRepository.findAll();
+    Item withoutImage = itemRepository.save(Item.create("testuser", "Belt", null, null, null,
+        null, null, null, null, null, null, null));
+    Item foreign = itemRepository.save(Item.create("otheruser", "Foreign", null, null, null,
+        null, null, null, null, null, items.get(0).imageId(), null));
+
+    mockMvc.perform(get("/api/items/images")
+            .param("ids", String.join(",", items.get(1).id(), withoutImage.id(), foreign.id(),
+                items.get(0).id(), new ObjectId().toHexString()))
+            .param("variant", "thumb"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].itemId").value(items.get(1).id()))
+        .andExpect(jsonPath("$[0].eTag").value("\"" + items.get(1).imageId() + "-thumb\""))
+        .andExpect(jsonPath("$[1].itemId").value(items.get(0).id()))
+        .andExpect(jsonPath("$[1].contentType").value("image/png"));
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void streamsImagesOfSeveralItemsAsMultipartMixed() throws Exception {
+    for (String name : List.of("Shirt", "Jeans")) {
+      mockMvc.perform(multipart("/api/items")
+              .file(new MockMultipartFile("image", name + ".png", "image/png", png(name)))
+              .param("name", name))
+          .andExpect(status().isCreated());
+    }
+    List<Item> items = itemRepository.findAll();
+
+    String body = mockMvc.perform(get("/api/items/images")
+            .param("ids", items.get(0).id(), items.get(1).id())
+            .accept(MediaType.MULTIPART_MIXED))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.MULTIPART_MIXED))
+        .andReturn().getResponse().getContentAsString(StandardCharsets.ISO_8859_1);
+
+    assertThat(body)
+        .contains("name=\"" + items.get(0).id() + "\"", "name=\"" + items.get(1).id() + "\"")
+        .contains("ETag: \"" + items.get(0).imageId() + "\"")
+        .contains(new String(png("Shirt"), StandardCharsets.ISO_8859_1))
+        .contains(new String(png("Jeans"), StandardCharsets.ISO_8859_1));
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void returnsBadRequestForTooManyItemImagesAtOnce() throws Exception {
+    String[] ids = new String[101];
+    Arrays.setAll(ids, i -> new ObjectId().toHexString());
+
+    mockMvc.perform(get("/api/items/images").param("ids", ids))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void servesSpriteLayoutAndSheetOfSeveralItems() throws Exception {
+    for (Color color : List.of(Color.RED, Color.BLUE)) {
+      mockMvc.perform(multipart("/api/items")
+              .file(new MockMultipartFile("image", "shirt.png", "image/png",
+                  solidPng(400, 200, color)))
+              .param("name", "Shirt"))
+          .andExpect(status().isCreated());
+    }
+    List<Item> items = itemRepository.findAll();
+    String ids = items.get(1).id() + "," + items.get(0).id();
+
+    String eTag = JsonPath.read(mockMvc.perform(get("/api/items/sprite").param("ids", ids))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.width").value(400))
+        .andExpect(jsonPath("$.tileSize").value(200))
+        .andExpect(jsonPath("$.tiles['" + items.get(1).id() + "'].x").value(0))
+        .andExpect(jsonPath("$.tiles['" + items.get(0).id() + "'].x").value(200))
+        .andExpect(jsonPath("$.tiles['" + items.get(0).id() + "'].height").value(100))
+        .andReturn().getResponse().getContentAsString(), "$.eTag");
+
+    byte[] sheet = mockMvc.perform(get("/api/items/sprite/image").param("ids", ids))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+        .andExpect(header().string("ETag", eTag))
+        .andReturn().getResponse().getContentAsByteArray();
+    BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(sheet));
+    assertThat(new Color(decoded.getRGB(100, 100)).getBlue()).isGreaterThan(200);
+
+    mockMvc.perform(get("/api/items/sprite/image").param("ids", ids)
+            .header("If-None-Match", eTag))
+        .andExpect(status().isNotModified());
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void findsItemsByDominantColorOfTheirImages() throws Exception {
+    for (Color color : List.of(new Color(0x1f3a93), new Color(0xc0392b))) {
+      mockMvc.perform(multipart("/api/items")
+              .file(new MockMultipartFile("image", "shirt.png", "image/png",
+                  solidPng(400, 200, color)))
+              .param("name", "Shirt"))
+          .andExpect(status().isCreated());
+    }
+    List<Item> items = itemRepository.findAll();
+
+    itemPaletteService.extractPalettes();
+
+    mockMvc.perform(get("/api/items/" + items.get(0).id()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.palette[0]").value("#1f3a93"));
+    mockMvc.perform(get("/api/items").param("nearColor", "#22408f"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].id").value(items.get(0).id()));
+    mockMvc.perform(get("/api/items").param("nearColor", "navy"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void findsItemsWithNearDuplicateImages() throws Exception {
+    // The same flat shirt photographed twice at another size, and a shaded scarf
+    List<byte[]> images = List.of(solidPng(400, 200, Color.RED), solidPng(300, 160, Color.RED),
+        shadedPng(300, 200));
+    for (byte[] image : images) {
+      mockMvc.perform(multipart("/api/items")
+              .file(new MockMultipartFile("image", "item.png", "image/png", image))
+              .param("name", "Item"))
+          .andExpect(status().isCreated());
+    }
+    List<Item> items = itemRepository.findAll();
+
+    mockMvc.perform(get("/api/items/" + items.get(0).id() + "/similar-images"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].id").value(items.get(1).id()));
+
+    mockMvc.perform(delete("/api/items/" + items.get(1).id()))
+        .andExpect(status().isNoContent());
+    mockMvc.perform(get("/api/items/" + items.get(0).id() + "/similar-images"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+    mockMvc.perform(get("/api/items/" + items.get(0).id() + "/similar-images")
+            .param("maxDistance", "65"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void storesIdenticalImagesOnlyOnce() throws Exception {
+    byte[] content = png("shirt");
+    for (String name : List.of("First shirt", "Second shirt")) {
+      mockMvc.perform(multipart("/api/items")
+              .file(new MockMultipartFile("image", "shirt.png", "image/png", content))
+              .param("name", name))
+          .andExpect(status().isCreated());
+    }
+
+    List<Item> items = itemRepository.findAll();
+    assertThat(items).extracting(Item::imageId).containsOnly(items.get(0).imageId());
+    Document file = mongoTemplate.getCollection("fs.files")
+        .find(new Document("_id", new ObjectId(items.get(0).imageId()))).first();
+    assertThat(file.getEmbedded(List.of("metadata", "ref_count"), Integer.class)).isEqualTo(2);
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void createsItemWithImageUploadedInChunks() throws Exception {
+    byte[] content = png("x".repeat(1_500_000));
+    String upload = mockMvc.perform(post("/api/images/uploads")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"contentType\": \"image/png\", \"size\": " + content.length + "}"))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.chunkCount").value(2))
+        .andReturn().getResponse().getContentAsString();
+    String uploadId = JsonPath.read(upload, "$.uploadId");
+    int chunkSize = JsonPath.read(upload, "$.chunkSize");
+
+    mockMvc.perform(put("/api/images/uploads/{id}/chunks/{index}", uploadId, 1)
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content(Arrays.copyOfRange(content, chunkSize, content.length)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.missingChunks[0]").value(0));
+    mockMvc.perform(post("/api/images/uploads/{id}/complete", uploadId))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(put("/api/images/uploads/{id}/chunks/{index}", uploadId, 0)
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content(Arrays.copyOf(content, chunkSize)))
+        .andExpect(status().isOk());
+    mockMvc.perform(post("/api/images/uploads/{id}/complete", uploadId))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.imageId").value(uploadId));
+
+    mockMvc.perform(multipart("/api/items")
+            .param("name", "Uploaded shirt")
+            .param("imageId", uploadId))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.imageId").value(uploadId));
+    Item item = itemRepository.findAll().get(0);
+    mockMvc.perform(get("/api/items/{id}/image", item.id()))
+        .andExpect(status().isOk())
+        .andExpect(content().bytes(content));
+
+    // The upload ended when the item claimed its image
+    mockMvc.perform(multipart("/api/items")
+            .param("name", "Second shirt")
+            .param("imageId", uploadId))
+        .andExpect(status().isBadRequest());
+    assertThat(itemRepository.count()).isEqualTo(1);
+  }
+
+  @Test
+  @WithMockUser(username = "testuser", authorities = {"USER"})
+  void rejectsChunkNotMatchingAnnouncedImageType() throws Exception {
+    String upload = mockMvc.perform(post("/api/images/uploads")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"contentType\": \"image/jpeg\", \"size\": 29}"))
+        .andExpect(status().isCreated())
+        .andReturn().getResponse().getContentAsString();
+    String uploadId = JsonPath.read(upload, "$.uploadId");
+
+    mockMvc.perform(put("/api/images/uploads/{id}/chunks/{index}", uploadId, 0)
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content(png("shirt")))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value(
+            org.hamcrest.Matchers.containsString("uploaded as image/jpeg")));
+  }
+
+  @Test
+  @WithMockUser(username = "otheruser", authorities = {"USER"})
+  void returnsNotFoundForUploadOfDifferentUser() throws Exception {
+    ImageUpload upload = mongoTemplate.save(ImageUpload.start("testuser", "image/png", 10, null,
+        1024, Duration.ofHours(1)));
+
+    mockMvc.perform(get("/api/images/uploads/{id}", upload.id()))
+        .andExpect(status().isNotFound());
+  }
+
+  /**
+   * A real PNG getting darker from left to right, whose hash has every bit set unlike a flat one.
+   */
+  private static byte[] shadedPng(int width, int height) throws Exception {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    for (int x = 0; x < width; x++) {
+      int level = 255 - x * 255 / width;
+      for (int y = 0; y < height; y++) {
+        image.setRGB(x, y, new Color(level, level, level).getRGB());
+      }
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", output);
+    return output.toByteArray();
+  }
 }
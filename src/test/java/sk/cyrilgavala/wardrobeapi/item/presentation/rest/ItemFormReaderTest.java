@@ -0,0 +1,219 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static sk.cyrilgavala.wardrobeapi.image.TestImages.jpeg;
+
+import jakarta.validation.Validation;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockMultipartHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.BindException;
+import sk.cyrilgavala.wardrobeapi.image.application.service.ImageStorageService;
+import sk.cyrilgavala.wardrobeapi.image.domain.exception.InvalidImageException;
+import sk.cyrilgavala.wardrobeapi.item.presentation.dto.CreateItemRequest;
+import sk.cyrilgavala.wardrobeapi.item.presentation.rest.ItemFormReader.ItemForm;
+
+@ExtendWith(MockitoExtension.class)
+class ItemFormReaderTest {
+
+  private static final String BOUNDARY = "itemFormBoundary";
+  private static final String IMAGE_ID = "507f1f77bcf86cd799439011";
+
+  @Mock
+  private ImageStorageService imageStorageService;
+
+  private ItemFormReader reader;
+
+  @BeforeEach
+  void setUp() {
+    reader = new ItemFormReader(imageStorageService,
+        Validation.buildDefaultValidatorFactory().getValidator(), DataSize.ofMegabytes(25));
+  }
+
+  @Test
+  void pipesStreamedImageIntoStoreAndBindsFields() throws Exception {
+    byte[] image = jpeg("jeans");
+    MockHttpServletRequest request = streamed(
+        field("name", "Blue Jeans"),
+        imagePart("jeans.jpg", "image/jpeg", image),
+        field("washingTemperature", "40"),
+        field("canBeIroned", "true"));
+    AtomicReference<byte[]> stored = new AtomicReference<>();
+    when(imageStorageService.storeImage(eq("jeans.jpg"), eq("image/jpeg"), any()))
+        .thenAnswer(invocation -> {
+          stored.set(invocation.getArgument(2, InputStream.class).readAllBytes());
+          return IMAGE_ID;
+        });
+
+    ItemForm<CreateItemRequest> form = reader.read(request, CreateItemRequest.class);
+
+    assertThat(form.imageId()).isEqualTo(IMAGE_ID);
+    assertThat(stored.get()).isEqualTo(image);
+    assertThat(form.request().name()).isEqualTo("Blue Jeans");
+    assertThat(form.request().washingTemperature()).isEqualTo(40);
+    assertThat(form.request().canBeIroned()).isTrue();
+  }
+
+  @Test
+  void releasesStreamedImageWhenFieldsAreInvalid() throws Exception {
+    MockHttpServletRequest request = streamed(
+        imagePart("jeans.jpg", "image/jpeg", jpeg("jeans")),
+        field("washingTemperature", "120"));
+    when(imageStorageService.storeImage(anyString(), anyString(), any())).thenReturn(IMAGE_ID);
+
+    assertThatThrownBy(() -> reader.read(request, CreateItemRequest.class))
+        .isInstanceOfSatisfying(BindException.class, e -> assertThat(
+            e.getBindingResult().getFieldErrors()).extracting("field")
+            .contains("name", "washingTemperature"));
+
+    verify(imageStorageService).deleteImage(IMAGE_ID);
+  }
+
+  @Test
+  void leavesNothingBehindWhenImageIsRejectedWhileStreaming() throws Exception {
+    MockHttpServletRequest request = streamed(
+        field("name", "Blue Jeans"),
+        imagePart("notes.txt", "text/plain", "not an image".getBytes()));
+    when(imageStorageService.storeImage(anyString(), eq("text/plain"), any()))
+        .thenThrow(InvalidImageException.invalidType("text/plain"));
+
+    assertThatThrownBy(() -> reader.read(request, CreateItemRequest.class))
+        .isInstanceOf(InvalidImageException.class);
+
+    verify(imageStorageService, never()).deleteImage(any());
+  }
+
+  @Test
+  void ignoresFilePartOfFormSentWithoutChoosingFile() throws Exception {
+    MockHttpServletRequest request = streamed(
+        field("name", "Blue Jeans"),
+        imagePart("", "application/octet-stream", new byte[0]));
+
+    ItemForm<CreateItemRequest> form = reader.read(request, CreateItemRequest.class);
+
+    assertThat(form.hasImage()).isFalse();
+    verify(imageStorageService, never()).storeImage(any(), any(), any());
+  }
+
+  @Test
+  void rejectsMalformedBody() {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/items");
+    request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+    request.setContent("--other\r\n".getBytes(StandardCharsets.US_ASCII));
+
+    assertThatThrownBy(() -> reader.read(request, CreateItemRequest.class))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("ended before its closing boundary");
+  }
+
+  @Test
+  void rejectsBodyBrokenOffInsideImageAsMalformed() throws Exception {
+    byte[] body = streamed(imagePart("jeans.jpg", "image/jpeg", jpeg("jeans")))
+        .getContentAsByteArray();
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/items");
+    request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+    request.setContent(Arrays.copyOf(body, body.length - 10));
+    when(imageStorageService.storeImage(anyString(), anyString(), any()))
+        .thenAnswer(invocation -> {
+          try {
+            invocation.getArgument(2, InputStream.class).transferTo(OutputStream.nullOutputStream());
+            return IMAGE_ID;
+          } catch (IOException e) {
+            throw new RuntimeException("Failed to store image", e);
+          }
+        });
+
+    assertThatThrownBy(() -> reader.read(request, CreateItemRequest.class))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("ended before its closing boundary");
+  }
+
+  @Test
+  void rejectsOversizedField() {
+    MockHttpServletRequest request = streamed(field("description", "x".repeat(20_000)));
+
+    assertThatThrownBy(() -> reader.read(request, CreateItemRequest.class))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("description");
+  }
+
+  @Test
+  void storesImageOfFormResolvedByMultipartResolver() throws Exception {
+    MockMultipartHttpServletRequest request = new MockMultipartHttpServletRequest();
+    request.addParameter("name", "Blue Jeans");
+    MockMultipartFile image = new MockMultipartFile("image", "jeans.jpg", "image/jpeg",
+        jpeg("jeans"));
+    request.addFile(image);
+    when(imageStorageService.storeImage(image)).thenReturn(IMAGE_ID);
+
+    ItemForm<CreateItemRequest> form = reader.read(request, CreateItemRequest.class);
+
+    assertThat(form.request().name()).isEqualTo("Blue Jeans");
+    assertThat(form.imageId()).isEqualTo(IMAGE_ID);
+    verify(imageStorageService, never()).storeImage(any(), any(), any());
+  }
+
+  @Test
+  void storesNoImageOfResolvedFormWithInvalidFields() {
+    MockMultipartHttpServletRequest request = new MockMultipartHttpServletRequest();
+    request.addParameter("washingTemperature", "120");
+    request.addFile(new MockMultipartFile("image", "jeans.jpg", "image/jpeg", jpeg("jeans")));
+
+    assertThatThrownBy(() -> reader.read(request, CreateItemRequest.class))
+        .isInstanceOf(BindException.class);
+
+    verifyNoInteractions(imageStorageService);
+  }
+
+  private static MockHttpServletRequest streamed(byte[]... parts) {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      body.writeBytes(ascii("--" + BOUNDARY + "\r\n"));
+      body.writeBytes(part);
+      body.writeBytes(ascii("\r\n"));
+    }
+    body.writeBytes(ascii("--" + BOUNDARY + "--\r\n"));
+
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/items");
+    request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+    request.setContent(body.toByteArray());
+    return request;
+  }
+
+  private static byte[] field(String name, String value) {
+    return ascii("Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value);
+  }
+
+  private static byte[] imagePart(String fileName, String contentType, byte[] content) {
+    ByteArrayOutputStream part = new ByteArrayOutputStream();
+    part.writeBytes(ascii("Content-Disposition: form-data; name=\"image\"; filename=\""
+        + fileName + "\"\r\nContent-Type: " + contentType + "\r\n\r\n"));
+    part.writeBytes(content);
+    return part.toByteArray();
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,122 @@
+package sk.cyrilgavala.wardrobeapi.item.presentation.sse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import sk.cyrilgavala.wardrobeapi.image.infrastructure.security.ImageUrlSigner;
+import sk.cyrilgavala.wardrobeapi.item.domain.event.ItemChangedEvent;
+import sk.cyrilgavala.wardrobeapi.item.domain.model.Item;
+import sk.cyrilgavala.wardrobeapi.item.presentation.mapper.ItemDtoMapper;
+
+@ExtendWith(MockitoExtension.class)
+class ItemEventBroadcasterTest {
+
+  @Mock
+  private ExecutorService sendExecutor;
+
+  private ItemEventBroadcaster broadcaster;
+
+  @BeforeEach
+  void setUp() {
+    ItemDtoMapper mapper = new ItemDtoMapper(new ImageUrlSigner("test-image-url-secret", 60));
+    broadcaster = new ItemEventBroadcaster(mapper, 2, 60_000L, sendExecutor);
+  }
+
+  @Test
+  void deliversEventsOnlyToStreamsOfOwningUser() {
+    runTasksImmediately();
+    RecordingEmitter ownerEmitter = new RecordingEmitter();
+    RecordingEmitter otherEmitter = new RecordingEmitter();
+    broadcaster.register("user123", ownerEmitter);
+    broadcaster.register("user456", otherEmitter);
+
+    broadcaster.onItemChanged(ItemChangedEvent.created(item("user123")));
+
+    assertThat(ownerEmitter.sent).hasSize(1);
+    assertThat(otherEmitter.sent).isEmpty();
+  }
+
+  @Test
+  void ignoresEventsOfUsersWithoutStreams() {
+    broadcaster.onItemChanged(ItemChangedEvent.created(item("user123")));
+
+    verify(sendExecutor, never()).execute(any());
+  }
+
+  @Test
+  void sendsHeartbeatsToAllStreams() {
+    runTasksImmediately();
+    RecordingEmitter firstEmitter = new RecordingEmitter();
+    RecordingEmitter secondEmitter = new RecordingEmitter();
+    broadcaster.register("user123", firstEmitter);
+    broadcaster.register("user456", secondEmitter);
+
+    broadcaster.sendHeartbeats();
+
+    assertThat(firstEmitter.sent).hasSize(1);
+    assertThat(secondEmitter.sent).hasSize(1);
+  }
+
+  @Test
+  void disconnectsConsumerWhoseBufferOverflows() {
+    // Tasks are never run, so nothing is drained from the buffer
+    broadcaster.register("user123", new RecordingEmitter());
+
+    broadcaster.onItemChanged(ItemChangedEvent.created(item("user123")));
+    broadcaster.onItemChanged(ItemChangedEvent.updated(item("user123")));
+    assertThat(broadcaster.subscriberCount("user123")).isEqualTo(1);
+
+    broadcaster.onItemChanged(ItemChangedEvent.updated(item("user123")));
+
+    assertThat(broadcaster.subscriberCount("user123")).isZero();
+  }
+
+  @Test
+  void unsubscribesStreamThatFailsToSend() {
+    runTasksImmediately();
+    broadcaster.register("user123", new RecordingEmitter() {
+      @Override
+      public void send(SseEventBuilder builder) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    });
+
+    broadcaster.onItemChanged(ItemChangedEvent.created(item("user123")));
+
+    assertThat(broadcaster.subscriberCount("user123")).isZero();
+  }
+
+  private void runTasksImmediately() {
+    doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).when(sendExecutor).execute(any());
+  }
+
+  private static Item item(String userId) {
+    return Item.builder().id("item1").userId(userId).name("Shirt").build();
+  }
+
+  private static class RecordingEmitter extends SseEmitter {
+
+    private final List<SseEventBuilder> sent = new ArrayList<>();
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      sent.add(builder);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package sk.cyrilgavala.wardrobeapi.shared.presentation.multipart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import sk.cyrilgavala.wardrobeapi.shared.presentation.multipart.MultipartStreamReader.Part;
+
+class MultipartStreamReaderTest {
+
+  private static final String BOUNDARY = "----form7MA4YWxk";
+  private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+
+  @Test
+  void readsFieldAndFilePartsBetweenPreambleAndEpilogue() throws IOException {
+    byte[] body = body("preamble to ignore\r\n",
+        "--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"name\"\r\n\r\n",
+        "Blue Jeans\r\n",
+        "--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"image\"; filename=\"jeans.jpg\"\r\n",
+        "Content-Type: image/jpeg\r\n\r\n",
+        "jpeg bytes\r\n",
+        "--" + BOUNDARY + "--\r\n",
+        "epilogue to ignore");
+    MultipartStreamReader reader = MultipartStreamReader.open(CONTENT_TYPE,
+        new ByteArrayInputStream(body), 1024);
+
+    Part field = reader.next();
+    assertThat(field.name()).isEqualTo("name");
+    assertThat(field.isFile()).isFalse();
+    assertThat(field.content().readAllBytes()).asString().isEqualTo("Blue Jeans");
+
+    Part file = reader.next();
+    assertThat(file.name()).isEqualTo("image");
+    assertThat(file.fileName()).isEqualTo("jeans.jpg");
+    assertThat(file.contentType()).isEqualTo("image/jpeg");
+    assertThat(file.content().readAllBytes()).asString().isEqualTo("jpeg bytes");
+
+    assertThat(reader.next()).isNull();
+    assertThat(reader.next()).isNull();
+  }
+
+  @Test
+  void passesLargePartThroughUnchangedWhileBodyTricklesIn() throws IOException {
+    byte[] content = new byte[300 * 1024];
+    new Random(42).nextBytes(content);
+    // Almost a delimiter, which has to be passed on as content
+    byte[] nearMiss = ("\r\n--" + BOUNDARY.substring(0, 10)).getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(nearMiss, 0, content, 100_000, nearMiss.length);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.writeBytes(body("--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"image\"; filename=\"big.png\"\r\n\r\n"));
+    body.writeBytes(content);
+    body.writeBytes(body("\r\n--" + BOUNDARY + "--"));
+    MultipartStreamReader reader = MultipartStreamReader.open(CONTENT_TYPE,
+        new TricklingInputStream(body.toByteArray(), 7), body.size());
+
+    Part part = reader.next();
+
+    assertThat(part.content().readAllBytes()).isEqualTo(content);
+    assertThat(reader.next()).isNull();
+  }
+
+  @Test
+  void skipsUnreadRestOfPartWhenMovingOn() throws IOException {
+    byte[] body = body("--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"ignored\"; filename=\"a.bin\"\r\n\r\n",
+        "x".repeat(100_000) + "\r\n",
+        "--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"color\"\r\n\r\n",
+        "Blue\r\n",
+        "--" + BOUNDARY + "--");
+    MultipartStreamReader reader = MultipartStreamReader.open(CONTENT_TYPE,
+        new ByteArrayInputStream(body), body.length);
+
+    Part skipped = reader.next();
+    assertThat(skipped.content().read()).isEqualTo('x');
+    Part next = reader.next();
+
+    assertThat(next.name()).isEqualTo("color");
+    assertThat(next.content().readAllBytes()).asString().isEqualTo("Blue");
+    assertThat(skipped.content().read()).isEqualTo(-1);
+  }
+
+  @Test
+  void tellsEmptyPartsApartWithoutConsumingContent() throws IOException {
+    byte[] body = body("--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"image\"; filename=\"\"\r\n",
+        "Content-Type: application/octet-stream\r\n\r\n",
+        "\r\n",
+        "--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"brand\"\r\n\r\n",
+        "Levi's\r\n",
+        "--" + BOUNDARY + "--");
+    MultipartStreamReader reader = MultipartStreamReader.open(CONTENT_TYPE,
+        new ByteArrayInputStream(body), body.length);
+
+    assertThat(reader.next().isEmpty()).isTrue();
+    Part brand = reader.next();
+    assertThat(brand.isEmpty()).isFalse();
+    assertThat(brand.content().readAllBytes()).asString().isEqualTo("Levi's");
+  }
+
+  @Test
+  void acceptsQuotedBoundary() throws IOException {
+    byte[] body = body("--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"size\"\r\n\r\n",
+        "M\r\n",
+        "--" + BOUNDARY + "--");
+    MultipartStreamReader reader = MultipartStreamReader.open(
+        "multipart/form-data; boundary=\"" + BOUNDARY + "\"", new ByteArrayInputStream(body),
+        body.length);
+
+    assertThat(reader.next().content().readAllBytes()).asString().isEqualTo("M");
+  }
+
+  @Test
+  void failsWhenBodyEndsBeforeClosingBoundary() throws IOException {
+    byte[] body = body("--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"image\"; filename=\"cut.jpg\"\r\n\r\n",
+        "truncated upload");
+    MultipartStreamReader reader = MultipartStreamReader.open(CONTENT_TYPE,
+        new ByteArrayInputStream(body), body.length);
+
+    Part part = reader.next();
+
+    assertThatThrownBy(() -> part.content().readAllBytes())
+        .isInstanceOf(MultipartStreamException.class)
+        .hasMessageContaining("ended before its closing boundary");
+  }
+
+  @Test
+  void failsOnceBodyExceedsMaximumSize() throws IOException {
+    byte[] body = body("--" + BOUNDARY + "\r\n",
+        "Content-Disposition: form-data; name=\"image\"; filename=\"big.jpg\"\r\n\r\n",
+        "x".repeat(200_000) + "\r\n",
+        "--" + BOUNDARY + "--");
+    MultipartStreamReader reader = MultipartStreamReader.open(CONTENT_TYPE,
+        new ByteArrayInputStream(body), 100_000);
+
+    Part part = reader.next();
+
+    assertThatThrownBy(() -> part.content().readAllBytes())
+        .isInstanceOf(MultipartStreamException.class)
+        .hasMessageContaining("exceeds maximum allowed size of 100000 bytes");
+  }
+
+  @Test
+  void rejectsPartWithoutContentDisposition() {
+    byte[] body = body("--" + BOUNDARY + "\r\n",
+        "Content-Type: text/plain\r\n\r\n",
+        "anonymous\r\n",
+        "--" + BOUNDARY + "--");
+
+    assertThatThrownBy(() -> MultipartStreamReader.open(CONTENT_TYPE,
+        new ByteArrayInputStream(body), body.length).next())
+        .isInstanceOf(MultipartStreamException.class)
+        .hasMessageContaining("Content-Disposition");
+  }
+
+  @Test
+  void rejectsRequestsThatAreNotMultipartForms() {
+    assertThatThrownBy(() -> MultipartStreamReader.open("multipart/form-data",
+        InputStream.nullInputStream(), 1024))
+        .isInstanceOf(MultipartStreamException.class);
+    assertThatThrownBy(() -> MultipartStreamReader.open("application/json",
+        InputStream.nullInputStream(), 1024))
+        .isInstanceOf(MultipartStreamException.class);
+    assertThatThrownBy(() -> MultipartStreamReader.open(null, InputStream.nullInputStream(), 1024))
+        .isInstanceOf(MultipartStreamException.class);
+  }
+
+  private static byte[] body(String... lines) {
+    return String.join("", lines).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Hands out at most a few bytes per read, like a slow connection.
+   */
+  private static final class TricklingInputStream extends ByteArrayInputStream {
+
+    private final int maxRead;
+
+    private TricklingInputStream(byte[] content, int maxRead) {
+      super(content);
+      this.maxRead = maxRead;
+    }
+
+    @Override
+    public synchronized int read(byte[] target, int offset, int length) {
+      return super.read(target, offset, Math.min(length, maxRead));
+    }
+  }
+}